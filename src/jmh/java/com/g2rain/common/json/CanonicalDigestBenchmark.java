@@ -0,0 +1,111 @@
+package com.g2rain.common.json;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link JsonCodec#canonicalDigest(byte[], MessageDigest)} 的基准测试，覆盖 1 KB、100 KB 与 5 MB 的文档。</p>
+ *
+ * <p>{@code sortThenDigest} 先排序为字符串再计算摘要，作为对照；{@code bytes} 与 {@code stream}
+ * 分别从字节数组与输入流读取，排序结果直接分块写入摘要。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="CanonicalDigestBenchmark -prof gc"
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanonicalDigestBenchmark {
+
+    /**
+     * 文档的目标字节数
+     */
+    @Param({"1024", "102400", "5242880"})
+    private int size;
+
+    /**
+     * 被测编解码器
+     */
+    private JsonCodec jsonCodec;
+
+    /**
+     * 复用的摘要算法实例
+     */
+    private MessageDigest digest;
+
+    /**
+     * 字段无序的 JSON 文档
+     */
+    private byte[] document;
+
+    /**
+     * 生成不小于目标字节数的文档。
+     *
+     * @throws NoSuchAlgorithmException 不支持 SHA-256 时抛出
+     */
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        jsonCodec = JsonCodecFactory.instance();
+        digest = MessageDigest.getInstance("SHA-256");
+
+        StringBuilder json = new StringBuilder(size + 64).append('[');
+        for (int i = 0; json.length() < size; i++) {
+            json.append(i > 0 ? "," : "").append("{\"z\":").append(i).append(",\"m\":\"名称").append(i)
+                .append("\",\"a\":{\"y\":").append(i * 0.5).append(",\"b\":[true,null]}}");
+        }
+        document = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 先排序为字符串再计算摘要。
+     *
+     * @return 摘要字节
+     */
+    @Benchmark
+    public byte[] sortThenDigest() {
+        return digest.digest(jsonCodec.sort(document).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 从字节数组读取并分块写入摘要。
+     *
+     * @return 摘要字节
+     */
+    @Benchmark
+    public byte[] bytes() {
+        return jsonCodec.canonicalDigest(document, digest);
+    }
+
+    /**
+     * 从输入流读取并分块写入摘要。
+     *
+     * @return 摘要字节
+     */
+    @Benchmark
+    public byte[] stream() {
+        return jsonCodec.canonicalDigest(new ByteArrayInputStream(document), digest);
+    }
+}
@@ -0,0 +1,109 @@
+package com.g2rain.common.json;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.DeserializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>{@link JsonCodec} 读取器的基准测试，对比从缓存中复用读取器与每次调用都创建读取器的开销。</p>
+ *
+ * <p>{@code perCall} 对应合并前 {@code readValue(JsonParser, Class)} 的实现，每条消息都创建一次读取器；
+ * {@code cached} 通过 {@link JsonCodec#readValue(JsonParser, Class)} 从缓存中复用；
+ * {@code document} 使用校验剩余 Token 的读取器读取完整文档。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="JsonCodecReaderBenchmark"
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecReaderBenchmark {
+
+    /**
+     * 被测编解码器
+     */
+    private JsonCodec jsonCodec;
+
+    /**
+     * 一条消息的 JSON 字节
+     */
+    private byte[] message;
+
+    /**
+     * 准备编解码器与消息内容。
+     */
+    @Setup
+    public void setup() {
+        jsonCodec = JsonCodecFactory.instance();
+        message = """
+            {"id":1024,"name":"order-1024","amount":12.50,"tags":["a","b","c"]}
+            """.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 每次调用都创建不校验剩余 Token 的读取器。
+     *
+     * @return 读取的对象
+     */
+    @Benchmark
+    public Payload perCall() {
+        try (JsonParser parser = jsonCodec.createParser(message, 0, message.length)) {
+            return jsonCodec.jsonMapper.readerFor(Payload.class)
+                .without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS).readValue(parser);
+        }
+    }
+
+    /**
+     * 从缓存中复用不校验剩余 Token 的读取器。
+     *
+     * @return 读取的对象
+     */
+    @Benchmark
+    public Payload cached() {
+        try (JsonParser parser = jsonCodec.createParser(message, 0, message.length)) {
+            return jsonCodec.readValue(parser, Payload.class);
+        }
+    }
+
+    /**
+     * 从缓存中复用校验剩余 Token 的读取器读取完整文档。
+     *
+     * @return 读取的对象
+     */
+    @Benchmark
+    public Payload document() {
+        return jsonCodec.reader(Payload.class).readValue(message);
+    }
+
+    /**
+     * 基准测试使用的消息类型
+     *
+     * @param id     编号
+     * @param name   名称
+     * @param amount 金额
+     * @param tags   标签
+     */
+    public record Payload(long id, String name, double amount, List<String> tags) {
+    }
+}
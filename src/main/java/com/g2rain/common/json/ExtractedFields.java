@@ -0,0 +1,84 @@
+package com.g2rain.common.json;
+
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.Objects;
+
+/**
+ * <p>{@link JsonCodec#extract(byte[], java.util.Set)} 的提取结果，按请求的路径保存找到的节点。</p>
+ *
+ * <p>结果以两个平行数组保存，只包含请求的少量路径，按路径线性查找，不构建映射表。
+ * 路径不存在时返回 {@code null}，JSON {@code null} 值返回对应的空节点，与 {@link JsonCodec#lookupNode(JsonNode, String)} 一致。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * ExtractedFields fields = codec.extract(body, Set.of(TENANT, ORDER_ID));
+ * String tenant = codec.asString(fields.get(TENANT));
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public final class ExtractedFields {
+    /**
+     * 请求的路径
+     */
+    private final JsonPointerPath[] paths;
+
+    /**
+     * 与路径一一对应的节点，未找到为 {@code null}
+     */
+    private final JsonNode[] values;
+
+    /**
+     * 创建提取结果。
+     *
+     * @param paths  请求的路径
+     * @param values 与路径一一对应的节点
+     */
+    ExtractedFields(JsonPointerPath[] paths, JsonNode[] values) {
+        this.paths = paths;
+        this.values = values;
+    }
+
+    /**
+     * 获取路径对应的节点。
+     *
+     * @param path 请求时传入的路径
+     * @return 节点，路径不存在或未请求时返回 {@code null}
+     */
+    public JsonNode get(JsonPointerPath path) {
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].equals(path)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断路径是否存在，值为 JSON {@code null} 时同样返回 {@code true}。
+     *
+     * @param path 请求时传入的路径
+     * @return 存在返回 {@code true}
+     */
+    public boolean contains(JsonPointerPath path) {
+        return Objects.nonNull(get(path));
+    }
+
+    /**
+     * 获取找到的路径数。
+     *
+     * @return 找到的路径数
+     */
+    public int size() {
+        int size = 0;
+        for (JsonNode value : values) {
+            if (Objects.nonNull(value)) {
+                size++;
+            }
+        }
+        return size;
+    }
+}
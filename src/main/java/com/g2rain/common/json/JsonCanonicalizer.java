@@ -0,0 +1,169 @@
+package com.g2rain.common.json;
+
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.exc.MismatchedInputException;
+import tools.jackson.databind.util.TokenBuffer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * <p>流式 JSON 规范化器，按字段名的 Unicode 字典序对对象字段排序，边读取边写入生成器，不构建完整的 {@link JsonNode} 树。</p>
+ *
+ * <p>只有正在排序的对象需要缓冲：对象的标量字段按值暂存，容器字段以已排序的 Token 序列暂存，
+ * 读到对象结束后按字段名顺序写出。数组与标量不需要重排，不在对象内时直接写出。</p>
+ *
+ * <p>输出与先读取为 {@link JsonNode} 树、排序后再序列化的结果逐字节一致：重复字段保留最后一个值；
+ * 整数按 int、long、BigInteger 的最小类型输出；浮点数按 {@link BigDecimal#toString()} 输出
+ * （对应 {@code USE_BIG_DECIMAL_FOR_FLOATS}）；字符串重新转义。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * try (JsonParser parser = jsonMapper.createParser(bytes);
+ *      JsonGenerator generator = jsonMapper.createGenerator(out)) {
+ *     JsonCanonicalizer.canonicalize(parser, generator);
+ * }
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+final class JsonCanonicalizer {
+
+    /**
+     * 工具类，禁止实例化
+     */
+    private JsonCanonicalizer() {
+    }
+
+    /**
+     * 读取解析器中的唯一一个 JSON 值，以字段排序后的形式写入生成器。
+     *
+     * @param parser    尚未读取任何 Token 的解析器
+     * @param generator 目标生成器
+     * @throws MismatchedInputException 输入没有内容，或值之后还有剩余 Token
+     */
+    static void canonicalize(JsonParser parser, JsonGenerator generator) {
+        if (Objects.isNull(parser.nextToken())) {
+            throw MismatchedInputException.from(parser, JsonNode.class, "No content to map due to end-of-input");
+        }
+
+        write(parser, generator);
+
+        JsonToken trailing = parser.nextToken();
+        if (Objects.nonNull(trailing)) {
+            throw MismatchedInputException.from(parser, JsonNode.class,
+                "Trailing token (`JsonToken." + trailing + "`) found after value");
+        }
+    }
+
+    /**
+     * 写出解析器当前位置的值，读取后解析器停留在该值的最后一个 Token 上。
+     *
+     * @param parser    停留在值第一个 Token 上的解析器
+     * @param generator 目标生成器
+     */
+    private static void write(JsonParser parser, JsonGenerator generator) {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            writeObject(parser, generator);
+            return;
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            // 数组保持原有顺序，元素逐个写出
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                write(parser, generator);
+            }
+            generator.writeEndArray();
+            return;
+        }
+
+        writeScalar(generator, readScalar(parser));
+    }
+
+    /**
+     * 缓冲对象的全部字段，读到对象结束后按字段名排序写出。
+     *
+     * @param parser    停留在对象起始 Token 上的解析器
+     * @param generator 目标生成器
+     */
+    private static void writeObject(JsonParser parser, JsonGenerator generator) {
+        // 同名字段后者覆盖前者，与对象树的行为一致
+        TreeMap<String, Object> members = new TreeMap<>();
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                TokenBuffer buffer = TokenBuffer.forGeneration();
+                write(parser, buffer);
+                members.put(name, buffer);
+            } else {
+                members.put(name, readScalar(parser));
+            }
+        }
+
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> member : members.entrySet()) {
+            generator.writeName(member.getKey());
+            if (member.getValue() instanceof TokenBuffer buffer) {
+                buffer.serialize(generator);
+            } else {
+                writeScalar(generator, member.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * 读取解析器当前位置的标量值，数字转换为对象树中对应节点的数值类型。
+     *
+     * @param parser 停留在标量 Token 上的解析器
+     * @return 标量值，JSON {@code null} 返回 {@code null}
+     * @throws StreamReadException 当前 Token 不是标量
+     */
+    private static Object readScalar(JsonParser parser) {
+        JsonToken token = parser.currentToken();
+        return switch (token) {
+            case VALUE_STRING -> parser.getString();
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> parser.getIntValue();
+                case LONG -> parser.getLongValue();
+                default -> parser.getBigIntegerValue();
+            };
+            case VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new StreamReadException(parser, "Unexpected token " + token);
+        };
+    }
+
+    /**
+     * 写出标量值。
+     *
+     * @param generator 目标生成器
+     * @param value     由 {@link #readScalar(JsonParser)} 读取的标量值
+     */
+    private static void writeScalar(JsonGenerator generator, Object value) {
+        switch (value) {
+            case null -> generator.writeNull();
+            case String text -> generator.writeString(text);
+            case Integer number -> generator.writeNumber(number);
+            case Long number -> generator.writeNumber(number);
+            case BigInteger number -> generator.writeNumber(number);
+            case BigDecimal number -> generator.writeNumber(number);
+            case Boolean bool -> generator.writeBoolean(bool);
+            default -> throw new IllegalStateException("Unexpected scalar " + value.getClass());
+        }
+    }
+}
@@ -5,20 +5,33 @@ import com.g2rain.common.exception.BusinessException;
 import com.g2rain.common.utils.Collections;
 import com.g2rain.common.utils.Constants;
 import com.g2rain.common.utils.Strings;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.StreamReadFeature;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.exc.JacksonIOException;
 import tools.jackson.core.type.TypeReference;
-import tools.jackson.databind.JavaType;
+import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
 import tools.jackson.databind.json.JsonMapper;
-import tools.jackson.databind.node.ObjectNode;
-
+import tools.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
-import java.util.Comparator;
-import java.util.Deque;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * <p>{@code JsonCodec} 是基于 Jackson {@link JsonMapper} 封装的 JSON 编解码工具类。</p>
@@ -38,10 +51,18 @@ import java.util.Objects;
  * byte[] jsonBytes = codec.obj2byte(obj);
  * MyObject obj3 = codec.byte2obj(jsonBytes, new TypeReference<MyObject>() {});
  *
+ * // 热点调用点复用预先解析的读取器与写入器
+ * List<MyObject> list = codec.reader(List.class, MyObject.class).readValue(jsonStr);
+ * byte[] bytes = codec.writer(MyObject.class).writeValueAsBytes(obj);
+ *
  * JsonNode node = codec.byte2node(jsonBytes);
  * JsonNode subNode = codec.lookupNode(node, "path.to.node");
  *
+ * // 只取少数字段时流式提取，不构建对象树
+ * ExtractedFields fields = codec.extract(jsonBytes, Set.of(JsonPointerPath.dotted("path.to.node")));
+ *
  * String sortedJson = codec.sort(jsonBytes);
+ * byte[] hash = codec.canonicalDigest(jsonBytes, MessageDigest.getInstance("SHA-256"));
  * }</pre>
  *
  * @author alpha
@@ -55,6 +76,31 @@ public class JsonCodec {
      */
     final JsonMapper jsonMapper;
 
+    /**
+     * 类型化读取器与写入器缓存的容量
+     */
+    static final int TYPE_CACHE_CAPACITY = 512;
+
+    /**
+     * 按类型缓存的读取器，键为 {@link Class}、{@link ParametricType} 或 {@link TypeReference#getType()}
+     */
+    private final TypeCache<Object, ObjectReader> readers = new TypeCache<>(TYPE_CACHE_CAPACITY);
+
+    /**
+     * 按类型缓存的、不校验值之后剩余 Token 的读取器，键为 {@link Class} 或 {@link ParametricType}
+     */
+    private final TypeCache<Object, ObjectReader> valueReaders = new TypeCache<>(TYPE_CACHE_CAPACITY);
+
+    /**
+     * 按类型缓存的写入器
+     */
+    private final TypeCache<Class<?>, ObjectWriter> writers = new TypeCache<>(TYPE_CACHE_CAPACITY);
+
+    /**
+     * 在 Token 流中间读取 {@link JsonNode} 的读取器，供多路径提取使用
+     */
+    private final ObjectReader nodeReader;
+
     /**
      * 构造 {@code JsonCodec} 实例。
      *
@@ -62,6 +108,7 @@ public class JsonCodec {
      */
     JsonCodec(JsonMapper jsonMapper) {
         this.jsonMapper = jsonMapper;
+        this.nodeReader = reader(false, JsonNode.class);
     }
 
     /**
@@ -142,8 +189,7 @@ public class JsonCodec {
         if (Strings.isBlank(str)) {
             return null;
         }
-        JavaType type = jsonMapper.getTypeFactory().constructParametricType(rawClass, typeArgs);
-        return jsonMapper.readValue(str, type);
+        return reader(rawClass, typeArgs).readValue(str);
     }
 
     /**
@@ -160,7 +206,139 @@ public class JsonCodec {
             return null;
         }
 
-        return jsonMapper.readValue(bytes, typeRef);
+        return readers.get(typeRef.getType(), type -> jsonMapper.readerFor(typeRef)).readValue(bytes);
+    }
+
+    /**
+     * 将 JSON 字节数组指定区间内的内容反序列化为对象。
+     *
+     * @param bytes     JSON 字节数组
+     * @param offset    起始位置
+     * @param length    字节长度
+     * @param valueType 目标类型
+     * @param <T>       对象类型
+     * @return 反序列化对象，区间为空返回 {@code null}
+     * @throws BusinessException 反序列化失败时抛出
+     */
+    public <T> T byte2obj(byte[] bytes, int offset, int length, Class<T> valueType) {
+        if (Collections.isEmpty(bytes) || length <= 0) {
+            return null;
+        }
+
+        return reader(valueType).readValue(bytes, offset, length);
+    }
+
+    /**
+     * 获取绑定指定类型的读取器，读取时校验值之后没有剩余 Token，等同于 {@code reader(true, rawClass, typeArgs)}。
+     *
+     * @param rawClass 原始类
+     * @param typeArgs 泛型类型参数，为空时按原始类解析
+     * @return 可复用的读取器
+     */
+    public ObjectReader reader(Class<?> rawClass, Class<?>... typeArgs) {
+        return reader(true, rawClass, typeArgs);
+    }
+
+    /**
+     * 获取绑定指定类型的读取器，类型与反序列化器只在首次获取时解析，之后从有界缓存中复用。
+     * <p>读取器不可变且线程安全，可直接用于热点调用点；缓存超出容量时淘汰最久未使用的类型。</p>
+     *
+     * <p>读取完整文档时应校验剩余 Token，避免 {@code {"a":1} xyz} 之类的输入被静默截断；
+     * 在流式解析器中间读取某个嵌套值、之后还要继续读取后续内容时，必须关闭校验。</p>
+     *
+     * @param failOnTrailingTokens 读取值之后是否校验没有剩余 Token
+     * @param rawClass             原始类
+     * @param typeArgs             泛型类型参数，为空时按原始类解析
+     * @return 可复用的读取器
+     */
+    public ObjectReader reader(boolean failOnTrailingTokens, Class<?> rawClass, Class<?>... typeArgs) {
+        Objects.requireNonNull(rawClass, "rawClass");
+        TypeCache<Object, ObjectReader> cache = failOnTrailingTokens ? readers : valueReaders;
+        if (typeArgs.length == 0) {
+            return cache.get(rawClass, type -> configure(jsonMapper.readerFor(rawClass), failOnTrailingTokens));
+        }
+
+        return cache.get(new ParametricType(rawClass, List.of(typeArgs)), type -> configure(jsonMapper.readerFor(
+            jsonMapper.getTypeFactory().constructParametricType(rawClass, typeArgs)), failOnTrailingTokens));
+    }
+
+    /**
+     * 按选项设置读取器是否校验剩余 Token，不依赖 {@link JsonMapper} 上的默认配置。
+     *
+     * @param reader               读取器
+     * @param failOnTrailingTokens 是否校验剩余 Token
+     * @return 设置后的读取器
+     */
+    private static ObjectReader configure(ObjectReader reader, boolean failOnTrailingTokens) {
+        return failOnTrailingTokens ? reader.with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            : reader.without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    }
+
+    /**
+     * 获取以指定类型序列化的写入器，序列化器只在首次获取时解析，之后从有界缓存中复用。
+     * <p>写入器不可变且线程安全；值按该类型而非运行时类型序列化。</p>
+     *
+     * @param type 序列化类型
+     * @return 可复用的写入器
+     */
+    public ObjectWriter writer(Class<?> type) {
+        Objects.requireNonNull(type, "type");
+        return writers.get(type, jsonMapper::writerFor);
+    }
+
+    /**
+     * 基于 JSON 字符串创建流式解析器，供调用方按 Token 逐个读取。
+     * <p>调用方负责关闭返回的解析器。</p>
+     *
+     * @param str JSON 字符串
+     * @return 流式解析器
+     */
+    public JsonParser createParser(String str) {
+        return jsonMapper.createParser(str);
+    }
+
+    /**
+     * 基于 UTF-8 字节数组的指定区间创建流式解析器，直接解析字节，无需先解码为字符串。
+     * <p>调用方负责关闭返回的解析器。</p>
+     *
+     * @param bytes  JSON 字节数组
+     * @param offset 起始位置
+     * @param length 字节长度
+     * @return 流式解析器
+     */
+    public JsonParser createParser(byte[] bytes, int offset, int length) {
+        return jsonMapper.createParser(bytes, offset, length);
+    }
+
+    /**
+     * 基于 UTF-8 字节缓冲区中剩余的内容创建流式解析器。
+     * <p>堆缓冲区直接解析其底层数组，直接缓冲区则通过输入流读取，均不复制数据，也不会改变缓冲区的位置。
+     * 调用方负责关闭返回的解析器。</p>
+     *
+     * @param buffer JSON 字节缓冲区
+     * @return 流式解析器
+     */
+    public JsonParser createParser(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return jsonMapper.createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        return jsonMapper.createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    /**
+     * 从流式解析器的当前位置读取一个完整的值并绑定为指定类型。
+     * <p>若解析器尚未读取任何 Token，会先前进到第一个 Token；读取完成后调用方可通过 {@code nextToken()} 继续读取该值之后的内容。
+     * 由于该值通常只是更大文档的一部分，读取时不校验其后是否还有剩余 Token；读取器从缓存中复用，
+     * 热点调用点也可以通过 {@code reader(false, valueType)} 直接持有。</p>
+     *
+     * @param parser    流式解析器
+     * @param valueType 目标类型
+     * @param <T>       对象类型
+     * @return 反序列化对象
+     */
+    public <T> T readValue(JsonParser parser, Class<T> valueType) {
+        return reader(false, valueType).readValue(parser);
     }
 
     /**
@@ -180,6 +358,8 @@ public class JsonCodec {
 
     /**
      * 按路径查找 {@link JsonNode} 节点。
+     * <p>数字路径段在数组上按下标取元素。固定路径建议用 {@link JsonPointerPath#dotted(String)} 预编译后调用
+     * {@link JsonPointerPath#evaluate(JsonNode)}。</p>
      *
      * @param node JSON 节点
      * @param path 路径，格式如 "a.b.c"
@@ -189,18 +369,36 @@ public class JsonCodec {
         if (Objects.isNull(node) || Strings.isBlank(path)) {
             return node;
         }
-        String[] nodeNames = path.split("\\.");
-        for (String nodeName : nodeNames) {
-            if (!node.has(nodeName)) {
-                return null;
-            }
-            node = node.get(nodeName);
+        return JsonPointerPath.dotted(path).evaluate(node);
+    }
+
+    /**
+     * 从 JSON 字节数组中一次提取多个路径对应的节点，不构建完整的 {@link JsonNode} 树。
+     * <p>只读取一遍 Token 流：与请求路径无关的子树直接跳过，只有路径指向的值才读取为节点，
+     * 全部路径确定后立即停止读取，适合只需要大文档中少数字段的场景。</p>
+     * <p>没有重复字段时，结果与 {@code path.evaluate(byte2node(bytes))} 一致；存在重复字段时取第一个出现的值。
+     * 提前停止后不再校验剩余内容的格式。</p>
+     *
+     * @param bytes JSON 字节数组，为空时所有路径均未找到
+     * @param paths 预编译的路径
+     * @return 提取结果
+     * @throws BusinessException 当反序列化失败时抛出
+     */
+    public ExtractedFields extract(byte[] bytes, Set<JsonPointerPath> paths) {
+        Objects.requireNonNull(paths, "paths");
+        if (Collections.isEmpty(bytes)) {
+            return new ExtractedFields(paths.toArray(JsonPointerPath[]::new), new JsonNode[paths.size()]);
+        }
+
+        try (JsonParser parser = jsonMapper.createParser(bytes)) {
+            return JsonFieldExtractor.extract(parser, nodeReader, paths);
         }
-        return node;
     }
 
     /**
      * 对 JSON 字节数组按键名进行排序，返回排序后的 JSON 字符串。
+     * <p>以流式方式读取并写出，只缓冲正在排序的对象，数组与标量直接写出，不构建完整的对象树；
+     * 输出与读取为 {@link JsonNode} 树排序后再序列化的结果一致。</p>
      *
      * @param bytes JSON 字节数组
      * @return 排序后的 JSON 字符串，输入为空返回空字符串
@@ -212,63 +410,101 @@ public class JsonCodec {
             return "";
         }
 
-        // 将字节数组反序列化为 JsonNode 对象树
-        JsonNode json = jsonMapper.readValue(bytes, JsonNode.class);
-
-        // 使用栈实现深度优先遍历，避免递归调用
-        Deque<JsonNode> stack = new ArrayDeque<>();
-        stack.push(json);
-
-        // 遍历 JSON 树，处理对象节点和数组节点
-        while (!stack.isEmpty()) {
-            JsonNode node = stack.pop(); // 弹出栈顶节点进行处理
-
-            // 如果当前节点是对象节点
-            if (node.isObject()) {
-                ObjectNode obj = (ObjectNode) node;
+        StringWriter writer = new StringWriter(bytes.length);
+        try (JsonParser parser = jsonMapper.createParser(bytes);
+             JsonGenerator generator = jsonMapper.createGenerator(writer)) {
+            JsonCanonicalizer.canonicalize(parser, generator);
+        }
+        return writer.toString();
+    }
 
-                // 临时存储对象的所有字段，保持原有顺序
-                LinkedHashMap<String, JsonNode> children = LinkedHashMap.newLinkedHashMap(obj.size());
-                obj.properties().forEach(entry -> children.put(entry.getKey(), entry.getValue()));
+    /**
+     * 对 JSON 字节数组按键名进行排序，将排序后的 UTF-8 字节直接写入输出流，不构造中间字符串。
+     * <p>写入完成后刷新输出流，但不关闭输出流；排序失败时输出流中可能已写入部分内容。</p>
+     *
+     * @param bytes JSON 字节数组，为空时不写入任何内容
+     * @param out   目标输出流
+     * @throws BusinessException 当反序列化或序列化失败时抛出
+     */
+    public void sort(byte[] bytes, OutputStream out) {
+        Objects.requireNonNull(out, "out");
+        if (Collections.isEmpty(bytes)) {
+            return;
+        }
 
-                // 清空当前对象节点，以便重新插入排序后的字段
-                obj.removeAll();
+        try (JsonParser parser = jsonMapper.createParser(bytes);
+             JsonGenerator generator = jsonMapper.writer().without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                 .createGenerator(out)) {
+            JsonCanonicalizer.canonicalize(parser, generator);
+        }
+    }
 
-                // 按 Unicode 字典序对字段名排序，并将对应字段重新加入对象节点
-                children.keySet().stream().sorted(Comparator.naturalOrder()).forEach(key ->
-                    obj.set(key, children.get(key))
-                );
+    /**
+     * 计算 JSON 字节数组规范形式（按键名排序后的 UTF-8 字节）的摘要，排序结果直接分块写入摘要，不构造中间字符串或字节数组。
+     * <p>对格式正确的输入，结果与 {@code digest.digest(sort(bytes).getBytes(StandardCharsets.UTF_8))} 一致。
+     * 计算前会重置摘要中已有的内容，计算完成后摘要同样被重置，可继续复用。</p>
+     *
+     * @param bytes  JSON 字节数组，为空时返回空内容的摘要
+     * @param digest 摘要算法实例，例如 {@code MessageDigest.getInstance("SHA-256")}
+     * @return 摘要字节
+     * @throws BusinessException 当反序列化失败时抛出
+     */
+    public byte[] canonicalDigest(byte[] bytes, MessageDigest digest) {
+        Objects.requireNonNull(digest, "digest");
+        if (Collections.isEmpty(bytes)) {
+            digest.reset();
+            return digest.digest();
+        }
 
-                // 将对象的容器子节点压入栈，以便继续处理
-                pushStack(obj, stack);
-                continue; // 当前对象处理完成，继续下一个节点
-            }
+        try (JsonParser parser = jsonMapper.createParser(bytes)) {
+            return canonicalDigest(parser, digest);
+        }
+    }
 
-            // 如果当前节点是数组节点，将数组中的容器节点压入栈
-            if (node.isArray()) {
-                pushStack(node, stack);
+    /**
+     * 从输入流读取 JSON 并计算其规范形式的摘要，输入按块读取，排序结果直接分块写入摘要，不需要整个文档的字节数组。
+     * <p>结果与 {@link #canonicalDigest(byte[], MessageDigest)} 对相同内容的计算结果一致：输入流没有任何字节时同样返回空内容的摘要，
+     * 只有空白字符时抛出异常。读取完成后不关闭输入流，计算前后均重置摘要。</p>
+     *
+     * @param in     JSON 输入流，没有内容时返回空内容的摘要
+     * @param digest 摘要算法实例
+     * @return 摘要字节
+     * @throws BusinessException 当反序列化失败时抛出
+     */
+    public byte[] canonicalDigest(InputStream in, MessageDigest digest) {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(digest, "digest");
+        PushbackInputStream source = new PushbackInputStream(in, 1);
+        try {
+            int first = source.read();
+            if (first < 0) {
+                digest.reset();
+                return digest.digest();
             }
+            source.unread(first);
+        } catch (IOException e) {
+            throw JacksonIOException.construct(e);
         }
 
-        // 将排序后的 JSON 对象树序列化为字符串并返回
-        return jsonMapper.writeValueAsString(json);
+        try (JsonParser parser = jsonMapper.reader().without(StreamReadFeature.AUTO_CLOSE_SOURCE).createParser(source)) {
+            return canonicalDigest(parser, digest);
+        }
     }
 
     /**
-     * 将容器节点的子节点压入栈中（仅对象节点或数组节点）。
+     * 将解析器中的 JSON 以规范形式写入摘要，生成器的输出缓冲区写满时才更新摘要。
      *
-     * @param node  当前 JSON 节点
-     * @param stack 节点栈
-     */
-    private void pushStack(JsonNode node, Deque<JsonNode> stack) {
-        // 遍历当前节点的所有子节点
-        for (JsonNode child : node) {
-            // 仅将容器节点（对象或数组）压入栈，非容器节点无需排序
-            if (!child.isContainer()) {
-                continue;
-            }
-            stack.push(child);
+     * @param parser 尚未读取任何 Token 的解析器
+     * @param digest 摘要算法实例
+     * @return 摘要字节
+     */
+    private byte[] canonicalDigest(JsonParser parser, MessageDigest digest) {
+        digest.reset();
+        OutputStream sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+        try (JsonGenerator generator = jsonMapper.createGenerator(sink)) {
+            JsonCanonicalizer.canonicalize(parser, generator);
         }
+        return digest.digest();
     }
 
     /**
@@ -320,4 +556,13 @@ public class JsonCodec {
     public long asLong(JsonNode node) {
         return Objects.nonNull(node) ? node.asLong() : 0L;
     }
+
+    /**
+     * 参数化类型的缓存键
+     *
+     * @param rawClass 原始类
+     * @param typeArgs 泛型类型参数
+     */
+    private record ParametricType(Class<?> rawClass, List<Class<?>> typeArgs) {
+    }
 }
@@ -0,0 +1,171 @@
+package com.g2rain.common.json;
+
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectReader;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>流式多路径提取器，一次读取 Token 流即可取出多个预编译路径对应的节点，不构建完整的 {@link JsonNode} 树。</p>
+ *
+ * <p>读取时只跟踪仍可能匹配的路径：与任何路径都不相关的子树用 {@link JsonParser#skipChildren()} 跳过，
+ * 只有路径指向的值才读取为节点。每个路径在其父节点第一次出现时确定结果，全部确定后立即停止读取，
+ * 因此占用的内存与文档大小无关，只与请求的路径及其值有关。</p>
+ *
+ * <p>没有重复字段时，结果与读取为对象树后按路径查找一致；存在重复字段时取第一个出现的值
+ * （对象树取最后一个）。提前停止后不再校验剩余内容的格式。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * try (JsonParser parser = jsonMapper.createParser(bytes)) {
+ *     ExtractedFields fields = JsonFieldExtractor.extract(parser, nodeReader, paths);
+ * }
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+final class JsonFieldExtractor {
+    /**
+     * 将路径指向的值读取为节点的读取器
+     */
+    private final ObjectReader nodeReader;
+
+    /**
+     * 请求的路径
+     */
+    private final JsonPointerPath[] paths;
+
+    /**
+     * 与路径一一对应的节点，未找到为 {@code null}
+     */
+    private final JsonNode[] values;
+
+    /**
+     * 与路径一一对应的结果是否已确定
+     */
+    private final boolean[] resolved;
+
+    /**
+     * 结果尚未确定的路径数
+     */
+    private int remaining;
+
+    /**
+     * 创建提取器。
+     *
+     * @param nodeReader 节点读取器
+     * @param paths      请求的路径
+     */
+    private JsonFieldExtractor(ObjectReader nodeReader, JsonPointerPath[] paths) {
+        this.nodeReader = nodeReader;
+        this.paths = paths;
+        this.values = new JsonNode[paths.length];
+        this.resolved = new boolean[paths.length];
+        this.remaining = paths.length;
+    }
+
+    /**
+     * 读取解析器中的 JSON 值，提取请求的路径。
+     *
+     * @param parser     尚未读取任何 Token 的解析器
+     * @param nodeReader 节点读取器，不能校验值之后的剩余 Token
+     * @param paths      请求的路径
+     * @return 提取结果，输入没有内容时所有路径均未找到
+     */
+    static ExtractedFields extract(JsonParser parser, ObjectReader nodeReader, Set<JsonPointerPath> paths) {
+        JsonFieldExtractor extractor = new JsonFieldExtractor(nodeReader, paths.toArray(JsonPointerPath[]::new));
+        int count = extractor.paths.length;
+        if (count > 0 && Objects.nonNull(parser.nextToken())) {
+            int[] candidates = new int[count];
+            for (int i = 0; i < count; i++) {
+                candidates[i] = i;
+            }
+            extractor.scan(parser, candidates, count, 0);
+        }
+        return new ExtractedFields(extractor.paths, extractor.values);
+    }
+
+    /**
+     * 读取解析器当前位置的值，确定候选路径的结果；全部路径确定后可能停在值的中间。
+     *
+     * @param parser     停留在值第一个 Token 上的解析器
+     * @param candidates 前 {@code depth} 个路径段与当前位置匹配的路径下标
+     * @param count      候选路径数
+     * @param depth      当前深度
+     */
+    private void scan(JsonParser parser, int[] candidates, int count, int depth) {
+        for (int i = 0; i < count; i++) {
+            if (paths[candidates[i]].size() == depth) {
+                // 有路径指向当前值，读取为节点后同时确定更深的候选路径
+                JsonNode node = nodeReader.readValue(parser);
+                for (int j = 0; j < count; j++) {
+                    resolve(candidates[j], paths[candidates[j]].evaluate(node, depth));
+                }
+                return;
+            }
+        }
+
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (remaining > 0 && parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                int[] next = null;
+                int matched = 0;
+                for (int i = 0; i < count; i++) {
+                    int candidate = candidates[i];
+                    if (!resolved[candidate] && paths[candidate].name(depth).equals(name)) {
+                        next = Objects.isNull(next) ? new int[count] : next;
+                        next[matched++] = candidate;
+                    }
+                }
+                if (matched == 0) {
+                    parser.skipChildren();
+                } else {
+                    scan(parser, next, matched, depth + 1);
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            for (int index = 0; remaining > 0 && parser.nextToken() != JsonToken.END_ARRAY; index++) {
+                int[] next = null;
+                int matched = 0;
+                for (int i = 0; i < count; i++) {
+                    int candidate = candidates[i];
+                    if (!resolved[candidate] && paths[candidate].index(depth) == index) {
+                        next = Objects.isNull(next) ? new int[count] : next;
+                        next[matched++] = candidate;
+                    }
+                }
+                if (matched == 0) {
+                    parser.skipChildren();
+                } else {
+                    scan(parser, next, matched, depth + 1);
+                }
+            }
+        }
+
+        // 当前值已读完，其中没有出现的路径不存在
+        for (int i = 0; i < count; i++) {
+            resolve(candidates[i], null);
+        }
+    }
+
+    /**
+     * 确定路径的结果，已确定的路径保持不变。
+     *
+     * @param candidate 路径下标
+     * @param value     路径对应的节点，不存在为 {@code null}
+     */
+    private void resolve(int candidate, JsonNode value) {
+        if (!resolved[candidate]) {
+            resolved[candidate] = true;
+            values[candidate] = value;
+            remaining--;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.g2rain.common.json;
+
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>预编译的 JSON 路径，路径段在编译时拆分并识别数组下标，求值时每一层只做一次查找。</p>
+ *
+ * <p>支持两种写法：以 {@code .} 分隔的属性路径（如 {@code "order.items.0.sku"}），
+ * 以及 RFC 6901 JSON Pointer（如 {@code "/order/items/0/sku"}，{@code ~1} 表示 {@code /}，{@code ~0} 表示 {@code ~}）。
+ * 由非负十进制整数组成的路径段在数组上按下标取元素，在对象上仍按属性名查找。</p>
+ *
+ * <p>实例不可变且线程安全，按路径段判断相等，可作为缓存或集合的键；固定路径应编译一次后复用。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * private static final JsonPointerPath SKU = JsonPointerPath.dotted("order.items.0.sku");
+ *
+ * JsonNode sku = SKU.evaluate(codec.byte2node(body));
+ * JsonNode same = codec.lookupNode(root, "order.items.0.sku");
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public final class JsonPointerPath {
+    /**
+     * 指向根节点的空路径
+     */
+    public static final JsonPointerPath ROOT = new JsonPointerPath(new String[0]);
+
+    /**
+     * 各路径段的属性名
+     */
+    private final String[] names;
+
+    /**
+     * 各路径段的数组下标，不是下标的路径段为 {@code -1}
+     */
+    private final int[] indexes;
+
+    /**
+     * 按路径段计算的哈希值
+     */
+    private final int hash;
+
+    /**
+     * 创建路径。
+     *
+     * @param names 各路径段的属性名
+     */
+    private JsonPointerPath(String[] names) {
+        this.names = names;
+        this.indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            this.indexes[i] = parseIndex(names[i]);
+        }
+        this.hash = Arrays.hashCode(names);
+    }
+
+    /**
+     * 编译以 {@code .} 分隔的属性路径，空白路径指向根节点。
+     * <p>与 {@code path.split("\\.")} 的拆分结果一致：保留中间的空路径段，忽略末尾的空路径段。</p>
+     *
+     * @param path 属性路径，例如 {@code "a.b.0"}
+     * @return 编译后的路径
+     */
+    public static JsonPointerPath dotted(String path) {
+        if (Objects.isNull(path) || path.isBlank()) {
+            return ROOT;
+        }
+
+        List<String> names = new ArrayList<>();
+        int start = 0;
+        for (int i = path.indexOf('.'); i >= 0; i = path.indexOf('.', start)) {
+            names.add(path.substring(start, i));
+            start = i + 1;
+        }
+        names.add(path.substring(start));
+        // 与 String.split 一致，去掉末尾的空路径段
+        int size = names.size();
+        while (size > 0 && names.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return new JsonPointerPath(names.subList(0, size).toArray(String[]::new));
+    }
+
+    /**
+     * 编译 RFC 6901 JSON Pointer，空字符串指向根节点。
+     *
+     * @param pointer JSON Pointer，例如 {@code "/a/b/0"}
+     * @return 编译后的路径
+     * @throws IllegalArgumentException 非空指针不以 {@code /} 开头，或包含无效的 {@code ~} 转义
+     */
+    public static JsonPointerPath pointer(String pointer) {
+        Objects.requireNonNull(pointer, "pointer");
+        if (pointer.isEmpty()) {
+            return ROOT;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("JSON pointer must start with '/': " + pointer);
+        }
+
+        List<String> names = new ArrayList<>();
+        int start = 1;
+        while (true) {
+            int end = pointer.indexOf('/', start);
+            names.add(unescape(pointer, start, end < 0 ? pointer.length() : end));
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return new JsonPointerPath(names.toArray(String[]::new));
+    }
+
+    /**
+     * 从根节点开始按路径查找节点，每一层只查找一次。
+     *
+     * @param root 根节点，可以为 {@code null}
+     * @return 查找到的节点，路径不存在时返回 {@code null}；JSON {@code null} 值返回对应的空节点
+     */
+    public JsonNode evaluate(JsonNode root) {
+        return evaluate(root, 0);
+    }
+
+    /**
+     * 从指定路径段开始查找节点，用于已定位到路径前缀对应节点的场景。
+     *
+     * @param node 前 {@code from} 个路径段对应的节点，可以为 {@code null}
+     * @param from 起始路径段位置
+     * @return 查找到的节点，路径不存在时返回 {@code null}
+     */
+    JsonNode evaluate(JsonNode node, int from) {
+        for (int i = from; i < names.length && Objects.nonNull(node); i++) {
+            if (node.isArray()) {
+                node = indexes[i] >= 0 ? node.get(indexes[i]) : null;
+            } else {
+                node = node.get(names[i]);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 获取路径段数。
+     *
+     * @return 路径段数，根路径为 {@code 0}
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * 获取指定路径段的属性名。
+     *
+     * @param depth 路径段位置，从 {@code 0} 开始
+     * @return 属性名
+     */
+    public String name(int depth) {
+        return names[depth];
+    }
+
+    /**
+     * 获取指定路径段的数组下标。
+     *
+     * @param depth 路径段位置，从 {@code 0} 开始
+     * @return 数组下标，不是下标的路径段返回 {@code -1}
+     */
+    public int index(int depth) {
+        return indexes[depth];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof JsonPointerPath other && hash == other.hash && Arrays.equals(names, other.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * 以 JSON Pointer 形式表示路径。
+     *
+     * @return JSON Pointer，根路径为空字符串
+     */
+    @Override
+    public String toString() {
+        StringBuilder pointer = new StringBuilder();
+        for (String name : names) {
+            pointer.append('/').append(name.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    /**
+     * 还原 JSON Pointer 路径段中的 {@code ~0} 与 {@code ~1} 转义。
+     *
+     * @param pointer JSON Pointer
+     * @param start   路径段起始位置
+     * @param end     路径段结束位置（不含）
+     * @return 路径段的属性名
+     * @throws IllegalArgumentException 包含无效的 {@code ~} 转义
+     */
+    private static String unescape(String pointer, int start, int end) {
+        int tilde = pointer.indexOf('~', start);
+        if (tilde < 0 || tilde >= end) {
+            return pointer.substring(start, end);
+        }
+
+        StringBuilder name = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = pointer.charAt(i);
+            if (c != '~') {
+                name.append(c);
+                continue;
+            }
+            char next = i + 1 < end ? pointer.charAt(i + 1) : 0;
+            if (next != '0' && next != '1') {
+                throw new IllegalArgumentException("Invalid escape in JSON pointer: " + pointer);
+            }
+            name.append(next == '0' ? '~' : '/');
+            i++;
+        }
+        return name.toString();
+    }
+
+    /**
+     * 解析数组下标：非负十进制整数，除 {@code "0"} 外不以 {@code 0} 开头。
+     *
+     * @param name 路径段的属性名
+     * @return 数组下标，不是下标时返回 {@code -1}
+     */
+    private static int parseIndex(String name) {
+        int length = name.length();
+        if (length == 0 || length > 10 || (length > 1 && name.charAt(0) == '0')) {
+            return -1;
+        }
+
+        long index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index <= Integer.MAX_VALUE ? (int) index : -1;
+    }
+}
@@ -91,7 +91,8 @@ public class RawNumberDeserializer extends StdDeserializer<JsonNode> {
                 return arrayNode;
             }
             case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
-                return new RawNumberNode(p.getValueAsString());
+                // 解析器已校验数字格式，数值延迟到首次访问时构造
+                return new RawNumberNode(p.getValueAsString(), token == JsonToken.VALUE_NUMBER_INT);
             }
             case VALUE_STRING -> {
                 return StringNode.valueOf(p.getValueAsString());
@@ -17,37 +17,131 @@ import java.util.Objects;
  * 用于保留原始数字字符串格式，避免浮点数精度丢失。
  * 在反序列化时，可保持数字的原始表示，同时提供 {@link BigDecimal} 数值访问。
  * </p>
+ * <p>
+ * 由 {@link RawNumberDeserializer} 创建的节点信任解析器已校验的数字文本，{@link BigDecimal} 在首次访问数值时才构造，
+ * 只透传原始文本的场景不产生数值解析开销；整数文本通过 {@link #intValue()} 与 {@link #longValue()} 直接解析，不经过 {@link BigDecimal}。
+ * </p>
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * RawNumberNode node = new RawNumberNode("12345.6789");
  * System.out.println(node.asString()); // 输出 "12345.6789"
  * System.out.println(node.getNumericValue()); // 输出 12345.6789 的 BigDecimal 值
+ * System.out.println(new RawNumberNode("42").longValue()); // 输出 42
  * }</pre>
  *
  * @author alpha
  * @since 2025/10/5
  */
-@Getter
 public class RawNumberNode extends ValueNode {
 
     /**
-     * 数值的 BigDecimal 表示，保证高精度
+     * 不超过该长度的整数文本（含符号）一定在 int 范围内
+     */
+    private static final int SAFE_INT_LENGTH = 9;
+
+    /**
+     * 不超过该长度的整数文本（含符号）一定在 long 范围内
      */
-    private final BigDecimal numericValue;
+    private static final int SAFE_LONG_LENGTH = 18;
 
     /**
      * 原始数字字符串表示
      */
+    @Getter
     private final String rawValue;
 
     /**
-     * 构造函数。
+     * 原始文本是否为不含小数点与指数的整数
+     */
+    private final boolean integral;
+
+    /**
+     * 数值的 BigDecimal 表示，保证高精度；首次访问时构造，BigDecimal 不可变，并发首次访问最多重复构造
+     */
+    private BigDecimal numericValue;
+
+    /**
+     * 构造函数，立即校验原始数字字符串。
      *
      * @param rawValue 原始数字字符串
+     * @throws NumberFormatException 原始字符串不是有效数字
      */
     public RawNumberNode(String rawValue) {
         this.numericValue = new BigDecimal(rawValue);
         this.rawValue = rawValue;
+        this.integral = isIntegral(rawValue);
+    }
+
+    /**
+     * 基于解析器已校验的数字文本构造节点，数值在首次访问时构造。
+     *
+     * @param rawValue 解析器读取的数字文本
+     * @param integral 是否为整数 Token
+     */
+    RawNumberNode(String rawValue, boolean integral) {
+        this.rawValue = rawValue;
+        this.integral = integral;
+    }
+
+    /**
+     * 获取数值的 {@link BigDecimal} 表示，首次访问时由原始数字字符串构造。
+     *
+     * @return 数值
+     * @throws NumberFormatException 原始字符串不是有效数字
+     */
+    public BigDecimal getNumericValue() {
+        BigDecimal value = this.numericValue;
+        if (Objects.isNull(value)) {
+            value = new BigDecimal(this.rawValue);
+            this.numericValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * 获取 int 数值，范围内的整数文本直接解析，不构造 {@link BigDecimal}。
+     *
+     * @return int 数值
+     * @throws tools.jackson.databind.exc.JsonNodeException 含非零小数部分或超出 int 范围
+     */
+    @Override
+    public int intValue() {
+        if (this.integral && this.rawValue.length() <= SAFE_INT_LENGTH) {
+            return Integer.parseInt(this.rawValue);
+        }
+
+        BigDecimal value = getNumericValue();
+        if (hasFraction(value)) {
+            return _reportIntCoercionFractionFail("intValue()");
+        }
+        try {
+            return value.intValueExact();
+        } catch (ArithmeticException e) {
+            return _reportIntCoercionRangeFail("intValue()");
+        }
+    }
+
+    /**
+     * 获取 long 数值，范围内的整数文本直接解析，不构造 {@link BigDecimal}。
+     *
+     * @return long 数值
+     * @throws tools.jackson.databind.exc.JsonNodeException 含非零小数部分或超出 long 范围
+     */
+    @Override
+    public long longValue() {
+        if (this.integral && this.rawValue.length() <= SAFE_LONG_LENGTH) {
+            return Long.parseLong(this.rawValue);
+        }
+
+        BigDecimal value = getNumericValue();
+        if (hasFraction(value)) {
+            return _reportLongCoercionFractionFail("longValue()");
+        }
+        try {
+            return value.longValueExact();
+        } catch (ArithmeticException e) {
+            return _reportLongCoercionRangeFail("longValue()");
+        }
     }
 
     /**
@@ -91,6 +185,32 @@ public class RawNumberNode extends ValueNode {
         g.writeRawValue(this.rawValue);
     }
 
+    /**
+     * 判断数值是否含非零小数部分，{@code 12.00}、{@code 1.2e3} 等视为整数。
+     *
+     * @param value 数值
+     * @return 含非零小数部分返回 {@code true}
+     */
+    private static boolean hasFraction(BigDecimal value) {
+        return value.signum() != 0 && value.scale() > 0 && value.stripTrailingZeros().scale() > 0;
+    }
+
+    /**
+     * 判断数字文本是否为不含小数点与指数的整数。
+     *
+     * @param rawValue 数字文本
+     * @return 整数文本返回 {@code true}
+     */
+    private static boolean isIntegral(String rawValue) {
+        for (int i = 0; i < rawValue.length(); i++) {
+            char c = rawValue.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 返回原始数字字符串
      *
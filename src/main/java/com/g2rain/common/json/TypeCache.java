@@ -0,0 +1,163 @@
+package com.g2rain.common.json;
+
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>有界的类型缓存，保存按类型预先解析的读取器与写入器，超出容量时淘汰最久未使用的条目。</p>
+ *
+ * <p>命中路径只做一次并发哈希表查找并更新访问时钟，不加锁；未命中时由调用方加载并插入，
+ * 插入后超出容量才在锁内淘汰。访问时钟只在插入时前进，插入的条目记录前进前的时钟，其后命中的条目记录前进后的时钟，
+ * 因此淘汰的是最近若干次插入以来未被访问的条目。
+ * 并发未命中同一键时加载函数可能被调用多次，只保留先插入的结果。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * TypeCache<Class<?>, ObjectWriter> writers = new TypeCache<>(512);
+ * ObjectWriter writer = writers.get(MyObject.class, jsonMapper::writerFor);
+ * }</pre>
+ *
+ * @param <K> 键类型
+ * @param <V> 缓存值类型
+ * @author alpha
+ * @since 2025/10/5
+ */
+final class TypeCache<K, V> {
+    /**
+     * 最大条目数
+     */
+    private final int capacity;
+
+    /**
+     * 缓存条目
+     */
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 访问时钟，每次插入后前进
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * 淘汰锁，保证同一时刻只有一个线程扫描淘汰
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * 创建类型缓存。
+     *
+     * @param capacity 最大条目数，必须为正
+     * @throws IllegalArgumentException 容量不为正
+     */
+    TypeCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 获取键对应的缓存值，不存在时加载并插入。
+     *
+     * @param key    键，不能为 {@code null}
+     * @param loader 加载函数
+     * @return 缓存值
+     */
+    V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (Objects.nonNull(entry)) {
+            entry.touch(clock.get());
+            return entry.value;
+        }
+
+        Entry<V> created = new Entry<>(loader.apply(key), clock.getAndIncrement());
+        entry = entries.putIfAbsent(key, created);
+        if (Objects.nonNull(entry)) {
+            entry.touch(clock.get());
+            return entry.value;
+        }
+
+        if (entries.size() > capacity) {
+            evict();
+        }
+        return created.value;
+    }
+
+    /**
+     * 获取当前条目数。
+     *
+     * @return 条目数
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 淘汰最久未访问的条目，直到条目数不超过容量。
+     */
+    private void evict() {
+        evictionLock.lock();
+        try {
+            while (entries.size() > capacity) {
+                K eldestKey = null;
+                Entry<V> eldest = null;
+                for (Map.Entry<K, Entry<V>> candidate : entries.entrySet()) {
+                    if (Objects.isNull(eldest) || candidate.getValue().lastAccess < eldest.lastAccess) {
+                        eldestKey = candidate.getKey();
+                        eldest = candidate.getValue();
+                    }
+                }
+                if (Objects.isNull(eldestKey)) {
+                    return;
+                }
+                entries.remove(eldestKey, eldest);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param <V> 缓存值类型
+     */
+    private static final class Entry<V> {
+        /**
+         * 缓存值
+         */
+        private final V value;
+
+        /**
+         * 最近一次访问时的时钟
+         */
+        private volatile long lastAccess;
+
+        /**
+         * 创建缓存条目。
+         *
+         * @param value      缓存值
+         * @param lastAccess 插入时的时钟
+         */
+        private Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+
+        /**
+         * 记录访问，时钟未前进时不写入，避免热点条目的缓存行被反复写入。
+         *
+         * @param now 当前时钟
+         */
+        private void touch(long now) {
+            if (lastAccess < now) {
+                lastAccess = now;
+            }
+        }
+    }
+}
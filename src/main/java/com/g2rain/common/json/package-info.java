@@ -10,6 +10,8 @@
  *     <li><b>自定义反序列化</b>：{@link com.g2rain.common.json.RawNumberDeserializer} 保留数字原始格式，避免精度丢失。</li>
  *     <li><b>原始数字节点封装</b>：{@link com.g2rain.common.json.RawNumberNode} 封装原始数字字符串，提供 {@link java.math.BigDecimal} 访问。</li>
  *     <li><b>灵活配置构建器</b>：{@link com.g2rain.common.json.JsonCodecBuilder} 提供多种 Jackson 配置方法。</li>
+ *     <li><b>预编译路径</b>：{@link com.g2rain.common.json.JsonPointerPath} 预先拆分路径段并识别数组下标，按层单次查找节点。</li>
+ *     <li><b>流式多路径提取</b>：{@link com.g2rain.common.json.JsonCodec#extract(byte[], java.util.Set)} 一次读取 Token 流提取多个字段，跳过无关子树并在全部找到后停止，结果由 {@link com.g2rain.common.json.ExtractedFields} 保存。</li>
  *     <li><b>工厂类访问</b>：{@link com.g2rain.common.json.JsonCodecFactory} 提供默认配置实例的快捷访问。</li>
  * </ul>
  *
@@ -19,7 +21,7 @@
  * - 支持注释 JSON 的解析<br>
  * - 支持空字符串转 null 对象<br>
  * - 保留浮点数精度<br>
- * - 提供 JSON 字段排序功能
+ * - 提供 JSON 字段排序功能，以流式方式排序并可直接写入输出流
  * </p>
  *
  * <h2>使用示例</h2>
@@ -40,7 +42,11 @@
  * JsonNode node = codec.byte2node(bytes);
  *
  * // 查找 JSON 节点
- * JsonNode subNode = codec.lookupNode(node, "data.items[0]");
+ * JsonNode subNode = codec.lookupNode(node, "data.items.0");
+ *
+ * // 预编译路径后复用
+ * JsonPointerPath path = JsonPointerPath.pointer("/data/items/0");
+ * JsonNode sameNode = path.evaluate(node);
  *
  * // 自定义构建器配置
  * JsonCodec customCodec = JsonCodecBuilder.builder()
@@ -3,11 +3,20 @@ package com.g2rain.common.syncer;
 
 import lombok.NonNull;
 
+import java.util.List;
+import java.util.Objects;
+
 /**
  * <p>抽象消息存储器基类，定义了消息存储的基本操作模板，供不同存储实现继承。</p>
  *
  * <p>子类需要实现具体的数据源标识、数据类型、键的获取方法以及增删改查等操作。</p>
  *
+ * <p>分发器批量分发时，会将同一批次内属于当前存储的变更按到达顺序一次性交给 {@link #applyBatch(List)}，
+ * 子类可覆盖该方法实现 JDBC 批量写入、缓存管道写入等批量操作。</p>
+ *
+ * <p>值对象较大时，子类可覆盖 {@link #keyPath()} 与 {@link #getKeyType()} 声明键在值 JSON 中的位置，
+ * 分发器处理 DELETE 事件时只从 Token 流中读取键，不再绑定完整的值对象。</p>
+ *
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * public class MyMessageStorage extends AbstractMessageStorage<String, MyMessage, MyMessage> {
@@ -92,6 +101,27 @@ public abstract class AbstractMessageStorage<K, V, T> {
      */
     protected abstract @NonNull K getKey(@NonNull V value);
 
+    /**
+     * 获取键在值 JSON 中的属性路径，以 {@code .} 分隔嵌套属性，例如 {@code "id"} 或 {@code "meta.id"}。
+     * <p>与 {@link #getKeyType()} 同时声明时，分发器处理 DELETE 事件只从 Token 流中读取该路径上的值作为键，
+     * 跳过其余字段，不构造值对象，传给 {@link #apply(Change)} 的变更值为 {@code null}。
+     * 路径上的值须与 {@link #getKey(Object)} 从完整值中取得的键一致。</p>
+     *
+     * @return 键的属性路径，默认返回 {@code null}，表示总是绑定完整的值后调用 {@link #getKey(Object)}
+     */
+    protected String keyPath() {
+        return null;
+    }
+
+    /**
+     * 获取键的类型，用于从 {@link #keyPath()} 指向的 JSON 值直接绑定键。
+     *
+     * @return 键类型的 {@link Class} 对象，默认返回 {@code null}，此时忽略 {@link #keyPath()}
+     */
+    protected Class<K> getKeyType() {
+        return null;
+    }
+
     /**
      * 创建一条消息记录。
      *
@@ -115,6 +145,45 @@ public abstract class AbstractMessageStorage<K, V, T> {
      */
     protected abstract void update(@NonNull K key, V value);
 
+    /**
+     * 应用单条变更，根据事件类型调用 {@link #create}、{@link #update} 或 {@link #delete}。
+     *
+     * @param change 待应用的变更，不能为 {@code null}
+     */
+    protected void apply(@NonNull Change<K, V> change) {
+        switch (change.eventType()) {
+            case CREATE -> create(change.key(), change.value());
+            case UPDATE -> update(change.key(), change.value());
+            case DELETE -> delete(change.key());
+        }
+    }
+
+    /**
+     * 批量应用变更，列表中的变更已按到达顺序排列，同一键的变更顺序与消息顺序一致。
+     * <p>默认实现逐条调用 {@link #apply(Change)}，单条变更失败不影响其余变更；
+     * 全部处理完成后抛出第一个异常，其余异常作为 suppressed 附加在其上。</p>
+     *
+     * @param changes 待应用的变更列表，不能为 {@code null}
+     */
+    protected void applyBatch(@NonNull List<Change<K, V>> changes) {
+        RuntimeException failure = null;
+        for (Change<K, V> change : changes) {
+            try {
+                apply(change);
+            } catch (RuntimeException e) {
+                if (Objects.isNull(failure)) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (Objects.nonNull(failure)) {
+            throw failure;
+        }
+    }
+
     /**
      * 获取指定键的消息记录。
      *
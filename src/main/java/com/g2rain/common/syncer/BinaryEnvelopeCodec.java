@@ -0,0 +1,279 @@
+package com.g2rain.common.syncer;
+
+
+import com.g2rain.common.json.JsonCodec;
+import com.g2rain.common.json.JsonCodecFactory;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>紧凑的二进制事件信封编码器，消息体直接存放数据本身的编码，不再把 JSON 文本转义后嵌入外层 JSON。</p>
+ *
+ * <p>信封格式如下（多字节整数均为大端序）：</p>
+ * <pre>
+ * +-------+---------+----------------+--------------------------------------------+-----------+
+ * | magic | version | header length  | header                                     | body      |
+ * | 1 B   | 1 B     | 2 B (unsigned) | eventType(1 B) flags(1 B) [sequence(8 B)]  | 剩余字节  |
+ * |       |         |                | [producer(8 B)] dataSource(...)            |           |
+ * +-------+---------+----------------+--------------------------------------------+-----------+
+ * </pre>
+ * <ul>
+ *     <li><b>magic：</b>固定为 {@link #MAGIC}（{@code 0xB1}）。它是 UTF-8 的后续字节，不可能出现在 JSON 文本的首字节，
+ *     因此分发器可以按首字节区分二进制信封与 JSON 信封。</li>
+ *     <li><b>sequence：</b>事件带有序号时写入 8 字节序号（flags 置位），分发端无需解码消息体即可读取。</li>
+ *     <li><b>producer：</b>事件带有发布方标识时写入 8 字节标识（flags 置位），分发端按发布方分别跟踪序号。</li>
+ *     <li><b>dataSource：</b>字典中存在时写入 4 字节编号（flags 置位），否则写入 UTF-8 字节；发布方与分发方须使用相同的字典。</li>
+ *     <li><b>body：</b>默认以 JSON 编码数据；传入 Smile、CBOR 等二进制格式的 {@link ObjectMapper} 可进一步压缩，
+ *     此时字符串形式的数据会先按 JSON 解析再重新编码。数据为 {@code null} 时消息体为空。</li>
+ * </ul>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * BinaryEnvelopeCodec codec = new BinaryEnvelopeCodec(new SmileMapper(), Map.of("user", 1, "order", 2));
+ * EventPublisherHub hub = EventPublisherHubBuilder.builder()
+ *     .withPublishers(publishers)
+ *     .withEnvelopeCodec(codec)
+ *     .build();
+ * DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withEnvelopeCodec(codec);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public final class BinaryEnvelopeCodec implements EnvelopeCodec {
+    /**
+     * 二进制信封的首字节
+     */
+    public static final byte MAGIC = (byte) 0xB1;
+
+    /**
+     * 当前信封版本
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * flags 中表示数据源以字典编号存放的位
+     */
+    private static final int FLAG_DATA_SOURCE_ID = 1;
+
+    /**
+     * flags 中表示信封头带有事件序号的位
+     */
+    private static final int FLAG_SEQUENCE = 2;
+
+    /**
+     * flags 中表示信封头带有发布方标识的位
+     */
+    private static final int FLAG_PRODUCER = 4;
+
+    /**
+     * 信封固定前缀长度：magic、version 与 header length
+     */
+    private static final int PREFIX_LENGTH = 4;
+
+    /**
+     * 事件类型枚举值缓存，避免每次解码时复制数组
+     */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    /**
+     * JSON 编解码器，未指定消息体编码器时使用
+     */
+    private static final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    /**
+     * 消息体编码器，{@code null} 表示使用 JSON
+     */
+    private final ObjectMapper bodyMapper;
+
+    /**
+     * 数据源到字典编号的映射
+     */
+    private final Map<String, Integer> idsByDataSource;
+
+    /**
+     * 字典编号到数据源的映射
+     */
+    private final Map<Integer, String> dataSourcesById;
+
+    /**
+     * 使用 JSON 消息体、不使用数据源字典构造编码器。
+     */
+    public BinaryEnvelopeCodec() {
+        this(null, Map.of());
+    }
+
+    /**
+     * 使用指定的消息体编码器与数据源字典构造编码器。
+     *
+     * @param bodyMapper    消息体编码器，为 {@code null} 时使用 JSON
+     * @param dataSourceIds 数据源到字典编号的映射，编号不可重复
+     */
+    public BinaryEnvelopeCodec(ObjectMapper bodyMapper, Map<String, Integer> dataSourceIds) {
+        this.bodyMapper = bodyMapper;
+        this.idsByDataSource = Map.copyOf(dataSourceIds);
+        Map<Integer, String> reverse = HashMap.newHashMap(dataSourceIds.size());
+        dataSourceIds.forEach((dataSource, id) -> {
+            if (Objects.nonNull(reverse.put(id, dataSource))) {
+                throw new IllegalArgumentException("duplicate dataSource id: " + id);
+            }
+        });
+        this.dataSourcesById = Map.copyOf(reverse);
+    }
+
+    /**
+     * 判断缓冲区剩余内容是否为二进制信封，不改变缓冲区的位置。
+     *
+     * @param buffer 消息缓冲区
+     * @return 首字节为 {@link #MAGIC} 时返回 {@code true}
+     */
+    public static boolean isBinary(ByteBuffer buffer) {
+        return buffer.hasRemaining() && buffer.get(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * 编码事件消息。
+     *
+     * @param eventMessage 事件消息
+     * @return 编码后的字节，位置为 0，界限为编码长度
+     */
+    @Override
+    public ByteBuffer encode(EventMessage<?> eventMessage) {
+        Objects.requireNonNull(eventMessage.getEventType(), "eventType");
+        String dataSource = Objects.requireNonNull(eventMessage.getDataSource(), "dataSource");
+        Integer id = idsByDataSource.get(dataSource);
+        byte[] dataSourceBytes = Objects.isNull(id) ? dataSource.getBytes(StandardCharsets.UTF_8) : null;
+        Long sequence = eventMessage.getSequence();
+        Long producer = eventMessage.getProducer();
+        int headerLength = 2 + (Objects.isNull(sequence) ? 0 : Long.BYTES) + (Objects.isNull(producer) ? 0 : Long.BYTES)
+            + (Objects.isNull(id) ? dataSourceBytes.length : Integer.BYTES);
+        if (headerLength > 0xFFFF) {
+            throw new IllegalArgumentException("dataSource is too long");
+        }
+
+        byte[] body = encodeBody(eventMessage.getData());
+        ByteBuffer buffer = ByteBuffer.allocate(PREFIX_LENGTH + headerLength + body.length);
+        buffer.put(MAGIC).put(VERSION).putShort((short) headerLength);
+        byte flags = 0;
+        if (Objects.nonNull(id)) {
+            flags |= FLAG_DATA_SOURCE_ID;
+        }
+        if (Objects.nonNull(sequence)) {
+            flags |= FLAG_SEQUENCE;
+        }
+        if (Objects.nonNull(producer)) {
+            flags |= FLAG_PRODUCER;
+        }
+        buffer.put((byte) eventMessage.getEventType().ordinal()).put(flags);
+        if (Objects.nonNull(sequence)) {
+            buffer.putLong(sequence);
+        }
+        if (Objects.nonNull(producer)) {
+            buffer.putLong(producer);
+        }
+        if (Objects.isNull(id)) {
+            buffer.put(dataSourceBytes);
+        } else {
+            buffer.putInt(id);
+        }
+        return buffer.put(body).flip();
+    }
+
+    /**
+     * 读取信封头，并将缓冲区位置移动到消息体起始处。
+     *
+     * @param buffer 位置位于信封首字节的缓冲区
+     * @return 事件消息头，数据源编号不在字典中时数据源为 {@code null}
+     * @throws IllegalArgumentException 信封格式或版本不正确
+     */
+    public EventMessageHeader decodeHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < PREFIX_LENGTH + 2 || buffer.get() != MAGIC || buffer.get() != VERSION) {
+            throw new IllegalArgumentException("not a binary envelope");
+        }
+
+        int headerLength = Short.toUnsignedInt(buffer.getShort());
+        if (headerLength < 2 || headerLength > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid envelope header length: " + headerLength);
+        }
+
+        int bodyStart = buffer.position() + headerLength;
+        int ordinal = Byte.toUnsignedInt(buffer.get());
+        int flags = buffer.get();
+        EventType eventType = ordinal < EVENT_TYPES.length ? EVENT_TYPES[ordinal] : null;
+        Long sequence = (flags & FLAG_SEQUENCE) != 0 ? buffer.getLong() : null;
+        Long producer = (flags & FLAG_PRODUCER) != 0 ? buffer.getLong() : null;
+
+        String dataSource;
+        if ((flags & FLAG_DATA_SOURCE_ID) != 0) {
+            dataSource = dataSourcesById.get(buffer.getInt());
+        } else {
+            int length = bodyStart - buffer.position();
+            if (buffer.hasArray()) {
+                dataSource = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(buffer.position(), bytes);
+                dataSource = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        buffer.position(bodyStart);
+        return new EventMessageHeader(dataSource, eventType, sequence, producer);
+    }
+
+    /**
+     * 将缓冲区剩余的消息体解码为指定类型。
+     *
+     * @param buffer    位置位于消息体起始处的缓冲区
+     * @param valueType 目标类型
+     * @param <T>       对象类型
+     * @return 解码后的对象，消息体为空时返回 {@code null}
+     */
+    public <T> T decodeBody(ByteBuffer buffer, Class<T> valueType) {
+        int length = buffer.remaining();
+        if (length == 0) {
+            return null;
+        }
+
+        byte[] bytes;
+        int offset;
+        if (buffer.hasArray()) {
+            bytes = buffer.array();
+            offset = buffer.arrayOffset() + buffer.position();
+        } else {
+            bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            offset = 0;
+        }
+
+        return Objects.isNull(bodyMapper)
+            ? jsonCodec.byte2obj(bytes, offset, length, valueType)
+            : bodyMapper.readValue(bytes, offset, length, valueType);
+    }
+
+    /**
+     * 编码消息体；字符串形式的数据视为 JSON 文本。
+     *
+     * @param data 事件数据
+     * @return 消息体字节，数据为 {@code null} 时返回空数组
+     */
+    private byte[] encodeBody(Object data) {
+        if (Objects.isNull(data)) {
+            return new byte[0];
+        }
+
+        if (Objects.isNull(bodyMapper)) {
+            return jsonCodec.obj2byte(data);
+        }
+
+        if (data instanceof String json) {
+            return bodyMapper.writeValueAsBytes(jsonCodec.byte2node(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        return bodyMapper.writeValueAsBytes(data);
+    }
+}
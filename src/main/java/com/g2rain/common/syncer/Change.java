@@ -0,0 +1,73 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.Objects;
+
+/**
+ * <p>存储变更记录，描述一次需要应用到 {@link AbstractMessageStorage} 的创建、更新或删除操作。</p>
+ *
+ * <p>由消息分发器在解析事件消息后构建，并通过 {@link AbstractMessageStorage#apply(Change)} 或
+ * {@link AbstractMessageStorage#applyBatch(java.util.List)} 交给存储器处理。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * Change<String, User> change = new Change<>(EventType.UPDATE, user.getId(), user);
+ * storage.apply(change);
+ * }</pre>
+ *
+ * @param eventType 事件类型
+ * @param key       消息键
+ * @param value     消息值，删除事件中可能为 {@code null}
+ * @param sequence  事件序号，未设置时为 {@code null}
+ * @param producer  产生序号的发布方标识，序号只在同一发布方内有序，未设置时为 {@code null}
+ * @param <K>       消息键类型
+ * @param <V>       消息值类型
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record Change<K, V>(EventType eventType, K key, V value, Long sequence, Long producer) {
+
+    /**
+     * 构造不带序号的变更记录。
+     *
+     * @param eventType 事件类型
+     * @param key       消息键
+     * @param value     消息值，删除事件中可能为 {@code null}
+     */
+    public Change(EventType eventType, K key, V value) {
+        this(eventType, key, value, null, null);
+    }
+
+    /**
+     * 构造不带发布方标识的变更记录。
+     *
+     * @param eventType 事件类型
+     * @param key       消息键
+     * @param value     消息值，删除事件中可能为 {@code null}
+     * @param sequence  事件序号，未设置时为 {@code null}
+     */
+    public Change(EventType eventType, K key, V value, Long sequence) {
+        this(eventType, key, value, sequence, null);
+    }
+
+    /**
+     * 返回带有指定序号的副本。
+     *
+     * @param sequence 事件序号
+     * @return 带有序号的变更记录，序号为 {@code null} 时返回自身
+     */
+    public Change<K, V> withSequence(Long sequence) {
+        return Objects.isNull(sequence) ? this : new Change<>(eventType, key, value, sequence, producer);
+    }
+
+    /**
+     * 返回带有指定发布方与序号的副本。
+     *
+     * @param producer 发布方标识
+     * @param sequence 事件序号
+     * @return 带有发布方与序号的变更记录，两者均为 {@code null} 时返回自身
+     */
+    public Change<K, V> withOrigin(Long producer, Long sequence) {
+        return Objects.isNull(producer) && Objects.isNull(sequence) ? this : new Change<>(eventType, key, value, sequence, producer);
+    }
+}
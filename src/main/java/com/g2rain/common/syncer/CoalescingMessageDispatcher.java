@@ -0,0 +1,357 @@
+package com.g2rain.common.syncer;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>合并去重的消息分发器，位于实际分发器之前，在一个时间窗口或数量阈值内按（数据源，键）合并变更，只保留最终状态。</p>
+ *
+ * <p>同一键在一个窗口内的多次变更按以下规则合并：</p>
+ * <ul>
+ *     <li>任意变更之后出现 DELETE，合并为 DELETE。</li>
+ *     <li>CREATE 之后出现 UPDATE（或 CREATE），合并为携带最新值的 CREATE。</li>
+ *     <li>DELETE 之后出现 CREATE 或 UPDATE 视为替换：窗口以 CREATE 开始时下游从未看到该键，合并为携带最新值的 CREATE；
+ *     否则依次输出 DELETE 与之后的变更，下游先删除旧值再写入新值。</li>
+ *     <li>其余情况保留最新的变更。</li>
+ * </ul>
+ *
+ * <p>待合并的键数达到阈值，或定时窗口到期时，整批交给下游分发器的批量路由，
+ * 因此下游可以是 {@link DefaultMessageDispatcher}，也可以是 {@link PartitionedMessageDispatcher}。
+ * 刷新过程串行执行，保证同一键先后两批变更的顺序。</p>
+ *
+ * <p>合并后的变更在刷新前只保存在内存中，进程退出前未刷新的变更会丢失；{@link #close()} 刷新剩余变更后拒绝新的变更。
+ * 下游分发器拒绝整批变更时（如下游已关闭）不会重新入队，批次中的每条变更以
+ * {@link DispatchFailure#DOWNSTREAM_ERROR} 报告给当前分发器的 {@link DispatchListener}，其中部分变更可能已被下游接受；
+ * 存储器应用失败仍由下游分发器自身报告或进入其死信队列。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * try (CoalescingMessageDispatcher dispatcher =
+ *          CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 5000, Duration.ofMillis(500))) {
+ *     dispatcher.dispatch(rawMessage);
+ * }
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class CoalescingMessageDispatcher extends DefaultMessageDispatcher implements AutoCloseable {
+    /**
+     * 下游分发器，接收合并后的变更
+     */
+    private final DefaultMessageDispatcher downstream;
+
+    /**
+     * 触发刷新的待合并变更数阈值
+     */
+    private final int maxPending;
+
+    /**
+     * 定时刷新窗口（纳秒）
+     */
+    private final long windowNanos;
+
+    /**
+     * 定时刷新调度器
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 保护待合并变更的锁
+     */
+    private final Object pendingLock = new Object();
+
+    /**
+     * 串行化刷新过程的锁，保证先后两批变更按顺序交给下游
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * 各键在当前窗口内合并后的变更，按键首次出现的顺序排列
+     */
+    private Map<CoalesceKey, Window> pending = new LinkedHashMap<>();
+
+    /**
+     * 是否已关闭，关闭后不再接受新的变更；只在持有 {@link #pendingLock} 时访问
+     */
+    private boolean closed;
+
+    /**
+     * 构造合并分发器，定时刷新由 {@link #of(DefaultMessageDispatcher, int, Duration)} 在构造完成后启动。
+     *
+     * @param downstream 下游分发器
+     * @param maxPending 待合并键数阈值
+     * @param window     定时刷新窗口
+     */
+    private CoalescingMessageDispatcher(DefaultMessageDispatcher downstream, int maxPending, Duration window) {
+        this.downstream = Objects.requireNonNull(downstream, "downstream");
+        this.maxPending = maxPending;
+        this.windowNanos = window.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    }
+
+    /**
+     * 创建合并分发器并启动定时刷新。
+     *
+     * @param downstream 下游分发器
+     * @param maxPending 待合并键数阈值，达到后立即刷新，必须大于 0
+     * @param window     定时刷新窗口，必须大于 0
+     * @return 已启动定时刷新的合并分发器
+     */
+    public static CoalescingMessageDispatcher of(DefaultMessageDispatcher downstream, int maxPending, Duration window) {
+        if (maxPending <= 0 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("maxPending and window must be positive");
+        }
+
+        CoalescingMessageDispatcher dispatcher = new CoalescingMessageDispatcher(downstream, maxPending, window);
+        dispatcher.scheduler.scheduleWithFixedDelay(dispatcher::flush, dispatcher.windowNanos, dispatcher.windowNanos,
+            TimeUnit.NANOSECONDS);
+        return dispatcher;
+    }
+
+    /**
+     * 合并单条变更，达到阈值时立即刷新。
+     *
+     * @param change 已绑定的变更记录
+     * @throws IllegalStateException 分发器已关闭
+     */
+    @Override
+    void route(RoutedChange change) {
+        boolean full;
+        synchronized (pendingLock) {
+            ensureOpen();
+            full = coalesce(change);
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * 合并一批变更，达到阈值时立即刷新。
+     *
+     * @param changes 已绑定的变更记录列表，按到达顺序排列
+     * @throws IllegalStateException 分发器已关闭
+     */
+    @Override
+    void routeBatch(List<RoutedChange> changes) {
+        boolean full = false;
+        synchronized (pendingLock) {
+            ensureOpen();
+            for (RoutedChange change : changes) {
+                full = coalesce(change);
+            }
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * 立即将已合并的变更交给下游分发器。
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<CoalesceKey, Window> windows;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                windows = pending;
+                pending = new LinkedHashMap<>();
+            }
+
+            List<RoutedChange> batch = new ArrayList<>(windows.size());
+            for (Window window : windows.values()) {
+                window.drainTo(batch);
+            }
+
+            try {
+                downstream.routeBatch(batch);
+            } catch (RuntimeException e) {
+                // 下游关闭等异常不应终止定时刷新任务，逐条报告可能未被应用的变更
+                DispatchListener listener = dispatchListener();
+                for (RoutedChange change : batch) {
+                    listener.onFailure(change.storage().dataSource(), change.change().eventType(),
+                        DispatchFailure.DOWNSTREAM_ERROR, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取当前待合并的键数。
+     *
+     * @return 待合并的键数
+     */
+    public int pendingSize() {
+        synchronized (pendingLock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 停止接受新的变更和定时刷新，并将剩余变更交给下游分发器；下游分发器的生命周期由调用方管理。
+     * <p>关闭后到达的变更不会再被刷新，因此直接拒绝，{@link #dispatch(String)} 等方法抛出 {@link IllegalStateException}。</p>
+     */
+    @Override
+    public void close() {
+        synchronized (pendingLock) {
+            closed = true;
+        }
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 检查分发器是否仍接受变更，调用方需持有 {@link #pendingLock}。
+     *
+     * @throws IllegalStateException 分发器已关闭
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("CoalescingMessageDispatcher is closed");
+        }
+    }
+
+    /**
+     * 将变更合并到待刷新集合，调用方需持有 {@link #pendingLock}。
+     *
+     * @param change 已绑定的变更记录
+     * @return 待合并键数是否已达到阈值
+     */
+    private boolean coalesce(RoutedChange change) {
+        CoalesceKey key = new CoalesceKey(change.storage(), change.change().key());
+        Window window = pending.get(key);
+        if (Objects.isNull(window)) {
+            pending.put(key, new Window(change.storage(), change.change()));
+        } else {
+            window.add(change.change());
+        }
+        return pending.size() >= maxPending;
+    }
+
+    /**
+     * 按合并规则合并同一键按到达顺序排列的变更。
+     *
+     * @param changes 同一键的变更，至少一条
+     * @return 合并后依次交给下游的变更，一条或两条
+     */
+    static List<Change<?, ?>> merge(List<? extends Change<?, ?>> changes) {
+        Window window = new Window(null, changes.getFirst());
+        for (int i = 1; i < changes.size(); i++) {
+            window.add(changes.get(i));
+        }
+
+        List<RoutedChange> merged = new ArrayList<>(2);
+        window.drainTo(merged);
+        return merged.stream().<Change<?, ?>>map(RoutedChange::change).toList();
+    }
+
+    /**
+     * 合并键，由存储器与消息键组成
+     *
+     * @param storage 目标消息存储器
+     * @param key     消息键
+     */
+    private record CoalesceKey(AbstractMessageStorage<?, ?, ?> storage, Object key) {
+    }
+
+    /**
+     * 同一键在当前窗口内合并后的变更，由可选的前置 DELETE 与最新的变更组成。
+     */
+    private static final class Window {
+        /**
+         * 目标消息存储器
+         */
+        private final AbstractMessageStorage<?, ?, ?> storage;
+
+        /**
+         * 窗口内第一条变更的事件类型
+         */
+        private final EventType opened;
+
+        /**
+         * 被之后的 CREATE 或 UPDATE 替换的 DELETE，需先于 {@link #tail} 交给下游，没有时为 {@code null}
+         */
+        private Change<?, ?> head;
+
+        /**
+         * 合并后的最新变更
+         */
+        private Change<?, ?> tail;
+
+        private Window(AbstractMessageStorage<?, ?, ?> storage, Change<?, ?> first) {
+            this.storage = storage;
+            this.opened = first.eventType();
+            this.tail = first;
+        }
+
+        /**
+         * 合并同一键的下一条变更。
+         *
+         * @param next 新的变更
+         */
+        private void add(Change<?, ?> next) {
+            if (next.eventType() == EventType.DELETE) {
+                head = null;
+                tail = next;
+                return;
+            }
+
+            switch (tail.eventType()) {
+                case CREATE -> tail = asCreate(next);
+                case UPDATE -> tail = next;
+                case DELETE -> {
+                    if (opened == EventType.CREATE) {
+                        // 下游从未看到窗口内的创建与删除
+                        tail = asCreate(next);
+                    } else {
+                        head = tail;
+                        tail = next;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按顺序输出合并后的变更。
+         *
+         * @param out 接收变更的列表
+         */
+        private void drainTo(List<RoutedChange> out) {
+            if (Objects.nonNull(head)) {
+                out.add(new RoutedChange(storage, head));
+            }
+            out.add(new RoutedChange(storage, tail));
+        }
+
+        /**
+         * 将变更转换为携带其值与序号的 CREATE。
+         *
+         * @param change 变更
+         * @return CREATE 变更
+         */
+        private static Change<?, ?> asCreate(Change<?, ?> change) {
+            return change.eventType() == EventType.CREATE
+                ? change
+                : new Change<>(EventType.CREATE, change.key(), change.value(), change.sequence(), change.producer());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.g2rain.common.syncer;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * <p>死信，记录一条未能应用的事件消息及其失败原因，由 {@link DeadLetterQueue} 保存并重试。</p>
+ *
+ * <p>键已知的死信会阻塞同一（数据源，键）的后续事件，键未知的死信阻塞同一数据源的后续事件：后续事件以
+ * {@code failure} 为 {@code null} 的死信形式排在其后，待前面的死信结束后按捕获顺序重放。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * for (DeadLetter letter : deadLetterQueue.snapshot()) {
+ *     System.out.println(letter.dataSource() + " " + letter.failure() + " " + letter.attempts() + " " + letter.cause());
+ * }
+ * }</pre>
+ *
+ * @param id         死信编号
+ * @param dataSource 数据源标识
+ * @param key        消息键，无法从消息中解码键时为 {@code null}
+ * @param message    可重新分发的原始消息字节（JSON 或二进制信封）
+ * @param failure    失败原因，因同一键存在更早的死信而排队的事件为 {@code null}
+ * @param cause      最近一次失败的异常描述，可以为 {@code null}
+ * @param attempts   已重试次数
+ * @param capturedAt 捕获时间
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record DeadLetter(long id, String dataSource, Object key, byte[] message, DispatchFailure failure,
+                         String cause, int attempts, Instant capturedAt) {
+
+    /**
+     * 判断该死信是否只是排在同一键的更早死信之后。
+     *
+     * @return 排队等待的事件返回 {@code true}
+     */
+    public boolean isParked() {
+        return Objects.isNull(failure);
+    }
+
+    /**
+     * 以 UTF-8 解码原始消息，便于查看 JSON 消息。
+     *
+     * @return 原始消息文本
+     */
+    public String messageAsString() {
+        return new String(message, StandardCharsets.UTF_8);
+    }
+}
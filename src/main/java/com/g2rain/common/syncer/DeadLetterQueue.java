@@ -0,0 +1,917 @@
+package com.g2rain.common.syncer;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <p>死信队列，保存 {@link DefaultMessageDispatcher} 未能应用的事件，并在后台按指数退避重试。</p>
+ *
+ * <ul>
+ *     <li><b>捕获范围：</b>只有存储异常与数据绑定失败的消息会以可重新分发的原始字节保存，
+ *     其余失败（格式错误、数据源未注册、键为空、过期序号）只报告给 {@link DispatchListener}：
+ *     共享主题上大部分消息属于其他服务的数据源，捕获它们会挤占真正失败的消息并空耗重试。</li>
+ *     <li><b>有界存储：</b>内存中最多保存 {@code capacity} 条死信（包括排在死信之后的事件），超出时淘汰最早的一条，
+ *     并通过关联时设置的回调报告给分发器，分发器以 {@link DispatchFailure#EVICTED} 报告给 {@link DispatchListener}；
+ *     可选的追加写日志文件记录每条死信的捕获、结束与淘汰，重启后可通过 {@link #recover()} 恢复未结束的死信。
+ *     已结束的记录累积到与未结束的死信一样多（且不少于 {@value #COMPACT_THRESHOLD} 条）时，日志被重写为只包含未结束的死信。</li>
+ *     <li><b>退避重试：</b>后台线程按捕获顺序重试到期的死信，第 n 次失败后等待 {@code initialBackoff * 2^(n-1)}（不超过 {@code maxBackoff}），
+ *     达到最大重试次数后放弃；重试不占用实时分发线程。</li>
+ *     <li><b>保持键顺序：</b>某个（数据源，键）存在死信时，该键的后续事件不再应用，而是按到达顺序排在死信之后，
+ *     前面的死信重试成功、被放弃或被淘汰后依次重放。键未知的死信（例如键解码失败）阻塞整个数据源。</li>
+ * </ul>
+ *
+ * <p>日志不保存键：关联分发器时由分发器重新解码恢复的死信以确定其键，仍无法解码的死信阻塞整个数据源。
+ * 关联分发器之前（例如 {@link #recover()} 时）淘汰的死信只计入 {@link #evictedCount()}。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * DeadLetterQueue deadLetterQueue = new DeadLetterQueue(10_000, 8, Duration.ofSeconds(1), Duration.ofMinutes(5),
+ *     Path.of("/var/lib/app/dead-letters.log"));
+ * deadLetterQueue.recover();
+ * DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withDeadLetterQueue(deadLetterQueue);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class DeadLetterQueue implements AutoCloseable {
+    /**
+     * 日志中表示捕获死信的记录类型
+     */
+    private static final String CAPTURED = "C";
+
+    /**
+     * 日志中表示死信重试成功的记录类型
+     */
+    private static final String RESOLVED = "R";
+
+    /**
+     * 日志中表示死信达到最大重试次数被放弃的记录类型
+     */
+    private static final String EXHAUSTED = "X";
+
+    /**
+     * 日志中表示死信因容量超出被淘汰的记录类型
+     */
+    private static final String EVICTED = "E";
+
+    /**
+     * 日志中表示排队事件（没有失败原因）的占位符
+     */
+    private static final String PARKED = "-";
+
+    /**
+     * 后台重试的最长检查间隔（毫秒）
+     */
+    private static final long MAX_TICK_MILLIS = 1000;
+
+    /**
+     * 触发日志压缩的最少已结束记录数
+     */
+    static final int COMPACT_THRESHOLD = 1024;
+
+    /**
+     * 内存中保存的死信上限
+     */
+    private final int capacity;
+
+    /**
+     * 最大重试次数
+     */
+    private final int maxAttempts;
+
+    /**
+     * 首次重试的等待时间（毫秒）
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * 最长等待时间（毫秒）
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * 保护死信集合与日志写入的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 串行化重试的锁，避免后台线程与手动重试同时重放同一条死信
+     */
+    private final ReentrantLock retryLock = new ReentrantLock();
+
+    /**
+     * 全部死信，按编号（即捕获顺序）排列，容量超出时从头部淘汰
+     */
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+
+    /**
+     * 各（数据源，键）未结束的死信数，键未知的死信以（数据源，{@code null}）计数；只在持有锁时修改，读取方可无锁判断是否为空
+     */
+    private final Map<LetterKey, Integer> blocking = new ConcurrentHashMap<>();
+
+    /**
+     * 死信编号，以时间为基准避免与日志中已有的编号冲突
+     */
+    private final AtomicLong nextId = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    /**
+     * 追加写日志文件，未启用时为 {@code null}
+     */
+    private final Path journal;
+
+    /**
+     * 日志写入器，未启用日志时为 {@code null}；压缩日志时替换，只在持有锁时访问
+     */
+    private BufferedWriter writer;
+
+    /**
+     * 日志中的记录数，只在持有锁时访问
+     */
+    private long journalRecords;
+
+    /**
+     * 捕获的死信数
+     */
+    private final LongAdder captured = new LongAdder();
+
+    /**
+     * 重试成功的死信数
+     */
+    private final LongAdder redelivered = new LongAdder();
+
+    /**
+     * 达到最大重试次数被放弃的死信数
+     */
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * 因容量超出被淘汰的死信数
+     */
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * 日志写入、压缩或关闭失败的次数
+     */
+    private final LongAdder journalFailures = new LongAdder();
+
+    /**
+     * 重新分发死信的处理器，由分发器在关联时设置
+     */
+    private volatile Consumer<DeadLetter> handler;
+
+    /**
+     * 解码死信键的函数，由分发器在关联时设置，无法解码时返回 {@code null}
+     */
+    private Function<DeadLetter, Object> keyResolver;
+
+    /**
+     * 接收被淘汰的死信的回调，由分发器在关联时设置，在锁外调用
+     */
+    private volatile Consumer<DeadLetter> evictionHandler;
+
+    /**
+     * 后台重试调度器，关联分发器后创建
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 构造仅保存在内存中的死信队列。
+     *
+     * @param capacity       内存中保存的死信上限，必须大于 0
+     * @param maxAttempts    最大重试次数，必须大于 0
+     * @param initialBackoff 首次重试的等待时间，必须大于 0
+     * @param maxBackoff     最长等待时间，不能小于首次等待时间
+     */
+    public DeadLetterQueue(int capacity, int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this(capacity, maxAttempts, initialBackoff, maxBackoff, null);
+    }
+
+    /**
+     * 构造死信队列，并将死信追加写入日志文件。
+     *
+     * @param capacity       内存中保存的死信上限，必须大于 0
+     * @param maxAttempts    最大重试次数，必须大于 0
+     * @param initialBackoff 首次重试的等待时间，必须大于 0
+     * @param maxBackoff     最长等待时间，不能小于首次等待时间
+     * @param journal        追加写日志文件，为 {@code null} 时不写日志
+     * @throws UncheckedIOException 日志文件无法打开
+     */
+    public DeadLetterQueue(int capacity, int maxAttempts, Duration initialBackoff, Duration maxBackoff, Path journal) {
+        if (capacity <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("capacity and maxAttempts must be positive");
+        }
+        if (Objects.isNull(initialBackoff) || initialBackoff.toMillis() <= 0
+            || Objects.isNull(maxBackoff) || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("initialBackoff must be positive and not greater than maxBackoff");
+        }
+
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.journal = journal;
+        try {
+            this.writer = Objects.isNull(journal) ? null : Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 判断该失败原因的消息是否值得进入死信队列。
+     *
+     * @param failure 失败原因
+     * @return 存储异常与数据绑定失败时返回 {@code true}
+     */
+    static boolean isRetryable(DispatchFailure failure) {
+        return failure == DispatchFailure.STORAGE_ERROR || failure == DispatchFailure.BIND_ERROR;
+    }
+
+    /**
+     * 关联重新分发死信的处理器并启动后台重试，不解码死信的键。
+     *
+     * @param handler 重新分发死信的处理器，抛出异常表示重试失败
+     * @throws IllegalStateException 已关联其他分发器
+     */
+    void start(Consumer<DeadLetter> handler) {
+        start(handler, letter -> null);
+    }
+
+    /**
+     * 关联重新分发死信的处理器并启动后台重试，由 {@link DefaultMessageDispatcher#withDeadLetterQueue(DeadLetterQueue)} 调用；
+     * 已恢复但键未知的死信在此时解码键。
+     *
+     * @param handler     重新分发死信的处理器，抛出异常表示重试失败
+     * @param keyResolver 解码死信键的函数，无法解码时返回 {@code null}
+     * @throws IllegalStateException 已关联其他分发器
+     */
+    void start(Consumer<DeadLetter> handler, Function<DeadLetter, Object> keyResolver) {
+        start(handler, keyResolver, letter -> {
+        });
+    }
+
+    /**
+     * 关联重新分发死信的处理器、键解码函数与淘汰回调，并启动后台重试。
+     *
+     * @param handler         重新分发死信的处理器，抛出异常表示重试失败
+     * @param keyResolver     解码死信键的函数，无法解码时返回 {@code null}
+     * @param evictionHandler 接收因容量超出被淘汰的死信（包括排队的事件），在锁外调用，不能抛出异常
+     * @throws IllegalStateException 已关联其他分发器
+     */
+    void start(Consumer<DeadLetter> handler, Function<DeadLetter, Object> keyResolver,
+               Consumer<DeadLetter> evictionHandler) {
+        lock.lock();
+        try {
+            if (Objects.nonNull(this.handler)) {
+                throw new IllegalStateException("DeadLetterQueue is already attached to a dispatcher");
+            }
+
+            this.handler = handler;
+            this.keyResolver = keyResolver;
+            this.evictionHandler = evictionHandler;
+            for (Entry entry : entries.values()) {
+                resolveKey(entry);
+            }
+            long tick = Math.min(initialBackoffMillis, MAX_TICK_MILLIS);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("dead-letter-queue").factory());
+            this.scheduler.scheduleWithFixedDelay(this::retryDue, tick, tick, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 捕获一条失败的消息；键已存在死信时排在其后。
+     *
+     * @param dataSource 数据源标识
+     * @param key        消息键，未知时为 {@code null}，此时阻塞整个数据源
+     * @param failure    失败原因
+     * @param cause      引发失败的异常，可以为 {@code null}
+     * @param message    可重新分发的原始消息字节
+     */
+    void capture(String dataSource, Object key, DispatchFailure failure, Throwable cause, byte[] message) {
+        List<DeadLetter> evictedLetters;
+        lock.lock();
+        try {
+            Entry entry = new Entry(nextId.getAndIncrement(), dataSource, key, message, failure, Instant.now());
+            entry.cause = Objects.isNull(cause) ? null : cause.toString();
+            entry.nextAttemptAt = System.currentTimeMillis() + initialBackoffMillis;
+            evictedLetters = enqueue(entry);
+            journal(CAPTURED, entry);
+            captured.increment();
+        } finally {
+            lock.unlock();
+        }
+        reportEvicted(evictedLetters);
+    }
+
+    /**
+     * 键或数据源已存在死信时，将新事件排在其后，保证同一键的应用顺序。
+     *
+     * @param dataSource 数据源标识
+     * @param key        消息键
+     * @param message    按需生成可重新分发的原始消息字节
+     * @return 已排队返回 {@code true}，该键与数据源都没有死信时返回 {@code false}
+     */
+    boolean park(String dataSource, Object key, Supplier<byte[]> message) {
+        if (blocking.isEmpty() || !isBlocked(dataSource, key)) {
+            return false;
+        }
+
+        List<DeadLetter> evictedLetters;
+        lock.lock();
+        try {
+            if (!isBlocked(dataSource, key)) {
+                return false;
+            }
+
+            Entry entry = new Entry(nextId.getAndIncrement(), dataSource, key, message.get(), null, Instant.now());
+            evictedLetters = enqueue(entry);
+            journal(CAPTURED, entry);
+            captured.increment();
+        } finally {
+            lock.unlock();
+        }
+        reportEvicted(evictedLetters);
+        return true;
+    }
+
+    /**
+     * 判断是否存在按键阻塞后续事件的死信。
+     *
+     * @return 存在死信时返回 {@code true}
+     */
+    boolean hasPending() {
+        return !blocking.isEmpty();
+    }
+
+    /**
+     * 立即重试全部到期的死信，通常由后台线程调用。
+     *
+     * @return 本次重试的死信数
+     */
+    public int retryDue() {
+        return retryDue(System.currentTimeMillis());
+    }
+
+    /**
+     * 以指定时间为当前时间按捕获顺序重试全部到期的死信；某条死信未到期或重试失败时，
+     * 同一键（键未知时为同一数据源）更晚的死信继续等待。重试结束后按需压缩日志。
+     *
+     * @param now 当前时间（毫秒）
+     * @return 本次重试的死信数
+     */
+    int retryDue(long now) {
+        Consumer<DeadLetter> current = handler;
+        if (Objects.isNull(current) || blocking.isEmpty()) {
+            return 0;
+        }
+
+        retryLock.lock();
+        try {
+            List<Entry> pending;
+            lock.lock();
+            try {
+                pending = new ArrayList<>(entries.values());
+            } finally {
+                lock.unlock();
+            }
+
+            int retried = 0;
+            Set<LetterKey> blockedKeys = new HashSet<>();
+            Set<String> blockedSources = new HashSet<>();
+            Set<String> unsettledSources = new HashSet<>();
+            for (Entry entry : pending) {
+                // 键未知的死信可能与同一数据源任何更早的死信同键，需等待它们全部结束
+                boolean blocked = blockedSources.contains(entry.dataSource) || (Objects.isNull(entry.key)
+                    ? unsettledSources.contains(entry.dataSource) : blockedKeys.contains(entry.letterKey()));
+                boolean settled = !isPending(entry);
+                if (!blocked && !settled && entry.nextAttemptAt <= now) {
+                    Exception failure = null;
+                    try {
+                        current.accept(entry.toLetter());
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                    retried++;
+                    settled = settle(entry, failure, now);
+                }
+
+                if (!settled) {
+                    unsettledSources.add(entry.dataSource);
+                    if (Objects.isNull(entry.key)) {
+                        blockedSources.add(entry.dataSource);
+                    } else {
+                        blockedKeys.add(entry.letterKey());
+                    }
+                }
+            }
+
+            lock.lock();
+            try {
+                compactIfNeeded();
+            } finally {
+                lock.unlock();
+            }
+            return retried;
+        } finally {
+            retryLock.unlock();
+        }
+    }
+
+    /**
+     * 获取全部死信的快照，按捕获顺序排列。
+     *
+     * @return 死信快照
+     */
+    public List<DeadLetter> snapshot() {
+        lock.lock();
+        try {
+            List<DeadLetter> letters = new ArrayList<>(entries.size());
+            entries.values().forEach(entry -> letters.add(entry.toLetter()));
+            return letters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取内存中的死信数。
+     *
+     * @return 死信数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取累计捕获的死信数，包括排队的事件。
+     *
+     * @return 捕获数
+     */
+    public long capturedCount() {
+        return captured.sum();
+    }
+
+    /**
+     * 获取重试成功的死信数。
+     *
+     * @return 重试成功数
+     */
+    public long redeliveredCount() {
+        return redelivered.sum();
+    }
+
+    /**
+     * 获取达到最大重试次数被放弃的死信数。
+     *
+     * @return 放弃数
+     */
+    public long exhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * 获取因容量超出被淘汰的死信数，被淘汰的死信在日志中同样记为已结束。
+     *
+     * @return 淘汰数
+     */
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    /**
+     * 获取日志写入、压缩或关闭失败的次数；写入失败的死信仍在内存中处理，但重启后无法恢复。
+     *
+     * @return 失败次数
+     */
+    public long journalFailureCount() {
+        return journalFailures.sum();
+    }
+
+    /**
+     * 从日志文件中逐行恢复未结束的死信，通常在关联分发器之前调用一次；恢复后压缩日志。
+     * <p>已关联分发器时立即解码恢复的死信的键，否则在关联时解码。</p>
+     *
+     * @return 恢复的死信数，未启用日志时返回 0
+     * @throws UncheckedIOException 日志文件读取失败
+     */
+    public int recover() {
+        if (Objects.isNull(journal)) {
+            return 0;
+        }
+
+        Map<Long, String[]> pending = new LinkedHashMap<>();
+        List<DeadLetter> evictedLetters = new ArrayList<>();
+        retryLock.lock();
+        lock.lock();
+        try {
+            writer.flush();
+            long records = 0;
+            try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                String line;
+                while (Objects.nonNull(line = reader.readLine())) {
+                    records++;
+                    String[] fields = line.split("\t");
+                    if (fields.length < 2) {
+                        continue;
+                    }
+
+                    long id = Long.parseLong(fields[1]);
+                    if (CAPTURED.equals(fields[0]) && fields.length == 6) {
+                        pending.put(id, fields);
+                    } else {
+                        pending.remove(id);
+                    }
+                }
+            }
+            journalRecords = records;
+
+            int recovered = 0;
+            Base64.Decoder decoder = Base64.getDecoder();
+            for (Map.Entry<Long, String[]> record : pending.entrySet()) {
+                long id = record.getKey();
+                if (entries.containsKey(id)) {
+                    continue;
+                }
+
+                String[] fields = record.getValue();
+                String dataSource = new String(decoder.decode(fields[4]), StandardCharsets.UTF_8);
+                DispatchFailure failure = PARKED.equals(fields[3]) ? null : DispatchFailure.valueOf(fields[3]);
+                Entry entry = new Entry(id, dataSource, null, decoder.decode(fields[5]), failure,
+                    Instant.ofEpochMilli(Long.parseLong(fields[2])));
+                resolveKey(entry);
+                evictedLetters.addAll(enqueue(entry));
+                nextId.accumulateAndGet(id + 1, Math::max);
+                recovered++;
+            }
+            compact();
+            return recovered;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+            retryLock.unlock();
+            reportEvicted(evictedLetters);
+        }
+    }
+
+    /**
+     * 停止后台重试并关闭日志文件，内存中未结束的死信仍保留在日志中。
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current;
+        lock.lock();
+        try {
+            current = scheduler;
+        } finally {
+            lock.unlock();
+        }
+
+        if (Objects.nonNull(current)) {
+            current.shutdown();
+            try {
+                current.awaitTermination(MAX_TICK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.lock();
+        try {
+            if (Objects.nonNull(writer)) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            journalFailures.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次重试的结果。
+     *
+     * @param entry   重试的死信
+     * @param failure 重试失败的异常，成功时为 {@code null}
+     * @param now     当前时间（毫秒）
+     * @return 该死信已移出队列、可以继续重试同一键的下一条时返回 {@code true}
+     */
+    private boolean settle(Entry entry, Exception failure, long now) {
+        lock.lock();
+        try {
+            if (!isPending(entry)) {
+                // 重试期间已被淘汰
+                return true;
+            }
+
+            if (Objects.isNull(failure)) {
+                remove(entry);
+                journal(RESOLVED, entry);
+                redelivered.increment();
+                return true;
+            }
+
+            entry.attempts++;
+            entry.cause = failure.toString();
+            if (entry.attempts >= maxAttempts) {
+                remove(entry);
+                journal(EXHAUSTED, entry);
+                exhausted.increment();
+                return true;
+            }
+
+            entry.nextAttemptAt = now + backoff(entry.attempts);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 计算第 n 次失败后的等待时间。
+     *
+     * @param attempts 已失败次数
+     * @return 等待时间（毫秒）
+     */
+    private long backoff(int attempts) {
+        long delay = initialBackoffMillis;
+        for (int i = 1; i < attempts && delay < maxBackoffMillis; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, maxBackoffMillis);
+    }
+
+    /**
+     * 加入死信并在容量超出时淘汰最早的死信，淘汰记入日志，调用方需持有锁。
+     *
+     * @param entry 死信
+     * @return 被淘汰的死信，调用方释放锁后交给 {@link #reportEvicted(List)}
+     */
+    private List<DeadLetter> enqueue(Entry entry) {
+        entries.put(entry.id, entry);
+        blocking.merge(entry.letterKey(), 1, Integer::sum);
+        List<DeadLetter> evictedLetters = List.of();
+        while (entries.size() > capacity) {
+            Entry eldest = entries.firstEntry().getValue();
+            remove(eldest);
+            journal(EVICTED, eldest);
+            evicted.increment();
+            evictedLetters = evictedLetters.isEmpty() ? new ArrayList<>() : evictedLetters;
+            evictedLetters.add(eldest.toLetter());
+        }
+        return evictedLetters;
+    }
+
+    /**
+     * 将被淘汰的死信交给淘汰回调，调用方不能持有锁；尚未关联分发器时只计数。
+     *
+     * @param evictedLetters 被淘汰的死信
+     */
+    private void reportEvicted(List<DeadLetter> evictedLetters) {
+        Consumer<DeadLetter> current = evictionHandler;
+        if (Objects.nonNull(current)) {
+            evictedLetters.forEach(current);
+        }
+    }
+
+    /**
+     * 移除死信，调用方需持有锁。
+     *
+     * @param entry 死信
+     */
+    private void remove(Entry entry) {
+        if (Objects.nonNull(entries.remove(entry.id))) {
+            release(entry.letterKey());
+        }
+    }
+
+    /**
+     * 减少（数据源，键）未结束的死信数，调用方需持有锁。
+     *
+     * @param letterKey 排队键
+     */
+    private void release(LetterKey letterKey) {
+        blocking.computeIfPresent(letterKey, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * 判断死信是否仍未结束。
+     *
+     * @param entry 死信
+     * @return 仍在队列中时返回 {@code true}
+     */
+    private boolean isPending(Entry entry) {
+        lock.lock();
+        try {
+            return entries.get(entry.id) == entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 判断（数据源，键）是否被更早的死信阻塞：该键或该数据源键未知的死信尚未结束。
+     *
+     * @param dataSource 数据源标识
+     * @param key        消息键
+     * @return 被阻塞时返回 {@code true}
+     */
+    private boolean isBlocked(String dataSource, Object key) {
+        return blocking.containsKey(new LetterKey(dataSource, null))
+            || (Objects.nonNull(key) && blocking.containsKey(new LetterKey(dataSource, key)));
+    }
+
+    /**
+     * 用关联的分发器解码键未知的死信的键，调用方需持有锁；解码失败时保持未知。
+     *
+     * @param entry 死信
+     */
+    private void resolveKey(Entry entry) {
+        if (Objects.isNull(keyResolver) || Objects.nonNull(entry.key)) {
+            return;
+        }
+
+        Object key;
+        try {
+            key = keyResolver.apply(entry.toLetter());
+        } catch (RuntimeException e) {
+            // 与解码结果为 null 相同：死信保持键未知，阻塞整个数据源，在 snapshot() 中可见
+            return;
+        }
+        if (Objects.isNull(key)) {
+            return;
+        }
+
+        boolean queued = entries.get(entry.id) == entry;
+        if (queued) {
+            release(entry.letterKey());
+        }
+        entry.key = key;
+        if (queued) {
+            blocking.merge(entry.letterKey(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 已结束的记录不少于未结束的死信且达到阈值时压缩日志，调用方需持有锁。
+     */
+    private void compactIfNeeded() {
+        long obsolete = journalRecords - entries.size();
+        if (Objects.nonNull(writer) && obsolete >= COMPACT_THRESHOLD && obsolete >= entries.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * 将日志重写为只包含未结束死信的捕获记录：先写入临时文件，再原子替换日志，调用方需持有锁。
+     * <p>重写失败时保留原日志并继续追加。</p>
+     */
+    private void compact() {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+
+        Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try {
+            writer.close();
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Entry entry : entries.values()) {
+                    writeCaptured(out, entry);
+                }
+            }
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalRecords = entries.size();
+        } catch (IOException e) {
+            journalFailures.increment();
+        }
+
+        try {
+            writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 追加一条日志记录，调用方需持有锁；写入失败不影响死信的内存处理。
+     *
+     * @param type  记录类型
+     * @param entry 死信
+     */
+    private void journal(String type, Entry entry) {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+
+        try {
+            if (CAPTURED.equals(type)) {
+                writeCaptured(writer, entry);
+            } else {
+                writer.write(type + "\t" + entry.id);
+                writer.newLine();
+            }
+            writer.flush();
+            journalRecords++;
+        } catch (IOException e) {
+            journalFailures.increment();
+        }
+    }
+
+    /**
+     * 写入一条捕获记录。
+     *
+     * @param out   目标写入器
+     * @param entry 死信
+     * @throws IOException 写入失败
+     */
+    private static void writeCaptured(BufferedWriter out, Entry entry) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        out.write(String.join("\t", CAPTURED, Long.toString(entry.id),
+            Long.toString(entry.capturedAt.toEpochMilli()),
+            Objects.isNull(entry.failure) ? PARKED : entry.failure.name(),
+            encoder.encodeToString(entry.dataSource.getBytes(StandardCharsets.UTF_8)),
+            encoder.encodeToString(entry.message)));
+        out.newLine();
+    }
+
+    /**
+     * 死信的排队键
+     *
+     * @param dataSource 数据源标识
+     * @param key        消息键，为 {@code null} 时表示阻塞整个数据源
+     */
+    private record LetterKey(String dataSource, Object key) {
+    }
+
+    /**
+     * 死信队列中的条目，重试状态只在持有锁时修改
+     */
+    private static final class Entry {
+        private final long id;
+        private final String dataSource;
+        private final byte[] message;
+        private final DispatchFailure failure;
+        private final Instant capturedAt;
+        private Object key;
+        private int attempts;
+        private long nextAttemptAt;
+        private String cause;
+
+        private Entry(long id, String dataSource, Object key, byte[] message, DispatchFailure failure,
+                      Instant capturedAt) {
+            this.id = id;
+            this.dataSource = dataSource;
+            this.key = key;
+            this.message = message;
+            this.failure = failure;
+            this.capturedAt = capturedAt;
+        }
+
+        private LetterKey letterKey() {
+            return new LetterKey(dataSource, key);
+        }
+
+        private DeadLetter toLetter() {
+            return new DeadLetter(id, dataSource, key, message, failure, cause, attempts, capturedAt);
+        }
+    }
+}
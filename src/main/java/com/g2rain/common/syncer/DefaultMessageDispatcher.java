@@ -5,23 +5,56 @@ import com.g2rain.common.json.JsonCodec;
 import com.g2rain.common.json.JsonCodecFactory;
 import com.g2rain.common.utils.Collections;
 import com.g2rain.common.utils.Strings;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+import tools.jackson.databind.node.StringNode;
+import tools.jackson.databind.util.TokenBuffer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>默认的消息分发器实现类，负责将原始消息解析并分发到已注册的 {@link AbstractMessageStorage}。</p>
  *
- * <p>解析过程分为两步：</p>
+ * <p>解析基于 Jackson {@link JsonParser} 流式完成，只遍历一次消息：</p>
  * <ol>
- *     <li>解析事件消息的元数据（数据源、事件类型），以提高性能。</li>
+ *     <li>从 Token 流中读取事件消息的元数据（数据源、事件类型），并定位目标存储器。</li>
+ *     <li>将 {@code data} 直接绑定为存储器的值类型，不再生成中间字符串，也不做二次解析。</li>
  *     <li>根据事件类型（创建、更新、删除）调用相应的存储器方法。</li>
  * </ol>
  *
+ * <p>{@code data} 既可以是转义后的 JSON 字符串（兼容 {@code EventMessage<String>} 的格式），也可以是内联的 JSON 值；
+ * 只有当 {@code data} 出现在元数据之前时，才会将其 Token 暂存到 {@link TokenBuffer} 中，待元数据读取完成后再绑定。</p>
+ *
+ * <p>批量分发时，同一批次内的消息按数据源分组，每个存储器只调用一次 {@link AbstractMessageStorage#applyBatch(List)}。</p>
+ *
+ * <p>字节数组与 {@link ByteBuffer} 形式的消息直接交给基于 UTF-8 字节的解析器，不经过字符串解码与复制。
+ * 以 {@link BinaryEnvelopeCodec#MAGIC} 开头的消息自动按二进制信封解码，两种格式可以混合分发，便于逐步迁移。</p>
+ *
+ * <p>设置 {@link SequenceTracker} 后，带有 {@code sequence} 的事件在提取键之后、交给存储之前按（数据源，键）的高水位过滤，
+ * 过期或重复的事件不会写入存储；数据源内的序号跳跃会回调 {@link SequenceTracker.GapListener}。</p>
+ *
+ * <p>变更应用的耗时以及解析失败、数据源未注册、键为空、存储异常等被丢弃的消息都会报告给 {@link DispatchListener}，
+ * 默认不做任何处理，可通过 {@link #withDispatchListener(DispatchListener)} 设置 {@link DispatchMetrics} 等实现。</p>
+ *
+ * <p>设置 {@link DeadLetterQueue} 后，存储异常与数据绑定失败的消息进入死信队列并在后台重试，数据源未注册的消息只报告不捕获；
+ * 存在死信的（数据源，键）的后续变更排在死信之后，保持同一键的应用顺序。</p>
+ *
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * MessageDispatcher dispatcher = new DefaultMessageDispatcher();
  * dispatcher.dispatch(rawMessageJsonString);
+ * dispatcher.dispatchBytes(record.value()); // byte[]
  * }</pre>
  *
  * <p>注意：如果没有注册的消息存储或消息为空，将直接返回，不进行处理。</p>
@@ -35,78 +68,997 @@ public class DefaultMessageDispatcher implements MessageDispatcher {
      */
     private static final JsonCodec jsonCodec = JsonCodecFactory.instance();
 
+    /**
+     * 事件消息中数据源字段的名称
+     */
+    private static final String DATA_SOURCE_FIELD = "dataSource";
+
+    /**
+     * 事件消息中事件类型字段的名称
+     */
+    private static final String EVENT_TYPE_FIELD = "eventType";
+
+    /**
+     * 事件消息中数据字段的名称
+     */
+    private static final String DATA_FIELD = "data";
+
+    /**
+     * 事件消息中序号字段的名称
+     */
+    private static final String SEQUENCE_FIELD = "sequence";
+
+    /**
+     * 事件消息中发布方标识字段的名称
+     */
+    private static final String PRODUCER_FIELD = "producer";
+
+    /**
+     * 事件类型枚举值缓存，避免每次解析时复制数组
+     */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    /**
+     * 二进制信封解码器，字节形式的消息以 {@link BinaryEnvelopeCodec#MAGIC} 开头时使用
+     */
+    private BinaryEnvelopeCodec envelopeCodec = new BinaryEnvelopeCodec();
+
+    /**
+     * 事件序号跟踪器，{@code null} 表示不按序号过滤
+     */
+    private SequenceTracker sequenceTracker;
+
+    /**
+     * 分发监听器
+     */
+    private DispatchListener dispatchListener = DispatchListener.NOOP;
+
+    /**
+     * 死信队列，{@code null} 表示失败的消息直接丢弃
+     */
+    private DeadLetterQueue deadLetterQueue;
+
+    /**
+     * 按存储器缓存的绑定信息，注册中心有新注册时整体失效
+     */
+    private final Map<AbstractMessageStorage<?, ?, ?>, StorageBinding> bindings = new ConcurrentHashMap<>();
+
+    /**
+     * 绑定信息缓存对应的注册版本号
+     */
+    private volatile long bindingsVersion = -1;
+
+    /**
+     * 设置二进制信封解码器，其消息体编码与数据源字典须与发布方一致。
+     *
+     * @param envelopeCodec 二进制信封解码器
+     * @return 当前分发器，支持链式调用
+     */
+    public DefaultMessageDispatcher withEnvelopeCodec(BinaryEnvelopeCodec envelopeCodec) {
+        this.envelopeCodec = Objects.requireNonNull(envelopeCodec, "envelopeCodec");
+        return this;
+    }
+
+    /**
+     * 设置事件序号跟踪器，按（数据源，键）丢弃乱序或重复的事件，并报告数据源内缺失的事件。
+     *
+     * @param sequenceTracker 事件序号跟踪器
+     * @return 当前分发器，支持链式调用
+     */
+    public DefaultMessageDispatcher withSequenceTracker(SequenceTracker sequenceTracker) {
+        this.sequenceTracker = Objects.requireNonNull(sequenceTracker, "sequenceTracker");
+        return this;
+    }
+
+    /**
+     * 设置分发监听器，用于采集变更应用的耗时与被丢弃消息的原因。
+     *
+     * @param dispatchListener 分发监听器
+     * @return 当前分发器，支持链式调用
+     */
+    public DefaultMessageDispatcher withDispatchListener(DispatchListener dispatchListener) {
+        this.dispatchListener = Objects.requireNonNull(dispatchListener, "dispatchListener");
+        return this;
+    }
+
+    /**
+     * 获取分发监听器，供子类报告在其自身路由阶段产生的失败。
+     *
+     * @return 分发监听器
+     */
+    DispatchListener dispatchListener() {
+        return dispatchListener;
+    }
+
+    /**
+     * 设置死信队列并启动其后台重试，重试时由当前分发器重新解码，按序号过滤后直接应用到存储；
+     * 键未知的死信由当前分发器解码其键，因容量超出被淘汰的死信以 {@link DispatchFailure#EVICTED} 报告给分发监听器。
+     *
+     * @param deadLetterQueue 死信队列，只能关联一个分发器
+     * @return 当前分发器，支持链式调用
+     * @throws IllegalStateException 死信队列已关联其他分发器
+     */
+    public DefaultMessageDispatcher withDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        Objects.requireNonNull(deadLetterQueue, "deadLetterQueue").start(this::redeliver, letter -> keyOf(letter.message()),
+            letter -> dispatchListener.onFailure(letter.dataSource(), null, DispatchFailure.EVICTED, null));
+        this.deadLetterQueue = deadLetterQueue;
+        return this;
+    }
+
     /**
      * 分发原始事件消息。
-     * <p>该方法会解析事件消息的元数据，根据数据源筛选相关存储，并调用对应的事件方法。</p>
+     * <p>该方法会流式解析事件消息的元数据，根据数据源定位对应存储，并调用对应的事件方法。</p>
      *
      * @param rawMessage 原始 JSON 格式的事件消息
      */
     @Override
     public void dispatch(String rawMessage) {
-        // 获取已注册的消息存储
-        Set<AbstractMessageStorage<?, ?, ?>> messageStorages = MessageStorageRegistry.getMessageStorages();
         // 如果没有消息存储或消息为空，直接返回
-        if (Collections.isEmpty(messageStorages) || Strings.isBlank(rawMessage)) {
+        if (Collections.isEmpty(MessageStorageRegistry.getMessageStorages()) || Strings.isBlank(rawMessage)) {
             return;
         }
 
-        /*
-         * 解析事件消息中的基本信息，第一次解析仅解析事件源和事件类型。
-         * 由于此时只需要处理事件的元数据，避免了过早地解析整个消息数据以提高性能。
-         */
-        EventMessage<String> em = jsonCodec.str2obj(rawMessage, EventMessage.class, String.class);
-        if (Objects.isNull(em)) {
-            return; // 如果解析失败，直接返回
+        try (JsonParser parser = jsonCodec.createParser(rawMessage)) {
+            dispatch(parser, rawMessage);
         }
+    }
 
-        // 解析事件的源、类型和数据
-        String dataSource = em.getDataSource();
-        EventType eventType = em.getEventType();
-        String rawData = em.getData();
-        // 如果任何字段为空，则跳过该消息
-        if (Strings.isBlank(dataSource) || Objects.isNull(eventType) || Strings.isBlank(rawData)) {
+    /**
+     * 分发 UTF-8 编码的原始事件消息，直接解析字节，不解码为字符串。
+     *
+     * @param rawMessage 原始消息字节
+     * @param offset     起始位置
+     * @param length     字节长度
+     */
+    @Override
+    public void dispatch(byte[] rawMessage, int offset, int length) {
+        // 如果没有消息存储或消息为空，直接返回
+        if (Collections.isEmpty(MessageStorageRegistry.getMessageStorages())
+            || Objects.isNull(rawMessage) || length <= 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(rawMessage, offset, length);
+        if (rawMessage[offset] == BinaryEnvelopeCodec.MAGIC) {
+            dispatch(decode(buffer.duplicate(), buffer));
+            return;
+        }
+
+        try (JsonParser parser = jsonCodec.createParser(rawMessage, offset, length)) {
+            dispatch(parser, buffer);
+        }
+    }
+
+    /**
+     * 分发字节缓冲区中剩余的 UTF-8 编码的原始事件消息，不复制数据，也不改变缓冲区的位置。
+     *
+     * @param rawMessage 原始消息缓冲区
+     */
+    @Override
+    public void dispatchBuffer(ByteBuffer rawMessage) {
+        // 如果没有消息存储或消息为空，直接返回
+        if (Collections.isEmpty(MessageStorageRegistry.getMessageStorages())
+            || Objects.isNull(rawMessage) || !rawMessage.hasRemaining()) {
+            return;
+        }
+
+        if (BinaryEnvelopeCodec.isBinary(rawMessage)) {
+            dispatch(decode(rawMessage.duplicate(), rawMessage));
+            return;
+        }
+
+        try (JsonParser parser = jsonCodec.createParser(rawMessage)) {
+            dispatch(parser, rawMessage);
+        }
+    }
+
+    /**
+     * 批量分发原始事件消息。
+     * <p>先逐条解析消息，再按数据源分组，每个存储器在一个批次内只调用一次 {@link AbstractMessageStorage#applyBatch(List)}；
+     * 组内变更保持消息到达顺序，因此同一键的变更顺序不变。单条消息解析失败只会跳过该消息。</p>
+     *
+     * @param rawMessages 原始 JSON 格式的事件消息列表，按到达顺序排列
+     */
+    @Override
+    public void dispatchBatch(List<String> rawMessages) {
+        // 如果没有消息存储或消息为空，直接返回
+        if (Collections.isEmpty(MessageStorageRegistry.getMessageStorages()) || Collections.isEmpty(rawMessages)) {
             return;
         }
 
-        // 根据数据源过滤出相关的消息存储，并进行相应的事件处理
-        messageStorages.stream().filter(s -> dataSource.equals(s.dataSource())).forEach(ms ->
-            // 调用 doDispatch 进行事件分发
-            doDispatch(ms, eventType, rawData)
-        );
+        List<RoutedChange> changes = new ArrayList<>(rawMessages.size());
+        for (String rawMessage : rawMessages) {
+            if (Strings.isBlank(rawMessage)) {
+                continue;
+            }
+
+            try (JsonParser parser = jsonCodec.createParser(rawMessage)) {
+                RoutedChange change = decode(parser, rawMessage);
+                if (Objects.nonNull(change) && !isStale(change)) {
+                    changes.add(change);
+                }
+            } catch (Exception e) {
+                // 单条消息格式错误时跳过，不影响同批次的其他消息
+                dispatchListener.onFailure(null, null, DispatchFailure.INVALID_MESSAGE, e);
+            }
+        }
+
+        routeBatch(changes);
     }
 
     /**
-     * 执行具体事件分发。
-     * <p>根据事件类型调用存储器的创建、更新或删除方法。</p>
+     * 从流式解析器中读取事件消息并分发。
+     *
+     * @param parser     尚未读取任何 Token 的流式解析器
+     * @param rawMessage 原始消息（{@link String} 或 {@link ByteBuffer}），用于捕获死信
+     */
+    private void dispatch(JsonParser parser, Object rawMessage) {
+        RoutedChange change;
+        try {
+            change = decode(parser, rawMessage);
+        } catch (RuntimeException e) {
+            dispatchListener.onFailure(null, null, DispatchFailure.INVALID_MESSAGE, e);
+            throw e;
+        }
+        dispatch(change);
+    }
+
+    /**
+     * 路由已绑定的变更记录。
+     *
+     * @param change 已绑定的变更记录，可以为 {@code null}
+     */
+    private void dispatch(RoutedChange change) {
+        if (Objects.nonNull(change) && !isStale(change)) {
+            route(change);
+        }
+    }
+
+    /**
+     * 解码二进制信封，定位目标存储并绑定为变更记录。
+     *
+     * @param buffer     位置位于信封首字节的缓冲区，解码过程中位置会前移
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @return 绑定后的变更记录，信封无效、存储未注册或数据绑定失败时返回 {@code null}
+     */
+    RoutedChange decode(ByteBuffer buffer, Object rawMessage) {
+        EventMessageHeader header;
+        try {
+            header = envelopeCodec.decodeHeader(buffer);
+        } catch (Exception e) {
+            dispatchListener.onFailure(null, null, DispatchFailure.INVALID_MESSAGE, e);
+            return null;
+        }
+
+        if (Strings.isBlank(header.dataSource()) || Objects.isNull(header.eventType())) {
+            return reject(header.dataSource(), header.eventType(), DispatchFailure.INVALID_MESSAGE, null, rawMessage);
+        }
+
+        AbstractMessageStorage<?, ?, ?> ms = MessageStorageRegistry.lookup(header.dataSource());
+        if (Objects.isNull(ms)) {
+            return reject(header.dataSource(), header.eventType(), DispatchFailure.UNKNOWN_DATA_SOURCE, null, rawMessage);
+        }
+
+        RoutedChange change = bind(ms, header.eventType(), buffer, rawMessage);
+        return Objects.isNull(change) ? null : change.withOrigin(header.producer(), header.sequence());
+    }
+
+    /**
+     * 将二进制信封的消息体绑定为存储器的值类型，并提取键构建变更记录。
+     *
+     * @param ms         消息存储器
+     * @param eventType  事件类型（CREATE、UPDATE、DELETE）
+     * @param body       位置位于消息体起始处的缓冲区
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @param <K>        存储键类型
+     * @param <V>        存储值类型
+     * @param <T>        存储返回类型
+     * @return 绑定后的变更记录，数据为空或绑定失败时返回 {@code null}
+     */
+    private <K, V, T> RoutedChange bind(AbstractMessageStorage<K, V, T> ms, EventType eventType, ByteBuffer body,
+                                        Object rawMessage) {
+        V data;
+        try {
+            data = envelopeCodec.decodeBody(body, ms.getValueType());
+        } catch (Exception e) {
+            return reject(ms.dataSource(), eventType, DispatchFailure.BIND_ERROR, e, rawMessage);
+        }
+
+        return toChange(ms, eventType, data);
+    }
+
+    /**
+     * 从流式解析器中读取事件消息，定位目标存储并绑定为变更记录。
+     * <p>元数据先于 {@code data} 出现时，读到 {@code data} 即可直接绑定，之后只跳读剩余字段以获取可能在其后的序号；
+     * 否则先暂存 {@code data} 的 Token，待整个消息读取完毕后再绑定。</p>
+     *
+     * @param parser     尚未读取任何 Token 的流式解析器
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @return 绑定后的变更记录，消息无效、存储未注册或数据绑定失败时返回 {@code null}
+     */
+    RoutedChange decode(JsonParser parser, Object rawMessage) {
+        // 消息必须是 JSON 对象，否则直接跳过
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        String dataSource = null;
+        EventType eventType = null;
+        Long sequence = null;
+        Long producer = null;
+        TokenBuffer bufferedData = null;
+        RoutedChange bound = null;
+        boolean dataBound = false;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+                case DATA_SOURCE_FIELD -> {
+                    dataSource = parser.getValueAsString();
+                    parser.skipChildren();
+                }
+                case EVENT_TYPE_FIELD -> eventType = parseEventType(parser, token);
+                case SEQUENCE_FIELD -> {
+                    sequence = token == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                    parser.skipChildren();
+                }
+                case PRODUCER_FIELD -> {
+                    producer = token == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                    parser.skipChildren();
+                }
+                case DATA_FIELD -> {
+                    // 元数据已就绪，直接从当前位置绑定数据，无需缓冲
+                    if (Strings.isNotBlank(dataSource) && Objects.nonNull(eventType)) {
+                        bound = bind(dataSource, eventType, parser, rawMessage);
+                        dataBound = true;
+                        // 绑定失败或 data 为空时，解析器可能仍停留在 data 的起始 Token 上
+                        if (Objects.isNull(bound)) {
+                            return null;
+                        }
+                        continue;
+                    }
+
+                    // data 先于元数据出现，暂存其 Token 以便稍后绑定
+                    bufferedData = TokenBuffer.forBuffering(parser, parser.objectReadContext());
+                    bufferedData.copyCurrentStructure(parser);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (dataBound) {
+            return bound.withOrigin(producer, sequence);
+        }
+
+        // 如果任何字段为空，则跳过该消息
+        if (Strings.isBlank(dataSource) || Objects.isNull(eventType) || Objects.isNull(bufferedData)) {
+            dispatchListener.onFailure(dataSource, eventType, DispatchFailure.INVALID_MESSAGE, null);
+            return null;
+        }
+
+        try (JsonParser dataParser = bufferedData.asParserOnFirstToken(parser.objectReadContext())) {
+            RoutedChange change = bind(dataSource, eventType, dataParser, rawMessage);
+            return Objects.isNull(change) ? null : change.withOrigin(producer, sequence);
+        }
+    }
+
+    /**
+     * 根据数据源定位消息存储，并将解析器当前位置的数据绑定为变更记录。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型
+     * @param parser     停留在 {@code data} 值第一个 Token 上的解析器
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @return 绑定后的变更记录，存储未注册或数据绑定失败时返回 {@code null}
+     */
+    private RoutedChange bind(String dataSource, EventType eventType, JsonParser parser, Object rawMessage) {
+        // 根据数据源从索引快照中定位消息存储，未注册则跳过
+        AbstractMessageStorage<?, ?, ?> ms = MessageStorageRegistry.lookup(dataSource);
+        if (Objects.isNull(ms)) {
+            return reject(dataSource, eventType, DispatchFailure.UNKNOWN_DATA_SOURCE, null, rawMessage);
+        }
+
+        return bind(ms, eventType, parser, rawMessage);
+    }
+
+    /**
+     * 将数据绑定为存储器的值类型，并提取键构建变更记录。
+     *
+     * @param ms         消息存储器
+     * @param eventType  事件类型（CREATE、UPDATE、DELETE）
+     * @param parser     停留在 {@code data} 值第一个 Token 上的解析器
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @param <K>        存储键类型
+     * @param <V>        存储值类型
+     * @param <T>        存储返回类型
+     * @return 绑定后的变更记录，数据为空或绑定失败时返回 {@code null}
+     */
+    private <K, V, T> RoutedChange bind(AbstractMessageStorage<K, V, T> ms, EventType eventType, JsonParser parser,
+                                        Object rawMessage) {
+        StorageBinding binding = binding(ms);
+        if (eventType == EventType.DELETE && Objects.nonNull(binding.keyPath())) {
+            return bindKey(ms, binding, parser, rawMessage);
+        }
+
+        V data;
+        try {
+            // 将数据转换为具体类型
+            data = readData(parser, binding.valueReader());
+        } catch (Exception e) {
+            return reject(ms.dataSource(), eventType, DispatchFailure.BIND_ERROR, e, rawMessage);
+        }
+
+        return toChange(ms, eventType, data);
+    }
+
+    /**
+     * 只从数据中读取键并构建值为 {@code null} 的 DELETE 变更记录，不绑定完整的值对象。
+     *
+     * @param ms         消息存储器
+     * @param binding    存储器的绑定信息，已声明键路径
+     * @param parser     停留在 {@code data} 值第一个 Token 上的解析器
+     * @param rawMessage 原始消息，用于捕获死信，为 {@code null} 时不捕获
+     * @return 变更记录，数据为空、键为空或读取失败时返回 {@code null}
+     */
+    private RoutedChange bindKey(AbstractMessageStorage<?, ?, ?> ms, StorageBinding binding, JsonParser parser,
+                                 Object rawMessage) {
+        JsonToken token = parser.currentToken();
+        if (Objects.isNull(token) || token == JsonToken.VALUE_NULL) {
+            dispatchListener.onFailure(ms.dataSource(), EventType.DELETE, DispatchFailure.INVALID_MESSAGE, null);
+            return null;
+        }
+
+        Object key;
+        try {
+            key = readKey(parser, binding);
+        } catch (Exception e) {
+            return reject(ms.dataSource(), EventType.DELETE, DispatchFailure.BIND_ERROR, e, rawMessage);
+        }
+
+        if (Objects.isNull(key)) {
+            dispatchListener.onFailure(ms.dataSource(), EventType.DELETE, DispatchFailure.NULL_KEY, null);
+            return null;
+        }
+        return new RoutedChange(ms, new Change<>(EventType.DELETE, key, null));
+    }
+
+    /**
+     * 提取数据的键并构建变更记录，数据或键为空时报告失败原因。
      *
      * @param ms        消息存储器
      * @param eventType 事件类型（CREATE、UPDATE、DELETE）
-     * @param rawData   事件的原始数据
+     * @param data      已绑定的数据，可以为 {@code null}
      * @param <K>       存储键类型
      * @param <V>       存储值类型
      * @param <T>       存储返回类型
+     * @return 变更记录，数据为空、键为空或键提取失败时返回 {@code null}
      */
-    private <K, V, T> void doDispatch(AbstractMessageStorage<K, V, T> ms, EventType eventType, String rawData) {
+    private <K, V, T> RoutedChange toChange(AbstractMessageStorage<K, V, T> ms, EventType eventType, V data) {
+        // 如果数据为空，则跳过
+        if (Objects.isNull(data)) {
+            dispatchListener.onFailure(ms.dataSource(), eventType, DispatchFailure.INVALID_MESSAGE, null);
+            return null;
+        }
+
+        K key;
         try {
-            // 将数据转换为具体类型
-            V data = jsonCodec.str2obj(rawData, ms.getValueType());
-            // 如果数据转换失败，则跳过
-            if (Objects.isNull(data)) {
+            // 获取数据的键
+            key = ms.getKey(data);
+        } catch (Exception e) {
+            dispatchListener.onFailure(ms.dataSource(), eventType, DispatchFailure.NULL_KEY, e);
+            return null;
+        }
+
+        if (Objects.isNull(key)) {
+            dispatchListener.onFailure(ms.dataSource(), eventType, DispatchFailure.NULL_KEY, null);
+            return null;
+        }
+        return new RoutedChange(ms, new Change<>(eventType, key, data));
+    }
+
+    /**
+     * 报告被丢弃的消息，可重试的失败同时以原始消息进入死信队列。
+     *
+     * @param dataSource 数据源标识，可以为 {@code null}
+     * @param eventType  事件类型，可以为 {@code null}
+     * @param failure    失败原因
+     * @param cause      引发失败的异常，可以为 {@code null}
+     * @param rawMessage 原始消息（{@link String} 或 {@link ByteBuffer}），为 {@code null} 时不捕获
+     * @return 总是返回 {@code null}，便于解码方法直接返回
+     */
+    private RoutedChange reject(String dataSource, EventType eventType, DispatchFailure failure, Throwable cause,
+                                Object rawMessage) {
+        dispatchListener.onFailure(dataSource, eventType, failure, cause);
+        if (Objects.nonNull(deadLetterQueue) && Objects.nonNull(rawMessage) && DeadLetterQueue.isRetryable(failure)) {
+            byte[] message = toBytes(rawMessage);
+            deadLetterQueue.capture(dataSource, keyOf(message), failure, cause, message);
+        }
+        return null;
+    }
+
+    /**
+     * 按事件序号判断变更是否过期或重复，同时向跟踪器报告数据源观察到的序号；序号按发布方分别跟踪。
+     *
+     * @param change 已绑定的变更记录
+     * @return 已设置跟踪器、事件带有序号且不大于该键的高水位时返回 {@code true}
+     */
+    private boolean isStale(RoutedChange change) {
+        if (Objects.isNull(sequenceTracker) || Objects.isNull(change.sequence())) {
+            return false;
+        }
+
+        String dataSource = change.storage().dataSource();
+        Long producer = change.change().producer();
+        long sequence = change.sequence();
+        sequenceTracker.observe(dataSource, producer, sequence);
+        if (sequenceTracker.accept(dataSource, producer, change.change().key(), sequence)) {
+            return false;
+        }
+
+        dispatchListener.onFailure(dataSource, change.change().eventType(), DispatchFailure.STALE, null);
+        return true;
+    }
+
+    /**
+     * 将单条变更交给目标存储处理，子类可覆盖以改变执行方式（如异步、分区执行）。
+     * <p>存储器抛出的异常不会向上传播，以免影响后续消息。</p>
+     *
+     * @param change 已绑定的变更记录
+     */
+    void route(RoutedChange change) {
+        apply(change.storage(), change.change());
+    }
+
+    /**
+     * 将一批变更按数据源分组后交给各自的存储处理，每个存储只调用一次批量应用方法，组内保持原有顺序。
+     *
+     * @param changes 已绑定的变更记录列表，按到达顺序排列
+     */
+    void routeBatch(List<RoutedChange> changes) {
+        // 注册中心保证一个数据源只对应一个存储器，因此按存储器分组即按数据源分组
+        Map<AbstractMessageStorage<?, ?, ?>, List<Change<?, ?>>> groups = new LinkedHashMap<>();
+        for (RoutedChange change : changes) {
+            groups.computeIfAbsent(change.storage(), k -> new ArrayList<>()).add(change.change());
+        }
+
+        groups.forEach(this::applyGroup);
+    }
+
+    /**
+     * 将同一存储器的一组变更批量应用，存储器抛出的异常不会向上传播，以免影响其他存储。
+     *
+     * @param ms      消息存储器
+     * @param changes 待应用的变更列表
+     */
+    void applyGroup(AbstractMessageStorage<?, ?, ?> ms, List<Change<?, ?>> changes) {
+        // 存在死信时需要逐条判断是否排在死信之后
+        if (Objects.nonNull(deadLetterQueue) && deadLetterQueue.hasPending()) {
+            changes.forEach(change -> apply(ms, change));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            applyBatch(ms, changes);
+        } catch (Exception e) {
+            if (Objects.nonNull(deadLetterQueue)) {
+                // 无法得知批次中哪些变更失败，逐条重新应用以隔离失败的变更，成功的变更会被再次应用
+                changes.forEach(change -> apply(ms, change));
                 return;
             }
 
-            // 获取数据的键
-            K key = ms.getKey(data);
-            switch (eventType) {
-                // 如果是创建事件，调用 create 方法
-                case CREATE -> ms.create(key, data);
-                // 如果是更新事件，调用 update 方法
-                case UPDATE -> ms.update(key, data);
-                // 如果是删除事件，调用 remove 方法
-                case DELETE -> ms.delete(key);
+            // 默认批量实现将其余失败作为 suppressed 附加在第一个异常上，逐个报告
+            dispatchListener.onFailure(ms.dataSource(), null, DispatchFailure.STORAGE_ERROR, e);
+            for (Throwable suppressed : e.getSuppressed()) {
+                dispatchListener.onFailure(ms.dataSource(), null, DispatchFailure.STORAGE_ERROR, suppressed);
             }
+            return;
+        }
+        dispatchListener.onBatchApplied(ms.dataSource(), changes, System.nanoTime() - start);
+    }
+
+    /**
+     * 应用单条变更并报告结果；该键存在死信时排在死信之后，应用失败时进入死信队列。
+     *
+     * @param ms     消息存储器
+     * @param change 待应用的变更
+     */
+    private void apply(AbstractMessageStorage<?, ?, ?> ms, Change<?, ?> change) {
+        String dataSource = ms.dataSource();
+        EventType eventType = change.eventType();
+        if (Objects.nonNull(deadLetterQueue)
+            && deadLetterQueue.park(dataSource, change.key(), () -> encode(ms, change))) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            applyChange(ms, change);
+        } catch (Exception e) {
+            dispatchListener.onFailure(dataSource, eventType, DispatchFailure.STORAGE_ERROR, e);
+            if (Objects.nonNull(deadLetterQueue)) {
+                deadLetterQueue.capture(dataSource, change.key(), DispatchFailure.STORAGE_ERROR, e,
+                    encode(ms, change));
+            }
+            return;
+        }
+        dispatchListener.onApplied(dataSource, eventType, System.nanoTime() - start);
+    }
+
+    /**
+     * 重新分发死信：重新解码原始消息，按序号过滤后直接应用到存储，不经过死信排队。
+     * <p>该键已应用更新的事件时丢弃死信并报告 {@link DispatchFailure#STALE}，死信视为已结束；
+     * 序号与高水位相同的死信仍会应用，因为排在死信之后的事件在首次到达时已推进过高水位。</p>
+     *
+     * @param letter 死信
+     * @throws IllegalStateException 消息仍无法解码或存储未注册
+     */
+    void redeliver(DeadLetter letter) {
+        byte[] message = letter.message();
+        RoutedChange change;
+        if (message.length > 0 && message[0] == BinaryEnvelopeCodec.MAGIC) {
+            change = decode(ByteBuffer.wrap(message), null);
+        } else {
+            try (JsonParser parser = jsonCodec.createParser(message, 0, message.length)) {
+                change = decode(parser, null);
+            }
+        }
+
+        if (Objects.isNull(change)) {
+            throw new IllegalStateException("dead letter can not be routed: " + letter.id());
+        }
+
+        Change<?, ?> routed = change.change();
+        String dataSource = change.storage().dataSource();
+        if (Objects.nonNull(sequenceTracker) && Objects.nonNull(routed.sequence())
+            && !sequenceTracker.readmit(dataSource, routed.producer(), routed.key(), routed.sequence())) {
+            dispatchListener.onFailure(dataSource, routed.eventType(), DispatchFailure.STALE, null);
+            return;
+        }
+
+        long start = System.nanoTime();
+        applyChange(change.storage(), change.change());
+        dispatchListener.onApplied(change.storage().dataSource(), change.change().eventType(), System.nanoTime() - start);
+    }
+
+    /**
+     * 解码原始消息的键，供死信队列确定死信的排队键；不报告失败原因，也不进入死信队列。
+     * <p>存储器声明了键路径时只读取键，否则绑定完整的值后提取键。</p>
+     *
+     * @param message 原始消息字节（JSON 或二进制信封）
+     * @return 消息键，消息无法解码、存储未注册或键为空时返回 {@code null}
+     */
+    Object keyOf(byte[] message) {
+        try {
+            String dataSource;
+            JsonNode data;
+            if (message.length > 0 && message[0] == BinaryEnvelopeCodec.MAGIC) {
+                ByteBuffer buffer = ByteBuffer.wrap(message);
+                dataSource = envelopeCodec.decodeHeader(buffer).dataSource();
+                data = envelopeCodec.decodeBody(buffer, JsonNode.class);
+            } else {
+                JsonNode root = jsonCodec.byte2node(message);
+                dataSource = jsonCodec.asString(root.get(DATA_SOURCE_FIELD));
+                data = root.get(DATA_FIELD);
+                if (Objects.nonNull(data) && data.isString()) {
+                    data = jsonCodec.byte2node(data.asString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            AbstractMessageStorage<?, ?, ?> ms = Strings.isBlank(dataSource) ? null : MessageStorageRegistry.lookup(dataSource);
+            if (Objects.isNull(ms) || Objects.isNull(data) || data.isNull()) {
+                return null;
+            }
+
+            StorageBinding binding = binding(ms);
+            if (Objects.isNull(binding.keyPath())) {
+                return keyOf(ms, binding.valueReader().readValue(data));
+            }
+
+            JsonNode keyNode = data;
+            for (String segment : binding.keyPath()) {
+                keyNode = keyNode.get(segment);
+                if (Objects.isNull(keyNode) || keyNode.isNull()) {
+                    return null;
+                }
+            }
+            return binding.keyReader().readValue(keyNode);
         } catch (Exception e) {
-            // log.error("消息处理失败: {}", e.getMessage(), e); // 处理异常，记录错误信息
+            // 原始失败已由调用方报告，键未知的死信阻塞整个数据源，不再重复报告
+            return null;
+        }
+    }
+
+    /**
+     * 以存储器的泛型类型提取值的键。
+     *
+     * @param ms    消息存储器
+     * @param value 已绑定的值，可以为 {@code null}
+     * @param <K>   存储键类型
+     * @param <V>   存储值类型
+     * @param <T>   存储返回类型
+     * @return 消息键，值为空时返回 {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V, T> K keyOf(AbstractMessageStorage<K, V, T> ms, Object value) {
+        return Objects.isNull(value) ? null : ms.getKey((V) value);
+    }
+
+    /**
+     * 以存储器的泛型类型应用单条变更，存储器正在预热时交给注册中心缓冲。
+     *
+     * @param ms     消息存储器
+     * @param change 待应用的变更
+     * @param <K>    存储键类型
+     * @param <V>    存储值类型
+     * @param <T>    存储返回类型
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V, T> void applyChange(AbstractMessageStorage<K, V, T> ms, Change<?, ?> change) {
+        if (MessageStorageRegistry.defer(ms, change)) {
+            return;
+        }
+
+        ms.apply((Change<K, V>) change);
+    }
+
+    /**
+     * 以存储器的泛型类型批量应用变更，存储器正在预热时交给注册中心缓冲。
+     *
+     * @param ms      消息存储器
+     * @param changes 待应用的变更列表
+     * @param <K>     存储键类型
+     * @param <V>     存储值类型
+     * @param <T>     存储返回类型
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V, T> void applyBatch(AbstractMessageStorage<K, V, T> ms, List<Change<?, ?>> changes) {
+        if (MessageStorageRegistry.defer(ms, changes)) {
+            return;
+        }
+
+        ms.applyBatch((List<Change<K, V>>) (List<?>) changes);
+    }
+
+    /**
+     * 获取存储器的绑定信息，每个存储器只解析一次值类型、键类型与键路径。
+     * <p>注册中心有新注册时清空缓存，避免被替换的存储器继续占用缓存。</p>
+     *
+     * @param ms 消息存储器
+     * @return 绑定信息
+     */
+    private StorageBinding binding(AbstractMessageStorage<?, ?, ?> ms) {
+        long version = MessageStorageRegistry.version();
+        if (version != bindingsVersion) {
+            bindings.clear();
+            bindingsVersion = version;
+        }
+
+        StorageBinding binding = bindings.get(ms);
+        if (Objects.isNull(binding)) {
+            binding = bindings.computeIfAbsent(ms, StorageBinding::of);
+        }
+        return binding;
+    }
+
+    /**
+     * 从解析器当前位置的 {@code data} 中读取键路径上的值，字符串形式的 {@code data} 基于解析器的字符缓冲区再解析。
+     *
+     * @param parser  停留在 {@code data} 值第一个 Token 上的解析器，读取后停留在该值的最后一个 Token 上
+     * @param binding 存储器的绑定信息，已声明键路径
+     * @return 键，路径不存在、值为 {@code null} 或数据不是 JSON 对象时返回 {@code null}
+     */
+    private static Object readKey(JsonParser parser, StorageBinding binding) {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return readKey(parser, binding, 0);
+        }
+
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+
+        ObjectReader reader = binding.keyReader();
+        try (JsonParser dataParser = reader.createParser(parser.getStringCharacters(), parser.getStringOffset(),
+            parser.getStringLength())) {
+            return dataParser.nextToken() == JsonToken.START_OBJECT ? readKey(dataParser, binding, 0) : null;
+        }
+    }
+
+    /**
+     * 读取当前对象中键路径第 {@code depth} 段指向的值，其余字段只跳读不绑定；读取后解析器停留在该对象的结束 Token 上。
+     *
+     * @param parser  停留在对象起始 Token 上的解析器
+     * @param binding 存储器的绑定信息，已声明键路径
+     * @param depth   当前对象对应的路径段
+     * @return 键，路径不存在或值为 {@code null} 时返回 {@code null}
+     */
+    private static Object readKey(JsonParser parser, StorageBinding binding, int depth) {
+        String[] path = binding.keyPath();
+        Object key = null;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            boolean matched = Objects.isNull(key) && path[depth].equals(parser.currentName());
+            JsonToken token = parser.nextToken();
+            if (matched && depth == path.length - 1) {
+                key = token == JsonToken.VALUE_NULL ? null : binding.keyReader().readValue(parser);
+            } else if (matched && token == JsonToken.START_OBJECT) {
+                key = readKey(parser, binding, depth + 1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 使用存储器的读取器将解析器当前位置的 {@code data} 绑定为值类型。
+     * <p>字符串形式的 {@code data} 直接基于解析器的字符缓冲区再解析，不构造中间字符串；
+     * 内联的 JSON 值则在原解析器上直接绑定。</p>
+     *
+     * @param parser 停留在 {@code data} 值第一个 Token 上的解析器
+     * @param reader 存储器值类型的读取器
+     * @param <V>    值类型
+     * @return 绑定后的数据，数据为空时返回 {@code null}
+     */
+    private static <V> V readData(JsonParser parser, ObjectReader reader) {
+        JsonToken token = parser.currentToken();
+        if (Objects.isNull(token) || token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        if (token != JsonToken.VALUE_STRING) {
+            return reader.readValue(parser);
+        }
+
+        char[] chars = parser.getStringCharacters();
+        int offset = parser.getStringOffset();
+        int length = parser.getStringLength();
+        if (isBlank(chars, offset, length)) {
+            return null;
+        }
+
+        try (JsonParser dataParser = reader.createParser(chars, offset, length)) {
+            return reader.readValue(dataParser);
+        }
+    }
+
+    /**
+     * 将已绑定的变更重新编码为 JSON 事件消息，{@code data} 以转义的 JSON 文本存放，与 {@code EventMessage<String>} 的格式一致。
+     * <p>只读取了键的 DELETE 变更没有值，按键路径重建仅包含键的 {@code data}。</p>
+     *
+     * @param ms     消息存储器
+     * @param change 变更记录
+     * @return 可重新分发的消息字节
+     */
+    private byte[] encode(AbstractMessageStorage<?, ?, ?> ms, Change<?, ?> change) {
+        Object value = change.value();
+        String[] keyPath = binding(ms).keyPath();
+        if (Objects.isNull(value) && Objects.nonNull(keyPath)) {
+            ObjectNode root = JsonNodeFactory.instance.objectNode();
+            ObjectNode node = root;
+            for (int i = 0; i < keyPath.length - 1; i++) {
+                node = node.putObject(keyPath[i]);
+            }
+            node.putPOJO(keyPath[keyPath.length - 1], change.key());
+            value = root;
+        }
+
+        String data = value instanceof String text ? jsonCodec.obj2str(StringNode.valueOf(text)) : jsonCodec.obj2str(value);
+        return jsonCodec.obj2byte(new EventMessage<>(ms.dataSource(), change.eventType(), change.producer(), change.sequence(), data));
+    }
+
+    /**
+     * 复制原始消息的字节，不改变缓冲区的位置。
+     *
+     * @param rawMessage 原始消息（{@link String} 或 {@link ByteBuffer}）
+     * @return 消息字节
+     */
+    private static byte[] toBytes(Object rawMessage) {
+        if (rawMessage instanceof ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(buffer.position(), bytes);
+            return bytes;
+        }
+        return rawMessage.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析事件类型，兼容枚举名称与序号两种表示，无法识别时返回 {@code null}。
+     *
+     * @param parser 停留在事件类型值上的解析器
+     * @param token  当前 Token
+     * @return 事件类型，无法识别时返回 {@code null}
+     */
+    private static EventType parseEventType(JsonParser parser, JsonToken token) {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            int ordinal = parser.getIntValue();
+            return ordinal >= 0 && ordinal < EVENT_TYPES.length ? EVENT_TYPES[ordinal] : null;
+        }
+
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String name = parser.getString();
+        for (EventType eventType : EVENT_TYPES) {
+            if (eventType.name().equals(name)) {
+                return eventType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断字符区间是否为空白。
+     *
+     * @param chars  字符数组
+     * @param offset 起始位置
+     * @param length 字符长度
+     * @return 区间为空或全部为空白字符时返回 {@code true}
+     */
+    private static boolean isBlank(char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 存储器预先解析的绑定信息
+     *
+     * @param valueReader 值类型的读取器
+     * @param keyPath     按 {@code .} 拆分的键路径，未声明时为 {@code null}
+     * @param keyReader   键类型的读取器，未声明键路径时为 {@code null}
+     */
+    private record StorageBinding(ObjectReader valueReader, String[] keyPath, ObjectReader keyReader) {
+
+        /**
+         * 解析存储器的值类型、键类型与键路径。
+         *
+         * @param ms 消息存储器
+         * @return 绑定信息
+         */
+        static StorageBinding of(AbstractMessageStorage<?, ?, ?> ms) {
+            ObjectReader valueReader = jsonCodec.reader(false, ms.getValueType());
+            String keyPath = ms.keyPath();
+            Class<?> keyType = ms.getKeyType();
+            if (Strings.isBlank(keyPath) || Objects.isNull(keyType)) {
+                return new StorageBinding(valueReader, null, null);
+            }
+            return new StorageBinding(valueReader, keyPath.split("\\."), jsonCodec.reader(false, keyType));
+        }
+    }
+
+    /**
+     * 已定位目标存储的变更记录
+     *
+     * @param storage 目标消息存储器
+     * @param change  变更记录，其键值类型与存储器一致
+     */
+    record RoutedChange(AbstractMessageStorage<?, ?, ?> storage, Change<?, ?> change) {
+
+        /**
+         * 获取事件序号。
+         *
+         * @return 事件序号，未设置时为 {@code null}
+         */
+        Long sequence() {
+            return change.sequence();
+        }
+
+        /**
+         * 返回带有指定发布方与序号的副本。
+         *
+         * @param producer 发布方标识
+         * @param sequence 事件序号
+         * @return 带有发布方与序号的变更记录
+         */
+        RoutedChange withOrigin(Long producer, Long sequence) {
+            return Objects.isNull(producer) && Objects.isNull(sequence) ? this : new RoutedChange(storage, change.withOrigin(producer, sequence));
         }
     }
 }
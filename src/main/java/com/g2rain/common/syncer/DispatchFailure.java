@@ -0,0 +1,55 @@
+package com.g2rain.common.syncer;
+
+
+/**
+ * <p>消息分发失败的原因，由 {@link DispatchListener#onFailure} 报告。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * long storageErrors = metrics.stats("user", EventType.UPDATE).failureCount(DispatchFailure.STORAGE_ERROR);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public enum DispatchFailure {
+    /**
+     * 消息不是合法的事件消息：JSON 或信封格式错误、缺少数据源或事件类型、数据为空
+     */
+    INVALID_MESSAGE,
+
+    /**
+     * 数据源没有注册消息存储
+     */
+    UNKNOWN_DATA_SOURCE,
+
+    /**
+     * 数据无法绑定为存储器的值类型
+     */
+    BIND_ERROR,
+
+    /**
+     * 存储器无法从数据中提取键，或提取的键为 {@code null}
+     */
+    NULL_KEY,
+
+    /**
+     * 事件序号不大于该键已应用的序号，被 {@link SequenceTracker} 丢弃
+     */
+    STALE,
+
+    /**
+     * 存储器应用变更时抛出异常
+     */
+    STORAGE_ERROR,
+
+    /**
+     * {@link CoalescingMessageDispatcher} 将合并后的变更交给下游分发器时下游抛出异常（如下游已关闭），变更可能未被应用
+     */
+    DOWNSTREAM_ERROR,
+
+    /**
+     * 死信或排在死信之后的事件因 {@link DeadLetterQueue} 容量超出被淘汰，变更未被应用
+     */
+    EVICTED
+}
@@ -0,0 +1,58 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.List;
+
+/**
+ * <p>消息分发监听器，{@link DefaultMessageDispatcher} 在变更应用完成或消息被丢弃时回调，用于采集吞吐、延迟与错误。</p>
+ *
+ * <p>回调在分发线程上同步执行，实现必须足够轻量且不能抛出异常；默认实现 {@link #NOOP} 不做任何处理。
+ * {@link DispatchMetrics} 提供按数据源与事件类型统计的进程内实现。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * DispatchMetrics metrics = new DispatchMetrics();
+ * DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withDispatchListener(metrics);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public interface DispatchListener {
+    /**
+     * 不做任何处理的监听器
+     */
+    DispatchListener NOOP = new DispatchListener() {
+    };
+
+    /**
+     * 单条变更应用成功后回调。
+     *
+     * @param dataSource   数据源标识
+     * @param eventType    事件类型
+     * @param elapsedNanos 存储器应用变更的耗时（纳秒）
+     */
+    default void onApplied(String dataSource, EventType eventType, long elapsedNanos) {
+    }
+
+    /**
+     * 一组变更批量应用成功后回调；批量应用抛出异常时不回调，改为按异常逐个回调 {@link #onFailure}。
+     *
+     * @param dataSource   数据源标识
+     * @param changes      已应用的变更列表，按到达顺序排列
+     * @param elapsedNanos 存储器批量应用的总耗时（纳秒）
+     */
+    default void onBatchApplied(String dataSource, List<Change<?, ?>> changes, long elapsedNanos) {
+    }
+
+    /**
+     * 消息被丢弃或变更应用失败时回调。
+     *
+     * @param dataSource 数据源标识，消息无法解析时为 {@code null}
+     * @param eventType  事件类型，未知时为 {@code null}
+     * @param failure    失败原因
+     * @param cause      引发失败的异常，可以为 {@code null}
+     */
+    default void onFailure(String dataSource, EventType eventType, DispatchFailure failure, Throwable cause) {
+    }
+}
@@ -0,0 +1,301 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>进程内的分发统计，按数据源与事件类型记录应用次数、失败次数与延迟分布。</p>
+ *
+ * <ul>
+ *     <li><b>低开销：</b>计数使用 {@link LongAdder}，延迟记录在固定大小的对数分桶直方图中（每个 2 的幂区间 8 个子桶），
+ *     记录一次只需一次原子自增，不分配对象，可在每秒数万事件的负载下常开。</li>
+ *     <li><b>批量应用：</b>批量应用的总耗时按变更数平摊，记入各变更事件类型的直方图。</li>
+ *     <li><b>有界：</b>只为已在 {@link MessageStorageRegistry} 注册的数据源建立统计行，其余数据源（包括消息中无法识别的数据源）
+ *     统一记入 {@link #UNKNOWN_DATA_SOURCE}，占用的内存不随消息内容增长。</li>
+ *     <li><b>快照：</b>{@link #snapshot()} 复制当前计数并计算分位数，不阻塞记录线程。</li>
+ * </ul>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * DispatchMetrics metrics = new DispatchMetrics();
+ * DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withDispatchListener(metrics);
+ *
+ * DispatchStats stats = metrics.stats("user", EventType.UPDATE);
+ * long storageErrors = stats.failureCount(DispatchFailure.STORAGE_ERROR);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class DispatchMetrics implements DispatchListener {
+    /**
+     * 消息无法解析出数据源，或数据源没有注册消息存储时使用的数据源标识
+     */
+    public static final String UNKNOWN_DATA_SOURCE = "";
+
+    /**
+     * 事件类型枚举值缓存
+     */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    /**
+     * 失败原因枚举值缓存
+     */
+    private static final DispatchFailure[] FAILURES = DispatchFailure.values();
+
+    /**
+     * 没有记录时用于生成快照的空统计单元，不会被写入
+     */
+    private static final Cell EMPTY = new Cell();
+
+    /**
+     * 各数据源的统计，数组按事件类型序号排列，最后一项对应未知事件类型
+     */
+    private final Map<String, Cell[]> cells = new ConcurrentHashMap<>();
+
+    /**
+     * 未知数据源的统计行，预先创建
+     */
+    private final Cell[] unknownRow = newRow();
+
+    /**
+     * 创建统计。
+     */
+    public DispatchMetrics() {
+        cells.put(UNKNOWN_DATA_SOURCE, unknownRow);
+    }
+
+    @Override
+    public void onApplied(String dataSource, EventType eventType, long elapsedNanos) {
+        Cell cell = cellOf(dataSource, eventType);
+        cell.applied.increment();
+        cell.latency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onBatchApplied(String dataSource, List<Change<?, ?>> changes, long elapsedNanos) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        long perChange = elapsedNanos / changes.size();
+        for (Change<?, ?> change : changes) {
+            Cell cell = cellOf(dataSource, change.eventType());
+            cell.applied.increment();
+            cell.latency.record(perChange);
+        }
+    }
+
+    @Override
+    public void onFailure(String dataSource, EventType eventType, DispatchFailure failure, Throwable cause) {
+        cellOf(dataSource, eventType).failures[failure.ordinal()].increment();
+    }
+
+    /**
+     * 获取全部有记录的数据源与事件类型的统计快照。
+     *
+     * @return 统计快照列表，同一数据源的快照按事件类型序号排列
+     */
+    public List<DispatchStats> snapshot() {
+        List<DispatchStats> result = new ArrayList<>();
+        cells.forEach((dataSource, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i].isRecorded()) {
+                    result.add(row[i].snapshot(dataSource, i < EVENT_TYPES.length ? EVENT_TYPES[i] : null));
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 获取指定数据源与事件类型的统计快照。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型，{@code null} 表示未知事件类型
+     * @return 统计快照，没有记录时各项为 0
+     */
+    public DispatchStats stats(String dataSource, EventType eventType) {
+        String name = Objects.requireNonNullElse(dataSource, UNKNOWN_DATA_SOURCE);
+        // 只读查询不创建统计行
+        Cell[] row = cells.get(name);
+        Cell cell = Objects.isNull(row) ? EMPTY : row[columnOf(eventType)];
+        return cell.snapshot(name, eventType);
+    }
+
+    /**
+     * 定位数据源与事件类型对应的统计单元，已注册的数据源首次使用时创建其全部单元，未注册的数据源使用未知数据源的单元。
+     *
+     * @param dataSource 数据源标识，可以为 {@code null}
+     * @param eventType  事件类型，可以为 {@code null}
+     * @return 统计单元
+     */
+    private Cell cellOf(String dataSource, EventType eventType) {
+        Cell[] row = Objects.isNull(dataSource) ? unknownRow : cells.get(dataSource);
+        if (Objects.isNull(row)) {
+            row = Objects.isNull(MessageStorageRegistry.lookup(dataSource))
+                ? unknownRow
+                : cells.computeIfAbsent(dataSource, k -> newRow());
+        }
+        return row[columnOf(eventType)];
+    }
+
+    /**
+     * 获取事件类型在统计行中的下标。
+     *
+     * @param eventType 事件类型，{@code null} 表示未知事件类型
+     * @return 下标
+     */
+    private static int columnOf(EventType eventType) {
+        return Objects.isNull(eventType) ? EVENT_TYPES.length : eventType.ordinal();
+    }
+
+    /**
+     * 创建一个数据源的全部统计单元。
+     *
+     * @return 统计行
+     */
+    private static Cell[] newRow() {
+        Cell[] row = new Cell[EVENT_TYPES.length + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = new Cell();
+        }
+        return row;
+    }
+
+    /**
+     * 单个数据源、单种事件类型的统计单元
+     */
+    private static final class Cell {
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder[] failures = new LongAdder[FAILURES.length];
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Cell() {
+            for (int i = 0; i < failures.length; i++) {
+                failures[i] = new LongAdder();
+            }
+        }
+
+        private boolean isRecorded() {
+            if (applied.sum() > 0) {
+                return true;
+            }
+            for (LongAdder failure : failures) {
+                if (failure.sum() > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private DispatchStats snapshot(String dataSource, EventType eventType) {
+            Map<DispatchFailure, Long> failureCounts = new EnumMap<>(DispatchFailure.class);
+            for (int i = 0; i < failures.length; i++) {
+                long count = failures[i].sum();
+                if (count > 0) {
+                    failureCounts.put(FAILURES[i], count);
+                }
+            }
+
+            long[] counts = latency.counts();
+            return new DispatchStats(dataSource, eventType, applied.sum(), failureCounts, latency.mean(),
+                LatencyHistogram.percentile(counts, 0.5), LatencyHistogram.percentile(counts, 0.99),
+                LatencyHistogram.percentile(counts, 0.999), latency.max.get());
+        }
+    }
+
+    /**
+     * 对数分桶的延迟直方图：小于 8 的值精确记录，其余值按所在 2 的幂区间等分为 8 个子桶，相对误差不超过 12.5%。
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value) {
+            long nanos = Math.max(0, value);
+            buckets.incrementAndGet(indexOf(nanos));
+            count.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        long mean() {
+            long total = count.sum();
+            return total == 0 ? 0 : sum.sum() / total;
+        }
+
+        long[] counts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * 计算分位数，返回所在分桶的上界。
+         *
+         * @param counts   各分桶的计数
+         * @param quantile 分位，取值范围 (0, 1]
+         * @return 分位数，没有记录时返回 0
+         */
+        static long percentile(long[] counts, double quantile) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * quantile));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(counts.length - 1);
+        }
+
+        static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        static long lowerBoundOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long mantissa = index % SUB_BUCKETS;
+            return (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        static long upperBoundOf(int index) {
+            return index + 1 < BUCKETS ? lowerBoundOf(index + 1) - 1 : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.Map;
+
+/**
+ * <p>某个数据源、某种事件类型的分发统计快照，由 {@link DispatchMetrics#snapshot()} 返回，延迟单位均为纳秒。</p>
+ *
+ * <p>延迟分位数取自对数分桶直方图，相对误差不超过 12.5%，返回值为所在分桶的上界。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * for (DispatchStats stats : metrics.snapshot()) {
+ *     System.out.printf("%s %s applied=%d p99=%dus%n",
+ *         stats.dataSource(), stats.eventType(), stats.appliedCount(), stats.p99Nanos() / 1000);
+ * }
+ * }</pre>
+ *
+ * @param dataSource   数据源标识，消息无法解析时为 {@link DispatchMetrics#UNKNOWN_DATA_SOURCE}
+ * @param eventType    事件类型，未知时为 {@code null}
+ * @param appliedCount 应用成功的变更数
+ * @param failures     各失败原因的次数，只包含非零项
+ * @param meanNanos    平均延迟
+ * @param p50Nanos     50 分位延迟
+ * @param p99Nanos     99 分位延迟
+ * @param p999Nanos    99.9 分位延迟
+ * @param maxNanos     最大延迟
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record DispatchStats(String dataSource, EventType eventType, long appliedCount,
+                            Map<DispatchFailure, Long> failures, long meanNanos, long p50Nanos, long p99Nanos,
+                            long p999Nanos, long maxNanos) {
+
+    /**
+     * 获取失败总次数。
+     *
+     * @return 各失败原因的次数之和
+     */
+    public long failureCount() {
+        long total = 0;
+        for (long count : failures.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * 获取指定原因的失败次数。
+     *
+     * @param failure 失败原因
+     * @return 失败次数
+     */
+    public long failureCount(DispatchFailure failure) {
+        return failures.getOrDefault(failure, 0L);
+    }
+}
@@ -0,0 +1,40 @@
+package com.g2rain.common.syncer;
+
+
+import com.g2rain.common.json.JsonCodecFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>事件信封编码器，将 {@link EventMessage} 编码为可在消息代理中传输的字节。</p>
+ *
+ * <p>{@link EventPublisherHub} 在预序列化模式下使用该编码器将每个事件只编码一次，
+ * 再把结果交给各发布者的 {@link EventPublisher#publishSerialized(ByteBuffer, EventMessageHeader)}。
+ * {@link DefaultMessageDispatcher} 按首字节自动识别 {@link #JSON} 与 {@link BinaryEnvelopeCodec} 两种格式，便于逐步迁移。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * EventPublisherHub hub = EventPublisherHubBuilder.builder()
+ *     .withPublishers(publishers)
+ *     .withEnvelopeCodec(new BinaryEnvelopeCodec())
+ *     .build();
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+@FunctionalInterface
+public interface EnvelopeCodec {
+    /**
+     * JSON 信封编码器，输出 {@code {"dataSource":...,"eventType":...,"data":...}} 形式的 UTF-8 JSON
+     */
+    EnvelopeCodec JSON = eventMessage -> ByteBuffer.wrap(JsonCodecFactory.instance().obj2byte(eventMessage));
+
+    /**
+     * 编码事件消息。
+     *
+     * @param eventMessage 事件消息
+     * @return 编码后的字节，位置为 0，界限为编码长度
+     */
+    ByteBuffer encode(EventMessage<?> eventMessage);
+}
@@ -0,0 +1,791 @@
+package com.g2rain.common.syncer;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>本地预写日志，供 {@link EventPublisherHub} 在发送时先将事件信封持久化，再由后台转发线程交给各发布者。</p>
+ *
+ * <ul>
+ *     <li><b>分段内存映射：</b>日志由固定大小的段文件组成，以内存映射方式顺序追加；当前段写满后滚动到新段，
+ *     已全部转发的段在提交检查点时删除。</li>
+ *     <li><b>记录格式：</b>每条记录为 4 字节长度、4 字节 CRC32C 校验和与信封字节，长度为 0 表示段的剩余部分未使用。
+ *     重新打开时从最后一段的开头校验记录，截断未写完整的尾部记录。</li>
+ *     <li><b>组提交：</b>后台刷盘线程将多个并发追加的记录合并为一次 {@link MappedByteBuffer#force(int, int)}。
+ *     {@code commitInterval} 为 0 时 {@link #append(ByteBuffer)} 等待记录刷盘后返回，发送线程越多，每次刷盘覆盖的记录越多；
+ *     大于 0 时追加写入映射内存后立即返回，刷盘线程按该间隔刷盘，进程崩溃不丢失已追加的记录，操作系统崩溃时最多丢失一个间隔内的记录。</li>
+ *     <li><b>检查点：</b>转发线程通过 {@link #commit(long)} 记录已转发的位置，重新打开后从检查点继续转发；
+ *     检查点之后已转发但尚未提交的记录会再次转发，分发端可通过 {@link SequenceTracker} 丢弃重复的事件。</li>
+ * </ul>
+ *
+ * <p>日志中的位置为逻辑字节地址：段文件以起始地址命名，记录的地址为段起始地址加段内偏移。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * EventJournal journal = EventJournal.open(Path.of("/var/lib/app/event-journal"));
+ * EventPublisherHub hub = EventPublisherHubBuilder.builder()
+ *     .withPublishers(publishers)
+ *     .withJournal(journal)
+ *     .build();
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class EventJournal implements AutoCloseable {
+    /**
+     * 默认的段大小
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * 默认的刷盘间隔
+     */
+    public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofMillis(5);
+
+    /**
+     * 记录头长度：长度与校验和
+     */
+    static final int RECORD_HEADER_LENGTH = 8;
+
+    /**
+     * 段文件的扩展名
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 检查点文件名
+     */
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * 刷盘线程空闲时的最长等待时间，用于及时感知关闭
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * 日志目录
+     */
+    private final Path directory;
+
+    /**
+     * 段大小
+     */
+    private final int segmentSize;
+
+    /**
+     * 刷盘间隔（纳秒），0 表示追加时等待刷盘
+     */
+    private final long commitIntervalNanos;
+
+    /**
+     * 全部未删除的段，按起始地址排列
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * 追加锁，保护当前段与段内写位置
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 刷盘锁，保护刷盘位置的等待与通知
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 刷盘位置推进的条件
+     */
+    private final Condition flushed = flushLock.newCondition();
+
+    /**
+     * 检查点文件的通道
+     */
+    private final FileChannel checkpointChannel;
+
+    /**
+     * 检查点文件的映射，存放 8 字节的检查点地址
+     */
+    private final MappedByteBuffer checkpointBuffer;
+
+    /**
+     * 后台刷盘线程，由 {@link #open(Path, int, Duration)} 在构造完成后启动
+     */
+    private Thread flusher;
+
+    /**
+     * 追加的记录数
+     */
+    private final LongAdder appended = new LongAdder();
+
+    /**
+     * 刷盘次数
+     */
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * 读取时因校验和不匹配被跳过的记录数
+     */
+    private final LongAdder corruptions = new LongAdder();
+
+    /**
+     * 关闭或删除段文件、关闭检查点文件失败的次数
+     */
+    private final LongAdder fileFailures = new LongAdder();
+
+    /**
+     * 当前追加的段，只在持有追加锁时访问
+     */
+    private Segment active;
+
+    /**
+     * 当前段内的写位置，只在持有追加锁时访问
+     */
+    private int position;
+
+    /**
+     * 已追加记录的结束地址
+     */
+    private volatile long writeAddress;
+
+    /**
+     * 已刷盘记录的结束地址
+     */
+    private volatile long durableAddress;
+
+    /**
+     * 已转发记录的结束地址
+     */
+    private volatile long checkpoint;
+
+    /**
+     * 检查点是否尚未刷盘
+     */
+    private volatile boolean checkpointDirty;
+
+    /**
+     * 等待新记录的读取线程，没有时为 {@code null}
+     */
+    private volatile Thread reader;
+
+    /**
+     * 刷盘失败的异常，出现后追加与等待刷盘均失败
+     */
+    private volatile IOException failure;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 打开日志，恢复已有的段与检查点，刷盘线程由工厂方法在构造完成后启动。
+     *
+     * @param directory      日志目录
+     * @param segmentSize    段大小
+     * @param commitInterval 刷盘间隔
+     * @throws UncheckedIOException 日志目录或文件无法打开
+     */
+    private EventJournal(Path directory, int segmentSize, Duration commitInterval) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.segmentSize = segmentSize;
+        this.commitIntervalNanos = commitInterval.toNanos();
+        try {
+            Files.createDirectories(directory);
+            this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.checkpointBuffer = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 使用默认段大小与 {@link #DEFAULT_COMMIT_INTERVAL} 打开日志：追加不等待刷盘，操作系统崩溃时最多丢失一个间隔内的记录。
+     * <p>需要每条记录刷盘后才返回时，使用 {@link #open(Path, int, Duration)} 并传入 {@link Duration#ZERO}，
+     * 单线程发送时每次发送都要等待一次 fsync。</p>
+     *
+     * @param directory 日志目录，不存在时创建
+     * @return 已启动刷盘线程的日志
+     * @throws UncheckedIOException 日志目录或文件无法打开
+     */
+    public static EventJournal open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL);
+    }
+
+    /**
+     * 打开日志，恢复已有的段与检查点，并启动刷盘线程。
+     *
+     * @param directory      日志目录，不存在时创建
+     * @param segmentSize    段大小，单条记录不能超过该大小
+     * @param commitInterval 刷盘间隔，为 0 时追加等待刷盘
+     * @return 已启动刷盘线程的日志
+     * @throws IllegalArgumentException 段大小小于 1 KiB 或刷盘间隔为负
+     * @throws UncheckedIOException     日志目录或文件无法打开
+     */
+    public static EventJournal open(Path directory, int segmentSize, Duration commitInterval) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 1024");
+        }
+        if (Objects.isNull(commitInterval) || commitInterval.isNegative()) {
+            throw new IllegalArgumentException("commitInterval must not be negative");
+        }
+
+        EventJournal journal = new EventJournal(directory, segmentSize, commitInterval);
+        journal.flusher = Thread.ofPlatform().daemon().name("event-journal-flusher").start(journal::flushLoop);
+        return journal;
+    }
+
+    /**
+     * 追加一条记录。
+     *
+     * @param payload 记录内容，读取剩余字节且不改变其位置
+     * @return 该记录的结束地址
+     * @throws IllegalArgumentException 记录为空或超过段大小
+     * @throws IllegalStateException    日志已关闭
+     * @throws UncheckedIOException     刷盘失败
+     */
+    public long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length == 0 || length > segmentSize - RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("record length must be in (0, " + (segmentSize - RECORD_HEADER_LENGTH) + "]");
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+
+        long end;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            if (position + RECORD_HEADER_LENGTH + length > active.capacity()) {
+                roll();
+            }
+
+            MappedByteBuffer buffer = active.buffer();
+            buffer.put(position + RECORD_HEADER_LENGTH, payload, payload.position(), length);
+            buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(position, length);
+            position += RECORD_HEADER_LENGTH + length;
+            end = active.base() + position;
+            writeAddress = end;
+        } finally {
+            writeLock.unlock();
+        }
+
+        appended.increment();
+        Thread waiting = reader;
+        if (Objects.nonNull(waiting)) {
+            LockSupport.unpark(waiting);
+        }
+        if (commitIntervalNanos == 0) {
+            LockSupport.unpark(flusher);
+            awaitDurable(end);
+        }
+        return end;
+    }
+
+    /**
+     * 等待指定地址之前的记录全部刷盘。
+     *
+     * @param address 记录的结束地址
+     * @throws IllegalStateException 等待被中断
+     * @throws UncheckedIOException  刷盘失败
+     */
+    public void awaitDurable(long address) {
+        if (durableAddress >= address) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            while (durableAddress < address) {
+                if (Objects.nonNull(failure)) {
+                    throw new UncheckedIOException(failure);
+                }
+                if (closed && !flusher.isAlive()) {
+                    throw new IllegalStateException("EventJournal is closed");
+                }
+                flushed.await(IDLE_PARK_NANOS, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for journal commit", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 从指定地址开始读取至多 {@code maxRecords} 条记录。
+     * <p>返回的缓冲区为映射内存的只读视图，在对应的段被删除前有效；校验和不匹配的记录被单独跳过，长度越界的记录及其所在段的剩余部分被跳过。</p>
+     *
+     * @param from       起始地址，通常为上次读取返回的地址或 {@link #checkpoint()}
+     * @param maxRecords 最多读取的记录数
+     * @param records    读取到的记录内容
+     * @return 最后一条读取记录的结束地址，没有新记录时返回规范化后的起始地址
+     */
+    public long read(long from, int maxRecords, List<ByteBuffer> records) {
+        long limit = writeAddress;
+        long address = from;
+        int count = 0;
+        while (count < maxRecords && address < limit) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(address);
+            if (Objects.isNull(entry)) {
+                address = segments.firstKey();
+                continue;
+            }
+
+            Segment segment = entry.getValue();
+            int offset = (int) (address - segment.base());
+            if (offset + RECORD_HEADER_LENGTH > segment.capacity()) {
+                address = segment.end();
+                continue;
+            }
+
+            MappedByteBuffer buffer = segment.buffer();
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_LENGTH + length > segment.capacity()) {
+                address = segment.end();
+                continue;
+            }
+
+            ByteBuffer record = buffer.slice(offset + RECORD_HEADER_LENGTH, length).asReadOnlyBuffer();
+            CRC32C crc = new CRC32C();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                // 长度已校验在段内，只跳过这一条记录，其后的记录仍可读取
+                corruptions.increment();
+                address += RECORD_HEADER_LENGTH + length;
+                continue;
+            }
+
+            records.add(record);
+            address += RECORD_HEADER_LENGTH + length;
+            count++;
+        }
+        return address;
+    }
+
+    /**
+     * 等待指定地址之后出现新记录，供转发线程在没有记录时休眠。
+     *
+     * @param address 已读取的结束地址
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 存在新记录时返回 {@code true}
+     */
+    public boolean awaitRecords(long address, long timeout, TimeUnit unit) {
+        if (writeAddress > address) {
+            return true;
+        }
+
+        reader = Thread.currentThread();
+        try {
+            if (writeAddress > address) {
+                return true;
+            }
+            LockSupport.parkNanos(this, unit.toNanos(timeout));
+            return writeAddress > address;
+        } finally {
+            reader = null;
+        }
+    }
+
+    /**
+     * 提交检查点，表示该地址之前的记录已全部转发；完全位于检查点之前且已刷盘的段被删除。
+     * <p>检查点随下一次刷盘持久化。</p>
+     *
+     * @param address 已转发记录的结束地址
+     */
+    public void commit(long address) {
+        if (address <= checkpoint) {
+            return;
+        }
+
+        checkpoint = address;
+        checkpointBuffer.putLong(0, address);
+        checkpointDirty = true;
+        if (commitIntervalNanos == 0) {
+            LockSupport.unpark(flusher);
+        }
+
+        long removable = Math.min(address, durableAddress);
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment.end() > removable || segments.size() == 1) {
+                break;
+            }
+
+            segments.remove(entry.getKey());
+            delete(segment);
+        }
+    }
+
+    /**
+     * 获取检查点地址。
+     *
+     * @return 已转发记录的结束地址
+     */
+    public long checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * 获取已追加记录的结束地址。
+     *
+     * @return 写入地址
+     */
+    public long writeAddress() {
+        return writeAddress;
+    }
+
+    /**
+     * 判断是否存在尚未转发的记录。
+     *
+     * @return 写入地址大于检查点时返回 {@code true}
+     */
+    public boolean hasPending() {
+        return writeAddress > checkpoint;
+    }
+
+    /**
+     * 获取未删除的段数。
+     *
+     * @return 段数
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 获取追加的记录数。
+     *
+     * @return 记录数
+     */
+    public long appendedCount() {
+        return appended.sum();
+    }
+
+    /**
+     * 获取刷盘次数，与 {@link #appendedCount()} 的比值反映组提交的效果。
+     *
+     * @return 刷盘次数
+     */
+    public long flushCount() {
+        return flushes.sum();
+    }
+
+    /**
+     * 获取读取时因校验和不匹配被跳过的次数。
+     *
+     * @return 跳过次数
+     */
+    public long corruptionCount() {
+        return corruptions.sum();
+    }
+
+    /**
+     * 获取关闭或删除段文件、关闭检查点文件失败的次数；删除失败的段文件会残留在目录中，需要人工清理。
+     *
+     * @return 失败次数
+     */
+    public long fileFailureCount() {
+        return fileFailures.sum();
+    }
+
+    /**
+     * 刷盘全部已追加的记录与检查点，停止刷盘线程并关闭段文件。
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            writeLock.unlock();
+        }
+
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Segment segment : segments.values()) {
+            if (!segment.close()) {
+                fileFailures.increment();
+            }
+        }
+        try {
+            checkpointChannel.close();
+        } catch (IOException e) {
+            fileFailures.increment();
+        }
+    }
+
+    /**
+     * 关闭并删除段文件，失败时计入 {@link #fileFailureCount()}。
+     *
+     * @param segment 段
+     */
+    private void delete(Segment segment) {
+        if (!segment.delete()) {
+            fileFailures.increment();
+        }
+    }
+
+    /**
+     * 恢复已有的段：读取检查点，删除已全部转发的段，并校验最后一段确定写位置。
+     *
+     * @throws IOException 段文件无法打开
+     */
+    private void recover() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        bases.sort(null);
+
+        long stored = checkpointBuffer.getLong(0);
+        for (Long base : bases) {
+            Segment segment = Segment.open(segmentPath(base), base, segmentSize, false);
+            // 创建段文件时崩溃可能留下空文件
+            if (segment.capacity() < RECORD_HEADER_LENGTH) {
+                delete(segment);
+                continue;
+            }
+            segments.put(base, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(stored, Segment.open(segmentPath(stored), stored, segmentSize, true));
+        }
+
+        while (segments.size() > 1 && segments.firstEntry().getValue().end() <= stored) {
+            delete(segments.pollFirstEntry().getValue());
+        }
+
+        this.active = segments.lastEntry().getValue();
+        this.position = scan(active);
+        this.writeAddress = active.base() + position;
+        this.durableAddress = writeAddress;
+        this.checkpoint = Math.clamp(stored, segments.firstKey(), writeAddress);
+    }
+
+    /**
+     * 校验段内的记录，返回第一条无效记录的偏移，并清零未写完整的尾部记录。
+     *
+     * @param segment 段
+     * @return 段内的写位置
+     */
+    private static int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        int offset = 0;
+        while (offset + RECORD_HEADER_LENGTH <= segment.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                return offset;
+            }
+
+            boolean valid = length > 0 && offset + RECORD_HEADER_LENGTH + length <= segment.capacity();
+            if (valid) {
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.slice(offset + RECORD_HEADER_LENGTH, length));
+                valid = (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES);
+            }
+
+            if (!valid) {
+                int end = length > 0 ? (int) Math.min(segment.capacity(), (long) offset + RECORD_HEADER_LENGTH + length)
+                    : offset + RECORD_HEADER_LENGTH;
+                for (int i = offset; i < end; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                return offset;
+            }
+            offset += RECORD_HEADER_LENGTH + length;
+        }
+        return offset;
+    }
+
+    /**
+     * 滚动到新段，调用方需持有追加锁。
+     */
+    private void roll() {
+        long base = active.end();
+        try {
+            active = Segment.open(segmentPath(base), base, segmentSize, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.put(base, active);
+        position = 0;
+    }
+
+    /**
+     * 刷盘线程主循环，关闭后刷盘剩余的记录再退出；刷盘失败后退出，由追加与等待刷盘的线程报告失败。
+     */
+    private void flushLoop() {
+        while (Objects.isNull(failure)) {
+            long target = writeAddress;
+            if (target > durableAddress || checkpointDirty) {
+                flush(target);
+                if (commitIntervalNanos > 0 && !closed) {
+                    LockSupport.parkNanos(this, commitIntervalNanos);
+                }
+                continue;
+            }
+
+            if (closed) {
+                return;
+            }
+            LockSupport.parkNanos(this, commitIntervalNanos > 0 ? commitIntervalNanos : IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * 刷盘指定地址之前的记录与检查点，并唤醒等待的追加线程。
+     *
+     * @param target 刷盘的结束地址
+     */
+    private void flush(long target) {
+        long from = durableAddress;
+        try {
+            if (target > from) {
+                Long first = segments.floorKey(from);
+                for (Segment segment : segments.tailMap(Objects.isNull(first) ? from : first).values()) {
+                    if (segment.base() >= target) {
+                        break;
+                    }
+
+                    long start = Math.max(from, segment.base());
+                    long end = Math.min(target, segment.end());
+                    if (end > start) {
+                        segment.buffer().force((int) (start - segment.base()), (int) (end - start));
+                    }
+                }
+            }
+
+            if (checkpointDirty) {
+                checkpointDirty = false;
+                checkpointBuffer.force();
+            }
+            flushes.increment();
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        }
+
+        flushLock.lock();
+        try {
+            if (Objects.isNull(failure)) {
+                durableAddress = target;
+            }
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 检查日志是否可以追加，调用方需持有追加锁。
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("EventJournal is closed");
+        }
+        if (Objects.nonNull(failure)) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * 获取段文件路径。
+     *
+     * @param base 段起始地址
+     * @return 段文件路径
+     */
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 日志段
+     *
+     * @param path     段文件路径
+     * @param base     段起始地址
+     * @param channel  段文件的通道
+     * @param buffer   段文件的映射
+     * @param capacity 段容量
+     */
+    private record Segment(Path path, long base, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+
+        /**
+         * 打开或创建段文件并映射；已有段的容量为其文件大小。
+         *
+         * @param path        段文件路径
+         * @param base        段起始地址
+         * @param segmentSize 新段的大小
+         * @param create      是否创建新段
+         * @return 段
+         * @throws IOException 段文件无法打开
+         */
+        private static Segment open(Path path, long base, int segmentSize, boolean create) throws IOException {
+            FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int capacity = create ? segmentSize : (int) Math.min(channel.size(), Integer.MAX_VALUE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(path, base, channel, buffer, capacity);
+        }
+
+        private long end() {
+            return base + capacity;
+        }
+
+        private boolean close() {
+            try {
+                channel.close();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private boolean delete() {
+            boolean released = close();
+            try {
+                Files.deleteIfExists(path);
+                return released;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
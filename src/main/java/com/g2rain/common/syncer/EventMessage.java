@@ -1,6 +1,8 @@
 package com.g2rain.common.syncer;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -11,6 +13,10 @@ import lombok.Setter;
  *
  * <p>包含事件的来源、类型以及对应的数据内容。</p>
  *
+ * <p>可选的 {@code sequence} 为同一数据源内单调递增的序号，通常由 {@link EventPublisherHub} 在发送时填充，
+ * 分发端据此丢弃乱序或重复的事件并发现缺失的事件，参见 {@link SequenceTracker}。
+ * 序号只在同一发布方内有序，{@code producer} 标识产生序号的发布方，多个发布方写同一数据源时各自跟踪。</p>
+ *
  * <p><b>类型参数：</b><br>
  * <code>V</code> — 事件数据的类型。</p>
  *
@@ -30,6 +36,7 @@ import lombok.Setter;
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonPropertyOrder({"dataSource", "eventType", "producer", "sequence", "data"})
 public class EventMessage<V> {
     /**
      * 数据源标识，通常用于标识事件的来源系统或模块
@@ -41,8 +48,43 @@ public class EventMessage<V> {
      */
     private EventType eventType;
 
+    /**
+     * 产生序号的发布方标识，未设置时不参与序列化；未设置的事件按同一个发布方跟踪
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long producer;
+
+    /**
+     * 同一数据源内单调递增的事件序号，未设置时不参与序列化；序列化时位于数据之前，分发端读取数据前即可获知序号
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long sequence;
+
     /**
      * 事件数据内容
      */
     private V data;
+
+    /**
+     * 构造不带序号的事件消息。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型
+     * @param data       事件数据内容
+     */
+    public EventMessage(String dataSource, EventType eventType, V data) {
+        this(dataSource, eventType, null, null, data);
+    }
+
+    /**
+     * 构造不带发布方标识的事件消息。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型
+     * @param sequence   事件序号，可以为 {@code null}
+     * @param data       事件数据内容
+     */
+    public EventMessage(String dataSource, EventType eventType, Long sequence, V data) {
+        this(dataSource, eventType, null, sequence, data);
+    }
 }
@@ -0,0 +1,56 @@
+package com.g2rain.common.syncer;
+
+
+/**
+ * <p>事件消息头，描述已序列化事件的来源与类型，供发布者在不解析消息体的情况下完成路由。</p>
+ *
+ * <p>由 {@link EventPublisherHub} 在预序列化模式下与共享的消息字节一同交给
+ * {@link EventPublisher#publishSerialized(java.nio.ByteBuffer, EventMessageHeader)}。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * EventMessageHeader header = EventMessageHeader.of(message);
+ * producer.send(topicOf(header.dataSource()), payload);
+ * }</pre>
+ *
+ * @param dataSource 数据源标识
+ * @param eventType  事件类型
+ * @param sequence   数据源内的事件序号，未设置时为 {@code null}
+ * @param producer   产生序号的发布方标识，未设置时为 {@code null}
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record EventMessageHeader(String dataSource, EventType eventType, Long sequence, Long producer) {
+
+    /**
+     * 构造不带序号的消息头。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型
+     */
+    public EventMessageHeader(String dataSource, EventType eventType) {
+        this(dataSource, eventType, null, null);
+    }
+
+    /**
+     * 构造不带发布方标识的消息头。
+     *
+     * @param dataSource 数据源标识
+     * @param eventType  事件类型
+     * @param sequence   数据源内的事件序号，可以为 {@code null}
+     */
+    public EventMessageHeader(String dataSource, EventType eventType, Long sequence) {
+        this(dataSource, eventType, sequence, null);
+    }
+
+    /**
+     * 从事件消息中提取消息头。
+     *
+     * @param eventMessage 事件消息
+     * @return 事件消息头
+     */
+    public static EventMessageHeader of(EventMessage<?> eventMessage) {
+        return new EventMessageHeader(eventMessage.getDataSource(), eventMessage.getEventType(), eventMessage.getSequence(),
+            eventMessage.getProducer());
+    }
+}
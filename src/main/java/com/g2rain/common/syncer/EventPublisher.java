@@ -1,11 +1,21 @@
 package com.g2rain.common.syncer;
 
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * <p>事件发布者接口，定义事件消息发布的能力。</p>
  *
  * <p>实现该接口的类应负责将事件消息发送到相应的消息处理机制或总线中。</p>
  *
+ * <p>异步模式的 {@link EventPublisherHub} 以微批的形式调用 {@link #publishAll(List)}，
+ * 实现类可覆盖该方法，将一批消息以管道或批量请求的方式发送到消息代理。</p>
+ *
+ * <p>发布中心启用预序列化后，事件信封只序列化一次；{@link #supportsSerialized()} 返回 {@code true} 的发布者
+ * 通过 {@link #publishSerialized(ByteBuffer, EventMessageHeader)} 直接获得共享的只读字节，不再重复序列化。</p>
+ *
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * EventPublisher publisher = new DefaultEventPublisher();
@@ -24,4 +34,43 @@ public interface EventPublisher {
      * @param <V>          事件数据的类型
      */
     <V> void publish(EventMessage<V> eventMessage);
+
+    /**
+     * 批量发布事件消息，列表按发送顺序排列。
+     * <p>默认实现逐条调用 {@link #publish(EventMessage)}。</p>
+     *
+     * @param eventMessages 待发布的事件消息列表
+     */
+    default void publishAll(List<EventMessage<?>> eventMessages) {
+        if (Objects.isNull(eventMessages)) {
+            return;
+        }
+
+        for (EventMessage<?> eventMessage : eventMessages) {
+            publish(eventMessage);
+        }
+    }
+
+    /**
+     * 是否支持直接发布已序列化的事件信封。
+     *
+     * @return 支持返回 {@code true}，默认返回 {@code false}
+     */
+    default boolean supportsSerialized() {
+        return false;
+    }
+
+    /**
+     * 发布已序列化的事件信封，仅在 {@link #supportsSerialized()} 返回 {@code true} 时被调用。
+     * <p>{@code payload} 为只读缓冲区，内容由发布中心配置的 {@link EnvelopeCodec} 决定，默认为
+     * {@code {"dataSource":...,"eventType":...,"data":...}} 形式的 UTF-8 JSON，两种格式均可直接交给
+     * {@link MessageDispatcher#dispatchBuffer(ByteBuffer)}；每个发布者获得独立的位置与界限，底层字节共享。</p>
+     *
+     * @param payload 已序列化的事件信封
+     * @param header  事件消息头
+     * @throws UnsupportedOperationException 发布者不支持已序列化的事件
+     */
+    default void publishSerialized(ByteBuffer payload, EventMessageHeader header) {
+        throw new UnsupportedOperationException("publishSerialized is not supported");
+    }
 }
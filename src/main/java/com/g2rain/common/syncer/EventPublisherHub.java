@@ -1,16 +1,78 @@
 package com.g2rain.common.syncer;
 
 
+import com.g2rain.common.json.JsonCodec;
+import com.g2rain.common.json.JsonCodecFactory;
 import com.g2rain.common.utils.Collections;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.ObjectReader;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * <p>事件发布中心，管理并分发事件消息到多个 {@link EventPublisher} 实例。</p>
  *
  * <p>它维护一个线程安全的发布者集合，能够将事件广播给所有注册的发布者。</p>
  *
+ * <p>通过构造方法创建的发布中心以同步方式在发送线程上依次调用各发布者。
+ * 通过 {@link EventPublisherHubBuilder#withAsync(int)} 创建的发布中心为异步模式：</p>
+ * <ul>
+ *     <li><b>有界缓冲：</b>事件进入多生产者、单消费者的有界缓冲区，发送线程不等待发布者。</li>
+ *     <li><b>微批发布：</b>后台线程每次取出至多 {@code batchSize} 个事件，调用各发布者的 {@link EventPublisher#publishAll(List)}。</li>
+ *     <li><b>溢出策略：</b>缓冲区已满时按 {@link OverflowPolicy} 阻塞、丢弃最早事件或由发送线程代为发布缓冲区中最早的一批事件。</li>
+ *     <li><b>关闭时刷新：</b>{@link #close()} 停止接收新事件，并等待缓冲区中的事件全部发布完成。</li>
+ * </ul>
+ *
+ * <p>每个发布者拥有独立的发布通道（单线程执行器与有界队列）、超时、熔断器和错误计数，
+ * 一个抛出异常或挂起的发布者不会影响其他发布者：</p>
+ * <ul>
+ *     <li><b>同步发送：</b>{@link #send(EventMessage)} 依次调用全部发布者，单个发布者失败不会中断其余发布者，
+ *     全部调用完成后再抛出第一个异常。</li>
+ *     <li><b>并发扇出：</b>{@link #sendAsync(EventMessage)} 将事件并发交给各发布通道，返回汇总各发布者结果的 {@link PublishReport}。</li>
+ *     <li><b>熔断：</b>连续失败（异常或超时）达到阈值后熔断器打开，在打开期间直接拒绝该发布者的发布。</li>
+ *     <li><b>挂起隔离：</b>配置了超时时，当前任务已超时仍未返回的通道直接拒绝新的发布；异步模式与日志模式默认带有超时，
+ *     后台线程不会被一个挂起的发布者拖住。</li>
+ *     <li><b>监控：</b>{@link #publisherStats()} 返回各发布者的成功、失败、超时与拒绝次数。</li>
+ * </ul>
+ *
+ * <p>通过 {@link EventPublisherHubBuilder#withSerializeOnce()} 或 {@link EventPublisherHubBuilder#withEnvelopeCodec(EnvelopeCodec)}
+ * 启用预序列化后，每个事件的信封只按 {@link EnvelopeCodec} 编码一次，
+ * 支持 {@link EventPublisher#publishSerialized(ByteBuffer, EventMessageHeader)} 的发布者共享同一份只读字节，
+ * 其余发布者仍通过 {@link EventPublisher#publish(EventMessage)} 接收事件对象。</p>
+ *
+ * <p>通过 {@link EventPublisherHubBuilder#withSequencing()} 启用序号后，未设置序号的事件在发送时按数据源填充单调递增的
+ * {@link EventMessage#getSequence()}，并以 {@link #producerId()} 标记为 {@link EventMessage#getProducer()}；
+ * 序号只在同一发布中心实例内有序，多个实例写同一数据源时分发端按发布方分别跟踪，
+ * 通过 {@link SequenceTracker} 过滤乱序、重复的事件并发现缺失的事件。填充序号时发送的是副本，不修改调用方的事件对象。</p>
+ *
+ * <p>通过 {@link EventPublisherHubBuilder#withJournal(EventJournal)} 启用日志模式后，{@link #send(EventMessage)}
+ * 只把编码后的信封追加到本地 {@link EventJournal}，后台转发线程从检查点开始读取日志、以微批交给各发布者，
+ * 全部发布者成功后才推进检查点；失败的发布者在间隔后单独重试，进程重启后从检查点继续转发，事件至少送达一次。</p>
+ *
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * Set<EventPublisher> publishers = Set.of(new DefaultEventPublisher());
@@ -22,37 +84,227 @@ import java.util.concurrent.CopyOnWriteArraySet;
  *
  * // 使用简化方法发送事件
  * hub.send("USER_SERVICE", EventType.UPDATE, "{\"id\":2}");
+ *
+ * // 并发扇出并获取各发布者的结果
+ * hub.sendAsync(message).thenAccept(report -> System.out.println(report.isSuccess()));
  * }</pre>
  *
- * @param publishers 注册的事件发布者集合
  * @author alpha
  * @since 2025/10/5
  */
-public record EventPublisherHub(Set<EventPublisher> publishers) {
+public class EventPublisherHub implements AutoCloseable {
+    /**
+     * 后台线程等待新事件的最长时间，用于及时感知关闭
+     */
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    /**
+     * 日志模式下发布失败后重试的间隔
+     */
+    private static final long RELAY_RETRY_MILLIS = 100;
+
+    /**
+     * JSON 编解码器，用于解码日志中的 JSON 信封
+     */
+    private static final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    /**
+     * 日志中 JSON 信封的读取器，只解析一次信封类型
+     */
+    private static final ObjectReader messageReader = jsonCodec.reader(false, EventMessage.class);
+
+    /**
+     * 注册的事件发布者集合
+     */
+    private final Set<EventPublisher> publishers;
+
+    /**
+     * 异步缓冲区，同步模式下为 {@code null}
+     */
+    private final BlockingQueue<EventMessage<?>> buffer;
+
+    /**
+     * 微批大小
+     */
+    private final int batchSize;
+
+    /**
+     * 缓冲区溢出策略
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * 发布通道配置
+     */
+    private final LaneConfig laneConfig;
+
+    /**
+     * 预序列化使用的信封编码器，{@code null} 表示不启用预序列化
+     */
+    private final EnvelopeCodec envelopeCodec;
+
+    /**
+     * 各数据源的序号计数器，未启用序号时为 {@code null}
+     */
+    private final Map<String, AtomicLong> sequences;
+
+    /**
+     * 本实例的发布方标识，随机生成，区分写同一数据源的多个发布中心实例及同一实例的重启
+     */
+    private final long producerId = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * 本地预写日志，未启用日志模式时为 {@code null}
+     */
+    private final EventJournal journal;
+
+    /**
+     * 各发布者的发布通道，首次使用时创建
+     */
+    private final Map<EventPublisher, PublisherLane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * 发布通道的编号，用于区分通道线程的名称
+     */
+    private final AtomicInteger laneIndex = new AtomicInteger();
+
+    /**
+     * 串行化从缓冲区取出事件并提交到发布通道的过程，使后台线程与 {@link OverflowPolicy#CALLER_RUNS} 的发送线程
+     * 按缓冲区顺序提交批次；只在提交期间持有，不在等待发布完成时持有
+     */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    /**
+     * 后台发布线程，由 {@link #start()} 启动，同步模式下为 {@code null}
+     */
+    private Thread drainer;
+
+    /**
+     * 日志转发线程，由 {@link #start()} 启动，未启用日志模式时为 {@code null}
+     */
+    private Thread relay;
+
+    /**
+     * 因溢出被丢弃的事件数
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 日志模式下无法解码、被跳过的日志记录数
+     */
+    private final LongAdder undecodable = new LongAdder();
 
     /**
-     * 构造函数，将传入的发布者集合封装为线程安全的 {@link CopyOnWriteArraySet}。
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 构造函数，将传入的发布者集合封装为线程安全的 {@link CopyOnWriteArraySet}，以同步模式发布事件。
      *
      * @param publishers 事件发布者集合
      */
     public EventPublisherHub(Set<EventPublisher> publishers) {
+        this(publishers, 0, 1, OverflowPolicy.BLOCK, LaneConfig.DEFAULT, null, false, null);
+    }
+
+    /**
+     * 构造函数，由 {@link EventPublisherHubBuilder} 调用，后台线程在构造完成后由 {@link #start()} 启动。
+     *
+     * @param publishers     事件发布者集合
+     * @param capacity       异步缓冲区容量，0 表示同步模式
+     * @param batchSize      微批大小
+     * @param overflowPolicy 缓冲区溢出策略
+     * @param laneConfig     发布通道配置
+     * @param envelopeCodec  预序列化使用的信封编码器，{@code null} 表示不启用预序列化
+     * @param sequencing     是否按数据源填充事件序号
+     * @param journal        本地预写日志，{@code null} 表示不启用日志模式
+     */
+    EventPublisherHub(Set<EventPublisher> publishers, int capacity, int batchSize, OverflowPolicy overflowPolicy,
+                      LaneConfig laneConfig, EnvelopeCodec envelopeCodec, boolean sequencing, EventJournal journal) {
         this.publishers = new CopyOnWriteArraySet<>(publishers);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.laneConfig = laneConfig;
+        this.envelopeCodec = envelopeCodec;
+        this.sequences = sequencing ? new ConcurrentHashMap<>() : null;
+        this.journal = journal;
+        this.buffer = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+    }
+
+    /**
+     * 启动日志转发线程与异步发布线程，由 {@link EventPublisherHubBuilder#build()} 在构造完成后调用一次。
+     *
+     * @return 当前发布中心
+     */
+    EventPublisherHub start() {
+        if (Objects.nonNull(journal)) {
+            this.relay = Thread.ofPlatform().daemon().name("event-publisher-hub-relay").start(this::relay);
+        }
+        if (Objects.nonNull(buffer)) {
+            this.drainer = Thread.ofPlatform().daemon().name("event-publisher-hub").start(this::drain);
+        }
+        return this;
     }
 
     /**
-     * 发送事件消息给所有注册的发布者。
+     * 获取注册的事件发布者集合。
+     *
+     * @return 事件发布者集合
+     */
+    public Set<EventPublisher> publishers() {
+        return publishers;
+    }
+
+    /**
+     * 发送事件消息给所有注册的发布者；异步模式下放入缓冲区后立即返回，日志模式下追加到日志后返回。
+     * <p>同步模式下在发送线程上依次调用各发布者，熔断中的发布者会被跳过；
+     * 单个发布者失败不影响其余发布者，全部调用完成后抛出第一个异常，其余异常作为 suppressed 附加在其上。</p>
      *
      * @param eventMessage 待发送的事件消息
      * @param <V>          事件数据的类型
+     * @throws IllegalStateException 异步模式或日志模式下发布中心已关闭
      */
     public <V> void send(EventMessage<V> eventMessage) {
         if (Collections.isEmpty(this.publishers)) {
             return;
         }
 
-        for (EventPublisher publisher : this.publishers) {
-            publisher.publish(eventMessage);
+        EventMessage<V> stamped = stamp(eventMessage);
+        if (Objects.nonNull(journal)) {
+            if (closed) {
+                throw new IllegalStateException("EventPublisherHub is closed");
+            }
+            journal.append(codec().encode(stamped));
+            return;
+        }
+
+        if (Objects.isNull(buffer)) {
+            invokeAll(single(stamped));
+            return;
+        }
+
+        if (closed) {
+            throw new IllegalStateException("EventPublisherHub is closed");
+        }
+        enqueue(stamped);
+    }
+
+    /**
+     * 将事件消息并发交给各发布者的发布通道，返回汇总各发布者结果的 Future。
+     * <p>该方法不经过异步缓冲区与日志；返回的 Future 不会以异常完成，失败、超时与拒绝记录在 {@link PublishReport} 中。</p>
+     *
+     * @param eventMessage 待发送的事件消息
+     * @param <V>          事件数据的类型
+     * @return 全部发布者完成（或超时、被拒绝）后完成的 Future
+     * @throws IllegalStateException 发布中心已关闭
+     */
+    public <V> CompletableFuture<PublishReport> sendAsync(EventMessage<V> eventMessage) {
+        if (closed) {
+            throw new IllegalStateException("EventPublisherHub is closed");
         }
+
+        return fanOut(single(stamp(eventMessage)));
     }
 
     /**
@@ -99,4 +351,681 @@ public record EventPublisherHub(Set<EventPublisher> publishers) {
     public <V> void sendDelete(String dataSource, V data) {
         send(dataSource, EventType.DELETE, data);
     }
+
+    /**
+     * 判断是否为异步模式。
+     *
+     * @return 异步模式返回 {@code true}
+     */
+    public boolean isAsync() {
+        return Objects.nonNull(buffer);
+    }
+
+    /**
+     * 获取本实例的发布方标识，启用序号时随序号一同写入事件。
+     *
+     * @return 发布方标识
+     */
+    public long producerId() {
+        return producerId;
+    }
+
+    /**
+     * 获取缓冲区中等待发布的事件数，同步模式下始终为 0。
+     *
+     * @return 等待发布的事件数
+     */
+    public int pendingSize() {
+        return Objects.isNull(buffer) ? 0 : buffer.size();
+    }
+
+    /**
+     * 获取因 {@link OverflowPolicy#DROP_OLDEST} 被丢弃的事件数。
+     *
+     * @return 被丢弃的事件数
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 获取日志模式下无法解码、未转发给任何发布者就被跳过的日志记录数。
+     *
+     * @return 被跳过的记录数
+     */
+    public long undecodableCount() {
+        return undecodable.sum();
+    }
+
+    /**
+     * 获取各发布者的累计统计，按注册顺序排列。
+     *
+     * @return 发布者到统计信息的映射
+     */
+    public Map<EventPublisher, PublisherStats> publisherStats() {
+        Map<EventPublisher, PublisherStats> stats = new LinkedHashMap<>();
+        for (EventPublisher publisher : this.publishers) {
+            stats.put(publisher, laneOf(publisher).stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 停止接收新事件，等待缓冲区中的事件与各发布通道中的任务全部完成。
+     * <p>配置了发布超时时，若某个发布通道的当前任务已超时仍未完成，则放弃等待该通道。调用前应先停止向发布中心发送事件。</p>
+     * <p>日志模式下等待日志中的事件转发完成，仍有发布者失败时放弃等待，未转发的事件在下次启动后继续转发；随后关闭日志。</p>
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (Objects.nonNull(relay)) {
+            LockSupport.unpark(relay);
+            try {
+                relay.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (Objects.nonNull(drainer)) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // 发布关闭过程中并发写入的剩余事件
+            while (publishOldest()) {
+                // 逐批发布直到缓冲区为空
+            }
+        }
+
+        for (PublisherLane lane : lanes.values()) {
+            lane.shutdown();
+        }
+        if (Objects.nonNull(journal)) {
+            journal.close();
+        }
+    }
+
+    /**
+     * 启用序号时为未设置序号的事件生成带有本实例标识与所属数据源下一个序号的副本，不修改传入的事件。
+     * <p>计数器以首次使用时的毫秒时间戳乘以 1000 为起点，序号在本实例内单调递增；重启后的实例使用新的发布方标识。</p>
+     *
+     * @param eventMessage 待发送的事件消息
+     * @param <V>          事件数据的类型
+     * @return 待发送的事件，无需填充序号时返回传入的事件
+     */
+    private <V> EventMessage<V> stamp(EventMessage<V> eventMessage) {
+        if (Objects.isNull(sequences) || Objects.nonNull(eventMessage.getSequence())
+            || Objects.isNull(eventMessage.getDataSource())) {
+            return eventMessage;
+        }
+
+        AtomicLong counter = sequences.computeIfAbsent(eventMessage.getDataSource(),
+            k -> new AtomicLong(System.currentTimeMillis() * 1000));
+        return new EventMessage<>(eventMessage.getDataSource(), eventMessage.getEventType(), producerId,
+            counter.incrementAndGet(), eventMessage.getData());
+    }
+
+    /**
+     * 按溢出策略将事件放入缓冲区。
+     *
+     * @param eventMessage 待发送的事件消息
+     */
+    private void enqueue(EventMessage<?> eventMessage) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    buffer.put(eventMessage);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for publisher buffer", e);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!buffer.offer(eventMessage)) {
+                    if (Objects.nonNull(buffer.poll())) {
+                        dropped.increment();
+                    }
+                }
+            }
+            case CALLER_RUNS -> {
+                while (!buffer.offer(eventMessage)) {
+                    publishOldest();
+                }
+            }
+        }
+    }
+
+    /**
+     * 后台线程主循环，以微批的形式取出事件并发布，关闭且缓冲区为空时退出。
+     */
+    private void drain() {
+        while (true) {
+            CompletableFuture<PublishReport> published;
+            // 缓冲区为空时才会在持有锁期间等待，此时发送线程不会溢出，不需要获取锁
+            drainLock.lock();
+            try {
+                EventMessage<?> first = buffer.poll(DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(first)) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+
+                List<EventMessage<?>> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                published = publishBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                drainLock.unlock();
+            }
+            published.join();
+        }
+    }
+
+    /**
+     * 取出缓冲区中最早的一批事件并发布，等待全部发布者完成、超时或被拒绝后返回。
+     * <p>由 {@link OverflowPolicy#CALLER_RUNS} 的发送线程与关闭时的调用方使用：批次经由与后台线程相同的发布通道，
+     * 同一发布者不会被并发调用，且按缓冲区顺序排在后台线程已提交的批次之后。</p>
+     *
+     * @return 缓冲区为空、没有发布任何事件时返回 {@code false}
+     */
+    private boolean publishOldest() {
+        CompletableFuture<PublishReport> published;
+        drainLock.lock();
+        try {
+            List<EventMessage<?>> batch = new ArrayList<>(batchSize);
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                return false;
+            }
+            published = publishBatch(batch);
+        } finally {
+            drainLock.unlock();
+        }
+        published.join();
+        return true;
+    }
+
+    /**
+     * 日志转发线程主循环：从检查点开始以微批读取日志，全部发布者成功后推进检查点；关闭且日志已读完时退出。
+     */
+    private void relay() {
+        long position = journal.checkpoint();
+        List<ByteBuffer> records = new ArrayList<>(batchSize);
+        while (true) {
+            records.clear();
+            long next = journal.read(position, batchSize, records);
+            if (records.isEmpty()) {
+                if (next > position) {
+                    // 跳过了段尾的空白或损坏的记录
+                    journal.commit(next);
+                    position = next;
+                    continue;
+                }
+                if (closed) {
+                    return;
+                }
+                journal.awaitRecords(position, DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                continue;
+            }
+
+            if (!relayBatch(records)) {
+                return;
+            }
+            journal.commit(next);
+            position = next;
+        }
+    }
+
+    /**
+     * 将日志中的一批记录交给各发布者，失败的发布者在间隔后单独重试，直到全部成功。
+     * <p>支持已序列化事件的发布者直接获得日志中的信封字节，其余发布者获得解码后的事件消息。</p>
+     *
+     * @param records 日志记录
+     * @return 全部发布者成功返回 {@code true}，发布中心关闭时仍有发布者失败返回 {@code false}
+     */
+    private boolean relayBatch(List<ByteBuffer> records) {
+        List<ByteBuffer> payloads = new ArrayList<>(records.size());
+        List<EventMessage<?>> events = new ArrayList<>(records.size());
+        for (ByteBuffer record : records) {
+            try {
+                events.add(decode(record));
+                payloads.add(record);
+            } catch (RuntimeException e) {
+                // 无法解码的记录永远无法转发，跳过以免阻塞其后的记录
+                undecodable.increment();
+            }
+        }
+
+        List<EventMessage<?>> messages = java.util.Collections.unmodifiableList(events);
+        Consumer<EventPublisher> action = publisher -> {
+            if (!publisher.supportsSerialized()) {
+                publisher.publishAll(messages);
+                return;
+            }
+
+            for (int i = 0; i < payloads.size(); i++) {
+                publisher.publishSerialized(payloads.get(i).duplicate(), EventMessageHeader.of(messages.get(i)));
+            }
+        };
+
+        Collection<EventPublisher> targets = this.publishers;
+        while (true) {
+            List<EventPublisher> failed = fanOut(targets, action).join().outcomes().stream()
+                .filter(outcome -> !outcome.isSuccess())
+                .map(PublishReport.Outcome::publisher)
+                .toList();
+            if (failed.isEmpty()) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+
+            targets = failed;
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(RELAY_RETRY_MILLIS));
+        }
+    }
+
+    /**
+     * 解码日志中的信封，二进制信封的数据解码为通用的对象结构。
+     *
+     * @param record 日志记录
+     * @return 事件消息
+     */
+    private EventMessage<?> decode(ByteBuffer record) {
+        if (BinaryEnvelopeCodec.isBinary(record) && envelopeCodec instanceof BinaryEnvelopeCodec binary) {
+            ByteBuffer buffer = record.duplicate();
+            EventMessageHeader header = binary.decodeHeader(buffer);
+            return new EventMessage<>(header.dataSource(), header.eventType(), header.producer(), header.sequence(),
+                binary.decodeBody(buffer, Object.class));
+        }
+
+        try (JsonParser parser = jsonCodec.createParser(record.duplicate())) {
+            return messageReader.readValue(parser);
+        }
+    }
+
+    /**
+     * 获取日志模式下编码信封使用的编码器。
+     *
+     * @return 预序列化的信封编码器，未配置时为 {@link EnvelopeCodec#JSON}
+     */
+    private EnvelopeCodec codec() {
+        return Objects.isNull(envelopeCodec) ? EnvelopeCodec.JSON : envelopeCodec;
+    }
+
+    /**
+     * 将一批事件并发交给每个发布者的发布通道，调用方等待返回的 Future 完成后再处理下一批，
+     * 使缓冲区的溢出策略对发布速度生效。异步模式总是带有发布超时，挂起的发布者只拖慢一个超时周期：
+     * 之后该通道的任务仍未返回时，新的批次对它直接拒绝，不再等待，直到它恢复。
+     *
+     * @param batch 待发布的事件列表
+     * @return 全部发布者完成、超时或被拒绝后完成的 Future
+     */
+    private CompletableFuture<PublishReport> publishBatch(List<EventMessage<?>> batch) {
+        return fanOut(batch(java.util.Collections.unmodifiableList(batch)));
+    }
+
+    /**
+     * 构建发布单个事件的动作，启用预序列化时信封只序列化一次。
+     *
+     * @param eventMessage 待发布的事件消息
+     * @return 对发布者执行的发布动作
+     */
+    private Consumer<EventPublisher> single(EventMessage<?> eventMessage) {
+        if (!needsSerialization()) {
+            return publisher -> publisher.publish(eventMessage);
+        }
+
+        SerializedEvent serialized = serialize(eventMessage);
+        return publisher -> publish(publisher, eventMessage, serialized);
+    }
+
+    /**
+     * 构建发布一批事件的动作，启用预序列化时每个信封只序列化一次。
+     *
+     * @param events 待发布的事件列表
+     * @return 对发布者执行的发布动作
+     */
+    private Consumer<EventPublisher> batch(List<EventMessage<?>> events) {
+        if (!needsSerialization()) {
+            return publisher -> publisher.publishAll(events);
+        }
+
+        List<SerializedEvent> serialized = new ArrayList<>(events.size());
+        for (EventMessage<?> eventMessage : events) {
+            serialized.add(serialize(eventMessage));
+        }
+        return publisher -> {
+            if (!publisher.supportsSerialized()) {
+                publisher.publishAll(events);
+                return;
+            }
+
+            for (int i = 0; i < events.size(); i++) {
+                publish(publisher, events.get(i), serialized.get(i));
+            }
+        };
+    }
+
+    /**
+     * 判断是否需要预序列化：已启用且至少一个发布者支持已序列化的事件。
+     *
+     * @return 需要预序列化返回 {@code true}
+     */
+    private boolean needsSerialization() {
+        if (Objects.isNull(envelopeCodec)) {
+            return false;
+        }
+
+        for (EventPublisher publisher : this.publishers) {
+            if (publisher.supportsSerialized()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 序列化事件信封为共享的只读缓冲区。
+     *
+     * @param eventMessage 事件消息
+     * @return 已序列化的事件，序列化失败时返回 {@code null}，由发布者回退到逐个序列化
+     */
+    private SerializedEvent serialize(EventMessage<?> eventMessage) {
+        try {
+            ByteBuffer payload = envelopeCodec.encode(eventMessage).asReadOnlyBuffer();
+            return new SerializedEvent(payload, EventMessageHeader.of(eventMessage));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 向单个发布者发布事件，支持已序列化事件的发布者获得共享字节的独立视图。
+     *
+     * @param publisher    事件发布者
+     * @param eventMessage 事件消息
+     * @param serialized   已序列化的事件，可以为 {@code null}
+     */
+    private static void publish(EventPublisher publisher, EventMessage<?> eventMessage, SerializedEvent serialized) {
+        if (Objects.nonNull(serialized) && publisher.supportsSerialized()) {
+            publisher.publishSerialized(serialized.payload().duplicate(), serialized.header());
+        } else {
+            publisher.publish(eventMessage);
+        }
+    }
+
+    /**
+     * 在当前线程上依次调用各发布者，全部调用完成后抛出第一个异常。
+     *
+     * @param action 对发布者执行的发布动作
+     */
+    private void invokeAll(Consumer<EventPublisher> action) {
+        RuntimeException failure = null;
+        for (EventPublisher publisher : this.publishers) {
+            RuntimeException e = laneOf(publisher).invoke(action);
+            if (Objects.isNull(e)) {
+                continue;
+            }
+
+            if (Objects.isNull(failure)) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+
+        if (Objects.nonNull(failure)) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 将发布动作并发交给各发布者的发布通道。
+     *
+     * @param action 对发布者执行的发布动作
+     * @return 汇总各发布者结果的 Future
+     */
+    private CompletableFuture<PublishReport> fanOut(Consumer<EventPublisher> action) {
+        return fanOut(this.publishers, action);
+    }
+
+    /**
+     * 将发布动作并发交给指定发布者的发布通道。
+     *
+     * @param targets 目标发布者
+     * @param action  对发布者执行的发布动作
+     * @return 汇总各发布者结果的 Future
+     */
+    private CompletableFuture<PublishReport> fanOut(Collection<EventPublisher> targets, Consumer<EventPublisher> action) {
+        List<CompletableFuture<PublishReport.Outcome>> futures = new ArrayList<>(targets.size());
+        for (EventPublisher publisher : targets) {
+            futures.add(laneOf(publisher).submit(action));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+            .thenApply(v -> new PublishReport(futures.stream().map(CompletableFuture::join).toList()));
+    }
+
+    /**
+     * 获取发布者对应的发布通道，不存在时创建。
+     *
+     * @param publisher 事件发布者
+     * @return 发布通道
+     */
+    private PublisherLane laneOf(EventPublisher publisher) {
+        return lanes.computeIfAbsent(publisher, p -> new PublisherLane(p, laneConfig, laneIndex.getAndIncrement()));
+    }
+
+    /**
+     * 已序列化的事件
+     *
+     * @param payload 共享的只读信封字节
+     * @param header  事件消息头
+     */
+    private record SerializedEvent(ByteBuffer payload, EventMessageHeader header) {
+    }
+
+    /**
+     * 发布通道配置
+     *
+     * @param timeout          单次发布超时，{@code null} 表示不限制
+     * @param failureThreshold 打开熔断器的连续失败次数，0 表示不启用熔断
+     * @param openDuration     熔断器打开的持续时间
+     * @param capacity         通道队列容量
+     */
+    record LaneConfig(Duration timeout, int failureThreshold, Duration openDuration, int capacity) {
+        /**
+         * 默认配置：不限制超时、不启用熔断、通道队列容量 1024
+         */
+        static final LaneConfig DEFAULT = new LaneConfig(null, 0, Duration.ZERO, 1024);
+    }
+
+    /**
+     * 单个发布者的发布通道，由单线程执行器、有界队列、熔断器与统计计数组成。
+     */
+    private static final class PublisherLane {
+        private final EventPublisher publisher;
+        private final LaneConfig config;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+
+        /**
+         * 熔断器打开截止时间（{@link System#nanoTime()} 基准），0 表示未打开
+         */
+        private volatile long openUntil;
+
+        /**
+         * 当前任务的开始时间（{@link System#nanoTime()} 基准），0 表示空闲
+         */
+        private volatile long runningSince;
+
+        private PublisherLane(EventPublisher publisher, LaneConfig config, int index) {
+            this.publisher = publisher;
+            this.config = config;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.capacity()),
+                Thread.ofPlatform().daemon().name("event-publisher-lane-" + index).factory());
+        }
+
+        /**
+         * 在当前线程上执行发布动作。
+         *
+         * @param action 发布动作
+         * @return 发布者抛出的异常，成功或熔断跳过时返回 {@code null}
+         */
+        private RuntimeException invoke(Consumer<EventPublisher> action) {
+            if (isOpen()) {
+                rejections.increment();
+                return null;
+            }
+
+            try {
+                action.accept(publisher);
+                onSuccess();
+                return null;
+            } catch (RuntimeException e) {
+                failures.increment();
+                onFailure();
+                return e;
+            }
+        }
+
+        /**
+         * 将发布动作提交到通道执行。
+         *
+         * @param action 发布动作
+         * @return 发布结果的 Future，不会以异常完成
+         */
+        private CompletableFuture<PublishReport.Outcome> submit(Consumer<EventPublisher> action) {
+            // 当前任务已超时仍未返回时直接拒绝，避免每批事件都在挂起的发布者后排队并等待一个超时周期
+            if (isOpen() || isStuck()) {
+                rejections.increment();
+                return CompletableFuture.completedFuture(outcome(PublishReport.Status.REJECTED, Duration.ZERO, null));
+            }
+
+            CompletableFuture<PublishReport.Outcome> future = new CompletableFuture<>();
+            AtomicBoolean settled = new AtomicBoolean();
+            try {
+                executor.execute(() -> run(action, future, settled));
+            } catch (RejectedExecutionException e) {
+                rejections.increment();
+                return CompletableFuture.completedFuture(outcome(PublishReport.Status.REJECTED, Duration.ZERO, e));
+            }
+
+            Duration timeout = config.timeout();
+            if (Objects.nonNull(timeout)) {
+                CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                    if (settled.compareAndSet(false, true)) {
+                        timeouts.increment();
+                        onFailure();
+                        future.complete(outcome(PublishReport.Status.TIMEOUT, timeout, null));
+                    }
+                });
+            }
+            return future;
+        }
+
+        /**
+         * 在通道线程上执行发布动作并完成 Future；若已因超时结束，则不再重复计数。
+         * <p>统计与熔断状态先于 Future 完成更新，等待 Future 的调用方总能看到最新状态。</p>
+         *
+         * @param action  发布动作
+         * @param future  发布结果的 Future
+         * @param settled 发布结果是否已确定
+         */
+        private void run(Consumer<EventPublisher> action, CompletableFuture<PublishReport.Outcome> future,
+                         AtomicBoolean settled) {
+            long start = System.nanoTime();
+            runningSince = start;
+            try {
+                action.accept(publisher);
+                if (settled.compareAndSet(false, true)) {
+                    onSuccess();
+                    future.complete(outcome(PublishReport.Status.SUCCESS, Duration.ofNanos(System.nanoTime() - start), null));
+                }
+            } catch (RuntimeException e) {
+                if (settled.compareAndSet(false, true)) {
+                    failures.increment();
+                    onFailure();
+                    future.complete(outcome(PublishReport.Status.FAILED, Duration.ofNanos(System.nanoTime() - start), e));
+                }
+            } finally {
+                runningSince = 0;
+            }
+        }
+
+        private PublishReport.Outcome outcome(PublishReport.Status status, Duration elapsed, Throwable failure) {
+            return new PublishReport.Outcome(publisher, status, elapsed, failure);
+        }
+
+        /**
+         * 判断通道是否挂起：配置了超时，且当前任务的执行时间已超过超时。
+         *
+         * @return 挂起返回 {@code true}
+         */
+        private boolean isStuck() {
+            Duration timeout = config.timeout();
+            long since = runningSince;
+            return Objects.nonNull(timeout) && since != 0 && System.nanoTime() - since > timeout.toNanos();
+        }
+
+        private boolean isOpen() {
+            long until = openUntil;
+            return until != 0 && System.nanoTime() - until < 0;
+        }
+
+        private void onSuccess() {
+            successes.increment();
+            consecutiveFailures.set(0);
+            openUntil = 0;
+        }
+
+        private void onFailure() {
+            int threshold = config.failureThreshold();
+            // 半开状态下的一次失败会再次达到阈值，重新打开熔断器
+            if (threshold > 0 && consecutiveFailures.incrementAndGet() >= threshold) {
+                openUntil = System.nanoTime() + Math.max(1, config.openDuration().toNanos());
+            }
+        }
+
+        private PublisherStats stats() {
+            return new PublisherStats(successes.sum(), failures.sum(), timeouts.sum(), rejections.sum(), isOpen());
+        }
+
+        /**
+         * 停止通道并等待已提交的任务完成；配置了超时且当前任务已超时未完成时放弃等待。
+         */
+        private void shutdown() {
+            executor.shutdown();
+            Duration timeout = config.timeout();
+            try {
+                while (!executor.awaitTermination(Objects.isNull(timeout) ? Long.MAX_VALUE : timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    if (isStuck()) {
+                        executor.shutdownNow();
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,277 @@
+package com.g2rain.common.syncer;
+
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>{@code EventPublisherHubBuilder} 是 {@link EventPublisherHub} 的构建器类。</p>
+ * <p>
+ * 默认构建同步发布中心；通过 {@link #withAsync(int)} 启用异步模式后，事件先进入有界缓冲区，
+ * 再由后台线程以微批的形式交给各发布者的 {@link EventPublisher#publishAll(java.util.List)}。
+ * </p>
+ * <p>
+ * 每个发布者拥有独立的发布通道，可通过 {@link #withPublishTimeout(Duration)}、{@link #withCircuitBreaker(int, Duration)}
+ * 与 {@link #withLaneCapacity(int)} 配置超时、熔断与通道队列容量。
+ * </p>
+ * <p>
+ * 通过 {@link #withJournal(EventJournal)} 启用日志模式后，事件先持久化到本地预写日志，再由后台线程转发。
+ * </p>
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * EventPublisherHub hub = EventPublisherHubBuilder.builder()
+ *     .withPublishers(Set.of(new MyEventPublisher()))
+ *     .withAsync(4096)
+ *     .withBatchSize(128)
+ *     .withOverflowPolicy(OverflowPolicy.BLOCK)
+ *     .withPublishTimeout(Duration.ofSeconds(2))
+ *     .withCircuitBreaker(5, Duration.ofSeconds(30))
+ *     .build();
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public final class EventPublisherHubBuilder {
+    /**
+     * 默认的微批大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    /**
+     * 异步模式与日志模式下未设置发布超时时使用的超时，后台线程等待挂起的发布者不会超过该时间
+     */
+    public static final Duration DEFAULT_BACKGROUND_PUBLISH_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * 事件发布者集合
+     */
+    private Set<EventPublisher> publishers = Set.of();
+
+    /**
+     * 异步缓冲区容量，0 表示同步模式
+     */
+    private int capacity;
+
+    /**
+     * 微批大小
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * 缓冲区溢出策略
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * 预序列化使用的信封编码器，{@code null} 表示不启用预序列化
+     */
+    private EnvelopeCodec envelopeCodec;
+
+    /**
+     * 发布通道配置
+     */
+    private EventPublisherHub.LaneConfig laneConfig = EventPublisherHub.LaneConfig.DEFAULT;
+
+    /**
+     * 是否按数据源填充事件序号
+     */
+    private boolean sequencing;
+
+    /**
+     * 本地预写日志，{@code null} 表示不启用日志模式
+     */
+    private EventJournal journal;
+
+    /**
+     * 私有构造，防止外部直接实例化。
+     */
+    private EventPublisherHubBuilder() {
+    }
+
+    /**
+     * 创建 {@code EventPublisherHubBuilder} 实例。
+     *
+     * @return 新的 {@code EventPublisherHubBuilder} 实例
+     */
+    public static EventPublisherHubBuilder builder() {
+        return new EventPublisherHubBuilder();
+    }
+
+    /**
+     * 设置事件发布者集合。
+     *
+     * @param publishers 事件发布者集合
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withPublishers(Set<EventPublisher> publishers) {
+        this.publishers = Objects.requireNonNull(publishers, "publishers");
+        return this;
+    }
+
+    /**
+     * 启用异步模式并设置缓冲区容量。
+     *
+     * @param capacity 缓冲区容量，必须大于 0
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withAsync(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * 设置异步模式下每个微批的最大事件数。
+     *
+     * @param batchSize 微批大小，必须大于 0
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 设置异步模式下缓冲区已满时的溢出策略。
+     *
+     * @param overflowPolicy 溢出策略
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        return this;
+    }
+
+    /**
+     * 设置单个发布者单次发布的超时时间，超时计为一次失败；超时后发布者仍可能在后台完成发布。
+     * <p>超时只作用于 {@link EventPublisherHub#sendAsync(EventMessage)}、异步模式的微批发布与日志模式的转发，同步发送无法中断发送线程。
+     * 异步模式与日志模式下未设置时使用 {@link #DEFAULT_BACKGROUND_PUBLISH_TIMEOUT}。</p>
+     *
+     * @param timeout 超时时间，必须大于 0
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withPublishTimeout(Duration timeout) {
+        if (Objects.isNull(timeout) || timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+
+        this.laneConfig = new EventPublisherHub.LaneConfig(timeout, laneConfig.failureThreshold(),
+            laneConfig.openDuration(), laneConfig.capacity());
+        return this;
+    }
+
+    /**
+     * 启用熔断器：单个发布者连续失败达到阈值后，在打开期间直接拒绝该发布者的发布，期满后放行一次试探。
+     *
+     * @param failureThreshold 打开熔断器的连续失败次数，必须大于 0
+     * @param openDuration     熔断器打开的持续时间，必须大于 0
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withCircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold <= 0 || Objects.isNull(openDuration) || openDuration.isZero() || openDuration.isNegative()) {
+            throw new IllegalArgumentException("failureThreshold and openDuration must be positive");
+        }
+
+        this.laneConfig = new EventPublisherHub.LaneConfig(laneConfig.timeout(), failureThreshold,
+            openDuration, laneConfig.capacity());
+        return this;
+    }
+
+    /**
+     * 设置每个发布通道的队列容量，通道已满时新的发布被拒绝。
+     *
+     * @param capacity 通道队列容量，必须大于 0
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withLaneCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.laneConfig = new EventPublisherHub.LaneConfig(laneConfig.timeout(), laneConfig.failureThreshold(),
+            laneConfig.openDuration(), capacity);
+        return this;
+    }
+
+    /**
+     * 以 JSON 信封启用预序列化：事件信封只序列化一次，支持 {@link EventPublisher#publishSerialized} 的发布者共享同一份字节。
+     *
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withSerializeOnce() {
+        return withEnvelopeCodec(EnvelopeCodec.JSON);
+    }
+
+    /**
+     * 以指定的信封编码器启用预序列化，例如使用 {@link BinaryEnvelopeCodec} 发布紧凑的二进制信封。
+     *
+     * @param envelopeCodec 信封编码器
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withEnvelopeCodec(EnvelopeCodec envelopeCodec) {
+        this.envelopeCodec = Objects.requireNonNull(envelopeCodec, "envelopeCodec");
+        return this;
+    }
+
+    /**
+     * 启用事件序号：未设置序号的事件在发送时按数据源填充单调递增的序号，供分发端的 {@link SequenceTracker} 使用。
+     *
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withSequencing() {
+        this.sequencing = true;
+        return this;
+    }
+
+    /**
+     * 启用日志模式：发送的事件先追加到本地预写日志，再由后台线程以 {@code batchSize} 为微批转发给各发布者，
+     * 服务在提交业务事务后、事件送达消息代理前崩溃也不会丢失事件。
+     * <p>日志中的信封按 {@link #withEnvelopeCodec(EnvelopeCodec)} 配置的编码器编码（默认 JSON），
+     * 因此只支持 {@link EnvelopeCodec#JSON} 与 {@link BinaryEnvelopeCodec}；发布中心关闭时一并关闭日志。</p>
+     * <p>发送的耗时取决于日志的刷盘间隔：间隔为 0 时每次发送都等待记录刷盘，单线程发送的吞吐受限于一次 fsync 的延迟；
+     * {@link EventJournal#open(java.nio.file.Path)} 默认按 {@link EventJournal#DEFAULT_COMMIT_INTERVAL} 组提交，
+     * 发送不等待刷盘。</p>
+     *
+     * @param journal 本地预写日志
+     * @return 当前 {@code EventPublisherHubBuilder} 实例，支持链式调用
+     */
+    public EventPublisherHubBuilder withJournal(EventJournal journal) {
+        this.journal = Objects.requireNonNull(journal, "journal");
+        return this;
+    }
+
+    /**
+     * 构建 {@link EventPublisherHub} 实例。
+     *
+     * @return 配置好的 {@code EventPublisherHub} 实例
+     * @throws IllegalArgumentException 日志模式与异步模式同时启用，或日志模式使用了无法解码的信封编码器
+     */
+    public EventPublisherHub build() {
+        if (Objects.nonNull(journal)) {
+            if (capacity > 0) {
+                throw new IllegalArgumentException("journal can not be combined with async buffering");
+            }
+            if (Objects.nonNull(envelopeCodec) && envelopeCodec != EnvelopeCodec.JSON
+                && !(envelopeCodec instanceof BinaryEnvelopeCodec)) {
+                throw new IllegalArgumentException("journal requires JSON or BinaryEnvelopeCodec envelopes");
+            }
+        }
+        EventPublisherHub.LaneConfig lanes = laneConfig;
+        if ((capacity > 0 || Objects.nonNull(journal)) && Objects.isNull(lanes.timeout())) {
+            // 后台线程等待各发布通道完成，不设超时时一个挂起的发布者会拖住全部发布者
+            lanes = new EventPublisherHub.LaneConfig(DEFAULT_BACKGROUND_PUBLISH_TIMEOUT, lanes.failureThreshold(),
+                lanes.openDuration(), lanes.capacity());
+        }
+        return new EventPublisherHub(publishers, capacity, batchSize, overflowPolicy, lanes, envelopeCodec,
+            sequencing, journal).start();
+    }
+}
@@ -0,0 +1,514 @@
+package com.g2rain.common.syncer;
+
+
+import lombok.NonNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>内存消息存储器基类，以本地复制缓存的形式保存数据源的全部记录，供请求链路高频读取。</p>
+ *
+ * <ul>
+ *     <li><b>无锁读取：</b>{@link #get(Object)} 与 {@link #findBy(String, Object)} 直接读取 {@link ConcurrentHashMap}，
+ *     不会与复制写入线程竞争。</li>
+ *     <li><b>原子快照切换：</b>{@link #load()} 在写锁之外构建全量数据与二级索引，构建完成后在写锁内一次性替换，
+ *     读取方要么看到旧快照，要么看到新快照；加载期间应用的变更会在替换前重放到新状态上，不会丢失。</li>
+ *     <li><b>二级索引：</b>通过 {@link #addIndex(String, Function)} 以提取函数声明索引，写入时自动维护。</li>
+ *     <li><b>监控：</b>{@link #size()}、{@link #hitCount()}、{@link #missCount()} 提供容量与命中统计。</li>
+ *     <li><b>快照：</b>{@link #writeSnapshot(Path)} 将全部记录与每个发布方已应用的最大事件序号流式写入带校验和的快照文件，
+ *     {@link #restoreSnapshot(Path)} 以内存映射读取快照，启动时无需从数据源全量加载，参见 {@link StorageSnapshotter}。</li>
+ * </ul>
+ *
+ * <p>写入（创建、更新、删除、加载的替换阶段）由一把写锁串行化，{@link #loadValues()} 执行期间不持有写锁；
+ * 子类只需提供数据源标识、值类型、键提取方法，
+ * 以及可选的 {@link #loadValues()} 全量加载逻辑。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * public class UserStorage extends InMemoryMessageStorage<String, User> {
+ *     public UserStorage() {
+ *         addIndex("tenant", User::getTenantId);
+ *     }
+ *
+ *     @Override
+ *     protected @NonNull String dataSource() {
+ *         return "user";
+ *     }
+ *
+ *     @Override
+ *     protected @NonNull Class<User> getValueType() {
+ *         return User.class;
+ *     }
+ *
+ *     @Override
+ *     protected @NonNull String getKey(@NonNull User value) {
+ *         return value.getId();
+ *     }
+ *
+ *     @Override
+ *     protected Collection<User> loadValues() {
+ *         return userRepository.findAll();
+ *     }
+ * }
+ *
+ * User user = userStorage.get("1");
+ * List<User> users = userStorage.findBy("tenant", "t1");
+ * }</pre>
+ *
+ * @param <K> 消息键类型
+ * @param <V> 消息值类型
+ * @author alpha
+ * @since 2025/10/5
+ */
+public abstract class InMemoryMessageStorage<K, V> extends AbstractMessageStorage<K, V, V> {
+    /**
+     * 未设置发布方标识的变更在序号表中使用的键
+     */
+    private static final long NO_PRODUCER = Long.MIN_VALUE;
+
+    /**
+     * 串行化写入的锁，使用显式锁避免加载期间固定虚拟线程的载体线程
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 串行化全量加载的锁，不阻塞复制写入
+     */
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    /**
+     * 已声明的二级索引提取函数，按索引名称保存
+     */
+    private final Map<String, Function<? super V, ?>> indexDefinitions = new ConcurrentHashMap<>();
+
+    /**
+     * 命中次数
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 未命中次数
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 每个发布方已应用变更的最大事件序号，序号只在同一发布方内有序，不同发布方之间不可比较
+     */
+    private final Map<Long, AtomicLong> lastSequences = new ConcurrentHashMap<>();
+
+    /**
+     * 当前状态，加载时整体替换
+     */
+    private volatile State<K, V> state = new State<>();
+
+    /**
+     * 加载期间应用的变更，按键保存最新的值，值为 {@code null} 表示已删除；未在加载时为 {@code null}，只在持有写锁时访问
+     */
+    private Map<K, V> changesDuringLoad;
+
+    /**
+     * 全量加载数据，在新状态中构建后原子替换当前状态。
+     * <p>{@link #loadValues()} 与新状态（含二级索引）的构建不持有写锁，期间到达的变更照常应用到当前状态并被记录；
+     * 替换时在写锁内将这些变更按键重放到新状态上，因此复制写入不会被加载阻塞，也不会被加载结果覆盖。
+     * 并发调用的加载依次执行。</p>
+     */
+    @Override
+    public void load() {
+        loadLock.lock();
+        try {
+            writeLock.lock();
+            try {
+                changesDuringLoad = new HashMap<>();
+            } finally {
+                writeLock.unlock();
+            }
+
+            State<K, V> next = new State<>();
+            try {
+                indexDefinitions.forEach(next::addIndex);
+                Collection<V> values = loadValues();
+                if (Objects.nonNull(values)) {
+                    for (V value : values) {
+                        if (Objects.nonNull(value)) {
+                            next.put(getKey(value), value);
+                        }
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                swap(null);
+                throw e;
+            }
+            swap(next);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * 结束加载：将加载期间应用的变更重放到新状态上并替换当前状态，然后停止记录变更。
+     *
+     * @param next 新状态，加载失败时为 {@code null}，此时保留当前状态
+     */
+    private void swap(State<K, V> next) {
+        writeLock.lock();
+        try {
+            if (Objects.nonNull(next)) {
+                // 加载期间声明的索引
+                indexDefinitions.forEach((name, extractor) -> {
+                    if (!next.indexes.containsKey(name)) {
+                        next.addIndex(name, extractor);
+                    }
+                });
+                changesDuringLoad.forEach((key, value) -> {
+                    if (Objects.isNull(value)) {
+                        next.remove(key);
+                    } else {
+                        next.put(key, value);
+                    }
+                });
+                state = next;
+            }
+            changesDuringLoad = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 提供全量加载的数据，由 {@link #load()} 调用，默认返回空列表。
+     *
+     * @return 全量数据，可以为 {@code null}
+     */
+    protected Collection<V> loadValues() {
+        return List.of();
+    }
+
+    /**
+     * 声明一个二级索引，通常在子类构造方法中调用；已有数据会立即建立索引。
+     *
+     * @param name      索引名称，不能为 {@code null}
+     * @param extractor 索引值提取函数，返回 {@code null} 时该记录不进入索引
+     */
+    protected void addIndex(@NonNull String name, @NonNull Function<? super V, ?> extractor) {
+        writeLock.lock();
+        try {
+            indexDefinitions.put(name, extractor);
+            state.addIndex(name, extractor);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 将全部记录流式写入快照文件，并记录每个发布方已应用变更的最大事件序号；先写入临时文件再原子替换。
+     * <p>写入期间不阻塞读取与复制写入：序号在遍历记录前读取，遍历期间应用的变更可能已包含在快照中，
+     * 恢复后重放这些序号之后的事件时会再次应用，结果一致。</p>
+     *
+     * @param file 快照文件
+     * @return 写入的记录数
+     * @throws java.io.UncheckedIOException 写入失败
+     */
+    public int writeSnapshot(@NonNull Path file) {
+        return StorageSnapshotter.write(file, dataSource(), lastSequences(), state.values.values());
+    }
+
+    /**
+     * 从快照文件恢复全部记录与二级索引，在新的状态中构建后原子替换当前状态。
+     * <p>并行分发时不同键的变更可能乱序应用，快照记录的序号之前仍可能有未包含的事件，
+     * 每个发布方的重放应从其序号之前留有余量的位置开始；重放已包含的事件不会改变最终结果。</p>
+     *
+     * @param file 快照文件
+     * @return 快照记录的每个发布方的最大事件序号，格式同 {@link #lastSequences()}
+     * @throws java.io.UncheckedIOException 读取失败
+     * @throws IllegalStateException        快照校验失败或不属于当前数据源
+     */
+    public Map<Long, Long> restoreSnapshot(@NonNull Path file) {
+        writeLock.lock();
+        try {
+            State<K, V> next = new State<>();
+            indexDefinitions.forEach(next::addIndex);
+            Map<Long, Long> sequences = StorageSnapshotter.read(file, dataSource(), getValueType(),
+                value -> next.put(getKey(value), value));
+            state = next;
+            lastSequences.clear();
+            sequences.forEach((producer, sequence) -> lastSequences.put(producerKey(producer), new AtomicLong(sequence)));
+            return sequences;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定发布方已应用变更的最大事件序号，可作为该发布方重放的起点。
+     *
+     * @param producer 发布方标识，为 {@code null} 时表示未设置发布方标识的变更
+     * @return 最大事件序号，该发布方尚未应用带序号的变更时返回 {@code null}
+     */
+    public Long lastSequence(Long producer) {
+        AtomicLong sequence = lastSequences.get(producerKey(producer));
+        return Objects.isNull(sequence) ? null : sequence.get();
+    }
+
+    /**
+     * 将发布方标识转换为序号表的键。
+     *
+     * @param producer 发布方标识，可以为 {@code null}
+     * @return 序号表的键
+     */
+    private static long producerKey(Long producer) {
+        return Objects.isNull(producer) ? NO_PRODUCER : producer;
+    }
+
+    /**
+     * 获取每个发布方已应用变更的最大事件序号。
+     *
+     * @return 以发布方标识为键的只读副本，键为 {@code null} 的条目对应未设置发布方标识的变更
+     */
+    public Map<Long, Long> lastSequences() {
+        Map<Long, Long> sequences = new HashMap<>();
+        lastSequences.forEach((producer, sequence) ->
+            sequences.put(producer == NO_PRODUCER ? null : producer, sequence.get()));
+        return Collections.unmodifiableMap(sequences);
+    }
+
+    /**
+     * 应用变更并记录其事件序号。
+     *
+     * @param change 待应用的变更，不能为 {@code null}
+     */
+    @Override
+    protected void apply(@NonNull Change<K, V> change) {
+        super.apply(change);
+        if (Objects.nonNull(change.sequence())) {
+            lastSequences.computeIfAbsent(producerKey(change.producer()), k -> new AtomicLong(Long.MIN_VALUE))
+                .accumulateAndGet(change.sequence(), Math::max);
+        }
+    }
+
+    @Override
+    protected void create(@NonNull K key, V value) {
+        put(key, value);
+    }
+
+    @Override
+    protected void update(@NonNull K key, V value) {
+        put(key, value);
+    }
+
+    @Override
+    protected void delete(@NonNull K key) {
+        writeLock.lock();
+        try {
+            state.remove(key);
+            recordDuringLoad(key, null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定键的记录，不加锁。
+     *
+     * @param key 消息键，不能为 {@code null}
+     * @return 对应的记录，不存在时返回 {@code null}
+     */
+    @Override
+    public V get(@NonNull K key) {
+        V value = state.values.get(key);
+        if (Objects.isNull(value)) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 按二级索引查询记录，不加锁。
+     *
+     * @param indexName  索引名称，不能为 {@code null}
+     * @param indexValue 索引值
+     * @return 匹配的记录列表，无匹配时返回空列表
+     * @throws IllegalArgumentException 索引未声明
+     */
+    public List<V> findBy(@NonNull String indexName, Object indexValue) {
+        State<K, V> current = state;
+        Index<K, V> index = current.indexes.get(indexName);
+        if (Objects.isNull(index)) {
+            throw new IllegalArgumentException("index not declared: " + indexName);
+        }
+
+        if (Objects.isNull(indexValue)) {
+            return List.of();
+        }
+
+        Set<K> keys = index.entries.get(indexValue);
+        if (Objects.isNull(keys)) {
+            return List.of();
+        }
+
+        List<V> result = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            V value = current.values.get(key);
+            // 索引与数据分别更新，读取时再次校验，过滤掉正在变更的记录
+            if (Objects.nonNull(value) && Objects.equals(index.extractor.apply(value), indexValue)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取全部记录的只读视图，不加锁。
+     *
+     * @return 全部记录的只读视图
+     */
+    public Collection<V> values() {
+        return java.util.Collections.unmodifiableCollection(state.values.values());
+    }
+
+    /**
+     * 获取记录数。
+     *
+     * @return 记录数
+     */
+    public int size() {
+        return state.values.size();
+    }
+
+    /**
+     * 获取 {@link #get(Object)} 的累计命中次数。
+     *
+     * @return 命中次数
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取 {@link #get(Object)} 的累计未命中次数。
+     *
+     * @return 未命中次数
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 写入记录并维护索引。
+     *
+     * @param key   消息键
+     * @param value 消息值，为 {@code null} 时等同于删除
+     */
+    private void put(K key, V value) {
+        writeLock.lock();
+        try {
+            if (Objects.isNull(value)) {
+                state.remove(key);
+            } else {
+                state.put(key, value);
+            }
+            recordDuringLoad(key, value);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 加载进行中时记录变更，替换状态前重放；调用方需持有 {@link #writeLock}。
+     *
+     * @param key   消息键
+     * @param value 消息值，{@code null} 表示删除
+     */
+    private void recordDuringLoad(K key, V value) {
+        if (Objects.nonNull(changesDuringLoad)) {
+            changesDuringLoad.put(key, value);
+        }
+    }
+
+    /**
+     * 存储状态，包含全部记录与二级索引；只由持有写锁的线程修改。
+     *
+     * @param <K> 消息键类型
+     * @param <V> 消息值类型
+     */
+    private static final class State<K, V> {
+        private final ConcurrentHashMap<K, V> values = new ConcurrentHashMap<>();
+        private final Map<String, Index<K, V>> indexes = new ConcurrentHashMap<>();
+
+        private void addIndex(String name, Function<? super V, ?> extractor) {
+            Index<K, V> index = new Index<>(extractor);
+            values.forEach(index::add);
+            indexes.put(name, index);
+        }
+
+        private void put(K key, V value) {
+            V previous = values.put(key, value);
+            for (Index<K, V> index : indexes.values()) {
+                if (Objects.nonNull(previous)) {
+                    index.remove(key, previous);
+                }
+                index.add(key, value);
+            }
+        }
+
+        private void remove(K key) {
+            V previous = values.remove(key);
+            if (Objects.nonNull(previous)) {
+                for (Index<K, V> index : indexes.values()) {
+                    index.remove(key, previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * 二级索引，索引值到键集合的映射。
+     *
+     * @param <K> 消息键类型
+     * @param <V> 消息值类型
+     */
+    private static final class Index<K, V> {
+        private final Function<? super V, ?> extractor;
+        private final ConcurrentHashMap<Object, Set<K>> entries = new ConcurrentHashMap<>();
+
+        private Index(Function<? super V, ?> extractor) {
+            this.extractor = extractor;
+        }
+
+        private void add(K key, V value) {
+            Object indexValue = extractor.apply(value);
+            if (Objects.nonNull(indexValue)) {
+                entries.computeIfAbsent(indexValue, v -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+
+        private void remove(K key, V value) {
+            Object indexValue = extractor.apply(value);
+            if (Objects.isNull(indexValue)) {
+                return;
+            }
+
+            Set<K> keys = entries.get(indexValue);
+            if (Objects.nonNull(keys)) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    entries.remove(indexValue, keys);
+                }
+            }
+        }
+    }
+}
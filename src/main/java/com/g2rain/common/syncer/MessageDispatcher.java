@@ -1,11 +1,19 @@
 package com.g2rain.common.syncer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * <p>消息分发器接口，定义了对原始消息进行分发处理的方法。</p>
  *
  * <p>实现该接口的类负责接收原始消息字符串并根据业务逻辑进行解析、处理或路由。</p>
  *
+ * <p>对于以字节形式接收消息的消费者（如 Kafka、Redis Stream），可以直接调用 {@link #dispatchBytes(byte[])}、
+ * {@link #dispatch(byte[], int, int)} 或 {@link #dispatchBuffer(ByteBuffer)}；默认实现会先按 UTF-8 解码为字符串，
+ * 实现类可覆盖这些方法以直接解析字节。单参数的字节入口使用独立的方法名，{@code dispatch(null)} 仍只匹配字符串重载。</p>
+ *
  * <p><b>使用示例：</b></p>
  * <pre>{@code
  * MessageDispatcher dispatcher = new DefaultMessageDispatcher();
@@ -23,4 +31,61 @@ public interface MessageDispatcher {
      * @param rawMessage 待分发的原始消息字符串
      */
     void dispatch(String rawMessage);
+
+    /**
+     * 分发 UTF-8 编码的原始消息。
+     *
+     * @param rawMessage 待分发的原始消息字节
+     */
+    default void dispatchBytes(byte[] rawMessage) {
+        if (Objects.isNull(rawMessage)) {
+            return;
+        }
+
+        dispatch(rawMessage, 0, rawMessage.length);
+    }
+
+    /**
+     * 分发字节数组指定区间内 UTF-8 编码的原始消息。
+     *
+     * @param rawMessage 待分发的原始消息字节
+     * @param offset     起始位置
+     * @param length     字节长度
+     */
+    default void dispatch(byte[] rawMessage, int offset, int length) {
+        if (Objects.isNull(rawMessage)) {
+            return;
+        }
+
+        dispatch(new String(rawMessage, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 分发字节缓冲区中剩余的 UTF-8 编码的原始消息，不改变缓冲区的位置。
+     *
+     * @param rawMessage 待分发的原始消息缓冲区
+     */
+    default void dispatchBuffer(ByteBuffer rawMessage) {
+        if (Objects.isNull(rawMessage)) {
+            return;
+        }
+
+        dispatch(StandardCharsets.UTF_8.decode(rawMessage.duplicate()).toString());
+    }
+
+    /**
+     * 批量分发原始消息。
+     * <p>默认实现逐条调用 {@link #dispatch(String)}，实现类可覆盖该方法按存储分组后批量应用。</p>
+     *
+     * @param rawMessages 待分发的原始消息列表，按到达顺序排列
+     */
+    default void dispatchBatch(List<String> rawMessages) {
+        if (Objects.isNull(rawMessages)) {
+            return;
+        }
+
+        for (String rawMessage : rawMessages) {
+            dispatch(rawMessage);
+        }
+    }
 }
@@ -1,9 +1,19 @@
 package com.g2rain.common.syncer;
 
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * <p>消息存储注册中心，负责管理系统中所有 {@link AbstractMessageStorage} 实例的注册与获取。</p>
@@ -19,6 +29,15 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * storages.forEach(System.out::println);
  * }</pre>
  *
+ * <p>除注册集合外，注册中心还维护一份按数据源索引的不可变快照，分发时通过 {@link #lookup(String)}
+ * 以一次哈希查找定位存储器。快照在 {@link #register(AbstractMessageStorage)} 时失效，并在下一次查找时重建：
+ * 存储器在父类构造方法中完成注册，此时子类字段尚未初始化，{@code dataSource()} 的返回值并不可靠，
+ * 因此索引推迟到首次查找时再构建。</p>
+ *
+ * <p>启动时可通过 {@link #loadAll(Executor)} 并行预热全部存储器。预热期间分发到某个存储器的变更不会直接应用，
+ * 而是按到达顺序缓冲，在该存储器加载完成后通过 {@link AbstractMessageStorage#applyBatch(List)} 重放，
+ * 重放完成前后续变更仍进入缓冲，因此全量数据与增量变更的顺序保持一致。</p>
+ *
  * <p>注意：该类不可实例化，所有方法为静态方法。</p>
  *
  * @author alpha
@@ -31,6 +50,21 @@ public final class MessageStorageRegistry {
      */
     private static final Set<AbstractMessageStorage<?, ?, ?>> messageStorages = new CopyOnWriteArraySet<>();
 
+    /**
+     * 按数据源索引的不可变快照，{@code null} 表示快照已失效，需要在下一次查找时重建
+     */
+    private static volatile Map<String, AbstractMessageStorage<?, ?, ?>> dataSourceIndex;
+
+    /**
+     * 注册版本号，每次注册后递增
+     */
+    private static volatile long version;
+
+    /**
+     * 正在预热的存储器及其变更缓冲
+     */
+    private static final Map<AbstractMessageStorage<?, ?, ?>, WarmUp> warmUps = new ConcurrentHashMap<>();
+
     private MessageStorageRegistry() {
         // 私有构造，防止实例化
     }
@@ -43,13 +77,220 @@ public final class MessageStorageRegistry {
      * @param <V>            消息存储的值类型
      * @param <T>            消息存储的返回类型
      */
-    static <K, V, T> void register(AbstractMessageStorage<K, V, T> messageStorage) {
+    static synchronized <K, V, T> void register(AbstractMessageStorage<K, V, T> messageStorage) {
         if (Objects.isNull(messageStorage)) {
             return;
         }
 
         messageStorages.removeIf(s -> s.dataSource().equals(messageStorage.dataSource()));
         messageStorages.add(messageStorage);
+        dataSourceIndex = null;
+        version++;
+    }
+
+    /**
+     * 获取注册版本号，每次注册后递增，供按存储器缓存派生数据的调用方判断缓存是否失效。
+     *
+     * @return 注册版本号
+     */
+    static long version() {
+        return version;
+    }
+
+    /**
+     * 根据数据源查找已注册的消息存储实例。
+     * <p>查找基于不可变快照完成，不会加锁；同一数据源存在多个存储时，以最后注册的为准。</p>
+     *
+     * @param dataSource 数据源标识
+     * @return 对应的消息存储实例，未注册时返回 {@code null}
+     */
+    static AbstractMessageStorage<?, ?, ?> lookup(String dataSource) {
+        Map<String, AbstractMessageStorage<?, ?, ?>> index = dataSourceIndex;
+        if (Objects.isNull(index)) {
+            index = rebuildIndex();
+        }
+
+        return index.get(dataSource);
+    }
+
+    /**
+     * 根据当前注册集合重建数据源索引快照，并以写时复制的方式整体发布。
+     *
+     * @return 新的数据源索引快照
+     */
+    private static synchronized Map<String, AbstractMessageStorage<?, ?, ?>> rebuildIndex() {
+        Map<String, AbstractMessageStorage<?, ?, ?>> index = dataSourceIndex;
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+
+        Map<String, AbstractMessageStorage<?, ?, ?>> rebuilt = HashMap.newHashMap(messageStorages.size());
+        for (AbstractMessageStorage<?, ?, ?> storage : messageStorages) {
+            String dataSource = storage.dataSource();
+            if (Objects.nonNull(dataSource)) {
+                rebuilt.put(dataSource, storage);
+            }
+        }
+
+        index = Map.copyOf(rebuilt);
+        dataSourceIndex = index;
+        return index;
+    }
+
+    /**
+     * 使用指定执行器并行预热全部已注册的存储器，即并行调用各存储器的 {@link AbstractMessageStorage#load()}。
+     * <p>单个存储器加载失败（包括抛出 {@link Error}）不影响其他存储器，异常记录在对应的 {@link StorageLoadResult} 中；
+     * 加载期间到达的变更在加载结束后（无论成功与否）按顺序重放。</p>
+     *
+     * @param executor 执行加载任务的执行器
+     * @return 全部存储器加载并重放完成后完成的就绪 Future，结果按存储器逐一列出，不会以异常完成
+     */
+    public static CompletableFuture<List<StorageLoadResult>> loadAll(Executor executor) {
+        return loadAll(executor, AbstractMessageStorage::load);
+    }
+
+    /**
+     * 使用指定执行器与加载方法并行预热全部已注册的存储器，例如 {@link StorageSnapshotter#restoreAll(Executor)} 先从快照恢复。
+     *
+     * @param executor 执行加载任务的执行器
+     * @param loader   加载单个存储器的方法
+     * @return 全部存储器加载并重放完成后完成的就绪 Future，结果按存储器逐一列出，不会以异常完成
+     */
+    static CompletableFuture<List<StorageLoadResult>> loadAll(Executor executor,
+                                                              Consumer<AbstractMessageStorage<?, ?, ?>> loader) {
+        Objects.requireNonNull(executor, "executor");
+        List<AbstractMessageStorage<?, ?, ?>> storages = List.copyOf(messageStorages);
+
+        // 先为全部存储器打开缓冲，再开始加载，避免加载开始前的变更被覆盖
+        List<WarmUp> pending = new ArrayList<>(storages.size());
+        for (AbstractMessageStorage<?, ?, ?> storage : storages) {
+            WarmUp warmUp = new WarmUp();
+            WarmUp previous = warmUps.putIfAbsent(storage, warmUp);
+            pending.add(Objects.isNull(previous) ? warmUp : null);
+        }
+
+        List<CompletableFuture<StorageLoadResult>> futures = new ArrayList<>(storages.size());
+        for (int i = 0; i < storages.size(); i++) {
+            AbstractMessageStorage<?, ?, ?> storage = storages.get(i);
+            WarmUp warmUp = pending.get(i);
+            if (Objects.isNull(warmUp)) {
+                IllegalStateException e = new IllegalStateException("storage is already loading: " + storage.dataSource());
+                futures.add(CompletableFuture.completedFuture(new StorageLoadResult(storage.dataSource(), Duration.ZERO, 0, e)));
+                continue;
+            }
+
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> load(storage, warmUp, loader), executor));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.completedFuture(finish(storage, warmUp, Duration.ZERO, e)));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+            .thenApply(v -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * 判断存储器是否正在预热，是则将变更放入缓冲，等待加载完成后重放。
+     *
+     * @param storage 目标存储器
+     * @param change  待应用的变更
+     * @return 变更已被缓冲返回 {@code true}，调用方应直接应用时返回 {@code false}
+     */
+    static boolean defer(AbstractMessageStorage<?, ?, ?> storage, Change<?, ?> change) {
+        if (warmUps.isEmpty()) {
+            return false;
+        }
+
+        WarmUp warmUp = warmUps.get(storage);
+        return Objects.nonNull(warmUp) && warmUp.offer(List.of(change));
+    }
+
+    /**
+     * 判断存储器是否正在预热，是则将一批变更放入缓冲，等待加载完成后重放。
+     *
+     * @param storage 目标存储器
+     * @param changes 待应用的变更列表
+     * @return 变更已被缓冲返回 {@code true}，调用方应直接应用时返回 {@code false}
+     */
+    static boolean defer(AbstractMessageStorage<?, ?, ?> storage, List<Change<?, ?>> changes) {
+        if (warmUps.isEmpty()) {
+            return false;
+        }
+
+        WarmUp warmUp = warmUps.get(storage);
+        return Objects.nonNull(warmUp) && warmUp.offer(changes);
+    }
+
+    /**
+     * 加载单个存储器并重放缓冲的变更。
+     *
+     * @param storage 目标存储器
+     * @param warmUp  该存储器的变更缓冲
+     * @param loader  加载单个存储器的方法
+     * @return 加载结果
+     */
+    private static StorageLoadResult load(AbstractMessageStorage<?, ?, ?> storage, WarmUp warmUp,
+                                          Consumer<AbstractMessageStorage<?, ?, ?>> loader) {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            loader.accept(storage);
+        } catch (Throwable e) {
+            // 包括 Error：无论如何都要关闭缓冲，否则该存储器会一直缓冲后续变更
+            failure = e;
+        }
+        return finish(storage, warmUp, Duration.ofNanos(System.nanoTime() - start), failure);
+    }
+
+    /**
+     * 重放缓冲的变更并关闭缓冲，随后的变更直接应用到存储器。
+     *
+     * @param storage 目标存储器
+     * @param warmUp  该存储器的变更缓冲
+     * @param elapsed 加载耗时
+     * @param failure 加载异常，可以为 {@code null}
+     * @return 加载结果
+     */
+    private static StorageLoadResult finish(AbstractMessageStorage<?, ?, ?> storage, WarmUp warmUp,
+                                            Duration elapsed, Throwable failure) {
+        Throwable replayFailure = null;
+        int replayed;
+        synchronized (warmUp) {
+            List<Change<?, ?>> buffered = warmUp.buffer;
+            replayed = buffered.size();
+            try {
+                if (!buffered.isEmpty()) {
+                    replay(storage, buffered);
+                }
+            } catch (Throwable e) {
+                replayFailure = e;
+            } finally {
+                warmUp.buffer = null;
+                warmUps.remove(storage, warmUp);
+            }
+        }
+
+        if (Objects.isNull(failure)) {
+            failure = replayFailure;
+        } else if (Objects.nonNull(replayFailure)) {
+            failure.addSuppressed(replayFailure);
+        }
+        return new StorageLoadResult(storage.dataSource(), elapsed, replayed, failure);
+    }
+
+    /**
+     * 以存储器的泛型类型重放缓冲的变更。
+     *
+     * @param storage 目标存储器
+     * @param changes 缓冲的变更列表
+     * @param <K>     存储键类型
+     * @param <V>     存储值类型
+     * @param <T>     存储返回类型
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V, T> void replay(AbstractMessageStorage<K, V, T> storage, List<Change<?, ?>> changes) {
+        storage.applyBatch((List<Change<K, V>>) (List<?>) changes);
     }
 
     /**
@@ -61,4 +302,26 @@ public final class MessageStorageRegistry {
     public static Set<AbstractMessageStorage<?, ?, ?>> getMessageStorages() {
         return java.util.Collections.unmodifiableSet(messageStorages);
     }
+
+    /**
+     * 单个存储器的预热缓冲，{@code buffer} 为 {@code null} 表示缓冲已关闭。
+     */
+    private static final class WarmUp {
+        private List<Change<?, ?>> buffer = new ArrayList<>();
+
+        /**
+         * 在缓冲未关闭时追加变更。
+         *
+         * @param changes 待缓冲的变更
+         * @return 已缓冲返回 {@code true}
+         */
+        private synchronized boolean offer(List<Change<?, ?>> changes) {
+            if (Objects.isNull(buffer)) {
+                return false;
+            }
+
+            buffer.addAll(changes);
+            return true;
+        }
+    }
 }
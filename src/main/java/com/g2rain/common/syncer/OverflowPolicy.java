@@ -0,0 +1,35 @@
+package com.g2rain.common.syncer;
+
+
+/**
+ * <p>异步事件发布中心的溢出策略，决定缓冲区已满时新事件的处理方式。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * EventPublisherHub hub = EventPublisherHubBuilder.builder()
+ *     .withPublishers(publishers)
+ *     .withAsync(4096)
+ *     .withOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+ *     .build();
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public enum OverflowPolicy {
+    /**
+     * 阻塞发送线程，直到缓冲区腾出空间
+     */
+    BLOCK,
+
+    /**
+     * 丢弃缓冲区中最早的事件，为新事件腾出空间
+     */
+    DROP_OLDEST,
+
+    /**
+     * 由发送线程取出缓冲区中最早的一批事件，经由各发布者的发布通道发布，等待发布完成（或超时）后再放入新事件；
+     * 事件仍按发送顺序到达发布者，同一发布者也不会被并发调用
+     */
+    CALLER_RUNS
+}
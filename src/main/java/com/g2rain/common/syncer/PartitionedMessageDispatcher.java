@@ -0,0 +1,378 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>分区并行的消息分发器，按（数据源，键）将变更哈希到 N 个单线程执行通道（lane）中并行应用到存储。</p>
+ *
+ * <p>消息的解析与键提取仍在调用方线程完成，随后变更进入对应通道的有界队列，由该通道唯一的工作线程按入队顺序执行。
+ * 同一（数据源，键）的变更总是落在同一通道，因此 CREATE/UPDATE/DELETE 的顺序得以保持；
+ * 不同键的变更分散到多个通道，一个缓慢的存储器只会阻塞它所在的通道。</p>
+ *
+ * <ul>
+ *     <li><b>背压：</b>通道队列有界，队列满时调用方线程在入队处阻塞，直到通道腾出空间。</li>
+ *     <li><b>批量分发：</b>批次先按通道拆分，每个通道内再按存储分组调用 {@link AbstractMessageStorage#applyBatch(List)}。</li>
+ *     <li><b>优雅停机：</b>{@link #drain(long, TimeUnit)} 等待已提交的变更执行完毕，{@link #close()} 在排空后停止所有通道。</li>
+ *     <li><b>监控：</b>{@link #queueDepths()} 返回各通道当前的队列深度。</li>
+ * </ul>
+ *
+ * <p>默认使用虚拟线程执行各通道；自定义 {@link Executor} 时需保证其能同时运行全部通道的工作线程。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(8, 1024)) {
+ *     dispatcher.dispatch(rawMessage);
+ *     dispatcher.drain(5, TimeUnit.SECONDS);
+ * }
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class PartitionedMessageDispatcher extends DefaultMessageDispatcher implements AutoCloseable {
+    /**
+     * 默认的通道队列容量
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 执行通道数组，下标即分区号
+     */
+    private final Lane[] lanes;
+
+    /**
+     * 由当前分发器创建并负责关闭的执行器，使用外部执行器时为 {@code null}
+     */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * 是否已关闭，关闭后不再接受新的变更
+     */
+    private volatile boolean closed;
+
+    /**
+     * 使用 CPU 核数个通道、默认队列容量与虚拟线程构造分发器。
+     */
+    public PartitionedMessageDispatcher() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * 使用指定通道数与队列容量，以虚拟线程构造分发器。
+     *
+     * @param partitions    通道数，必须大于 0
+     * @param queueCapacity 每个通道的队列容量，必须大于 0
+     */
+    public PartitionedMessageDispatcher(int partitions, int queueCapacity) {
+        this(partitions, queueCapacity, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * 使用指定通道数、队列容量与执行器构造分发器，执行器的生命周期由调用方管理。
+     *
+     * @param partitions    通道数，必须大于 0
+     * @param queueCapacity 每个通道的队列容量，必须大于 0
+     * @param executor      运行通道工作线程的执行器，需能同时运行 {@code partitions} 个任务
+     */
+    public PartitionedMessageDispatcher(int partitions, int queueCapacity, Executor executor) {
+        this(partitions, queueCapacity, executor, false);
+    }
+
+    private PartitionedMessageDispatcher(int partitions, int queueCapacity, Executor executor, boolean owned) {
+        if (partitions <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("partitions and queueCapacity must be positive");
+        }
+
+        Objects.requireNonNull(executor, "executor");
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        this.lanes = new Lane[partitions];
+        for (int i = 0; i < partitions; i++) {
+            lanes[i] = new Lane(queueCapacity);
+            executor.execute(lanes[i]::run);
+        }
+    }
+
+    /**
+     * 将变更放入其（数据源，键）对应的通道，队列满时阻塞等待。
+     *
+     * @param change 已绑定的变更记录
+     */
+    @Override
+    void route(RoutedChange change) {
+        laneOf(change).submit(() -> super.route(change));
+    }
+
+    /**
+     * 将批次按通道拆分后提交，每个通道内部再按存储分组批量应用，并保持组内顺序。
+     *
+     * @param changes 已绑定的变更记录列表，按到达顺序排列
+     */
+    @Override
+    void routeBatch(List<RoutedChange> changes) {
+        List<List<RoutedChange>> buckets = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            buckets.add(null);
+        }
+
+        for (RoutedChange change : changes) {
+            int partition = partitionOf(change);
+            List<RoutedChange> bucket = buckets.get(partition);
+            if (Objects.isNull(bucket)) {
+                bucket = new ArrayList<>();
+                buckets.set(partition, bucket);
+            }
+            bucket.add(change);
+        }
+
+        for (int i = 0; i < lanes.length; i++) {
+            List<RoutedChange> bucket = buckets.get(i);
+            if (Objects.nonNull(bucket)) {
+                lanes[i].submit(() -> super.routeBatch(bucket));
+            }
+        }
+    }
+
+    /**
+     * 等待调用前已提交的全部变更执行完毕。
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 在超时前全部执行完毕返回 {@code true}，否则返回 {@code false}
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        // 先记录各通道已提交的任务数，之后提交的任务不在等待范围内，持续写入时也能按时返回
+        long[] targets = new long[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            targets[i] = lanes[i].submitted.get();
+        }
+
+        for (int i = 0; i < lanes.length; i++) {
+            if (!lanes[i].awaitCompleted(targets[i], deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取各通道当前的队列深度（已入队但尚未开始执行的任务数）。
+     *
+     * @return 各通道的队列深度，下标即分区号
+     */
+    public int[] queueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queue.size();
+        }
+        return depths;
+    }
+
+    /**
+     * 获取各通道累计执行完成的任务数。
+     *
+     * @return 各通道累计完成的任务数，下标即分区号
+     */
+    public long[] completedCounts() {
+        long[] counts = new long[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            counts[i] = lanes[i].completed.get();
+        }
+        return counts;
+    }
+
+    /**
+     * 获取通道数。
+     *
+     * @return 通道数
+     */
+    public int partitions() {
+        return lanes.length;
+    }
+
+    /**
+     * 停止接受新的变更，等待已提交的变更全部执行完毕后停止所有通道。
+     * <p>若执行器由当前分发器创建，会一并关闭。调用前应先停止向分发器提交消息。</p>
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            drain(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            for (Lane lane : lanes) {
+                lane.stop();
+            }
+            if (Objects.nonNull(ownedExecutor)) {
+                ownedExecutor.shutdown();
+                ownedExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 计算变更所属的分区号。
+     *
+     * @param change 已绑定的变更记录
+     * @return 分区号
+     */
+    private int partitionOf(RoutedChange change) {
+        int hash = 31 * change.storage().dataSource().hashCode() + Objects.hashCode(change.change().key());
+        // 打散低位，避免连续键集中到少数通道
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    /**
+     * 获取变更所属的通道。
+     *
+     * @param change 已绑定的变更记录
+     * @return 执行通道
+     */
+    private Lane laneOf(RoutedChange change) {
+        return lanes[partitionOf(change)];
+    }
+
+    /**
+     * 单线程执行通道，由一个有界队列和一个工作线程组成。
+     */
+    private final class Lane {
+        /**
+         * 通知工作线程退出的哨兵任务
+         */
+        private static final Runnable STOP = () -> {
+        };
+
+        /**
+         * 待执行任务队列
+         */
+        private final BlockingQueue<Runnable> queue;
+
+        /**
+         * 累计提交的任务数
+         */
+        private final AtomicLong submitted = new AtomicLong();
+
+        /**
+         * 累计执行完成的任务数，入队失败的任务也计入，以便与 {@link #submitted} 对齐
+         */
+        private final AtomicLong completed = new AtomicLong();
+
+        /**
+         * 正在等待任务完成的线程数，为 0 时完成任务无需唤醒
+         */
+        private volatile int waiters;
+
+        private Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * 提交任务，队列满时阻塞等待。
+         *
+         * @param task 待执行任务
+         */
+        private void submit(Runnable task) {
+            if (closed) {
+                throw new IllegalStateException("PartitionedMessageDispatcher is closed");
+            }
+
+            submitted.incrementAndGet();
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                finish();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for partition queue", e);
+            }
+        }
+
+        /**
+         * 工作线程主循环，按入队顺序逐个执行任务，直到收到停止哨兵。
+         */
+        private void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (task == STOP) {
+                    return;
+                }
+
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // 存储异常已在分发器内部处理，这里兜底（包括 Error）保证工作线程不退出，否则队列写满后提交方将永久阻塞
+                } finally {
+                    finish();
+                }
+            }
+        }
+
+        /**
+         * 标记一个任务结束，有线程等待时将其唤醒。
+         */
+        private void finish() {
+            completed.incrementAndGet();
+            if (waiters > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * 等待累计完成的任务数达到目标值。
+         *
+         * @param target   目标完成数
+         * @param deadline 截止时间（{@link System#nanoTime()} 基准）
+         * @return 截止时间前达到目标返回 {@code true}
+         * @throws InterruptedException 等待过程中线程被中断
+         */
+        private synchronized boolean awaitCompleted(long target, long deadline) throws InterruptedException {
+            waiters++;
+            try {
+                while (completed.get() < target) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return true;
+            } finally {
+                waiters--;
+            }
+        }
+
+        /**
+         * 通知工作线程在处理完已有任务后退出。
+         *
+         * @throws InterruptedException 等待入队时线程被中断
+         */
+        private void stop() throws InterruptedException {
+            queue.put(STOP);
+        }
+    }
+}
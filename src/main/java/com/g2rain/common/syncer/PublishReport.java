@@ -0,0 +1,77 @@
+package com.g2rain.common.syncer;
+
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>一次事件发布的汇总结果，由 {@link EventPublisherHub#sendAsync(EventMessage)} 返回，逐一记录每个发布者的发布结果。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * hub.sendAsync(message).thenAccept(report -> report.outcomes().stream()
+ *     .filter(outcome -> outcome.status() != PublishReport.Status.SUCCESS)
+ *     .forEach(outcome -> System.err.println(outcome.publisher() + " 发布失败: " + outcome.status())));
+ * }</pre>
+ *
+ * @param outcomes 各发布者的发布结果
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record PublishReport(List<Outcome> outcomes) {
+
+    /**
+     * 判断是否所有发布者均发布成功。
+     *
+     * @return 全部成功返回 {@code true}
+     */
+    public boolean isSuccess() {
+        return outcomes.stream().allMatch(outcome -> outcome.status() == Status.SUCCESS);
+    }
+
+    /**
+     * 单个发布者的发布状态
+     */
+    public enum Status {
+        /**
+         * 发布成功
+         */
+        SUCCESS,
+
+        /**
+         * 发布者抛出异常
+         */
+        FAILED,
+
+        /**
+         * 发布超时，发布者仍可能在后台完成发布
+         */
+        TIMEOUT,
+
+        /**
+         * 熔断器打开或发布通道已满，未调用发布者
+         */
+        REJECTED
+    }
+
+    /**
+     * 单个发布者的发布结果
+     *
+     * @param publisher 事件发布者
+     * @param status    发布状态
+     * @param elapsed   发布耗时，未调用发布者时为 {@link Duration#ZERO}
+     * @param failure   发布异常，成功时为 {@code null}
+     */
+    public record Outcome(EventPublisher publisher, Status status, Duration elapsed, Throwable failure) {
+
+        /**
+         * 判断是否发布成功。
+         *
+         * @return 成功返回 {@code true}
+         */
+        public boolean isSuccess() {
+            return status == Status.SUCCESS && Objects.isNull(failure);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.g2rain.common.syncer;
+
+
+/**
+ * <p>单个事件发布者的累计统计，由 {@link EventPublisherHub#publisherStats()} 返回。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * hub.publisherStats().forEach((publisher, stats) -> {
+ *     if (stats.circuitOpen()) {
+ *         System.err.println(publisher + " 已熔断，失败次数: " + stats.failureCount());
+ *     }
+ * });
+ * }</pre>
+ *
+ * @param successCount  发布成功次数
+ * @param failureCount  发布者抛出异常的次数
+ * @param timeoutCount  发布超时次数
+ * @param rejectedCount 因熔断或通道已满被拒绝的次数
+ * @param circuitOpen   熔断器当前是否打开
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record PublisherStats(long successCount, long failureCount, long timeoutCount, long rejectedCount,
+                             boolean circuitOpen) {
+}
@@ -0,0 +1,348 @@
+package com.g2rain.common.syncer;
+
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>事件序号跟踪器，供 {@link DefaultMessageDispatcher} 丢弃乱序、重复的事件，并报告缺失的事件。</p>
+ *
+ * <ul>
+ *     <li><b>键级高水位：</b>按（数据源，发布方，键）记录已应用的最大序号，序号不大于高水位的事件视为过期或重复。
+ *     高水位表由两个 {@code long[]} 组成，以（数据源，发布方，键）的 64 位指纹定位两路组相联槽位，不为每个键创建对象；
+ *     槽位已满时淘汰序号较小的记录，被淘汰的键下次到达时按首次出现处理。</li>
+ *     <li><b>数据源级缺口：</b>按（数据源，发布方）记录已观察到的最大序号，序号跳跃时回调 {@link GapListener}，
+ *     使用方可据此重新加载对应的存储（例如 {@link AbstractMessageStorage#load()}）。</li>
+ * </ul>
+ *
+ * <p>序号须在同一发布方的同一数据源内单调递增。多个发布方（例如多个 {@link EventPublisherHub} 实例）写同一数据源时，
+ * 各自以 {@link EventMessage#getProducer()} 区分，互不比较序号；不带发布方标识的事件按同一个发布方跟踪。
+ * 发布方重启后以新的标识发布，其序号以时间为基准，不会因为旧标识的高水位被误判为过期。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * SequenceTracker tracker = new SequenceTracker(1 << 16,
+ *     (dataSource, from, to) -> MessageStorageRegistry.lookup(dataSource).load());
+ * DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withSequenceTracker(tracker);
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public class SequenceTracker {
+    /**
+     * 默认的高水位表容量
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * 高水位表的锁分段数，必须为 2 的幂
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * 表示空槽位的指纹
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * 尚未观察到序号时的数据源最大序号
+     */
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /**
+     * 各槽位的（数据源，键）指纹
+     */
+    private final long[] fingerprints;
+
+    /**
+     * 各槽位的高水位序号
+     */
+    private final long[] sequences;
+
+    /**
+     * 槽位下标掩码
+     */
+    private final int mask;
+
+    /**
+     * 分段锁，按槽位所在的组选择
+     */
+    private final Object[] locks = new Object[STRIPES];
+
+    /**
+     * 各（数据源，发布方）已观察到的最大序号
+     */
+    private final Map<Origin, AtomicLong> lastSequences = new ConcurrentHashMap<>();
+
+    /**
+     * 缺口监听器
+     */
+    private final GapListener gapListener;
+
+    /**
+     * 被丢弃的过期或重复事件数
+     */
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * 报告的缺口数
+     */
+    private final LongAdder gaps = new LongAdder();
+
+    /**
+     * 高水位表的淘汰次数
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 缺口监听器抛出异常的次数
+     */
+    private final LongAdder listenerFailures = new LongAdder();
+
+    /**
+     * 使用默认容量构造，不监听缺口。
+     */
+    public SequenceTracker() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    /**
+     * 使用指定容量与缺口监听器构造。
+     *
+     * @param capacity    高水位表容量，向上取整为 2 的幂，必须大于 0
+     * @param gapListener 缺口监听器，可以为 {@code null}
+     */
+    public SequenceTracker(int capacity, GapListener gapListener) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be in (0, 2^30]");
+        }
+
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.fingerprints = new long[size];
+        this.sequences = new long[size];
+        this.mask = size - 1;
+        this.gapListener = gapListener;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 记录不带发布方标识的数据源观察到的序号，序号跳跃时回调缺口监听器。
+     *
+     * @param dataSource 数据源标识
+     * @param sequence   事件序号
+     */
+    public void observe(String dataSource, long sequence) {
+        observe(dataSource, null, sequence);
+    }
+
+    /**
+     * 记录发布方在数据源上观察到的序号，序号跳跃时回调缺口监听器。
+     * <p>监听器抛出的异常不会向上传播，只计入 {@link #listenerFailureCount()}。</p>
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     * @param sequence   事件序号
+     */
+    public void observe(String dataSource, Long producer, long sequence) {
+        AtomicLong last = lastSequences.computeIfAbsent(new Origin(dataSource, producer), k -> new AtomicLong(UNSET));
+        long previous = last.getAndAccumulate(sequence, Math::max);
+        if (previous == UNSET || sequence <= previous + 1) {
+            return;
+        }
+
+        gaps.increment();
+        if (Objects.nonNull(gapListener)) {
+            try {
+                gapListener.onGap(dataSource, previous + 1, sequence - 1);
+            } catch (Exception e) {
+                listenerFailures.increment();
+            }
+        }
+    }
+
+    /**
+     * 判断不带发布方标识的事件是否比该键已应用的事件更新，是则推进该键的高水位。
+     *
+     * @param dataSource 数据源标识
+     * @param key        消息键
+     * @param sequence   事件序号
+     * @return 序号大于该键的高水位（或该键没有记录）时返回 {@code true}，否则返回 {@code false}
+     */
+    public boolean accept(String dataSource, Object key, long sequence) {
+        return accept(dataSource, null, key, sequence);
+    }
+
+    /**
+     * 判断事件是否比同一发布方在该键上已应用的事件更新，是则推进该键的高水位。
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     * @param key        消息键
+     * @param sequence   事件序号
+     * @return 序号大于该键的高水位（或该键没有记录）时返回 {@code true}，否则返回 {@code false}
+     */
+    public boolean accept(String dataSource, Long producer, Object key, long sequence) {
+        return advance(dataSource, producer, key, sequence, false);
+    }
+
+    /**
+     * 判断重新投递的事件（例如死信重试）是否仍不旧于该键已应用的事件，是则推进该键的高水位。
+     * <p>与 {@link #accept(String, Long, Object, long)} 不同，序号等于高水位时同样接受：
+     * 排在死信之后的事件在首次到达时已推进过高水位，重试时不应被当作重复事件丢弃。</p>
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     * @param key        消息键
+     * @param sequence   事件序号
+     * @return 序号不小于该键的高水位（或该键没有记录）时返回 {@code true}，已有更新的事件被应用时返回 {@code false}
+     */
+    public boolean readmit(String dataSource, Long producer, Object key, long sequence) {
+        return advance(dataSource, producer, key, sequence, true);
+    }
+
+    /**
+     * 比较序号与该键的高水位，接受时推进高水位。
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     * @param key        消息键
+     * @param sequence   事件序号
+     * @param inclusive  序号等于高水位时是否接受
+     * @return 接受时返回 {@code true}
+     */
+    private boolean advance(String dataSource, Long producer, Object key, long sequence, boolean inclusive) {
+        long fingerprint = fingerprint(dataSource, producer, key);
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask & ~1;
+        synchronized (locks[(slot >>> 1) & (STRIPES - 1)]) {
+            for (int i = slot; i < slot + 2; i++) {
+                if (fingerprints[i] == fingerprint) {
+                    if (sequence < sequences[i] || (sequence == sequences[i] && !inclusive)) {
+                        duplicates.increment();
+                        return false;
+                    }
+
+                    sequences[i] = sequence;
+                    return true;
+                }
+            }
+
+            int victim;
+            if (fingerprints[slot] == EMPTY) {
+                victim = slot;
+            } else if (fingerprints[slot + 1] == EMPTY) {
+                victim = slot + 1;
+            } else {
+                victim = sequences[slot] <= sequences[slot + 1] ? slot : slot + 1;
+                evictions.increment();
+            }
+
+            fingerprints[victim] = fingerprint;
+            sequences[victim] = sequence;
+            return true;
+        }
+    }
+
+    /**
+     * 获取被丢弃的过期或重复事件数。
+     *
+     * @return 被丢弃的事件数
+     */
+    public long duplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * 获取报告的缺口数。
+     *
+     * @return 缺口数
+     */
+    public long gapCount() {
+        return gaps.sum();
+    }
+
+    /**
+     * 获取高水位表的淘汰次数，持续增长说明容量不足以覆盖活跃键。
+     *
+     * @return 淘汰次数
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 获取缺口监听器抛出异常的次数，此时对应的缺口只计入 {@link #gapCount()}，没有被处理。
+     *
+     * @return 失败次数
+     */
+    public long listenerFailureCount() {
+        return listenerFailures.sum();
+    }
+
+    /**
+     * 计算（数据源，发布方，键）的 64 位指纹：对字符串逐字符做 FNV-1a，对发布方标识与整数键直接混入数值，再做一次雪崩混合。
+     * <p>不使用 {@link Object#hashCode()}，避免 32 位哈希冲突导致不同键共享高水位。</p>
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     * @param key        消息键
+     * @return 非零指纹
+     */
+    static long fingerprint(String dataSource, Long producer, Object key) {
+        long hash = hash(0xcbf29ce484222325L, dataSource);
+        hash = (hash ^ 0xFF) * 0x100000001b3L;
+        if (Objects.nonNull(producer)) {
+            hash = (hash ^ producer) * 0x100000001b3L;
+            hash = (hash ^ 0xFE) * 0x100000001b3L;
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short) {
+            hash = (hash ^ ((Number) key).longValue()) * 0x100000001b3L;
+        } else {
+            hash = hash(hash, String.valueOf(key));
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 序号来源
+     *
+     * @param dataSource 数据源标识
+     * @param producer   发布方标识，可以为 {@code null}
+     */
+    private record Origin(String dataSource, Long producer) {
+    }
+
+    /**
+     * 缺口监听器
+     */
+    @FunctionalInterface
+    public interface GapListener {
+
+        /**
+         * 数据源的序号出现跳跃时回调。
+         *
+         * @param dataSource 数据源标识
+         * @param from       缺失的第一个序号
+         * @param to         缺失的最后一个序号
+         */
+        void onGap(String dataSource, long from, long to);
+    }
+}
@@ -0,0 +1,36 @@
+package com.g2rain.common.syncer;
+
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * <p>单个消息存储器的预热结果，由 {@link MessageStorageRegistry#loadAll(java.util.concurrent.Executor)} 返回。</p>
+ *
+ * <p>记录存储器的数据源、加载耗时、加载期间缓冲并在加载完成后重放的变更数，以及加载或重放过程中的异常。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * MessageStorageRegistry.loadAll(executor).join().stream()
+ *     .filter(result -> !result.isSuccess())
+ *     .forEach(result -> System.err.println(result.dataSource() + " 加载失败: " + result.failure()));
+ * }</pre>
+ *
+ * @param dataSource 数据源标识
+ * @param elapsed    加载耗时，不包含重放耗时
+ * @param replayed   加载期间缓冲并重放的变更数
+ * @param failure    加载或重放过程中的异常，成功时为 {@code null}
+ * @author alpha
+ * @since 2025/10/5
+ */
+public record StorageLoadResult(String dataSource, Duration elapsed, int replayed, Throwable failure) {
+
+    /**
+     * 判断加载与重放是否均成功。
+     *
+     * @return 成功返回 {@code true}
+     */
+    public boolean isSuccess() {
+        return Objects.isNull(failure);
+    }
+}
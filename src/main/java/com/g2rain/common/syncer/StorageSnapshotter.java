@@ -0,0 +1,480 @@
+package com.g2rain.common.syncer;
+
+
+import com.g2rain.common.json.JsonCodec;
+import com.g2rain.common.json.JsonCodecFactory;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * <p>内存存储快照器，定期将全部已注册的 {@link InMemoryMessageStorage} 写入快照文件，启动时从快照恢复。</p>
+ *
+ * <p>每个数据源对应目录下的一个快照文件，记录全部值与每个发布方已应用变更的最大事件序号。启动时
+ * {@link #restoreAll(Executor)} 以内存映射读取快照并校验，替代从数据源全量加载；
+ * 快照不存在或校验失败时回退到 {@link AbstractMessageStorage#load()}。恢复期间到达的变更与
+ * {@link MessageStorageRegistry#loadAll(Executor)} 一样先缓冲，恢复完成后重放；
+ * 快照之后的事件由消息队列从各发布方记录的序号处重新投递，重复应用不会改变最终结果。</p>
+ *
+ * <p>文件格式：魔数、版本号、数据源标识与按发布方记录的最大事件序号组成文件头；每条记录为长度前缀加值的 JSON 字节，
+ * 字符串值同样编码为带引号的 JSON 字符串，因此记录长度总是大于 0，不会与结束标记混淆；
+ * 键在恢复时由 {@link AbstractMessageStorage#getKey(Object)} 计算；文件尾为结束标记、记录数与覆盖
+ * 全部前序字节的 CRC32C 校验和。写入以流式方式进行，先写临时文件并刷盘，再原子替换旧快照。</p>
+ *
+ * <p><b>使用示例：</b></p>
+ * <pre>{@code
+ * StorageSnapshotter snapshotter = new StorageSnapshotter(Path.of("/var/lib/app/snapshots"));
+ * snapshotter.restoreAll(executor).join();
+ * snapshotter.start(Duration.ofMinutes(5));
+ * // 关闭时
+ * snapshotter.snapshotAll();
+ * snapshotter.close();
+ * }</pre>
+ *
+ * @author alpha
+ * @since 2025/10/5
+ */
+public final class StorageSnapshotter implements AutoCloseable {
+    /**
+     * 快照文件魔数 "G2SS"
+     */
+    static final int MAGIC = 0x47325353;
+
+    /**
+     * 快照文件格式版本
+     */
+    static final byte VERSION = 2;
+
+    /**
+     * 未设置发布方标识时在快照中记录的发布方
+     */
+    private static final long NO_PRODUCER = Long.MIN_VALUE;
+
+    /**
+     * 快照文件扩展名
+     */
+    private static final String SUFFIX = ".snapshot";
+
+    /**
+     * 文件尾长度：结束标记、记录数与校验和
+     */
+    private static final int FOOTER_LENGTH = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * 关闭时等待进行中快照完成的最长时间（毫秒）
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * JSON 编解码器
+     */
+    private static final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    /**
+     * 记录写入器，按运行时类型序列化值，字符串写为 JSON 字符串而不是原始文本
+     */
+    private static final ObjectWriter recordWriter = jsonCodec.writer(Object.class);
+
+    /**
+     * 快照目录
+     */
+    private final Path directory;
+
+    /**
+     * 保护调度器的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 已写入的快照数
+     */
+    private final LongAdder snapshotCount = new LongAdder();
+
+    /**
+     * 写入失败的快照数
+     */
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * 快照无法读取、回退到全量加载的次数
+     */
+    private final LongAdder restoreFailureCount = new LongAdder();
+
+    /**
+     * 定期写入快照的调度器，未启动时为 {@code null}
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 创建快照器。
+     *
+     * @param directory 快照目录，不存在时创建
+     * @throws UncheckedIOException 目录创建失败
+     */
+    public StorageSnapshotter(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 按固定间隔在后台写入全部快照。
+     *
+     * @param interval 写入间隔，必须为正
+     * @throws IllegalArgumentException 间隔不为正
+     * @throws IllegalStateException    已启动
+     */
+    public void start(Duration interval) {
+        Objects.requireNonNull(interval, "interval");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+
+        lock.lock();
+        try {
+            if (Objects.nonNull(scheduler)) {
+                throw new IllegalStateException("StorageSnapshotter is already started");
+            }
+
+            long millis = interval.toMillis();
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("storage-snapshotter").factory());
+            scheduler.scheduleWithFixedDelay(this::snapshotAll, millis, millis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 立即为全部已注册的内存存储器写入快照，单个存储器失败不影响其他存储器。
+     *
+     * @return 成功写入的快照数
+     */
+    public int snapshotAll() {
+        int written = 0;
+        for (AbstractMessageStorage<?, ?, ?> storage : MessageStorageRegistry.getMessageStorages()) {
+            if (storage instanceof InMemoryMessageStorage<?, ?> memory) {
+                try {
+                    memory.writeSnapshot(pathOf(memory.dataSource()));
+                    snapshotCount.increment();
+                    written++;
+                } catch (RuntimeException e) {
+                    failureCount.increment();
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 并行恢复全部已注册的存储器：内存存储器优先从快照恢复，其余存储器从数据源加载。
+     *
+     * @param executor 执行恢复任务的执行器
+     * @return 全部存储器恢复并重放完成后完成的就绪 Future，结果按存储器逐一列出，不会以异常完成
+     */
+    public CompletableFuture<List<StorageLoadResult>> restoreAll(Executor executor) {
+        return MessageStorageRegistry.loadAll(executor, this::restoreOrLoad);
+    }
+
+    /**
+     * 获取数据源对应的快照文件路径。
+     *
+     * @param dataSource 数据源标识
+     * @return 快照文件路径
+     */
+    public Path pathOf(String dataSource) {
+        return directory.resolve(URLEncoder.encode(dataSource, StandardCharsets.UTF_8) + SUFFIX);
+    }
+
+    /**
+     * 获取已写入的快照数。
+     *
+     * @return 快照数
+     */
+    public long snapshotCount() {
+        return snapshotCount.sum();
+    }
+
+    /**
+     * 获取写入失败的快照数。
+     *
+     * @return 失败数
+     */
+    public long failureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * 获取快照存在但无法读取（损坏、版本不符等）、回退到全量加载的次数。
+     *
+     * @return 回退次数
+     */
+    public long restoreFailureCount() {
+        return restoreFailureCount.sum();
+    }
+
+    /**
+     * 停止后台写入，等待进行中的快照完成。
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current;
+        lock.lock();
+        try {
+            current = scheduler;
+            scheduler = null;
+        } finally {
+            lock.unlock();
+        }
+
+        if (Objects.nonNull(current)) {
+            current.shutdown();
+            try {
+                current.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 从快照恢复单个存储器，快照不存在或无法读取时从数据源加载。
+     *
+     * @param storage 目标存储器
+     */
+    private void restoreOrLoad(AbstractMessageStorage<?, ?, ?> storage) {
+        if (storage instanceof InMemoryMessageStorage<?, ?> memory) {
+            Path file = pathOf(memory.dataSource());
+            if (Files.exists(file)) {
+                try {
+                    memory.restoreSnapshot(file);
+                    return;
+                } catch (RuntimeException e) {
+                    restoreFailureCount.increment();
+                }
+            }
+        }
+        storage.load();
+    }
+
+    /**
+     * 将记录流式写入快照文件：先写入临时文件并刷盘，再原子替换目标文件。
+     *
+     * @param file       快照文件
+     * @param dataSource 数据源标识
+     * @param sequences  每个发布方已应用变更的最大事件序号，键为 {@code null} 表示未设置发布方标识
+     * @param values     全部值
+     * @return 写入的记录数
+     * @throws UncheckedIOException     写入失败
+     * @throws IllegalArgumentException 值中含有 {@code null}
+     */
+    static int write(Path file, String dataSource, Map<Long, Long> sequences, Collection<?> values) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long count = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(new UnclosedChannelOutputStream(channel), crc), 1 << 16));
+                byte[] name = dataSource.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeInt(sequences.size());
+                for (Map.Entry<Long, Long> entry : sequences.entrySet()) {
+                    out.writeLong(Objects.isNull(entry.getKey()) ? NO_PRODUCER : entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                for (Object value : values) {
+                    if (Objects.isNull(value)) {
+                        throw new IllegalArgumentException("Snapshot value must not be null: " + dataSource);
+                    }
+                    byte[] bytes = recordWriter.writeValueAsBytes(value);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    count++;
+                }
+                out.writeInt(0);
+                out.writeLong(count);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return (int) count;
+        } catch (IOException e) {
+            deleteQuietly(temp, e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 删除写入失败时留下的临时文件，删除失败的异常附加到原异常上。
+     *
+     * @param temp    临时文件
+     * @param failure 写入失败的异常
+     */
+    private static void deleteQuietly(Path temp, Exception failure) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException deleteFailure) {
+            failure.addSuppressed(deleteFailure);
+        }
+    }
+
+    /**
+     * 以内存映射读取快照文件，校验通过后逐条解析值。
+     *
+     * @param file       快照文件
+     * @param dataSource 期望的数据源标识
+     * @param valueType  值类型
+     * @param consumer   接收每条值
+     * @param <V>        值类型
+     * @return 快照记录的每个发布方的最大事件序号，键为 {@code null} 表示未设置发布方标识
+     * @throws UncheckedIOException  读取失败
+     * @throws IllegalStateException 文件损坏、过大或不属于该数据源
+     */
+    static <V> Map<Long, Long> read(Path file, String dataSource, Class<V> valueType, Consumer<? super V> consumer) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot too large to map: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int limit = buffer.limit();
+        int headerLength = Integer.BYTES + 1 + Integer.BYTES;
+        if (limit < headerLength + Integer.BYTES + FOOTER_LENGTH) {
+            throw new IllegalStateException("Snapshot truncated: " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, limit - Integer.BYTES));
+        if ((int) crc.getValue() != buffer.getInt(limit - Integer.BYTES)) {
+            throw new IllegalStateException("Snapshot checksum mismatch: " + file);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.get(Integer.BYTES) != VERSION) {
+            throw new IllegalStateException("Unsupported snapshot format: " + file);
+        }
+
+        int nameLength = buffer.getInt(Integer.BYTES + 1);
+        int position = headerLength + nameLength;
+        int end = limit - FOOTER_LENGTH;
+        if (nameLength < 0 || position > end - Integer.BYTES) {
+            throw new IllegalStateException("Snapshot header corrupted: " + file);
+        }
+        byte[] name = new byte[nameLength];
+        buffer.get(headerLength, name);
+        if (!dataSource.equals(new String(name, StandardCharsets.UTF_8))) {
+            throw new IllegalStateException("Snapshot belongs to another data source: " + file);
+        }
+
+        int producers = buffer.getInt(position);
+        position += Integer.BYTES;
+        if (producers < 0 || producers > (end - position) / (2 * Long.BYTES)) {
+            throw new IllegalStateException("Snapshot header corrupted: " + file);
+        }
+        Map<Long, Long> sequences = new HashMap<>();
+        for (int i = 0; i < producers; i++) {
+            long producer = buffer.getLong(position);
+            sequences.put(producer == NO_PRODUCER ? null : producer, buffer.getLong(position + Long.BYTES));
+            position += 2 * Long.BYTES;
+        }
+
+        // 逐条复制到可复用的堆数组中解析，避免为每条记录创建输入流
+        byte[] scratch = new byte[1024];
+        long count = 0;
+        while (position < end) {
+            int length = buffer.getInt(position);
+            position += Integer.BYTES;
+            if (length <= 0 || length > end - position) {
+                throw new IllegalStateException("Snapshot record corrupted: " + file);
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(position, scratch, 0, length);
+            consumer.accept(jsonCodec.byte2obj(scratch, 0, length, valueType));
+            position += length;
+            count++;
+        }
+        if (buffer.getInt(end) != 0 || buffer.getLong(end + Integer.BYTES) != count) {
+            throw new IllegalStateException("Snapshot record count mismatch: " + file);
+        }
+        return Collections.unmodifiableMap(sequences);
+    }
+
+    /**
+     * 写入文件通道且关闭时不关闭通道的输出流，以便写完后对通道刷盘。
+     */
+    private static final class UnclosedChannelOutputStream extends OutputStream {
+        /**
+         * 目标文件通道
+         */
+        private final FileChannel channel;
+
+        /**
+         * 创建输出流。
+         *
+         * @param channel 目标文件通道
+         */
+        private UnclosedChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer source = ByteBuffer.wrap(bytes, offset, length);
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+}
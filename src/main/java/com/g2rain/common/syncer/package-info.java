@@ -5,10 +5,18 @@
  *
  * <h2>核心功能</h2>
  * <ul>
- *     <li><b>事件发布与分发：</b>通过 {@link com.g2rain.common.syncer.EventPublisher} 和 {@link com.g2rain.common.syncer.EventPublisherHub} 实现事件的发布和广播。</li>
+ *     <li><b>事件发布与分发：</b>通过 {@link com.g2rain.common.syncer.EventPublisher} 和 {@link com.g2rain.common.syncer.EventPublisherHub} 实现事件的发布和广播，{@link com.g2rain.common.syncer.EventPublisherHubBuilder} 可构建基于有界缓冲与微批发布的异步发布中心。</li>
+ *     <li><b>预写日志：</b>{@link com.g2rain.common.syncer.EventJournal} 以分段内存映射文件与组提交刷盘持久化待发送的事件，发布中心的转发线程按检查点将其转发给各发布者。</li>
  *     <li><b>事件类型定义：</b>使用 {@link com.g2rain.common.syncer.EventType} 定义事件操作类型（CREATE、UPDATE、DELETE）。</li>
  *     <li><b>消息存储管理：</b>通过 {@link com.g2rain.common.syncer.AbstractMessageStorage} 与 {@link com.g2rain.common.syncer.MessageStorageRegistry} 实现不同数据源消息存储的注册与访问。</li>
  *     <li><b>消息分发：</b>{@link com.g2rain.common.syncer.MessageDispatcher} 接口定义消息分发方法，{@link com.g2rain.common.syncer.DefaultMessageDispatcher} 提供默认实现。</li>
+ *     <li><b>并行分发：</b>{@link com.g2rain.common.syncer.PartitionedMessageDispatcher} 按（数据源，键）分区并行应用变更，并保持同一键的顺序。</li>
+ *     <li><b>合并去重：</b>{@link com.g2rain.common.syncer.CoalescingMessageDispatcher} 在时间窗口或数量阈值内按（数据源，键）合并变更，降低存储写放大。</li>
+ *     <li><b>序号跟踪：</b>{@link com.g2rain.common.syncer.SequenceTracker} 按（数据源，键）丢弃乱序或重复的事件，并报告数据源内缺失的事件。</li>
+ *     <li><b>分发监控：</b>{@link com.g2rain.common.syncer.DispatchListener} 报告变更应用耗时与消息丢弃原因，{@link com.g2rain.common.syncer.DispatchMetrics} 按数据源与事件类型统计计数与延迟分布。</li>
+ *     <li><b>死信队列：</b>{@link com.g2rain.common.syncer.DeadLetterQueue} 保存应用失败的消息并按指数退避重试，同一键的后续事件排在死信之后以保持顺序。</li>
+ *     <li><b>内存存储：</b>{@link com.g2rain.common.syncer.InMemoryMessageStorage} 提供无锁读取、原子快照加载与二级索引的本地复制缓存。</li>
+ *     <li><b>存储快照：</b>{@link com.g2rain.common.syncer.StorageSnapshotter} 定期将内存存储写入带校验和的快照文件，启动时从快照恢复并回退到全量加载。</li>
  *     <li><b>事件封装：</b>{@link com.g2rain.common.syncer.EventMessage} 用于封装事件的来源、类型及数据内容。</li>
  * </ul>
  *
@@ -0,0 +1,187 @@
+package com.g2rain.common.json;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("流式JSON规范化测试")
+class JsonCanonicalizerTest {
+
+    private final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    @Test
+    @DisplayName("测试字段排序与数值格式")
+    void testSort() {
+        assertEquals("{\"a\":1E+2,\"b\":1.50,\"c\":0.0,\"d\":[3,{\"x\":null,\"y\":true}],\"g\":0}",
+            sort("{\"g\":-0,\"d\":[3,{'y':true,/*注释*/\"x\":null}],\"c\":-0.0,\"b\":1.50,\"a\":1e2}"));
+        // 重复字段保留最后一个值
+        assertEquals("{\"a\":{\"b\":2}}", sort("{\"a\":1,\"a\":{\"b\":2}}"));
+        assertEquals("\"x\"", sort("\"x\""));
+        assertEquals("", jsonCodec.sort(new byte[0]));
+        assertThrows(JacksonException.class, () -> sort("  "));
+        assertThrows(JacksonException.class, () -> sort("{} {}"));
+        assertThrows(JacksonException.class, () -> sort("{\"a\":"));
+    }
+
+    @Test
+    @DisplayName("测试与对象树排序的输出逐字节一致")
+    void testDifferential() {
+        Random random = new Random(20251005);
+        for (int i = 0; i < 500; i++) {
+            byte[] bytes = randomValue(random, 0).getBytes(StandardCharsets.UTF_8);
+            String expected = treeSort(bytes);
+            assertEquals(expected, jsonCodec.sort(bytes));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            jsonCodec.sort(bytes, out);
+            assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("测试规范形式摘要与排序结果的摘要一致")
+    void testCanonicalDigest() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            byte[] bytes = randomValue(random, 0).getBytes(StandardCharsets.UTF_8);
+            byte[] expected = MessageDigest.getInstance("SHA-256").digest(jsonCodec.sort(bytes).getBytes(StandardCharsets.UTF_8));
+            assertArrayEquals(expected, jsonCodec.canonicalDigest(bytes, digest));
+            assertArrayEquals(expected, jsonCodec.canonicalDigest(new ByteArrayInputStream(bytes), digest));
+        }
+
+        // 摘要中残留的内容不影响结果
+        digest.update((byte) 1);
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(), jsonCodec.canonicalDigest(new byte[0], digest));
+
+        // 较大的文档跨越生成器缓冲区，且输入流读取后不关闭
+        StringBuilder large = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            large.append(i > 0 ? "," : "").append("{\"z\":").append(i).append(",\"a\":\"值").append(i).append("\"}");
+        }
+        byte[] bytes = large.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        InputStream in = new ByteArrayInputStream(bytes) {
+            @Override
+            public void close() {
+                throw new IllegalStateException("closed");
+            }
+        };
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(jsonCodec.sort(bytes).getBytes(StandardCharsets.UTF_8)),
+            jsonCodec.canonicalDigest(in, digest));
+
+        // 没有内容时两种输入均返回空内容的摘要，只有空白字符时均抛出异常
+        byte[] empty = MessageDigest.getInstance("SHA-256").digest();
+        digest.update((byte) 1);
+        assertArrayEquals(empty, jsonCodec.canonicalDigest(new ByteArrayInputStream(new byte[0]), digest));
+        byte[] blank = "  ".getBytes(StandardCharsets.UTF_8);
+        assertThrows(JacksonException.class, () -> jsonCodec.canonicalDigest(blank, digest));
+        assertThrows(JacksonException.class, () -> jsonCodec.canonicalDigest(new ByteArrayInputStream(blank), digest));
+    }
+
+    @Test
+    @DisplayName("测试写入输出流后不关闭输出流")
+    void testSortToStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new IllegalStateException("closed");
+            }
+        };
+        jsonCodec.sort("{\"b\":\"名称\",\"a\":[2,1]}".getBytes(StandardCharsets.UTF_8), out);
+        jsonCodec.sort(new byte[0], out);
+        assertEquals("{\"a\":[2,1],\"b\":\"名称\"}", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private String sort(String json) {
+        return jsonCodec.sort(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 原有的对象树排序实现，作为逐字节比较的参照
+     */
+    private String treeSort(byte[] bytes) {
+        JsonNode json = jsonCodec.jsonMapper.readValue(bytes, JsonNode.class);
+        Deque<JsonNode> stack = new ArrayDeque<>();
+        stack.push(json);
+        while (!stack.isEmpty()) {
+            JsonNode node = stack.pop();
+            if (node.isObject()) {
+                ObjectNode obj = (ObjectNode) node;
+                LinkedHashMap<String, JsonNode> children = LinkedHashMap.newLinkedHashMap(obj.size());
+                obj.properties().forEach(entry -> children.put(entry.getKey(), entry.getValue()));
+                obj.removeAll();
+                children.keySet().stream().sorted().forEach(key -> obj.set(key, children.get(key)));
+            }
+            for (JsonNode child : node) {
+                if (child.isContainer()) {
+                    stack.push(child);
+                }
+            }
+        }
+        return jsonCodec.jsonMapper.writeValueAsString(json);
+    }
+
+    private static String randomValue(Random random, int depth) {
+        int kind = depth > 4 ? 2 + random.nextInt(6) : random.nextInt(8);
+        return switch (kind) {
+            case 0 -> {
+                StringBuilder object = new StringBuilder("{");
+                int size = random.nextInt(6);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        object.append(',');
+                    }
+                    // 键取自较小的集合以产生重复字段
+                    object.append(randomString(random, 3)).append(':').append(randomValue(random, depth + 1));
+                }
+                yield object.append('}').toString();
+            }
+            case 1 -> {
+                StringBuilder array = new StringBuilder("[");
+                int size = random.nextInt(5);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        array.append(" , ");
+                    }
+                    array.append(randomValue(random, depth + 1));
+                }
+                yield array.append(']').toString();
+            }
+            case 2 -> randomString(random, 12);
+            case 3 -> String.valueOf(random.nextInt() >> random.nextInt(32));
+            case 4 -> random.nextBoolean() ? String.valueOf(random.nextLong()) : "-123456789012345678901234567890";
+            case 5 -> new String[]{"1.50", "-0.0", "1e2", "2.5E-3", "0.000", "1.0e+20", "3.14159265358979323846", "-7E400"}[random.nextInt(8)];
+            case 6 -> random.nextBoolean() ? "true" : "false";
+            default -> "null";
+        };
+    }
+
+    private static String randomString(Random random, int alphabet) {
+        String[] parts = {"a", "b", "Z", "名", "\\n", "\\\"", "\\u00e9", "😀", "\\t", " ", "_", "0"};
+        StringBuilder text = new StringBuilder("\"");
+        int length = random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            text.append(parts[random.nextInt(Math.min(alphabet, parts.length))]);
+        }
+        if (alphabet > 3 && random.nextInt(4) == 0) {
+            text.append(parts[random.nextInt(parts.length)]);
+        }
+        return text.append('"').toString();
+    }
+}
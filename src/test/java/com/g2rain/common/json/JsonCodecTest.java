@@ -3,13 +3,23 @@ package com.g2rain.common.json;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.exc.MismatchedInputException;
 import tools.jackson.databind.json.JsonMapper;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("JSON编解码器测试")
@@ -124,6 +134,11 @@ class JsonCodecTest {
         // 查找空路径
         tools.jackson.databind.JsonNode sameNode = jsonCodec.lookupNode(node, null);
         assertEquals(node, sameNode);
+
+        // 数组下标与预编译路径
+        tools.jackson.databind.JsonNode array = jsonCodec.byte2node("{\"items\":[{\"id\":1},{\"id\":2}]}".getBytes());
+        assertEquals(2, jsonCodec.lookupNode(array, "items.1.id").asInt());
+        assertEquals(1, JsonPointerPath.pointer("/items/0/id").evaluate(array).asInt());
     }
 
     @Test
@@ -154,6 +169,75 @@ class JsonCodecTest {
         assertEquals(0L, jsonCodec.asLong(null));
     }
 
+    @Test
+    @DisplayName("测试流式解析器中就地读取值")
+    void testReadValueFromParser() {
+        try (JsonParser parser = jsonCodec.createParser("{\"data\":{\"name\":\"test\",\"value\":1},\"tail\":true}")) {
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertEquals(JsonToken.PROPERTY_NAME, parser.nextToken());
+            parser.nextToken();
+
+            // 读取嵌套值时不校验剩余 Token，读取后可继续读取后续 Token
+            TestData data = jsonCodec.readValue(parser, TestData.class);
+            assertEquals("test", data.getName());
+            assertEquals("tail", parser.nextName());
+        }
+    }
+
+    @Test
+    @DisplayName("测试不校验剩余 Token 的读取器")
+    void testValueReader() {
+        ObjectReader reader = jsonCodec.reader(false, TestData.class);
+        assertSame(reader, jsonCodec.reader(false, TestData.class));
+        assertNotSame(reader, jsonCodec.reader(TestData.class));
+        assertSame(jsonCodec.reader(TestData.class), jsonCodec.reader(true, TestData.class));
+        for (int i = 0; i < 3; i++) {
+            try (JsonParser parser = jsonCodec.createParser("{\"name\":\"n" + i + "\",\"value\":" + i + "} {}")) {
+                TestData data = reader.readValue(parser);
+                assertEquals("n" + i, data.getName());
+                assertEquals(i, data.getValue());
+                // 不校验值之后的剩余 Token
+                assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            }
+        }
+
+        // 读取完整文档时校验剩余 Token
+        String trailing = "{\"name\":\"a\",\"value\":1} {}";
+        assertEquals("a", reader.<TestData>readValue(trailing).getName());
+        assertThrows(MismatchedInputException.class, () -> jsonCodec.reader(TestData.class).readValue(trailing));
+        assertThrows(MismatchedInputException.class, () -> jsonCodec.str2obj(trailing, TestData.class));
+    }
+
+    @Test
+    @DisplayName("测试类型化读取器与写入器缓存")
+    void testReaderAndWriter() {
+        ObjectReader listReader = jsonCodec.reader(List.class, TestData.class);
+        assertSame(listReader, jsonCodec.reader(List.class, TestData.class));
+        assertNotSame(listReader, jsonCodec.reader(List.class, String.class));
+        assertSame(jsonCodec.reader(TestData.class), jsonCodec.reader(TestData.class));
+
+        List<TestData> list = listReader.readValue("[{\"name\":\"a\",\"value\":1}]");
+        assertEquals("a", list.getFirst().getName());
+        // 不带类型参数时按原始类解析
+        List<?> raw = jsonCodec.reader(List.class).readValue("[1,2]");
+        assertEquals(2, raw.size());
+
+        ObjectWriter writer = jsonCodec.writer(TestData.class);
+        assertSame(writer, jsonCodec.writer(TestData.class));
+        TestData data = jsonCodec.str2obj(writer.writeValueAsString(list.getFirst()), TestData.class);
+        assertEquals(1, data.getValue());
+    }
+
+    @Test
+    @DisplayName("测试字节数组区间反序列化")
+    void testByte2objRange() {
+        byte[] bytes = "xx{\"name\":\"test\",\"value\":123}yy".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        TestData data = jsonCodec.byte2obj(bytes, 2, bytes.length - 4, TestData.class);
+        assertEquals("test", data.getName());
+        assertEquals(123, data.getValue());
+        assertNull(jsonCodec.byte2obj(bytes, 0, 0, TestData.class));
+    }
+
     // 测试用的内部类
     public static class TestData {
         private String name;
@@ -0,0 +1,152 @@
+package com.g2rain.common.json;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("流式多路径提取测试")
+class JsonFieldExtractorTest {
+
+    private static final String[] SEGMENTS = {"a", "b", "c", "0", "1", "2"};
+
+    private final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    @Test
+    @DisplayName("测试提取标量、容器与不存在的路径")
+    void testExtract() {
+        JsonPointerPath tenant = JsonPointerPath.dotted("meta.tenant");
+        JsonPointerPath amount = JsonPointerPath.dotted("order.amount");
+        JsonPointerPath sku = JsonPointerPath.dotted("order.items.1.sku");
+        JsonPointerPath items = JsonPointerPath.dotted("order.items");
+        JsonPointerPath note = JsonPointerPath.dotted("order.note");
+        JsonPointerPath missing = JsonPointerPath.dotted("order.items.5.sku");
+        byte[] bytes = """
+            {"payload":{"large":[1,2,{"x":[3]}]},"meta":{"tenant":"t1"},
+             "order":{"amount":12.50,"note":null,"items":[{"sku":"A1"},{"sku":"B2"}]}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+        ExtractedFields fields = jsonCodec.extract(bytes, new LinkedHashSet<>(List.of(tenant, amount, sku, items, note, missing)));
+        assertEquals("t1", jsonCodec.asString(fields.get(tenant)));
+        assertEquals(new BigDecimal("12.50"), fields.get(amount).decimalValue());
+        assertEquals("B2", fields.get(sku).asString());
+        assertEquals(2, fields.get(items).size());
+        assertTrue(fields.get(note).isNull());
+        assertTrue(fields.contains(note));
+        assertFalse(fields.contains(missing));
+        assertNull(fields.get(JsonPointerPath.dotted("not.requested")));
+        assertEquals(5, fields.size());
+
+        assertEquals(jsonCodec.byte2node(bytes), jsonCodec.extract(bytes, Set.of(JsonPointerPath.ROOT)).get(JsonPointerPath.ROOT));
+        assertEquals(0, jsonCodec.extract(null, Set.of(tenant)).size());
+        assertEquals(0, jsonCodec.extract(bytes, Set.of()).size());
+    }
+
+    @Test
+    @DisplayName("测试全部路径确定后停止读取")
+    void testStopEarly() {
+        JsonPointerPath id = JsonPointerPath.dotted("id");
+        JsonPointerPath first = JsonPointerPath.dotted("list.0");
+        JsonPointerPath absent = JsonPointerPath.dotted("meta.absent");
+
+        // 找到全部路径后不再读取后续的非法内容
+        ExtractedFields fields = jsonCodec.extract("{\"id\":7,\"list\":[1,{\"x\":".getBytes(StandardCharsets.UTF_8),
+            Set.of(id, first));
+        assertEquals(7, fields.get(id).asInt());
+        assertEquals(1, fields.get(first).asInt());
+
+        // 父节点读完后即确定路径不存在
+        fields = jsonCodec.extract("{\"meta\":{\"other\":1},\"id\":7,\"tail\":[".getBytes(StandardCharsets.UTF_8),
+            Set.of(id, absent));
+        assertEquals(7, fields.get(id).asInt());
+        assertFalse(fields.contains(absent));
+
+        // 仍有路径未确定时读取到非法内容会失败
+        assertThrows(StreamReadException.class, () -> jsonCodec.extract(
+            "{\"list\":[1,{\"x\":".getBytes(StandardCharsets.UTF_8), Set.of(id)));
+    }
+
+    @Test
+    @DisplayName("测试重复字段取第一个出现的值")
+    void testDuplicateField() {
+        JsonPointerPath name = JsonPointerPath.dotted("a.name");
+        ExtractedFields fields = jsonCodec.extract("{\"a\":{\"name\":\"first\"},\"a\":{\"name\":\"second\"}}"
+            .getBytes(StandardCharsets.UTF_8), Set.of(name));
+        assertEquals("first", fields.get(name).asString());
+    }
+
+    @Test
+    @DisplayName("测试与对象树按路径查找的结果一致")
+    void testDifferential() {
+        Random random = new Random(20251005);
+        for (int round = 0; round < 500; round++) {
+            byte[] bytes = randomValue(random, 0).getBytes(StandardCharsets.UTF_8);
+            JsonNode tree = jsonCodec.byte2node(bytes);
+
+            Set<JsonPointerPath> paths = new LinkedHashSet<>();
+            for (int i = 1 + random.nextInt(5); i > 0; i--) {
+                paths.add(randomPath(random));
+            }
+            ExtractedFields fields = jsonCodec.extract(bytes, paths);
+            for (JsonPointerPath path : paths) {
+                assertEquals(path.evaluate(tree), fields.get(path), () -> path + " in " + new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static JsonPointerPath randomPath(Random random) {
+        List<String> segments = new ArrayList<>();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            segments.add(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        return segments.isEmpty() ? JsonPointerPath.ROOT : JsonPointerPath.dotted(String.join(".", segments));
+    }
+
+    private static String randomValue(Random random, int depth) {
+        int kind = depth > 3 ? 2 + random.nextInt(4) : random.nextInt(6);
+        return switch (kind) {
+            case 0, 1 -> {
+                // 对象字段不重复，键取自较小的集合以便路径命中
+                List<String> keys = new ArrayList<>(List.of(SEGMENTS));
+                java.util.Collections.shuffle(keys, random);
+                StringBuilder object = new StringBuilder("{");
+                int size = random.nextInt(5);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        object.append(',');
+                    }
+                    object.append('"').append(keys.get(i)).append("\":").append(randomValue(random, depth + 1));
+                }
+                yield object.append('}').toString();
+            }
+            case 2 -> {
+                StringBuilder array = new StringBuilder("[");
+                int size = random.nextInt(4);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        array.append(',');
+                    }
+                    array.append(randomValue(random, depth + 1));
+                }
+                yield array.append(']').toString();
+            }
+            case 3 -> "\"s" + random.nextInt(100) + "\"";
+            case 4 -> random.nextBoolean() ? String.valueOf(random.nextLong()) : "1.50";
+            default -> random.nextBoolean() ? "null" : "true";
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.g2rain.common.json;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("预编译 JSON 路径测试")
+class JsonPointerPathTest {
+
+    private final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    @Test
+    @DisplayName("测试编译属性路径与 JSON Pointer")
+    void testCompile() {
+        JsonPointerPath dotted = JsonPointerPath.dotted("order.items.0.sku");
+        assertEquals(4, dotted.size());
+        assertEquals("items", dotted.name(1));
+        assertEquals(-1, dotted.index(1));
+        assertEquals(0, dotted.index(2));
+        assertEquals(dotted, JsonPointerPath.pointer("/order/items/0/sku"));
+        assertEquals(dotted.hashCode(), JsonPointerPath.pointer("/order/items/0/sku").hashCode());
+        assertEquals("/order/items/0/sku", dotted.toString());
+
+        // 与 split("\\.") 一致：保留中间空段，去掉末尾空段
+        assertEquals(JsonPointerPath.pointer("/a//b"), JsonPointerPath.dotted("a..b.."));
+        assertSame(JsonPointerPath.ROOT, JsonPointerPath.dotted(" "));
+        assertSame(JsonPointerPath.ROOT, JsonPointerPath.pointer(""));
+
+        // 转义与非下标路径段
+        JsonPointerPath escaped = JsonPointerPath.pointer("/a~1b/m~0n/01/-");
+        assertEquals("a/b", escaped.name(0));
+        assertEquals("m~n", escaped.name(1));
+        assertEquals(-1, escaped.index(2));
+        assertEquals(-1, escaped.index(3));
+        assertEquals("/a~1b/m~0n/01/-", escaped.toString());
+        assertEquals(-1, JsonPointerPath.dotted("4294967296").index(0));
+        assertNotEquals(JsonPointerPath.dotted("a.b"), JsonPointerPath.dotted("a"));
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPointerPath.pointer("a/b"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPointerPath.pointer("/a~2"));
+        assertThrows(IllegalArgumentException.class, () -> JsonPointerPath.pointer("/a~"));
+    }
+
+    @Test
+    @DisplayName("测试按路径查找节点")
+    void testEvaluate() {
+        JsonNode root = jsonCodec.byte2node("""
+            {"order":{"items":[{"sku":"A1"},{"sku":"B2"}],"0":"zero","note":null,"a/b":1}}
+            """.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("B2", JsonPointerPath.dotted("order.items.1.sku").evaluate(root).asString());
+        // 数字路径段在对象上按属性名查找
+        assertEquals("zero", JsonPointerPath.dotted("order.0").evaluate(root).asString());
+        assertEquals(1, JsonPointerPath.pointer("/order/a~1b").evaluate(root).asInt());
+        assertTrue(JsonPointerPath.dotted("order.note").evaluate(root).isNull());
+        assertSame(root, JsonPointerPath.ROOT.evaluate(root));
+
+        assertNull(JsonPointerPath.dotted("order.items.2").evaluate(root));
+        assertNull(JsonPointerPath.dotted("order.items.sku").evaluate(root));
+        assertNull(JsonPointerPath.dotted("order.note.x").evaluate(root));
+        assertNull(JsonPointerPath.dotted("order.items.0.sku.x").evaluate(root));
+        assertNull(JsonPointerPath.dotted("a").evaluate(null));
+    }
+}
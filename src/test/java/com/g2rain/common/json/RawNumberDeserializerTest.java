@@ -85,6 +85,17 @@ class RawNumberDeserializerTest {
         assertEquals(new BigDecimal("123.45"), ((RawNumberNode) result).getNumericValue());
     }
 
+    @Test
+    @DisplayName("测试反序列化整数时直接解析数值")
+    void testDeserializeIntegral() {
+        when(jsonParser.currentToken()).thenReturn(JsonToken.VALUE_NUMBER_INT);
+        when(jsonParser.getValueAsString()).thenReturn("-9007199254740993");
+
+        JsonNode result = deserializer.deserialize(jsonParser, context);
+        assertEquals(-9007199254740993L, result.longValue());
+        assertEquals("-9007199254740993", result.asString());
+    }
+
     @Test
     @DisplayName("测试反序列化字符串")
     void testDeserializeString() {
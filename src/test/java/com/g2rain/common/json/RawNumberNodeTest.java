@@ -2,10 +2,14 @@ package com.g2rain.common.json;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import tools.jackson.databind.exc.JsonNodeException;
+
+import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisplayName("原始数字节点测试")
 class RawNumberNodeTest {
@@ -19,6 +23,41 @@ class RawNumberNodeTest {
         assertEquals(new java.math.BigDecimal("123.45"), node.getNumericValue());
     }
 
+    @Test
+    @DisplayName("测试解析器创建的节点延迟构造数值")
+    void testLazyNumericValue() {
+        // 构造时不解析文本，首次访问数值时才构造 BigDecimal
+        RawNumberNode node = new RawNumberNode("12x", false);
+        assertEquals("12x", node.asString());
+        assertThrows(NumberFormatException.class, node::getNumericValue);
+
+        RawNumberNode lazy = new RawNumberNode("1.50", false);
+        assertEquals(new BigDecimal("1.50"), lazy.getNumericValue());
+        assertEquals(lazy.getNumericValue(), lazy.getNumericValue());
+        assertEquals(new RawNumberNode("1.50"), lazy);
+
+        assertThrows(NumberFormatException.class, () -> new RawNumberNode("abc"));
+    }
+
+    @Test
+    @DisplayName("测试intValue和longValue方法")
+    void testIntAndLongValue() {
+        assertEquals(42, new RawNumberNode("42", true).intValue());
+        assertEquals(-123456789012345678L, new RawNumberNode("-123456789012345678", true).longValue());
+        assertEquals(Integer.MIN_VALUE, new RawNumberNode("-2147483648").intValue());
+        assertEquals(Long.MAX_VALUE, new RawNumberNode("9223372036854775807").longValue());
+
+        // 非整数文本按数值判断是否含小数部分
+        assertEquals(12, new RawNumberNode("12.00").intValue());
+        assertEquals(1200L, new RawNumberNode("1.2e3", false).longValue());
+        assertEquals(0, new RawNumberNode("-0.0").intValue());
+
+        assertThrows(JsonNodeException.class, () -> new RawNumberNode("12.5").intValue());
+        assertThrows(JsonNodeException.class, () -> new RawNumberNode("12.5").longValue());
+        assertThrows(JsonNodeException.class, () -> new RawNumberNode("2147483648").intValue());
+        assertThrows(JsonNodeException.class, () -> new RawNumberNode("9223372036854775808", true).longValue());
+    }
+
     @Test
     @DisplayName("测试asToken方法")
     void testAsToken() {
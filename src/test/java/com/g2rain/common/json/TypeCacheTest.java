@@ -0,0 +1,53 @@
+package com.g2rain.common.json;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("类型缓存测试")
+class TypeCacheTest {
+
+    @Test
+    @DisplayName("测试命中时不重复加载")
+    void testHit() {
+        AtomicInteger loads = new AtomicInteger();
+        TypeCache<String, String> cache = new TypeCache<>(4);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("A", cache.get("a", key -> {
+                loads.incrementAndGet();
+                return key.toUpperCase();
+            }));
+        }
+        assertEquals(1, loads.get());
+        assertThrows(IllegalArgumentException.class, () -> new TypeCache<>(0));
+    }
+
+    @Test
+    @DisplayName("测试超出容量时淘汰最久未使用的条目")
+    void testEviction() {
+        List<String> loaded = new ArrayList<>();
+        TypeCache<String, String> cache = new TypeCache<>(2);
+        cache.get("a", key -> load(loaded, key));
+        cache.get("b", key -> load(loaded, key));
+        // 访问 a 后插入 c，淘汰 b
+        cache.get("a", key -> load(loaded, key));
+        cache.get("c", key -> load(loaded, key));
+        assertEquals(2, cache.size());
+
+        cache.get("a", key -> load(loaded, key));
+        cache.get("b", key -> load(loaded, key));
+        assertEquals(List.of("a", "b", "c", "b"), loaded);
+        assertEquals(2, cache.size());
+    }
+
+    private static String load(List<String> loaded, String key) {
+        loaded.add(key);
+        return key;
+    }
+}
@@ -4,7 +4,12 @@ import lombok.NonNull;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -30,8 +35,38 @@ class AbstractMessageStorageTest {
         assertDoesNotThrow(storage::load);
     }
 
+    @Test
+    @DisplayName("测试应用单条变更")
+    void testApply() {
+        TestMessageStorage storage = new TestMessageStorage();
+        storage.apply(new Change<>(EventType.CREATE, "k1", "v1"));
+        storage.apply(new Change<>(EventType.UPDATE, "k1", "v2"));
+        storage.apply(new Change<>(EventType.DELETE, "k1", null));
+
+        assertEquals(List.of("CREATE:k1", "UPDATE:k1", "DELETE:k1"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试默认批量应用在失败后继续并抛出首个异常")
+    void testApplyBatch() {
+        TestMessageStorage storage = new TestMessageStorage();
+        List<Change<String, String>> changes = List.of(
+            new Change<>(EventType.CREATE, "fail1", "v"),
+            new Change<>(EventType.CREATE, "k1", "v"),
+            new Change<>(EventType.UPDATE, "fail2", "v"),
+            new Change<>(EventType.DELETE, "k2", null)
+        );
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> storage.applyBatch(changes));
+        assertEquals("fail1", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals(List.of("CREATE:k1", "DELETE:k2"), storage.operations);
+    }
+
     // 测试用的具体实现类
     static class TestMessageStorage extends AbstractMessageStorage<String, String, String> {
+        final List<String> operations = new ArrayList<>();
+
         @Override
         protected @NonNull String dataSource() {
             return "testDataSource";
@@ -49,22 +84,29 @@ class AbstractMessageStorageTest {
 
         @Override
         protected void create(@NonNull String key, String value) {
-            // 空实现
+            record("CREATE", key);
         }
 
         @Override
         protected void delete(@NonNull String key) {
-            // 空实现
+            record("DELETE", key);
         }
 
         @Override
         protected void update(@NonNull String key, String value) {
-            // 空实现
+            record("UPDATE", key);
         }
 
         @Override
         protected String get(@NonNull String key) {
             return "value";
         }
+
+        private void record(String operation, String key) {
+            if (key.startsWith("fail")) {
+                throw new IllegalStateException(key);
+            }
+            operations.add(operation + ":" + key);
+        }
     }
 }
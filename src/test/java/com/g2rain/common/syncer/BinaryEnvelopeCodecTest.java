@@ -0,0 +1,144 @@
+package com.g2rain.common.syncer;
+
+import com.g2rain.common.json.JsonCodecFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("二进制事件信封编码器测试")
+class BinaryEnvelopeCodecTest {
+
+    @Test
+    @DisplayName("测试编码与解码往返")
+    void testRoundTrip() {
+        BinaryEnvelopeCodec codec = new BinaryEnvelopeCodec();
+        DefaultMessageDispatcherTest.Item item = new DefaultMessageDispatcherTest.Item("1", "name");
+        ByteBuffer encoded = codec.encode(new EventMessage<>("binaryDataSource", EventType.UPDATE, item));
+
+        assertTrue(BinaryEnvelopeCodec.isBinary(encoded));
+        assertEquals(0, encoded.position());
+        EventMessageHeader header = codec.decodeHeader(encoded);
+        assertEquals(new EventMessageHeader("binaryDataSource", EventType.UPDATE), header);
+        assertEquals(item, codec.decodeBody(encoded, DefaultMessageDispatcherTest.Item.class));
+    }
+
+    @Test
+    @DisplayName("测试信封头中的事件序号")
+    void testSequence() {
+        BinaryEnvelopeCodec codec = new BinaryEnvelopeCodec(null, Map.of("binarySequenceDataSource", 3));
+        EventMessage<String> message = new EventMessage<>("binarySequenceDataSource", EventType.DELETE, "\"k\"");
+        message.setSequence(42L);
+
+        ByteBuffer encoded = codec.encode(message);
+        assertEquals(new EventMessageHeader("binarySequenceDataSource", EventType.DELETE, 42L), codec.decodeHeader(encoded));
+        assertEquals("k", codec.decodeBody(encoded, String.class));
+
+        // 发布方标识位于序号之后
+        message.setProducer(-7L);
+        encoded = codec.encode(message);
+        assertEquals(new EventMessageHeader("binarySequenceDataSource", EventType.DELETE, 42L, -7L), codec.decodeHeader(encoded));
+        assertEquals("k", codec.decodeBody(encoded, String.class));
+    }
+
+    @Test
+    @DisplayName("测试数据源字典与字符串数据")
+    void testDataSourceDictionary() {
+        BinaryEnvelopeCodec codec = new BinaryEnvelopeCodec(null, Map.of("binaryDictionaryDataSource", 7));
+        ByteBuffer encoded = codec.encode(new EventMessage<>("binaryDictionaryDataSource", EventType.CREATE,
+            "{\"id\":\"1\",\"name\":\"n\"}"));
+        ByteBuffer plain = new BinaryEnvelopeCodec().encode(new EventMessage<>("binaryDictionaryDataSource", EventType.CREATE,
+            "{\"id\":\"1\",\"name\":\"n\"}"));
+        assertTrue(encoded.remaining() < plain.remaining());
+
+        // 字符串形式的数据直接作为消息体，不再转义
+        String json = JsonCodecFactory.instance().obj2str(new EventMessage<>("binaryDictionaryDataSource", EventType.CREATE,
+            "{\"id\":\"1\",\"name\":\"n\"}"));
+        assertTrue(plain.remaining() < json.length());
+
+        EventMessageHeader header = codec.decodeHeader(encoded.duplicate());
+        assertEquals("binaryDictionaryDataSource", header.dataSource());
+        // 不认识的编号解码为空数据源
+        assertNull(new BinaryEnvelopeCodec().decodeHeader(encoded.duplicate()).dataSource());
+        assertThrows(IllegalArgumentException.class, () -> new BinaryEnvelopeCodec(null, Map.of("a", 1, "b", 1)));
+    }
+
+    @Test
+    @DisplayName("测试格式识别与无效信封")
+    void testDetection() {
+        assertFalse(BinaryEnvelopeCodec.isBinary(ByteBuffer.wrap("{}".getBytes())));
+        assertFalse(BinaryEnvelopeCodec.isBinary(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class,
+            () -> new BinaryEnvelopeCodec().decodeHeader(ByteBuffer.wrap(new byte[]{BinaryEnvelopeCodec.MAGIC, 9, 0, 2, 0, 0})));
+
+        ByteBuffer encoded = new BinaryEnvelopeCodec().encode(new EventMessage<>("x", EventType.DELETE, null));
+        encoded.position(encoded.limit());
+        assertNull(new BinaryEnvelopeCodec().decodeBody(encoded, String.class));
+    }
+
+    @Test
+    @DisplayName("测试分发器自动识别两种信封格式")
+    void testDispatchMixedFormats() {
+        DefaultMessageDispatcherTest.ItemMessageStorage storage =
+            new DefaultMessageDispatcherTest.ItemMessageStorage("binaryDispatchDataSource");
+        BinaryEnvelopeCodec codec = new BinaryEnvelopeCodec(null, Map.of("binaryDispatchDataSource", 3));
+        DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher().withEnvelopeCodec(codec);
+
+        ByteBuffer binary = codec.encode(new EventMessage<>("binaryDispatchDataSource", EventType.CREATE,
+            new DefaultMessageDispatcherTest.Item("1", "a")));
+        dispatcher.dispatchBuffer(binary);
+        assertEquals(0, binary.position());
+
+        byte[] json = JsonCodecFactory.instance().obj2byte(new EventMessage<>("binaryDispatchDataSource", EventType.UPDATE,
+            new DefaultMessageDispatcherTest.Item("1", "b")));
+        dispatcher.dispatchBytes(json);
+
+        ByteBuffer direct = codec.encode(new EventMessage<>("binaryDispatchDataSource", EventType.DELETE,
+            new DefaultMessageDispatcherTest.Item("1", "c")));
+        ByteBuffer directCopy = ByteBuffer.allocateDirect(direct.remaining()).put(direct).flip();
+        dispatcher.dispatchBuffer(directCopy);
+
+        assertEquals(List.of("CREATE:1:a", "UPDATE:1:b", "DELETE:1"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试发布中心以二进制信封预序列化")
+    void testHubBinaryEnvelope() {
+        DefaultMessageDispatcherTest.ItemMessageStorage storage =
+            new DefaultMessageDispatcherTest.ItemMessageStorage("binaryHubDataSource");
+        DefaultMessageDispatcher dispatcher = new DefaultMessageDispatcher();
+        EventPublisher publisher = new EventPublisher() {
+            @Override
+            public <V> void publish(EventMessage<V> eventMessage) {
+                throw new IllegalStateException("expected serialized publish");
+            }
+
+            @Override
+            public boolean supportsSerialized() {
+                return true;
+            }
+
+            @Override
+            public void publishSerialized(ByteBuffer payload, EventMessageHeader header) {
+                dispatcher.dispatchBuffer(payload);
+            }
+        };
+
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(publisher))
+            .withEnvelopeCodec(new BinaryEnvelopeCodec())
+            .build();
+        hub.sendCreate("binaryHubDataSource", new DefaultMessageDispatcherTest.Item("2", "x"));
+
+        assertEquals(List.of("CREATE:2:x"), storage.operations);
+    }
+}
@@ -0,0 +1,184 @@
+package com.g2rain.common.syncer;
+
+import com.g2rain.common.json.JsonCodec;
+import com.g2rain.common.json.JsonCodecFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("合并去重消息分发器测试")
+class CoalescingMessageDispatcherTest {
+
+    private final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    @Test
+    @DisplayName("测试合并规则")
+    void testMerge() {
+        Change<String, String> create = new Change<>(EventType.CREATE, "1", "a");
+        Change<String, String> update = new Change<>(EventType.UPDATE, "1", "b");
+        Change<String, String> delete = new Change<>(EventType.DELETE, "1", null);
+
+        assertEquals(List.of(new Change<>(EventType.CREATE, "1", "b")), CoalescingMessageDispatcher.merge(List.of(create, update)));
+        assertEquals(List.of(delete), CoalescingMessageDispatcher.merge(List.of(create, delete)));
+        assertEquals(List.of(delete), CoalescingMessageDispatcher.merge(List.of(update, delete)));
+        assertEquals(List.of(update), CoalescingMessageDispatcher.merge(List.of(update, update)));
+
+        // DELETE 之后的 CREATE 是替换：窗口以 CREATE 开始时保留 CREATE，否则先删除再创建
+        assertEquals(List.of(create), CoalescingMessageDispatcher.merge(List.of(create, delete, create)));
+        assertEquals(List.of(delete, create), CoalescingMessageDispatcher.merge(List.of(delete, create)));
+        assertEquals(List.of(delete, create), CoalescingMessageDispatcher.merge(List.of(update, delete, create)));
+        assertEquals(List.of(delete, new Change<>(EventType.CREATE, "1", "b")),
+            CoalescingMessageDispatcher.merge(List.of(delete, create, update)));
+        assertEquals(List.of(delete), CoalescingMessageDispatcher.merge(List.of(update, delete, create, delete)));
+    }
+
+    @Test
+    @DisplayName("测试删除后重新创建按替换交给下游")
+    void testReplace() {
+        PartitionedMessageDispatcherTest.KeyedMessageStorage storage =
+            new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingReplaceDataSource");
+
+        try (CoalescingMessageDispatcher dispatcher =
+                 CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 1000, Duration.ofHours(1))) {
+            dispatcher.dispatch(message("coalescingReplaceDataSource", EventType.UPDATE, "1:0"));
+            dispatcher.flush();
+            assertEquals(List.of(0), storage.versions.get("1"));
+
+            dispatcher.dispatch(message("coalescingReplaceDataSource", EventType.UPDATE, "1:1"));
+            dispatcher.dispatch(message("coalescingReplaceDataSource", EventType.DELETE, "1:1"));
+            dispatcher.dispatch(message("coalescingReplaceDataSource", EventType.CREATE, "1:2"));
+            assertEquals(1, dispatcher.pendingSize());
+        }
+
+        // 先删除旧值，再创建新值
+        assertEquals(List.of(2), storage.versions.get("1"));
+    }
+
+    @Test
+    @DisplayName("测试下游拒绝时逐条报告失败")
+    void testDownstreamFailure() {
+        new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingFailureDataSource");
+        List<DispatchFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        PartitionedMessageDispatcher downstream = new PartitionedMessageDispatcher(1, 16);
+        downstream.close();
+
+        try (CoalescingMessageDispatcher dispatcher =
+                 CoalescingMessageDispatcher.of(downstream, 1000, Duration.ofHours(1))) {
+            dispatcher.withDispatchListener(new DispatchListener() {
+                @Override
+                public void onFailure(String dataSource, EventType eventType, DispatchFailure failure, Throwable cause) {
+                    failures.add(failure);
+                }
+            });
+            dispatcher.dispatch(message("coalescingFailureDataSource", EventType.CREATE, "1:0"));
+            dispatcher.dispatch(message("coalescingFailureDataSource", EventType.CREATE, "2:0"));
+            dispatcher.flush();
+            assertEquals(0, dispatcher.pendingSize());
+        }
+
+        assertEquals(List.of(DispatchFailure.DOWNSTREAM_ERROR, DispatchFailure.DOWNSTREAM_ERROR), failures);
+    }
+
+    @Test
+    @DisplayName("测试同一键的变更合并后只写入一次")
+    void testCoalesce() {
+        PartitionedMessageDispatcherTest.KeyedMessageStorage storage =
+            new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingDataSource");
+
+        try (CoalescingMessageDispatcher dispatcher =
+                 CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 1000, Duration.ofHours(1))) {
+            for (int version = 0; version < 50; version++) {
+                for (int key = 0; key < 3; key++) {
+                    dispatcher.dispatch(message("coalescingDataSource", EventType.UPDATE, key + ":" + version));
+                }
+            }
+            assertEquals(3, dispatcher.pendingSize());
+            assertTrue(storage.versions.isEmpty());
+
+            dispatcher.flush();
+            assertEquals(0, dispatcher.pendingSize());
+        }
+
+        assertEquals(3, storage.versions.size());
+        storage.versions.forEach((key, versions) -> assertEquals(List.of(49), versions));
+        assertEquals(List.of(3), storage.batchCalls);
+    }
+
+    @Test
+    @DisplayName("测试达到阈值时立即刷新")
+    void testFlushOnSize() {
+        PartitionedMessageDispatcherTest.KeyedMessageStorage storage =
+            new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingSizeDataSource");
+
+        try (CoalescingMessageDispatcher dispatcher =
+                 CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 2, Duration.ofHours(1))) {
+            List<String> batch = new ArrayList<>();
+            batch.add(message("coalescingSizeDataSource", EventType.CREATE, "1:0"));
+            batch.add(message("coalescingSizeDataSource", EventType.UPDATE, "1:1"));
+            dispatcher.dispatchBatch(batch);
+            assertEquals(1, dispatcher.pendingSize());
+
+            dispatcher.dispatch(message("coalescingSizeDataSource", EventType.CREATE, "2:0"));
+            assertEquals(0, dispatcher.pendingSize());
+            assertEquals(List.of(1), storage.versions.get("1"));
+            assertEquals(List.of(0), storage.versions.get("2"));
+
+            dispatcher.dispatch(message("coalescingSizeDataSource", EventType.CREATE, "3:0"));
+        }
+
+        // 关闭时刷新剩余变更
+        assertEquals(List.of(0), storage.versions.get("3"));
+    }
+
+    @Test
+    @DisplayName("测试关闭后拒绝新的变更")
+    void testClosed() {
+        PartitionedMessageDispatcherTest.KeyedMessageStorage storage =
+            new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingClosedDataSource");
+        CoalescingMessageDispatcher dispatcher =
+            CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 1000, Duration.ofHours(1));
+        dispatcher.dispatch(message("coalescingClosedDataSource", EventType.CREATE, "1:0"));
+        dispatcher.close();
+
+        assertThrows(IllegalStateException.class,
+            () -> dispatcher.dispatch(message("coalescingClosedDataSource", EventType.UPDATE, "1:1")));
+        assertThrows(IllegalStateException.class,
+            () -> dispatcher.dispatchBatch(List.of(message("coalescingClosedDataSource", EventType.CREATE, "2:0"))));
+        assertEquals(0, dispatcher.pendingSize());
+        assertEquals(Map.of("1", List.of(0)), storage.versions);
+    }
+
+    @Test
+    @DisplayName("测试定时窗口到期后刷新")
+    void testFlushOnWindow() throws InterruptedException {
+        PartitionedMessageDispatcherTest.KeyedMessageStorage storage =
+            new PartitionedMessageDispatcherTest.KeyedMessageStorage("coalescingWindowDataSource");
+
+        try (CoalescingMessageDispatcher dispatcher =
+                 CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 1000, Duration.ofMillis(20))) {
+            dispatcher.dispatch(message("coalescingWindowDataSource", EventType.CREATE, "1:0"));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.versions.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+        assertEquals(List.of(0), storage.versions.get("1"));
+        assertThrows(IllegalArgumentException.class,
+            () -> CoalescingMessageDispatcher.of(new DefaultMessageDispatcher(), 0, Duration.ofMillis(1)));
+    }
+
+    private String message(String dataSource, EventType eventType, String data) {
+        return jsonCodec.obj2str(new EventMessage<>(dataSource, eventType, "\"" + data + "\""));
+    }
+}
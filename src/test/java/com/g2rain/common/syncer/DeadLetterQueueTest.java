@@ -0,0 +1,303 @@
+package com.g2rain.common.syncer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("死信队列测试")
+class DeadLetterQueueTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private static final long LATER = System.currentTimeMillis() + Duration.ofDays(1).toMillis();
+
+    @Test
+    @DisplayName("测试参数校验")
+    void testArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DeadLetterQueue(0, 1, HOUR, HOUR));
+        assertThrows(IllegalArgumentException.class, () -> new DeadLetterQueue(1, 0, HOUR, HOUR));
+        assertThrows(IllegalArgumentException.class, () -> new DeadLetterQueue(1, 1, Duration.ZERO, HOUR));
+        assertThrows(IllegalArgumentException.class, () -> new DeadLetterQueue(1, 1, HOUR, Duration.ofMinutes(1)));
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(1, 1, HOUR, HOUR)) {
+            queue.start(letter -> {
+            });
+            assertThrows(IllegalStateException.class, () -> queue.start(letter -> {
+            }));
+        }
+    }
+
+    @Test
+    @DisplayName("测试可重试的失败原因")
+    void testRetryable() {
+        assertTrue(DeadLetterQueue.isRetryable(DispatchFailure.STORAGE_ERROR));
+        assertTrue(DeadLetterQueue.isRetryable(DispatchFailure.BIND_ERROR));
+        assertFalse(DeadLetterQueue.isRetryable(DispatchFailure.UNKNOWN_DATA_SOURCE));
+        assertFalse(DeadLetterQueue.isRetryable(DispatchFailure.INVALID_MESSAGE));
+        assertFalse(DeadLetterQueue.isRetryable(DispatchFailure.NULL_KEY));
+        assertFalse(DeadLetterQueue.isRetryable(DispatchFailure.STALE));
+    }
+
+    @Test
+    @DisplayName("测试同一键的事件排在死信之后按顺序重放")
+    void testParking() {
+        List<String> delivered = new ArrayList<>();
+        Set<String> failing = new java.util.HashSet<>(Set.of("a1"));
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 5, HOUR, HOUR)) {
+            queue.start(letter -> {
+                String message = letter.messageAsString();
+                if (failing.contains(message)) {
+                    throw new IllegalStateException(message);
+                }
+                delivered.add(message);
+            });
+
+            // 没有死信时不排队
+            assertFalse(queue.park("user", "a", () -> bytes("a0")));
+            assertFalse(queue.hasPending());
+
+            queue.capture("user", "a", DispatchFailure.STORAGE_ERROR, new IllegalStateException("a1"), bytes("a1"));
+            assertTrue(queue.park("user", "a", () -> bytes("a2")));
+            assertTrue(queue.park("user", "a", () -> bytes("a3")));
+            assertFalse(queue.park("user", "b", () -> bytes("b1")));
+            assertFalse(queue.park("order", "a", () -> bytes("a1")));
+            assertTrue(queue.hasPending());
+
+            List<DeadLetter> letters = queue.snapshot();
+            assertEquals(3, letters.size());
+            assertEquals(DispatchFailure.STORAGE_ERROR, letters.get(0).failure());
+            assertEquals("java.lang.IllegalStateException: a1", letters.get(0).cause());
+            assertTrue(letters.get(1).isParked());
+
+            // 未到期不重试
+            assertEquals(0, queue.retryDue(System.currentTimeMillis()));
+
+            // 队首失败时其余事件继续等待
+            assertEquals(1, queue.retryDue(LATER));
+            assertEquals(List.of(), delivered);
+            assertEquals(1, queue.snapshot().getFirst().attempts());
+
+            failing.clear();
+            assertEquals(3, queue.retryDue(LATER + HOUR.toMillis() * 2));
+            assertEquals(List.of("a1", "a2", "a3"), delivered);
+            assertEquals(0, queue.size());
+            assertFalse(queue.hasPending());
+            assertEquals(3, queue.capturedCount());
+            assertEquals(3, queue.redeliveredCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试指数退避与放弃重试")
+    void testExhausted() {
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 3, Duration.ofSeconds(10), Duration.ofSeconds(25))) {
+            queue.start(letter -> {
+                throw new IllegalStateException("still failing");
+            });
+            queue.capture("user", null, DispatchFailure.BIND_ERROR, null, bytes("x"));
+            queue.capture("user", null, DispatchFailure.BIND_ERROR, null, bytes("y"));
+            // 键未知的死信阻塞整个数据源
+            assertTrue(queue.park("user", "k", () -> bytes("z")));
+            assertFalse(queue.park("order", "k", () -> bytes("z")));
+            assertNull(queue.snapshot().getFirst().key());
+
+            long now = LATER;
+            assertEquals(1, queue.retryDue(now));
+            // 第 1 次失败后等待 10 秒
+            assertEquals(0, queue.retryDue(now + 9_999));
+            assertEquals(1, queue.retryDue(now + 10_000));
+            // 第 2 次失败后等待 20 秒，放弃后同一数据源的下一条死信才开始重试
+            assertEquals(0, queue.retryDue(now + 29_999));
+            assertEquals(2, queue.retryDue(now + 30_000));
+
+            assertEquals(List.of("y", "z"), queue.snapshot().stream().map(DeadLetter::messageAsString).toList());
+            assertEquals(1, queue.exhaustedCount());
+            assertEquals(0, queue.redeliveredCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试按捕获顺序重放，键未知的死信之后的同一数据源死信继续等待")
+    void testCaptureOrder() {
+        List<String> delivered = new ArrayList<>();
+        Set<String> failing = new java.util.HashSet<>(Set.of("unknown"));
+        try (DeadLetterQueue queue = new DeadLetterQueue(64, 5, HOUR, HOUR)) {
+            queue.start(letter -> {
+                String message = letter.messageAsString();
+                if (failing.contains(message)) {
+                    throw new IllegalStateException(message);
+                }
+                delivered.add(message);
+            });
+
+            for (int i = 0; i < 20; i++) {
+                queue.capture("user", "k" + i, DispatchFailure.STORAGE_ERROR, null, bytes("k" + i));
+            }
+            queue.capture("user", null, DispatchFailure.BIND_ERROR, null, bytes("unknown"));
+            queue.capture("user", "k0", DispatchFailure.STORAGE_ERROR, null, bytes("after"));
+            queue.capture("order", "k0", DispatchFailure.STORAGE_ERROR, null, bytes("order"));
+
+            // 不按哈希顺序重放；键未知的死信失败后，同一数据源更晚的死信继续等待，其他数据源不受影响
+            assertEquals(22, queue.retryDue(LATER));
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                expected.add("k" + i);
+            }
+            expected.add("order");
+            assertEquals(expected, delivered);
+            assertTrue(queue.hasPending());
+
+            failing.clear();
+            assertEquals(2, queue.retryDue(LATER + HOUR.toMillis() * 2));
+            assertEquals(List.of("unknown", "after"), delivered.subList(21, 23));
+            assertFalse(queue.hasPending());
+        }
+    }
+
+    @Test
+    @DisplayName("测试超出容量时淘汰最早的死信")
+    void testEviction() {
+        List<String> evictedLetters = new ArrayList<>();
+        try (DeadLetterQueue queue = new DeadLetterQueue(2, 1, HOUR, HOUR)) {
+            queue.start(letter -> {
+            }, letter -> null, letter -> evictedLetters.add(letter.messageAsString()));
+            queue.capture("user", "a", DispatchFailure.STORAGE_ERROR, null, bytes("a"));
+            queue.capture("user", "b", DispatchFailure.STORAGE_ERROR, null, bytes("b"));
+            queue.capture("user", "c", DispatchFailure.STORAGE_ERROR, null, bytes("c"));
+
+            assertEquals(2, queue.size());
+            assertEquals(1, queue.evictedCount());
+            assertEquals(List.of("b", "c"), queue.snapshot().stream().map(DeadLetter::messageAsString).toList());
+            // 被淘汰的键不再阻塞后续事件
+            assertFalse(queue.park("user", "a", () -> bytes("a2")));
+
+            // 排队的事件同样占用容量，被淘汰时同样报告
+            assertTrue(queue.park("user", "b", () -> bytes("b2")));
+            assertTrue(queue.park("user", "b", () -> bytes("b3")));
+            assertEquals(List.of("a", "b", "c"), evictedLetters);
+            assertEquals(List.of("b2", "b3"), queue.snapshot().stream().map(DeadLetter::messageAsString).toList());
+            assertEquals(3, queue.evictedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试从日志恢复未结束的死信")
+    void testRecover(@TempDir Path dir) {
+        Path journal = dir.resolve("dead-letters.log");
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            queue.start(letter -> {
+                if (letter.messageAsString().equals("bad")) {
+                    throw new IllegalStateException("bad");
+                }
+            });
+            queue.capture("user", "a", DispatchFailure.STORAGE_ERROR, null, bytes("ok"));
+            queue.capture("user", "c", DispatchFailure.STORAGE_ERROR, null, bytes("bad"));
+
+            // ok 重试成功，bad 达到最大重试次数
+            assertEquals(2, queue.retryDue(LATER));
+            queue.capture("用户", "b", DispatchFailure.BIND_ERROR, null, bytes("pending"));
+            assertTrue(queue.park("用户", "b", () -> bytes("parked")));
+            queue.capture("user", "d", DispatchFailure.STORAGE_ERROR, null, bytes("late"));
+        }
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            // ok 与 bad 已结束；pending、parked 与 late 尚未结束
+            assertEquals(0, queue.size());
+        }
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            assertEquals(3, queue.recover());
+            assertEquals(0, queue.recover());
+
+            List<DeadLetter> letters = queue.snapshot();
+            assertEquals(List.of("pending", "parked", "late"), letters.stream().map(DeadLetter::messageAsString).toList());
+            assertEquals("用户", letters.getFirst().dataSource());
+            assertEquals(DispatchFailure.BIND_ERROR, letters.getFirst().failure());
+            assertTrue(letters.get(1).isParked());
+            // 日志不保存键，关联分发器前键未知，阻塞整个数据源
+            assertNull(letters.get(2).key());
+            assertTrue(queue.park("user", "x", () -> bytes("x")));
+
+            // 恢复后新捕获的死信编号不与日志中的编号冲突
+            queue.capture("user", "e", DispatchFailure.STORAGE_ERROR, null, bytes("e"));
+            assertEquals(5, queue.snapshot().stream().map(DeadLetter::id).distinct().count());
+
+            // 关联时解码恢复的死信的键，不再阻塞其他键
+            queue.start(letter -> {
+                throw new IllegalStateException("down");
+            }, letter -> letter.messageAsString().equals("late") ? "d" : null);
+            assertEquals("d", queue.snapshot().get(2).key());
+            assertTrue(queue.park("user", "d", () -> bytes("d2")));
+            assertTrue(queue.park("用户", "z", () -> bytes("z")));
+            assertFalse(queue.park("user", "y", () -> bytes("y")));
+        }
+
+        assertEquals(0, new DeadLetterQueue(1, 1, HOUR, HOUR).recover());
+    }
+
+    @Test
+    @DisplayName("测试淘汰记入日志，恢复时不再出现")
+    void testEvictionJournal(@TempDir Path dir) {
+        Path journal = dir.resolve("evicted.log");
+        try (DeadLetterQueue queue = new DeadLetterQueue(2, 1, HOUR, HOUR, journal)) {
+            queue.capture("user", "a", DispatchFailure.STORAGE_ERROR, null, bytes("a"));
+            queue.capture("user", "b", DispatchFailure.STORAGE_ERROR, null, bytes("b"));
+            queue.capture("user", "c", DispatchFailure.STORAGE_ERROR, null, bytes("c"));
+        }
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            assertEquals(2, queue.recover());
+            assertEquals(List.of("b", "c"), queue.snapshot().stream().map(DeadLetter::messageAsString).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("测试已结束的记录累积后压缩日志")
+    void testCompaction(@TempDir Path dir) throws IOException {
+        Path journal = dir.resolve("compacted.log");
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            queue.start(letter -> {
+            });
+            int rounds = DeadLetterQueue.COMPACT_THRESHOLD * 2;
+            for (int i = 0; i < rounds; i++) {
+                queue.capture("user", "k" + i, DispatchFailure.STORAGE_ERROR, null, bytes("k" + i));
+                queue.retryDue(LATER);
+                assertTrue(lineCount(journal) <= DeadLetterQueue.COMPACT_THRESHOLD + 1);
+            }
+            queue.capture("user", "pending", DispatchFailure.STORAGE_ERROR, null, bytes("pending"));
+            assertEquals(rounds, queue.redeliveredCount());
+        }
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, HOUR, HOUR, journal)) {
+            assertEquals(1, queue.recover());
+            // 恢复后日志只保留未结束的死信
+            assertEquals(1, lineCount(journal));
+            assertEquals("pending", queue.snapshot().getFirst().messageAsString());
+        }
+    }
+
+    private static long lineCount(Path file) throws IOException {
+        try (java.util.stream.Stream<String> lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
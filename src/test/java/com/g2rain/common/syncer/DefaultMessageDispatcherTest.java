@@ -2,14 +2,23 @@ package com.g2rain.common.syncer;
 
 import com.g2rain.common.json.JsonCodec;
 import com.g2rain.common.json.JsonCodecFactory;
+import lombok.NonNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("默认消息分发器测试")
 class DefaultMessageDispatcherTest {
@@ -34,6 +43,9 @@ class DefaultMessageDispatcherTest {
     void testDispatchEmptyMessage() {
         // 分发null消息应该不抛出异常
         assertDoesNotThrow(() -> dispatcher.dispatch(null));
+        assertDoesNotThrow(() -> dispatcher.dispatchBytes(null));
+        assertDoesNotThrow(() -> dispatcher.dispatchBuffer(null));
+        assertDoesNotThrow(() -> dispatcher.dispatchBytes(new byte[0]));
 
         // 分发空字符串消息应该不抛出异常
         assertDoesNotThrow(() -> dispatcher.dispatch(""));
@@ -84,4 +96,586 @@ class DefaultMessageDispatcherTest {
         String message3Str = jsonCodec.obj2str(message3);
         assertDoesNotThrow(() -> dispatcher.dispatch(message3Str));
     }
+
+    @Test
+    @DisplayName("测试分发消息到已注册的存储")
+    void testDispatchToRegisteredStorage() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("dispatcherDataSource");
+
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("dispatcherDataSource", EventType.CREATE, "\"a\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("dispatcherDataSource", EventType.UPDATE, "\"b\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("dispatcherDataSource", EventType.DELETE, "\"c\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("otherDataSource", EventType.CREATE, "\"d\"")));
+
+        assertEquals(List.of("CREATE:a", "UPDATE:b", "DELETE:c"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试存储异常不影响后续分发")
+    void testDispatchStorageFailure() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("failingDataSource");
+        storage.failOn = "boom";
+
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("failingDataSource", EventType.CREATE, "\"boom\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("failingDataSource", EventType.CREATE, "\"ok\"")));
+
+        assertTrue(storage.operations.contains("CREATE:ok"));
+        assertEquals(1, storage.operations.size());
+    }
+
+    @Test
+    @DisplayName("测试流式解析内联数据与数据先于元数据的消息")
+    void testDispatchStreamingEnvelope() {
+        ItemMessageStorage storage = new ItemMessageStorage("streamingDataSource");
+
+        // 元数据在前，data 为内联对象
+        dispatcher.dispatch("{\"dataSource\":\"streamingDataSource\",\"eventType\":\"CREATE\",\"data\":{\"id\":\"1\",\"name\":\"a\"}}");
+        // data 在前，需要缓冲后再绑定
+        dispatcher.dispatch("{\"data\":{\"id\":\"2\",\"name\":\"b\"},\"eventType\":\"UPDATE\",\"dataSource\":\"streamingDataSource\"}");
+        // data 在前且为转义字符串
+        dispatcher.dispatch("{\"data\":\"{\\\"id\\\":\\\"3\\\"}\",\"ext\":{\"x\":[1,2]},\"dataSource\":\"streamingDataSource\",\"eventType\":\"DELETE\"}");
+        // 事件类型使用枚举序号
+        dispatcher.dispatch("{\"dataSource\":\"streamingDataSource\",\"eventType\":0,\"data\":\"{\\\"id\\\":\\\"4\\\"}\"}");
+        // 无法识别的事件类型被忽略
+        dispatcher.dispatch("{\"dataSource\":\"streamingDataSource\",\"eventType\":\"UNKNOWN\",\"data\":{\"id\":\"5\"}}");
+
+        assertEquals(List.of("CREATE:1:a", "UPDATE:2:b", "DELETE:3", "CREATE:4:null"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试分发字节数组与字节缓冲区消息")
+    void testDispatchBytes() {
+        ItemMessageStorage storage = new ItemMessageStorage("bytesDataSource");
+        String message = "{\"dataSource\":\"bytesDataSource\",\"eventType\":\"CREATE\",\"data\":{\"id\":\"%s\",\"name\":\"名称\"}}";
+
+        dispatcher.dispatchBytes(message.formatted("1").getBytes(StandardCharsets.UTF_8));
+
+        byte[] padded = ("##" + message.formatted("2") + "##").getBytes(StandardCharsets.UTF_8);
+        dispatcher.dispatch(padded, 2, padded.length - 4);
+
+        ByteBuffer heap = ByteBuffer.wrap(message.formatted("3").getBytes(StandardCharsets.UTF_8));
+        dispatcher.dispatchBuffer(heap);
+        // 分发不改变缓冲区的位置
+        assertEquals(0, heap.position());
+
+        byte[] directBytes = message.formatted("4").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(directBytes.length).put(directBytes).flip();
+        dispatcher.dispatchBuffer(direct);
+        assertEquals(0, direct.position());
+
+        assertEquals(List.of("CREATE:1:名称", "CREATE:2:名称", "CREATE:3:名称", "CREATE:4:名称"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试重新注册同一数据源后使用新存储的值类型绑定")
+    void testReaderCacheInvalidation() {
+        RecordingMessageStorage first = new RecordingMessageStorage("reregisteredDataSource");
+        dispatcher.dispatch("{\"dataSource\":\"reregisteredDataSource\",\"eventType\":\"CREATE\",\"data\":\"\\\"1\\\"\"}");
+        assertEquals(List.of("CREATE:1"), first.operations);
+
+        ItemMessageStorage second = new ItemMessageStorage("reregisteredDataSource");
+        dispatcher.dispatch("{\"dataSource\":\"reregisteredDataSource\",\"eventType\":\"CREATE\",\"data\":{\"id\":\"2\",\"name\":\"b\"}}");
+        assertEquals(List.of("CREATE:1"), first.operations);
+        assertEquals(List.of("CREATE:2:b"), second.operations);
+    }
+
+    @Test
+    @DisplayName("测试批量分发按存储分组并保持顺序")
+    void testDispatchBatch() {
+        RecordingMessageStorage storage1 = new RecordingMessageStorage("batchDataSource1");
+        RecordingMessageStorage storage2 = new RecordingMessageStorage("batchDataSource2");
+
+        dispatcher.dispatchBatch(List.of(
+            jsonCodec.obj2str(new EventMessage<>("batchDataSource1", EventType.CREATE, "\"a\"")),
+            jsonCodec.obj2str(new EventMessage<>("batchDataSource2", EventType.CREATE, "\"x\"")),
+            "invalid json",
+            jsonCodec.obj2str(new EventMessage<>("batchDataSource1", EventType.UPDATE, "\"a\"")),
+            jsonCodec.obj2str(new EventMessage<>("batchDataSource1", EventType.DELETE, "\"a\"")),
+            jsonCodec.obj2str(new EventMessage<>("unknownDataSource", EventType.CREATE, "\"y\""))
+        ));
+
+        // 每个存储在一个批次内只被调用一次，且组内保持消息顺序
+        assertEquals(List.of(3), storage1.batchSizes);
+        assertEquals(List.of(1), storage2.batchSizes);
+        assertEquals(List.of("CREATE:a", "UPDATE:a", "DELETE:a"), storage1.operations);
+        assertEquals(List.of("CREATE:x"), storage2.operations);
+    }
+
+    @Test
+    @DisplayName("测试批量分发中存储异常的隔离")
+    void testDispatchBatchStorageFailure() {
+        RecordingMessageStorage failing = new RecordingMessageStorage("batchFailingDataSource");
+        failing.failOn = "boom";
+        RecordingMessageStorage healthy = new RecordingMessageStorage("batchHealthyDataSource");
+
+        dispatcher.dispatchBatch(List.of(
+            jsonCodec.obj2str(new EventMessage<>("batchFailingDataSource", EventType.CREATE, "\"boom\"")),
+            jsonCodec.obj2str(new EventMessage<>("batchFailingDataSource", EventType.CREATE, "\"ok\"")),
+            jsonCodec.obj2str(new EventMessage<>("batchHealthyDataSource", EventType.CREATE, "\"ok\""))
+        ));
+
+        // 默认批量实现逐条应用，失败的变更不影响同组及其他存储的变更
+        assertEquals(List.of("CREATE:ok"), failing.operations);
+        assertEquals(List.of("CREATE:ok"), healthy.operations);
+        assertDoesNotThrow(() -> dispatcher.dispatchBatch(null));
+    }
+
+    @Test
+    @DisplayName("测试按序号丢弃乱序与重复的事件")
+    void testSequenceTracking() {
+        ItemMessageStorage storage = new ItemMessageStorage("sequenceDataSource");
+        List<Long> gaps = new ArrayList<>();
+        dispatcher.withSequenceTracker(new SequenceTracker(16, (dataSource, from, to) -> gaps.add(from)));
+        String message = "{\"dataSource\":\"sequenceDataSource\",\"eventType\":\"UPDATE\",%s}";
+        String data = "\"data\":{\"id\":\"%s\",\"name\":\"%s\"}";
+
+        dispatcher.dispatch(message.formatted("\"sequence\":1," + data.formatted("1", "a")));
+        // 序号位于 data 之后
+        dispatcher.dispatch(message.formatted(data.formatted("1", "b") + ",\"sequence\":2"));
+        // 重复与过期的事件被丢弃
+        dispatcher.dispatch(message.formatted(data.formatted("1", "b") + ",\"sequence\":2"));
+        dispatcher.dispatch(message.formatted("\"sequence\":1," + data.formatted("1", "a")));
+        // 不带序号的事件不受影响
+        dispatcher.dispatch(message.formatted(data.formatted("1", "c")));
+        // 二进制信封中的序号
+        EventMessage<Item> binary = new EventMessage<>("sequenceDataSource", EventType.UPDATE, new Item("2", "d"));
+        binary.setSequence(5L);
+        dispatcher.dispatchBuffer(new BinaryEnvelopeCodec().encode(binary));
+        dispatcher.dispatchBuffer(new BinaryEnvelopeCodec().encode(binary));
+        dispatcher.dispatchBatch(List.of(
+            message.formatted("\"sequence\":4," + data.formatted("1", "e")),
+            message.formatted("\"sequence\":3," + data.formatted("1", "f"))
+        ));
+
+        assertEquals(List.of("UPDATE:1:a", "UPDATE:1:b", "UPDATE:1:c", "UPDATE:2:d", "UPDATE:1:e"), storage.operations);
+        assertEquals(List.of(3L), gaps);
+    }
+
+    @Test
+    @DisplayName("测试多个发布方写同一数据源时按发布方跟踪序号")
+    void testSequenceTrackingPerProducer() {
+        ItemMessageStorage storage = new ItemMessageStorage("producerDataSource");
+        List<Long> gaps = new ArrayList<>();
+        dispatcher.withSequenceTracker(new SequenceTracker(16, (dataSource, from, to) -> gaps.add(from)));
+        String message = "{\"dataSource\":\"producerDataSource\",\"eventType\":\"UPDATE\",\"producer\":%d,\"sequence\":%d,"
+            + "\"data\":{\"id\":\"1\",\"name\":\"%s\"}}";
+
+        dispatcher.dispatch(message.formatted(1, 100, "a"));
+        // 另一个发布方的序号更大，不影响前一个发布方后续的事件
+        dispatcher.dispatch(message.formatted(2, 5000, "b"));
+        dispatcher.dispatch(message.formatted(1, 101, "c"));
+        // 同一发布方内仍丢弃重复的事件
+        dispatcher.dispatch(message.formatted(1, 101, "d"));
+        EventMessage<Item> binary = new EventMessage<>("producerDataSource", EventType.UPDATE, 2L, 5001L, new Item("1", "e"));
+        dispatcher.dispatchBuffer(new BinaryEnvelopeCodec().encode(binary));
+
+        // 经由两个发布中心实例发送，双方的事件均被应用
+        EventPublisher forward = new EventPublisher() {
+            @Override
+            public <V> void publish(EventMessage<V> eventMessage) {
+                dispatcher.dispatch(jsonCodec.obj2str(eventMessage));
+            }
+        };
+        EventPublisherHub first = EventPublisherHubBuilder.builder().withPublishers(Set.of(forward)).withSequencing().build();
+        EventPublisherHub second = EventPublisherHubBuilder.builder().withPublishers(Set.of(forward)).withSequencing().build();
+        first.send("producerDataSource", EventType.UPDATE, new Item("2", "f"));
+        second.send("producerDataSource", EventType.UPDATE, new Item("2", "g"));
+        first.send("producerDataSource", EventType.UPDATE, new Item("2", "h"));
+
+        assertEquals(List.of("UPDATE:1:a", "UPDATE:1:b", "UPDATE:1:c", "UPDATE:1:e", "UPDATE:2:f", "UPDATE:2:g", "UPDATE:2:h"),
+            storage.operations);
+        assertTrue(gaps.isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试分发监听器报告应用耗时与失败原因")
+    void testDispatchListener() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("metricsDataSource");
+        storage.failOn = "boom";
+        DispatchMetrics metrics = new DispatchMetrics();
+        dispatcher.withDispatchListener(metrics);
+
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.CREATE, "\"a\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.CREATE, "\"boom\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.UPDATE, null)));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("metricsUnknownDataSource", EventType.UPDATE, "\"a\"")));
+        dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.UPDATE, "{}")));
+        dispatcher.dispatchBytes(new byte[]{BinaryEnvelopeCodec.MAGIC, 0});
+        dispatcher.dispatchBatch(List.of(
+            jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.DELETE, "\"a\"")),
+            jsonCodec.obj2str(new EventMessage<>("metricsDataSource", EventType.DELETE, "\"boom\"")),
+            "invalid json"
+        ));
+
+        DispatchStats create = metrics.stats("metricsDataSource", EventType.CREATE);
+        assertEquals(1, create.appliedCount());
+        assertEquals(1, create.failureCount(DispatchFailure.STORAGE_ERROR));
+        assertTrue(create.maxNanos() > 0);
+
+        DispatchStats update = metrics.stats("metricsDataSource", EventType.UPDATE);
+        assertEquals(1, update.failureCount(DispatchFailure.INVALID_MESSAGE));
+        assertEquals(1, update.failureCount(DispatchFailure.BIND_ERROR));
+        // 未注册的数据源记入未知数据源，不为其建立统计行
+        assertEquals(1, metrics.stats(DispatchMetrics.UNKNOWN_DATA_SOURCE, EventType.UPDATE)
+            .failureCount(DispatchFailure.UNKNOWN_DATA_SOURCE));
+        assertEquals(0, metrics.stats("metricsUnknownDataSource", EventType.UPDATE).failureCount());
+        assertEquals(2, metrics.stats(null, null).failureCount(DispatchFailure.INVALID_MESSAGE));
+        // 批量应用失败时按异常报告，不区分事件类型
+        assertEquals(1, metrics.stats("metricsDataSource", null).failureCount(DispatchFailure.STORAGE_ERROR));
+        assertEquals(List.of("CREATE:a", "DELETE:a"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试失败的消息进入死信队列并按键顺序重放")
+    void testDeadLetterQueue() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("deadLetterDataSource");
+        storage.failOn = "a";
+        DispatchMetrics metrics = new DispatchMetrics();
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 2, Duration.ofHours(1), Duration.ofHours(1))) {
+            dispatcher.withDispatchListener(metrics).withDeadLetterQueue(queue);
+            assertThrows(IllegalStateException.class, () -> new DefaultMessageDispatcher().withDeadLetterQueue(queue));
+
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.CREATE, 1L, "\"a\"")));
+            // 同一键的后续事件排在死信之后，其他键不受影响
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.UPDATE, 2L, "\"a\"")));
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.CREATE, "\"b\"")));
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterUnknownDataSource", EventType.CREATE, "\"a\"")));
+            // 格式错误的消息不可重试，不进入死信队列
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.UPDATE, null)));
+            // 存在死信时批量分发逐条判断
+            dispatcher.dispatchBatch(List.of(
+                jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.DELETE, "\"a\"")),
+                jsonCodec.obj2str(new EventMessage<>("deadLetterDataSource", EventType.DELETE, "\"c\""))
+            ));
+
+            List<DeadLetter> letters = queue.snapshot();
+            assertEquals(3, letters.size());
+            assertEquals(DispatchFailure.STORAGE_ERROR, letters.get(0).failure());
+            assertEquals("a", letters.get(0).key());
+            assertTrue(letters.get(1).isParked());
+            assertTrue(letters.get(2).isParked());
+            assertEquals(List.of("CREATE:b", "DELETE:c"), storage.operations);
+            // 数据源未注册的消息只报告，不进入死信队列
+            assertEquals(1, metrics.stats(DispatchMetrics.UNKNOWN_DATA_SOURCE, EventType.CREATE)
+                .failureCount(DispatchFailure.UNKNOWN_DATA_SOURCE));
+
+            // 重放死信时按原顺序应用
+            storage.failOn = null;
+            long later = System.currentTimeMillis() + Duration.ofDays(1).toMillis();
+            assertEquals(3, queue.retryDue(later));
+            assertEquals(List.of("CREATE:b", "DELETE:c", "CREATE:a", "UPDATE:a", "DELETE:a"), storage.operations);
+            assertEquals(0, queue.size());
+            assertEquals(3, queue.redeliveredCount());
+            assertEquals(4, metrics.stats("deadLetterDataSource", EventType.CREATE).appliedCount()
+                + metrics.stats("deadLetterDataSource", EventType.DELETE).appliedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试死信队列容量超出时淘汰的事件报告给监听器")
+    void testDeadLetterEviction() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("deadLetterEvictionDataSource");
+        storage.failOn = "a";
+        DispatchMetrics metrics = new DispatchMetrics();
+        try (DeadLetterQueue queue = new DeadLetterQueue(2, 2, Duration.ofHours(1), Duration.ofHours(1))) {
+            dispatcher.withDeadLetterQueue(queue).withDispatchListener(metrics);
+
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterEvictionDataSource", EventType.CREATE, "\"a\"")));
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterEvictionDataSource", EventType.UPDATE, "\"a\"")));
+            dispatcher.dispatch(jsonCodec.obj2str(new EventMessage<>("deadLetterEvictionDataSource", EventType.DELETE, "\"a\"")));
+
+            // 死信被淘汰后，排在其后的事件不再被阻塞
+            assertEquals(1, queue.evictedCount());
+            assertEquals(1, metrics.stats("deadLetterEvictionDataSource", null).failureCount(DispatchFailure.EVICTED));
+            assertTrue(queue.snapshot().stream().allMatch(DeadLetter::isParked));
+        }
+    }
+
+    @Test
+    @DisplayName("测试声明键路径后 DELETE 事件只读取键")
+    void testKeyOnlyDelete() {
+        OrderMessageStorage storage = new OrderMessageStorage("keyPathDataSource");
+        String message = "{\"dataSource\":\"keyPathDataSource\",\"eventType\":\"%s\",\"data\":%s}";
+        // quantity 无法绑定为 int，只有完整绑定值对象时才会失败
+        String wide = "{\"tags\":[{\"id\":9}],\"meta\":{\"region\":\"cn\",\"id\":7},\"quantity\":\"many\"}";
+
+        dispatcher.dispatch(message.formatted("CREATE", "{\"meta\":{\"id\":1},\"quantity\":2}"));
+        dispatcher.dispatch(message.formatted("CREATE", wide));
+        dispatcher.dispatch(message.formatted("DELETE", wide));
+        // 字符串形式的 data，序号在 data 之后
+        dispatcher.dispatch("{\"dataSource\":\"keyPathDataSource\",\"eventType\":\"DELETE\",\"data\":\"{\\\"meta\\\":{\\\"id\\\":\\\"8\\\"}}\",\"sequence\":3}");
+        // data 先于元数据出现
+        dispatcher.dispatch("{\"data\":{\"meta\":{\"id\":9}},\"eventType\":\"DELETE\",\"dataSource\":\"keyPathDataSource\"}");
+        // 路径不存在或不是对象时键为空
+        dispatcher.dispatch(message.formatted("DELETE", "{\"meta\":5}"));
+        dispatcher.dispatch(message.formatted("DELETE", "[1]"));
+
+        assertEquals(List.of("CREATE:1:2", "DELETE:7", "DELETE:8", "DELETE:9"), storage.operations);
+    }
+
+    @Test
+    @DisplayName("测试只读取键的 DELETE 事件进入死信队列后可重放")
+    void testKeyOnlyDeleteDeadLetter() {
+        OrderMessageStorage storage = new OrderMessageStorage("keyPathDeadLetterDataSource");
+        storage.failOn = 7L;
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 2, Duration.ofHours(1), Duration.ofHours(1))) {
+            dispatcher.withDeadLetterQueue(queue);
+            dispatcher.dispatch("{\"dataSource\":\"keyPathDeadLetterDataSource\",\"eventType\":\"DELETE\",\"data\":{\"meta\":{\"id\":7},\"quantity\":1}}");
+            assertEquals(1, queue.size());
+            assertEquals(7L, queue.snapshot().getFirst().key());
+
+            storage.failOn = null;
+            assertEquals(1, queue.retryDue(System.currentTimeMillis() + Duration.ofDays(1).toMillis()));
+            assertEquals(List.of("DELETE:7"), storage.operations);
+        }
+    }
+
+    @Test
+    @DisplayName("测试绑定失败的死信按解码出的键排队，重放时按序号过滤")
+    void testDeadLetterKeyAndSequence() {
+        OrderMessageStorage storage = new OrderMessageStorage("sequencedDeadLetterDataSource");
+        dispatcher.withSequenceTracker(new SequenceTracker());
+        String message = "{\"dataSource\":\"sequencedDeadLetterDataSource\",\"eventType\":\"UPDATE\",\"sequence\":%d,"
+            + "\"data\":{\"meta\":{\"id\":%d},\"quantity\":%s}}";
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, Duration.ofHours(1), Duration.ofHours(1))) {
+            dispatcher.withDeadLetterQueue(queue);
+            // 绑定失败的消息以键路径解码出的键排队，同一键的后续事件排在其后
+            dispatcher.dispatch(message.formatted(1, 7, "\"bad\""));
+            assertEquals(7L, queue.snapshot().getFirst().key());
+            dispatcher.dispatch(message.formatted(2, 7, "2"));
+            dispatcher.dispatch(message.formatted(3, 8, "3"));
+            assertEquals(List.of("UPDATE:8:3"), storage.operations);
+            assertEquals(2, queue.size());
+
+            // 仍无法绑定的死信被放弃后，排在其后的事件以首次到达时的序号重放
+            assertEquals(2, queue.retryDue(System.currentTimeMillis() + Duration.ofDays(1).toMillis()));
+            assertEquals(List.of("UPDATE:8:3", "UPDATE:7:2"), storage.operations);
+
+            // 该键已应用更新的事件时，较旧的死信被丢弃
+            dispatcher.redeliver(new DeadLetter(1L, "sequencedDeadLetterDataSource", 8L,
+                message.formatted(1, 8, "1").getBytes(StandardCharsets.UTF_8), DispatchFailure.STORAGE_ERROR, null, 0,
+                java.time.Instant.now()));
+            assertEquals(List.of("UPDATE:8:3", "UPDATE:7:2"), storage.operations);
+        }
+    }
+
+    @Test
+    @DisplayName("测试批量应用失败时逐条隔离失败的变更")
+    void testDeadLetterQueueBatch() {
+        RecordingMessageStorage storage = new RecordingMessageStorage("deadLetterBatchDataSource");
+        storage.failOn = "a";
+        try (DeadLetterQueue queue = new DeadLetterQueue(16, 1, Duration.ofHours(1), Duration.ofHours(1))) {
+            dispatcher.withDeadLetterQueue(queue);
+            dispatcher.dispatchBatch(List.of(
+                jsonCodec.obj2str(new EventMessage<>("deadLetterBatchDataSource", EventType.CREATE, "\"a\"")),
+                jsonCodec.obj2str(new EventMessage<>("deadLetterBatchDataSource", EventType.CREATE, "\"b\""))
+            ));
+
+            // 批量应用失败后逐条重新应用，已成功的变更会被再次应用
+            assertEquals(List.of("CREATE:b", "CREATE:b"), storage.operations);
+            assertEquals(1, queue.size());
+            assertEquals("a", queue.snapshot().getFirst().key());
+
+            // 死信以 JSON 事件消息保存，可直接重新分发
+            storage.failOn = null;
+            assertEquals(1, queue.retryDue(System.currentTimeMillis() + Duration.ofDays(1).toMillis()));
+            assertEquals(List.of("CREATE:b", "CREATE:b", "CREATE:a"), storage.operations);
+        }
+    }
+
+    /**
+     * 记录操作顺序的测试存储
+     */
+    static class RecordingMessageStorage extends AbstractMessageStorage<String, String, String> {
+        final List<String> operations = java.util.Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> batchSizes = java.util.Collections.synchronizedList(new ArrayList<>());
+        private final String dataSourceName;
+        String failOn;
+
+        RecordingMessageStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<String> getValueType() {
+            return String.class;
+        }
+
+        @Override
+        protected @NonNull String getKey(@NonNull String value) {
+            return value;
+        }
+
+        @Override
+        protected void create(@NonNull String key, String value) {
+            record("CREATE", key);
+        }
+
+        @Override
+        protected void delete(@NonNull String key) {
+            record("DELETE", key);
+        }
+
+        @Override
+        protected void update(@NonNull String key, String value) {
+            record("UPDATE", key);
+        }
+
+        @Override
+        protected String get(@NonNull String key) {
+            return null;
+        }
+
+        @Override
+        protected void applyBatch(@NonNull List<Change<String, String>> changes) {
+            batchSizes.add(changes.size());
+            super.applyBatch(changes);
+        }
+
+        private void record(String operation, String key) {
+            if (key.equals(failOn)) {
+                throw new IllegalStateException(key);
+            }
+            operations.add(operation + ":" + key);
+        }
+    }
+
+    /**
+     * 测试用的值类型
+     *
+     * @param id   主键
+     * @param name 名称
+     */
+    record Item(String id, String name) {
+    }
+
+    /**
+     * 以 {@link Item} 为值类型的测试存储
+     */
+    static class ItemMessageStorage extends AbstractMessageStorage<String, Item, Item> {
+        final List<String> operations = java.util.Collections.synchronizedList(new ArrayList<>());
+        private final String dataSourceName;
+
+        ItemMessageStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<Item> getValueType() {
+            return Item.class;
+        }
+
+        @Override
+        protected @NonNull String getKey(@NonNull Item value) {
+            return value.id();
+        }
+
+        @Override
+        protected void create(@NonNull String key, Item value) {
+            operations.add("CREATE:" + key + ":" + value.name());
+        }
+
+        @Override
+        protected void delete(@NonNull String key) {
+            operations.add("DELETE:" + key);
+        }
+
+        @Override
+        protected void update(@NonNull String key, Item value) {
+            operations.add("UPDATE:" + key + ":" + value.name());
+        }
+
+        @Override
+        protected Item get(@NonNull String key) {
+            return null;
+        }
+    }
+
+    /**
+     * 测试用的宽实体
+     *
+     * @param meta     元数据，包含主键
+     * @param quantity 数量
+     */
+    record Order(Meta meta, int quantity) {
+    }
+
+    /**
+     * 测试用的元数据
+     *
+     * @param id 主键
+     */
+    record Meta(Long id) {
+    }
+
+    /**
+     * 声明键路径的测试存储
+     */
+    static class OrderMessageStorage extends AbstractMessageStorage<Long, Order, Order> {
+        final List<String> operations = java.util.Collections.synchronizedList(new ArrayList<>());
+        private final String dataSourceName;
+        Long failOn;
+
+        OrderMessageStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<Order> getValueType() {
+            return Order.class;
+        }
+
+        @Override
+        protected @NonNull Long getKey(@NonNull Order value) {
+            return value.meta().id();
+        }
+
+        @Override
+        protected String keyPath() {
+            return "meta.id";
+        }
+
+        @Override
+        protected Class<Long> getKeyType() {
+            return Long.class;
+        }
+
+        @Override
+        protected void create(@NonNull Long key, Order value) {
+            operations.add("CREATE:" + key + ":" + value.quantity());
+        }
+
+        @Override
+        protected void delete(@NonNull Long key) {
+            if (key.equals(failOn)) {
+                throw new IllegalStateException(String.valueOf(key));
+            }
+            operations.add("DELETE:" + key);
+        }
+
+        @Override
+        protected void update(@NonNull Long key, Order value) {
+            operations.add("UPDATE:" + key + ":" + value.quantity());
+        }
+
+        @Override
+        protected Order get(@NonNull Long key) {
+            return null;
+        }
+    }
 }
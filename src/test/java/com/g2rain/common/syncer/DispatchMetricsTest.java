@@ -0,0 +1,77 @@
+package com.g2rain.common.syncer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("分发统计测试")
+class DispatchMetricsTest {
+
+    @Test
+    @DisplayName("测试直方图分桶边界")
+    void testHistogramBuckets() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 100, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int index = DispatchMetrics.LatencyHistogram.indexOf(value);
+            long lower = DispatchMetrics.LatencyHistogram.lowerBoundOf(index);
+            long upper = DispatchMetrics.LatencyHistogram.upperBoundOf(index);
+            assertTrue(lower <= value && value <= upper, "value " + value);
+            // 相对误差不超过 12.5%
+            assertTrue(upper - lower <= Math.max(0, lower / 8), "value " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("测试按数据源与事件类型统计")
+    void testSnapshot() {
+        new PartitionedMessageDispatcherTest.KeyedMessageStorage("metricsUser");
+        DispatchMetrics metrics = new DispatchMetrics();
+        for (int i = 1; i <= 1000; i++) {
+            metrics.onApplied("metricsUser", EventType.UPDATE, i * 1_000L);
+        }
+        metrics.onBatchApplied("metricsUser", List.of(
+            new Change<>(EventType.CREATE, "1", "a"),
+            new Change<>(EventType.DELETE, "2", null)
+        ), 2_000);
+        metrics.onFailure("metricsUser", EventType.UPDATE, DispatchFailure.STORAGE_ERROR, new IllegalStateException());
+        metrics.onFailure(null, null, DispatchFailure.INVALID_MESSAGE, null);
+
+        DispatchStats update = metrics.stats("metricsUser", EventType.UPDATE);
+        assertEquals(1000, update.appliedCount());
+        assertEquals(1, update.failureCount(DispatchFailure.STORAGE_ERROR));
+        assertEquals(500_500, update.meanNanos());
+        assertEquals(1_000_000, update.maxNanos());
+        assertTrue(update.p50Nanos() >= 500_000 && update.p50Nanos() <= 500_000 * 9 / 8);
+        assertTrue(update.p99Nanos() >= 990_000 && update.p99Nanos() <= 990_000 * 9 / 8);
+        assertTrue(update.p999Nanos() >= update.p99Nanos());
+
+        assertEquals(1, metrics.stats("metricsUser", EventType.CREATE).appliedCount());
+        assertEquals(1_000, metrics.stats("metricsUser", EventType.DELETE).maxNanos());
+
+        DispatchStats unknown = metrics.stats(null, null);
+        assertEquals(DispatchMetrics.UNKNOWN_DATA_SOURCE, unknown.dataSource());
+        assertNull(unknown.eventType());
+        assertEquals(1, unknown.failureCount());
+
+        assertEquals(4, metrics.snapshot().size());
+        assertEquals(0, new DispatchMetrics().stats("none", EventType.CREATE).p99Nanos());
+    }
+
+    @Test
+    @DisplayName("测试未注册的数据源记入未知数据源")
+    void testUnregisteredDataSource() {
+        DispatchMetrics metrics = new DispatchMetrics();
+        for (int i = 0; i < 100; i++) {
+            metrics.onFailure("garbage-" + i, EventType.CREATE, DispatchFailure.UNKNOWN_DATA_SOURCE, null);
+        }
+
+        assertEquals(100, metrics.stats(DispatchMetrics.UNKNOWN_DATA_SOURCE, EventType.CREATE)
+            .failureCount(DispatchFailure.UNKNOWN_DATA_SOURCE));
+        assertEquals(0, metrics.stats("garbage-0", EventType.CREATE).failureCount());
+        assertEquals(1, metrics.snapshot().size());
+    }
+}
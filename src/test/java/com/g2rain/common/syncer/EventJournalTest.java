@@ -0,0 +1,236 @@
+package com.g2rain.common.syncer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("事件预写日志测试")
+class EventJournalTest {
+
+    @Test
+    @DisplayName("测试追加与按批读取记录")
+    void testAppendAndRead(@TempDir Path dir) {
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            assertFalse(journal.hasPending());
+            journal.append(bytes("a"));
+            long second = journal.append(bytes("bb"));
+            long third = journal.append(bytes("ccc"));
+            assertEquals(third, journal.writeAddress());
+            assertTrue(journal.hasPending());
+
+            List<ByteBuffer> records = new ArrayList<>();
+            assertEquals(second, journal.read(journal.checkpoint(), 2, records));
+            assertEquals(List.of("a", "bb"), text(records));
+
+            records.clear();
+            assertEquals(third, journal.read(second, 10, records));
+            assertEquals(List.of("ccc"), text(records));
+
+            // 没有新记录时返回起始地址
+            records.clear();
+            assertEquals(third, journal.read(third, 10, records));
+            assertTrue(records.isEmpty());
+            assertFalse(journal.awaitRecords(third, 1, TimeUnit.MILLISECONDS));
+
+            journal.commit(third);
+            assertEquals(third, journal.checkpoint());
+            assertFalse(journal.hasPending());
+            assertEquals(3, journal.appendedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试参数校验与关闭后追加")
+    void testArguments(@TempDir Path dir) {
+        assertThrows(IllegalArgumentException.class, () -> EventJournal.open(dir, 512, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> EventJournal.open(dir, 4096, Duration.ofMillis(-1)));
+
+        EventJournal journal = EventJournal.open(dir, 1024, Duration.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> journal.append(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class, () -> journal.append(ByteBuffer.allocate(1024)));
+        journal.append(ByteBuffer.allocate(1024 - EventJournal.RECORD_HEADER_LENGTH));
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.append(bytes("a")));
+    }
+
+    @Test
+    @DisplayName("测试写满后滚动到新段并在提交检查点后删除旧段")
+    void testRoll(@TempDir Path dir) {
+        try (EventJournal journal = EventJournal.open(dir, 1024, Duration.ZERO)) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String record = "record-" + i + "-" + "x".repeat(80);
+                expected.add(record);
+                journal.append(bytes(record));
+            }
+            assertTrue(journal.segmentCount() > 1);
+
+            List<ByteBuffer> records = new ArrayList<>();
+            long position = journal.checkpoint();
+            while (records.size() < expected.size()) {
+                position = journal.read(position, 7, records);
+            }
+            assertEquals(expected, text(records));
+            assertEquals(journal.writeAddress(), position);
+
+            journal.commit(position);
+            assertEquals(1, journal.segmentCount());
+            assertEquals(1, segmentFiles(dir));
+        }
+    }
+
+    @Test
+    @DisplayName("测试重新打开后从检查点继续读取")
+    void testRecover(@TempDir Path dir) {
+        long end;
+        long checkpoint;
+        try (EventJournal journal = EventJournal.open(dir, 1024, Duration.ofSeconds(10))) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(bytes("event-" + i + "-" + "y".repeat(60)));
+            }
+            List<ByteBuffer> records = new ArrayList<>();
+            checkpoint = journal.read(journal.checkpoint(), 15, records);
+            journal.commit(checkpoint);
+            end = journal.writeAddress();
+        }
+
+        try (EventJournal journal = EventJournal.open(dir, 1024, Duration.ZERO)) {
+            assertEquals(checkpoint, journal.checkpoint());
+            assertEquals(end, journal.writeAddress());
+
+            List<ByteBuffer> records = new ArrayList<>();
+            journal.read(journal.checkpoint(), 100, records);
+            assertEquals(5, records.size());
+            assertTrue(text(records).getFirst().startsWith("event-15-"));
+
+            long next = journal.append(bytes("after-restart"));
+            records.clear();
+            assertEquals(next, journal.read(end, 100, records));
+            assertEquals(List.of("after-restart"), text(records));
+        }
+    }
+
+    @Test
+    @DisplayName("测试截断未写完整的尾部记录")
+    void testTornRecord(@TempDir Path dir) throws Exception {
+        long end;
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            journal.append(bytes("first"));
+            end = journal.append(bytes("second"));
+        }
+
+        // 模拟写入一半时崩溃：长度已写入，内容与校验和不完整
+        try (Stream<Path> files = Files.list(dir);
+             FileChannel channel = FileChannel.open(files.filter(file -> file.toString().endsWith(".log"))
+                 .findFirst().orElseThrow(), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(100).putInt(0x12345678).putInt(0x7F7F7F7F).flip();
+            channel.write(torn, end);
+        }
+
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            assertEquals(end, journal.writeAddress());
+            journal.append(bytes("third"));
+
+            List<ByteBuffer> records = new ArrayList<>();
+            journal.read(0, 100, records);
+            assertEquals(List.of("first", "second", "third"), text(records));
+            assertEquals(0, journal.corruptionCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试校验和不匹配时只跳过该条记录")
+    void testCorruptedRecord(@TempDir Path dir) throws Exception {
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            journal.append(bytes("first"));
+            journal.append(bytes("second"));
+            journal.append(bytes("third"));
+
+            // 改写第二条记录的内容，映射内存与文件共享页缓存
+            try (Stream<Path> files = Files.list(dir);
+                 FileChannel channel = FileChannel.open(files.filter(file -> file.toString().endsWith(".log"))
+                     .findFirst().orElseThrow(), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{'S'}), EventJournal.RECORD_HEADER_LENGTH * 2L + 5);
+            }
+
+            List<ByteBuffer> records = new ArrayList<>();
+            assertEquals(journal.writeAddress(), journal.read(0, 100, records));
+            assertEquals(List.of("first", "third"), text(records));
+            assertEquals(1, journal.corruptionCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试并发追加时合并刷盘")
+    void testGroupCommit(@TempDir Path dir) throws InterruptedException {
+        try (EventJournal journal = EventJournal.open(dir, 1 << 16, Duration.ZERO)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int id = t;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        journal.append(bytes(id + ":" + i));
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(800, journal.appendedCount());
+            assertTrue(journal.flushCount() <= journal.appendedCount());
+
+            List<ByteBuffer> records = new ArrayList<>();
+            journal.read(0, 1000, records);
+            assertEquals(800, records.size());
+            // 同一线程的记录保持追加顺序
+            List<String> fromFirst = text(records).stream().filter(record -> record.startsWith("0:")).toList();
+            for (int i = 0; i < fromFirst.size(); i++) {
+                assertEquals("0:" + i, fromFirst.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试按间隔刷盘时追加不等待刷盘")
+    void testCommitInterval(@TempDir Path dir) {
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ofMillis(5))) {
+            long end = journal.append(bytes("a"));
+            journal.awaitDurable(end);
+            assertTrue(journal.flushCount() >= 1);
+        }
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> text(List<ByteBuffer> records) {
+        return records.stream().map(record -> StandardCharsets.UTF_8.decode(record.duplicate()).toString()).toList();
+    }
+
+    private static long segmentFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+}
@@ -2,12 +2,28 @@ package com.g2rain.common.syncer;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -71,4 +87,500 @@ class EventPublisherHubTest {
         EventMessage<String> eventMessage = new EventMessage<>("test", EventType.CREATE, "data");
         assertDoesNotThrow(() -> hub.send(eventMessage));
     }
+
+    @Test
+    @DisplayName("测试异步模式以微批发布并在关闭时刷新")
+    void testAsyncBatching() throws InterruptedException {
+        RecordingPublisher publisher = new RecordingPublisher();
+        publisher.gate = new CountDownLatch(1);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(publisher))
+            .withAsync(64)
+            .withBatchSize(10)
+            .build();
+        assertTrue(hub.isAsync());
+
+        for (int i = 0; i < 25; i++) {
+            hub.send("test", EventType.UPDATE, i);
+        }
+        // 第一个微批被阻塞在发布者中，其余事件留在缓冲区
+        assertTrue(publisher.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(hub.pendingSize() > 0);
+
+        publisher.gate.countDown();
+        hub.close();
+
+        assertEquals(0, hub.pendingSize());
+        assertEquals(25, publisher.received.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i, publisher.received.get(i));
+        }
+        assertTrue(publisher.batchSizes.stream().allMatch(size -> size <= 10));
+        assertThrows(IllegalStateException.class, () -> hub.send("test", EventType.UPDATE, 0));
+    }
+
+    @Test
+    @DisplayName("测试丢弃最早事件的溢出策略")
+    void testDropOldest() throws InterruptedException {
+        RecordingPublisher publisher = new RecordingPublisher();
+        publisher.gate = new CountDownLatch(1);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(publisher))
+            .withAsync(4)
+            .withBatchSize(1)
+            .withOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+            .build();
+
+        hub.send("test", EventType.UPDATE, -1);
+        assertTrue(publisher.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            hub.send("test", EventType.UPDATE, i);
+        }
+        assertEquals(6, hub.droppedCount());
+
+        publisher.gate.countDown();
+        hub.close();
+        assertEquals(List.of(-1, 6, 7, 8, 9), publisher.received);
+    }
+
+    @Test
+    @DisplayName("测试由发送线程发布的溢出策略")
+    void testCallerRuns() throws InterruptedException {
+        RecordingPublisher publisher = new RecordingPublisher();
+        publisher.gate = new CountDownLatch(1);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(publisher))
+            .withAsync(1)
+            .withBatchSize(1)
+            .withOverflowPolicy(OverflowPolicy.CALLER_RUNS)
+            .build();
+
+        hub.send("test", EventType.UPDATE, 0);
+        assertTrue(publisher.entered.await(5, TimeUnit.SECONDS));
+        hub.send("test", EventType.UPDATE, 1);
+
+        Thread caller = Thread.ofPlatform().start(() -> hub.send("test", EventType.UPDATE, 2));
+        caller.join(200);
+        // 缓冲区已满，发送线程代为发布缓冲区中的事件，排在发布者正在处理的批次之后
+        assertTrue(caller.isAlive());
+
+        publisher.gate.countDown();
+        caller.join(5000);
+        assertFalse(caller.isAlive());
+        hub.close();
+        // 溢出的事件不会插队，发布者也没有被并发调用
+        assertEquals(List.of(0, 1, 2), publisher.received);
+        assertFalse(publisher.overlapped);
+        assertEquals(0, hub.droppedCount());
+    }
+
+    @Test
+    @DisplayName("测试构建器参数校验与批量发布默认实现")
+    void testBuilderAndPublishAll() {
+        assertThrows(IllegalArgumentException.class, () -> EventPublisherHubBuilder.builder().withAsync(0));
+        assertThrows(IllegalArgumentException.class, () -> EventPublisherHubBuilder.builder().withBatchSize(0));
+
+        EventPublisherHub hub = EventPublisherHubBuilder.builder().build();
+        assertFalse(hub.isAsync());
+        assertDoesNotThrow(hub::close);
+
+        EventPublisher publisher = mock(EventPublisher.class);
+        org.mockito.Mockito.doCallRealMethod().when(publisher).publishAll(any());
+        EventMessage<String> first = new EventMessage<>("test", EventType.CREATE, "1");
+        EventMessage<String> second = new EventMessage<>("test", EventType.DELETE, "2");
+        publisher.publishAll(List.of(first, second));
+        verify(publisher).publish(first);
+        verify(publisher).publish(second);
+    }
+
+    @Test
+    @DisplayName("测试单个发布者失败不影响其他发布者")
+    void testSendIsolation() {
+        EventPublisher failing = mock(EventPublisher.class);
+        EventPublisher healthy = mock(EventPublisher.class);
+        EventMessage<String> eventMessage = new EventMessage<>("test", EventType.CREATE, "data");
+        doThrow(new IllegalStateException("broker down")).when(failing).publish(eventMessage);
+
+        EventPublisherHub hub = new EventPublisherHub(Set.of(failing, healthy));
+        assertThrows(IllegalStateException.class, () -> hub.send(eventMessage));
+
+        verify(healthy).publish(eventMessage);
+        assertEquals(1, hub.publisherStats().get(failing).failureCount());
+        assertEquals(1, hub.publisherStats().get(healthy).successCount());
+    }
+
+    @Test
+    @DisplayName("测试并发扇出汇总各发布者的结果")
+    void testSendAsyncReport() {
+        EventPublisher healthy = mock(EventPublisher.class);
+        EventPublisher failing = mock(EventPublisher.class);
+        EventMessage<String> eventMessage = new EventMessage<>("test", EventType.CREATE, "data");
+        doThrow(new IllegalStateException("broker down")).when(failing).publish(eventMessage);
+        RecordingPublisher hanging = new RecordingPublisher();
+        hanging.gate = new CountDownLatch(1);
+
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(healthy, failing, hanging))
+            .withPublishTimeout(Duration.ofMillis(100))
+            .build();
+
+        PublishReport report = hub.sendAsync(eventMessage).join();
+        assertFalse(report.isSuccess());
+        assertEquals(3, report.outcomes().size());
+        assertEquals(PublishReport.Status.SUCCESS, statusOf(report, healthy));
+        assertEquals(PublishReport.Status.FAILED, statusOf(report, failing));
+        assertEquals(PublishReport.Status.TIMEOUT, statusOf(report, hanging));
+        assertEquals(1, hub.publisherStats().get(hanging).timeoutCount());
+
+        hanging.gate.countDown();
+        hub.close();
+        assertThrows(IllegalStateException.class, () -> hub.sendAsync(eventMessage));
+    }
+
+    @Test
+    @DisplayName("测试挂起的发布者不拖住异步发布线程")
+    void testHungPublisherDoesNotStallDrainer() throws InterruptedException {
+        RecordingPublisher hanging = new RecordingPublisher();
+        hanging.gate = new CountDownLatch(1);
+        RecordingPublisher healthy = new RecordingPublisher();
+        healthy.gate = new CountDownLatch(0);
+
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(hanging, healthy))
+            .withAsync(64)
+            .withBatchSize(1)
+            .withPublishTimeout(Duration.ofMillis(100))
+            .build();
+
+        for (int i = 0; i < 20; i++) {
+            hub.send("test", EventType.UPDATE, i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (healthy.received.size() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, healthy.received.size());
+
+        // 只有挂起前后的一两批等待超时，之后的批次对挂起的通道直接拒绝
+        PublisherStats stats = hub.publisherStats().get(hanging);
+        assertTrue(stats.timeoutCount() <= 2);
+        assertTrue(stats.rejectedCount() >= 18);
+
+        hanging.gate.countDown();
+        hub.close();
+    }
+
+    @Test
+    @DisplayName("测试连续失败后熔断器打开")
+    void testCircuitBreaker() throws InterruptedException {
+        EventPublisher failing = mock(EventPublisher.class);
+        EventMessage<String> eventMessage = new EventMessage<>("test", EventType.CREATE, "data");
+        doThrow(new IllegalStateException("broker down")).when(failing).publish(eventMessage);
+
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(failing))
+            .withCircuitBreaker(2, Duration.ofMillis(200))
+            .build();
+
+        assertEquals(PublishReport.Status.FAILED, statusOf(hub.sendAsync(eventMessage).join(), failing));
+        assertEquals(PublishReport.Status.FAILED, statusOf(hub.sendAsync(eventMessage).join(), failing));
+        assertEquals(PublishReport.Status.REJECTED, statusOf(hub.sendAsync(eventMessage).join(), failing));
+        // 熔断期间同步发送直接跳过该发布者
+        assertDoesNotThrow(() -> hub.send(eventMessage));
+
+        PublisherStats stats = hub.publisherStats().get(failing);
+        assertTrue(stats.circuitOpen());
+        assertEquals(2, stats.failureCount());
+        assertEquals(2, stats.rejectedCount());
+
+        // 打开期满后放行一次试探，失败后重新打开
+        Thread.sleep(250);
+        assertEquals(PublishReport.Status.FAILED, statusOf(hub.sendAsync(eventMessage).join(), failing));
+        assertTrue(hub.publisherStats().get(failing).circuitOpen());
+        hub.close();
+    }
+
+    @Test
+    @DisplayName("测试预序列化只序列化一次并共享字节")
+    void testSerializeOnce() {
+        SerializedPublisher first = new SerializedPublisher();
+        SerializedPublisher second = new SerializedPublisher();
+        EventPublisher plain = mock(EventPublisher.class);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(first, second, plain))
+            .withSerializeOnce()
+            .build();
+
+        CountingPayload payload = new CountingPayload();
+        EventMessage<CountingPayload> eventMessage = new EventMessage<>("serialized", EventType.UPDATE, payload);
+        hub.send(eventMessage);
+
+        // 信封只序列化一次，两个支持预序列化的发布者获得相同内容
+        assertEquals(1, payload.reads.get());
+        assertEquals(1, first.payloads.size());
+        assertEquals(first.payloads.get(0), second.payloads.get(0));
+        assertEquals("{\"dataSource\":\"serialized\",\"eventType\":\"UPDATE\",\"data\":{\"name\":\"x\"}}",
+            first.payloads.get(0));
+        assertEquals(new EventMessageHeader("serialized", EventType.UPDATE), first.headers.get(0));
+        verify(plain).publish(eventMessage);
+    }
+
+    @Test
+    @DisplayName("测试未启用预序列化时不调用序列化发布")
+    void testSerializeOnceDisabled() {
+        SerializedPublisher publisher = new SerializedPublisher();
+        EventPublisherHub hub = new EventPublisherHub(Set.of(publisher));
+
+        hub.send("serialized", EventType.CREATE, "data");
+        assertTrue(publisher.payloads.isEmpty());
+        assertEquals(1, publisher.published.get());
+
+        EventPublisher plain = mock(EventPublisher.class);
+        org.mockito.Mockito.doCallRealMethod().when(plain).publishSerialized(any(), any());
+        assertThrows(UnsupportedOperationException.class,
+            () -> plain.publishSerialized(ByteBuffer.allocate(0), new EventMessageHeader("s", EventType.CREATE)));
+    }
+
+    @Test
+    @DisplayName("测试按数据源填充事件序号")
+    void testSequencing() {
+        SerializedPublisher publisher = new SerializedPublisher();
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(publisher))
+            .withSerializeOnce()
+            .withSequencing()
+            .build();
+
+        hub.send("sequenced", EventType.CREATE, "\"a\"");
+        hub.send("sequenced", EventType.UPDATE, "\"a\"");
+        hub.send("other", EventType.CREATE, "\"b\"");
+        EventMessage<String> preset = new EventMessage<>("sequenced", EventType.DELETE, "\"a\"");
+        preset.setSequence(7L);
+        hub.send(preset);
+
+        long first = publisher.headers.get(0).sequence();
+        assertEquals(first + 1, publisher.headers.get(1).sequence());
+        assertEquals(hub.producerId(), publisher.headers.get(0).producer());
+        // 已设置序号的事件原样发送，不带发布方标识
+        assertEquals(null, publisher.headers.get(3).producer());
+        assertNotNull(publisher.headers.get(2).sequence());
+        // 已设置的序号保持不变
+        assertEquals(7L, publisher.headers.get(3).sequence());
+        assertTrue(publisher.payloads.get(0).contains("\"sequence\":" + first));
+
+        // 填充序号时发送副本，调用方的事件对象保持不变
+        EventMessage<String> reused = new EventMessage<>("sequenced", EventType.CREATE, "\"a\"");
+        hub.send(reused);
+        hub.send(reused);
+        assertEquals(null, reused.getSequence());
+        assertEquals(null, reused.getProducer());
+        assertEquals(publisher.headers.get(1).sequence() + 2, publisher.headers.get(5).sequence());
+
+        EventMessage<String> unsequenced = new EventMessage<>("sequenced", EventType.CREATE, "\"a\"");
+        new EventPublisherHub(Set.of(publisher)).send(unsequenced);
+        assertEquals(null, unsequenced.getSequence());
+    }
+
+    @Test
+    @DisplayName("测试日志模式先持久化再转发，失败的发布者单独重试")
+    void testJournal(@TempDir Path dir) throws InterruptedException {
+        FlakyPublisher flaky = new FlakyPublisher(1);
+        JournalPublisher serialized = new JournalPublisher();
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(flaky, serialized))
+            .withSequencing()
+            .withJournal(EventJournal.open(dir, 4096, Duration.ZERO))
+            .build();
+
+        hub.send("journaled", EventType.CREATE, "{\"id\":1}");
+        hub.send("journaled", EventType.UPDATE, Map.of("id", 2));
+        hub.send("journaled", EventType.DELETE, "{\"id\":3}");
+        assertTrue(flaky.delivered.await(5, TimeUnit.SECONDS));
+        hub.close();
+        assertThrows(IllegalStateException.class, () -> hub.send("journaled", EventType.CREATE, "{}"));
+
+        // 失败的发布者重试后收到全部事件，成功的发布者不重复接收
+        assertEquals(List.of("{\"id\":1}", Map.of("id", 2), "{\"id\":3}"), flaky.received);
+        assertEquals(3, serialized.payloads.size());
+        assertTrue(serialized.payloads.getFirst().startsWith("{\"dataSource\":\"journaled\",\"eventType\":\"CREATE\""));
+        assertEquals(EventType.DELETE, serialized.headers.get(2).eventType());
+        assertEquals(serialized.headers.getFirst().sequence() + 2, serialized.headers.get(2).sequence());
+
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            assertFalse(journal.hasPending());
+        }
+    }
+
+    @Test
+    @DisplayName("测试日志模式重启后继续转发未送达的事件")
+    void testJournalRecovery(@TempDir Path dir) throws InterruptedException {
+        FlakyPublisher down = new FlakyPublisher(Integer.MAX_VALUE);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(down))
+            .withEnvelopeCodec(new BinaryEnvelopeCodec())
+            .withJournal(EventJournal.open(dir, 4096, Duration.ZERO))
+            .build();
+        hub.send("recovered", EventType.CREATE, Map.of("id", 1));
+        hub.send("recovered", EventType.UPDATE, Map.of("id", 2));
+        hub.close();
+        assertTrue(down.received.isEmpty());
+
+        FlakyPublisher up = new FlakyPublisher(0);
+        EventPublisherHub restarted = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(up))
+            .withEnvelopeCodec(new BinaryEnvelopeCodec())
+            .withJournal(EventJournal.open(dir, 4096, Duration.ZERO))
+            .build();
+        assertTrue(up.delivered.await(5, TimeUnit.SECONDS));
+        restarted.close();
+        assertEquals(List.of(Map.of("id", 1), Map.of("id", 2)), up.received);
+        assertEquals(List.of(EventType.CREATE, EventType.UPDATE), up.eventTypes);
+
+        assertEquals(0, restarted.undecodableCount());
+
+        assertThrows(IllegalArgumentException.class, () -> EventPublisherHubBuilder.builder()
+            .withJournal(EventJournal.open(dir.resolve("async"))).withAsync(16).build());
+        assertThrows(IllegalArgumentException.class, () -> EventPublisherHubBuilder.builder()
+            .withJournal(EventJournal.open(dir.resolve("custom"))).withEnvelopeCodec(EnvelopeCodec.JSON::encode).build());
+    }
+
+    @Test
+    @DisplayName("测试日志中无法解码的记录被计数并跳过")
+    void testJournalUndecodable(@TempDir Path dir) throws InterruptedException {
+        try (EventJournal journal = EventJournal.open(dir, 4096, Duration.ZERO)) {
+            journal.append(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        FlakyPublisher up = new FlakyPublisher(0);
+        EventPublisherHub hub = EventPublisherHubBuilder.builder()
+            .withPublishers(Set.of(up))
+            .withEnvelopeCodec(new BinaryEnvelopeCodec())
+            .withJournal(EventJournal.open(dir, 4096, Duration.ZERO))
+            .build();
+        hub.send("undecodable", EventType.CREATE, Map.of("id", 1));
+        hub.send("undecodable", EventType.UPDATE, Map.of("id", 2));
+        assertTrue(up.delivered.await(5, TimeUnit.SECONDS));
+        hub.close();
+
+        assertEquals(List.of(Map.of("id", 1), Map.of("id", 2)), up.received);
+        assertEquals(1, hub.undecodableCount());
+    }
+
+    /**
+     * 前若干次批量发布失败的发布者，收到三个事件后打开闸门
+     */
+    static class FlakyPublisher implements EventPublisher {
+        final List<Object> received = java.util.Collections.synchronizedList(new ArrayList<>());
+        final List<EventType> eventTypes = java.util.Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch delivered;
+        private final AtomicInteger failures;
+
+        FlakyPublisher(int failures) {
+            this.failures = new AtomicInteger(failures);
+            this.delivered = new CountDownLatch(failures == 0 ? 2 : 3);
+        }
+
+        @Override
+        public <V> void publish(EventMessage<V> eventMessage) {
+            publishAll(List.of(eventMessage));
+        }
+
+        @Override
+        public void publishAll(List<EventMessage<?>> eventMessages) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("broker unavailable");
+            }
+            eventMessages.forEach(message -> {
+                received.add(message.getData());
+                eventTypes.add(message.getEventType());
+                delivered.countDown();
+            });
+        }
+    }
+
+    /**
+     * 支持预序列化的线程安全发布者，记录收到的信封内容
+     */
+    static class JournalPublisher extends SerializedPublisher {
+        @Override
+        public synchronized void publishSerialized(ByteBuffer payload, EventMessageHeader header) {
+            super.publishSerialized(payload, header);
+        }
+    }
+
+    /**
+     * 支持预序列化的发布者，记录收到的信封内容
+     */
+    static class SerializedPublisher implements EventPublisher {
+        final List<String> payloads = new ArrayList<>();
+        final List<EventMessageHeader> headers = new ArrayList<>();
+        final AtomicInteger published = new AtomicInteger();
+
+        @Override
+        public <V> void publish(EventMessage<V> eventMessage) {
+            published.incrementAndGet();
+        }
+
+        @Override
+        public boolean supportsSerialized() {
+            return true;
+        }
+
+        @Override
+        public void publishSerialized(ByteBuffer payload, EventMessageHeader header) {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            payloads.add(new String(bytes, StandardCharsets.UTF_8));
+            headers.add(header);
+        }
+    }
+
+    /**
+     * 记录被序列化次数的事件数据
+     */
+    static class CountingPayload {
+        final AtomicInteger reads = new AtomicInteger();
+
+        public String getName() {
+            reads.incrementAndGet();
+            return "x";
+        }
+    }
+
+    private static PublishReport.Status statusOf(PublishReport report, EventPublisher publisher) {
+        return report.outcomes().stream()
+            .filter(outcome -> outcome.publisher() == publisher)
+            .findFirst().orElseThrow().status();
+    }
+
+    /**
+     * 记录收到的整数事件与每次批量发布的大小，可通过闸门阻塞发布
+     */
+    static class RecordingPublisher implements EventPublisher {
+        final List<Object> received = java.util.Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> batchSizes = java.util.Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch entered = new CountDownLatch(1);
+        final java.util.concurrent.atomic.AtomicInteger active = new java.util.concurrent.atomic.AtomicInteger();
+        volatile CountDownLatch gate;
+        volatile boolean overlapped;
+
+        @Override
+        public <V> void publish(EventMessage<V> eventMessage) {
+            publishAll(List.of(eventMessage));
+        }
+
+        @Override
+        public void publishAll(List<EventMessage<?>> eventMessages) {
+            overlapped |= active.incrementAndGet() > 1;
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(eventMessages.size());
+            eventMessages.forEach(message -> received.add(message.getData()));
+            active.decrementAndGet();
+        }
+    }
 }
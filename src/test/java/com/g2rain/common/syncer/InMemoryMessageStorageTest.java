@@ -0,0 +1,222 @@
+package com.g2rain.common.syncer;
+
+import lombok.NonNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("内存消息存储器测试")
+class InMemoryMessageStorageTest {
+
+    @Test
+    @DisplayName("测试增删改查与命中统计")
+    void testCrud() {
+        UserStorage storage = new UserStorage("inMemoryCrud");
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1")));
+        storage.apply(new Change<>(EventType.UPDATE, "1", new User("1", "t2")));
+        storage.apply(new Change<>(EventType.CREATE, "2", new User("2", "t1")));
+
+        assertEquals(2, storage.size());
+        assertEquals("t2", storage.get("1").tenant());
+        assertNull(storage.get("3"));
+        assertEquals(1, storage.hitCount());
+        assertEquals(1, storage.missCount());
+
+        storage.apply(new Change<>(EventType.DELETE, "1", null));
+        assertNull(storage.get("1"));
+        assertEquals(1, storage.size());
+    }
+
+    @Test
+    @DisplayName("测试二级索引随写入维护")
+    void testFindBy() {
+        UserStorage storage = new UserStorage("inMemoryIndex");
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1")));
+        storage.apply(new Change<>(EventType.CREATE, "2", new User("2", "t1")));
+        storage.apply(new Change<>(EventType.CREATE, "3", new User("3", null)));
+
+        assertEquals(2, storage.findBy("tenant", "t1").size());
+        assertTrue(storage.findBy("tenant", null).isEmpty());
+
+        storage.apply(new Change<>(EventType.UPDATE, "1", new User("1", "t2")));
+        assertEquals(List.of(new User("2", "t1")), storage.findBy("tenant", "t1"));
+        assertEquals(List.of(new User("1", "t2")), storage.findBy("tenant", "t2"));
+
+        storage.apply(new Change<>(EventType.DELETE, "2", null));
+        assertTrue(storage.findBy("tenant", "t1").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> storage.findBy("missing", "t1"));
+    }
+
+    @Test
+    @DisplayName("测试全量加载原子替换快照")
+    void testLoad() {
+        UserStorage storage = new UserStorage("inMemoryLoad");
+        storage.apply(new Change<>(EventType.CREATE, "old", new User("old", "t0")));
+
+        storage.loaded.add(new User("1", "t1"));
+        storage.loaded.add(new User("2", "t1"));
+        storage.load();
+
+        assertEquals(2, storage.size());
+        assertNull(storage.get("old"));
+        assertEquals(2, storage.findBy("tenant", "t1").size());
+        assertTrue(storage.findBy("tenant", "t0").isEmpty());
+        assertEquals(2, storage.values().size());
+    }
+
+    @Test
+    @DisplayName("测试加载期间读取与写入不被阻塞")
+    void testReadDuringLoad() throws InterruptedException {
+        UserStorage storage = new UserStorage("inMemoryConcurrent");
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1")));
+        storage.loadStarted = new CountDownLatch(1);
+        storage.loadRelease = new CountDownLatch(1);
+
+        Thread loader = Thread.ofPlatform().start(storage::load);
+        storage.loadStarted.await();
+
+        // 加载期间，读取仍然看到旧快照
+        AtomicBoolean read = new AtomicBoolean();
+        Thread reader = Thread.ofPlatform().start(() -> read.set(storage.get("1") != null));
+        reader.join(5000);
+        assertTrue(read.get());
+
+        // 加载期间的写入不被阻塞，替换时重放到新状态上
+        Thread writer = Thread.ofPlatform().start(() -> {
+            storage.apply(new Change<>(EventType.CREATE, "2", new User("2", "t2")));
+            storage.apply(new Change<>(EventType.CREATE, "3", new User("3", "t2")));
+            storage.apply(new Change<>(EventType.DELETE, "3", null));
+        });
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertEquals(2, storage.size());
+
+        storage.loadRelease.countDown();
+        loader.join(5000);
+        assertFalse(loader.isAlive());
+        assertEquals(1, storage.size());
+        assertNull(storage.get("1"));
+        assertEquals(List.of(new User("2", "t2")), storage.findBy("tenant", "t2"));
+        assertNull(storage.get("3"));
+    }
+
+    @Test
+    @DisplayName("测试快照写入与恢复记录、索引及每个发布方的事件序号")
+    void testSnapshot(@TempDir Path dir) {
+        Path file = dir.resolve("users.snapshot");
+        UserStorage storage = new UserStorage("inMemorySnapshot");
+        assertNull(storage.lastSequence(1L));
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1"), 7L, 1L));
+        storage.apply(new Change<>(EventType.CREATE, "2", new User("2", "t1"), 9L, 1L));
+        // 乱序应用的较小序号不回退
+        storage.apply(new Change<>(EventType.CREATE, "3", new User("3", "t2"), 8L, 1L));
+        // 其他发布方的序号单独跟踪，不会被较大的序号掩盖
+        storage.apply(new Change<>(EventType.CREATE, "5", new User("5", "t3"), 3L, 2L));
+        storage.apply(new Change<>(EventType.CREATE, "4", new User("4", "t2")));
+        assertEquals(9L, storage.lastSequence(1L));
+        assertEquals(3L, storage.lastSequence(2L));
+        assertNull(storage.lastSequence(null));
+        assertEquals(Map.of(1L, 9L, 2L, 3L), storage.lastSequences());
+        assertEquals(5, storage.writeSnapshot(file));
+
+        UserStorage restored = new UserStorage("inMemorySnapshot");
+        restored.apply(new Change<>(EventType.CREATE, "old", new User("old", "t0"), 100L, 3L));
+        assertEquals(Map.of(1L, 9L, 2L, 3L), restored.restoreSnapshot(file));
+        assertEquals(3L, restored.lastSequence(2L));
+        assertNull(restored.lastSequence(3L));
+        assertEquals(5, restored.size());
+        assertNull(restored.get("old"));
+        assertEquals(new User("3", "t2"), restored.get("3"));
+        assertEquals(2, restored.findBy("tenant", "t1").size());
+
+        // 没有序号的空快照
+        UserStorage empty = new UserStorage("inMemorySnapshotEmpty");
+        Path emptyFile = dir.resolve("empty.snapshot");
+        assertEquals(0, empty.writeSnapshot(emptyFile));
+        assertEquals(Map.of(), empty.restoreSnapshot(emptyFile));
+        assertEquals(0, empty.size());
+    }
+
+    @Test
+    @DisplayName("测试拒绝损坏或属于其他数据源的快照")
+    void testCorruptedSnapshot(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.snapshot");
+        UserStorage storage = new UserStorage("inMemorySnapshotCorrupted");
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1"), 1L));
+        storage.writeSnapshot(file);
+
+        UserStorage other = new UserStorage("inMemorySnapshotOther");
+        assertThrows(IllegalStateException.class, () -> other.restoreSnapshot(file));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+        assertThrows(IllegalStateException.class, () -> storage.restoreSnapshot(file));
+        // 恢复失败时保留当前状态
+        assertEquals(1, storage.size());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> storage.restoreSnapshot(file));
+        assertThrows(UncheckedIOException.class, () -> storage.restoreSnapshot(dir.resolve("missing.snapshot")));
+    }
+
+    record User(String id, String tenant) {
+    }
+
+    static class UserStorage extends InMemoryMessageStorage<String, User> {
+        final List<User> loaded = new ArrayList<>();
+        private final String dataSourceName;
+        volatile CountDownLatch loadStarted;
+        volatile CountDownLatch loadRelease;
+
+        UserStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+            addIndex("tenant", User::tenant);
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<User> getValueType() {
+            return User.class;
+        }
+
+        @Override
+        protected @NonNull String getKey(@NonNull User value) {
+            return value.id();
+        }
+
+        @Override
+        protected Collection<User> loadValues() {
+            if (loadStarted != null) {
+                loadStarted.countDown();
+                try {
+                    loadRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return loaded;
+        }
+    }
+}
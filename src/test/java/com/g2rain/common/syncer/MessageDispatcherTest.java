@@ -3,7 +3,13 @@ package com.g2rain.common.syncer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @DisplayName("消息分发器接口测试")
@@ -23,4 +29,19 @@ class MessageDispatcherTest {
 
         assertDoesNotThrow(() -> dispatcher.dispatch("test message"));
     }
+
+    @Test
+    @DisplayName("测试字节消息默认按UTF-8解码后分发")
+    void testDefaultBytesDispatch() {
+        List<String> received = new ArrayList<>();
+        MessageDispatcher dispatcher = received::add;
+
+        byte[] bytes = "前缀消息".getBytes(StandardCharsets.UTF_8);
+        dispatcher.dispatchBytes(bytes);
+        dispatcher.dispatch(bytes, 6, bytes.length - 6);
+        dispatcher.dispatchBuffer(ByteBuffer.wrap(bytes));
+        dispatcher.dispatchBytes(null);
+
+        assertEquals(List.of("前缀消息", "消息", "前缀消息"), received);
+    }
 }
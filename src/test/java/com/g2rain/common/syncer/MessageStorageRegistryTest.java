@@ -4,8 +4,18 @@ import lombok.NonNull;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -63,7 +73,105 @@ class MessageStorageRegistryTest {
         assertEquals(initialSize + 2, storages.size());
     }
 
+    @Test
+    @DisplayName("测试按数据源查找消息存储")
+    void testLookup() {
+        TestMessageStorage storage = new TestMessageStorage("lookupDataSource");
+
+        assertSame(storage, MessageStorageRegistry.lookup("lookupDataSource"));
+        assertNull(MessageStorageRegistry.lookup("missingDataSource"));
+    }
+
+    @Test
+    @DisplayName("测试注册后索引快照失效并重建")
+    void testLookupAfterRegister() {
+        TestMessageStorage storage1 = new TestMessageStorage("reindexDataSource");
+        assertSame(storage1, MessageStorageRegistry.lookup("reindexDataSource"));
+
+        // 同一数据源后注册的存储覆盖先注册的存储
+        TestMessageStorage storage2 = new TestMessageStorage("reindexDataSource");
+        assertSame(storage2, MessageStorageRegistry.lookup("reindexDataSource"));
+    }
+
     // 测试用的具体实现类
+    @Test
+    @DisplayName("测试并行预热并重放加载期间的变更")
+    void testLoadAll() throws InterruptedException {
+        InMemoryMessageStorageTest.UserStorage storage = new InMemoryMessageStorageTest.UserStorage("warmUpDataSource");
+        storage.loaded.add(new InMemoryMessageStorageTest.User("1", "t1"));
+        storage.loadStarted = new CountDownLatch(1);
+        storage.loadRelease = new CountDownLatch(1);
+        FailingMessageStorage failing = new FailingMessageStorage("warmUpFailingDataSource");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<List<StorageLoadResult>> ready = MessageStorageRegistry.loadAll(executor);
+            storage.loadStarted.await();
+
+            // 加载期间的变更进入缓冲，不直接写入存储
+            MessageDispatcher dispatcher = new DefaultMessageDispatcher();
+            dispatcher.dispatch("{\"dataSource\":\"warmUpDataSource\",\"eventType\":\"UPDATE\","
+                + "\"data\":{\"id\":\"1\",\"tenant\":\"t2\"}}");
+            dispatcher.dispatch("{\"dataSource\":\"warmUpDataSource\",\"eventType\":\"CREATE\","
+                + "\"data\":{\"id\":\"2\",\"tenant\":\"t2\"}}");
+            assertEquals(0, storage.size());
+            assertFalse(ready.isDone());
+
+            storage.loadRelease.countDown();
+            List<StorageLoadResult> results = ready.join();
+
+            StorageLoadResult result = results.stream()
+                .filter(r -> "warmUpDataSource".equals(r.dataSource())).findFirst().orElseThrow();
+            assertTrue(result.isSuccess());
+            assertEquals(2, result.replayed());
+
+            StorageLoadResult failed = results.stream()
+                .filter(r -> "warmUpFailingDataSource".equals(r.dataSource())).findFirst().orElseThrow();
+            assertFalse(failed.isSuccess());
+            assertEquals(1, failing.loadCalls);
+        } finally {
+            executor.shutdown();
+        }
+
+        // 重放后的变更覆盖全量数据，之后的变更直接应用
+        assertEquals(2, storage.size());
+        assertEquals("t2", storage.get("1").tenant());
+        new DefaultMessageDispatcher().dispatch("{\"dataSource\":\"warmUpDataSource\",\"eventType\":\"DELETE\","
+            + "\"data\":{\"id\":\"2\",\"tenant\":\"t2\"}}");
+        assertEquals(1, storage.size());
+    }
+
+    @Test
+    @DisplayName("测试加载抛出 Error 时仍关闭缓冲")
+    void testLoadAllWithError() {
+        TestMessageStorage storage = new TestMessageStorage("warmUpErrorDataSource");
+        List<StorageLoadResult> results = MessageStorageRegistry.loadAll(Runnable::run, ms -> {
+            if (ms == storage) {
+                throw new AssertionError("load error");
+            }
+        }).join();
+
+        StorageLoadResult result = results.stream()
+            .filter(r -> "warmUpErrorDataSource".equals(r.dataSource())).findFirst().orElseThrow();
+        assertInstanceOf(AssertionError.class, result.failure());
+        // 缓冲已关闭，之后的变更直接应用
+        assertFalse(MessageStorageRegistry.defer(storage, new Change<>(EventType.CREATE, "key", "value")));
+    }
+
+    static class FailingMessageStorage extends TestMessageStorage {
+        int loadCalls;
+
+        FailingMessageStorage(String dataSourceName) {
+            super(dataSourceName);
+        }
+
+        @Override
+        public void load() {
+            loadCalls++;
+            throw new IllegalStateException("load failed");
+        }
+    }
+
     static class TestMessageStorage extends AbstractMessageStorage<String, String, String> {
         private final String dataSourceName;
 
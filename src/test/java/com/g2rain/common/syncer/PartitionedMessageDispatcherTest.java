@@ -0,0 +1,245 @@
+package com.g2rain.common.syncer;
+
+import com.g2rain.common.json.JsonCodec;
+import com.g2rain.common.json.JsonCodecFactory;
+import lombok.NonNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("分区并行消息分发器测试")
+class PartitionedMessageDispatcherTest {
+
+    private final JsonCodec jsonCodec = JsonCodecFactory.instance();
+
+    @Test
+    @DisplayName("测试同一键的变更保持顺序")
+    void testPerKeyOrdering() throws InterruptedException {
+        KeyedMessageStorage storage = new KeyedMessageStorage("partitionedDataSource");
+
+        try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(4, 16)) {
+            for (int version = 0; version < 200; version++) {
+                for (int key = 0; key < 10; key++) {
+                    dispatcher.dispatch(message("partitionedDataSource", EventType.UPDATE, key + ":" + version));
+                }
+            }
+            assertTrue(dispatcher.drain(10, TimeUnit.SECONDS));
+            assertArrayEquals(new int[4], dispatcher.queueDepths());
+        }
+
+        assertEquals(10, storage.versions.size());
+        storage.versions.forEach((key, versions) -> {
+            assertEquals(200, versions.size());
+            for (int i = 0; i < versions.size(); i++) {
+                assertEquals(i, versions.get(i));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("测试批量分发按通道拆分并保持顺序")
+    void testDispatchBatch() throws InterruptedException {
+        KeyedMessageStorage storage = new KeyedMessageStorage("partitionedBatchDataSource");
+
+        List<String> batch = new ArrayList<>();
+        for (int version = 0; version < 50; version++) {
+            for (int key = 0; key < 5; key++) {
+                batch.add(message("partitionedBatchDataSource", EventType.UPDATE, key + ":" + version));
+            }
+        }
+
+        try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(3, 4)) {
+            dispatcher.dispatchBatch(batch);
+            assertTrue(dispatcher.drain(10, TimeUnit.SECONDS));
+            assertEquals(3, dispatcher.completedCounts().length);
+        }
+
+        storage.versions.forEach((key, versions) -> assertEquals(50, versions.size()));
+        // 每个通道内按存储分组，批量方法调用次数不超过通道数
+        assertTrue(storage.batchCalls.size() <= 3);
+    }
+
+    @Test
+    @DisplayName("测试慢存储只阻塞所在通道")
+    void testSlowPartitionDoesNotBlockOthers() throws InterruptedException {
+        KeyedMessageStorage storage = new KeyedMessageStorage("partitionedSlowDataSource");
+        CountDownLatch release = new CountDownLatch(1);
+        storage.blockingKey = "0";
+        storage.release = release;
+
+        try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(2, 32)) {
+            dispatcher.dispatch(message("partitionedSlowDataSource", EventType.CREATE, "0:0"));
+            // 其余键分散到两个通道，落在另一个通道的键不受阻塞
+            for (int key = 1; key < 20; key++) {
+                dispatcher.dispatch(message("partitionedSlowDataSource", EventType.CREATE, key + ":0"));
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.versions.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(storage.versions.isEmpty());
+            assertFalse(dispatcher.drain(50, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertTrue(dispatcher.drain(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(20, storage.versions.size());
+    }
+
+    @Test
+    @DisplayName("测试任务抛出 Error 后通道继续工作")
+    void testLaneSurvivesError() {
+        KeyedMessageStorage storage = new KeyedMessageStorage("partitionedErrorDataSource") {
+            @Override
+            protected void create(@NonNull String key, String value) {
+                if (key.equals("boom")) {
+                    throw new AssertionError("boom");
+                }
+                super.create(key, value);
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(1, 2)) {
+                dispatcher.dispatch(message("partitionedErrorDataSource", EventType.CREATE, "boom:0"));
+                // 通道退出时队列很快写满，之后的提交会永久阻塞
+                for (int key = 0; key < 10; key++) {
+                    dispatcher.dispatch(message("partitionedErrorDataSource", EventType.CREATE, key + ":0"));
+                }
+                assertTrue(dispatcher.drain(5, TimeUnit.SECONDS));
+            }
+        });
+
+        assertEquals(10, storage.versions.size());
+    }
+
+    @Test
+    @DisplayName("测试持续写入时排空只等待调用前提交的变更")
+    void testDrainUnderLoad() throws InterruptedException {
+        KeyedMessageStorage storage = new KeyedMessageStorage("partitionedLoadDataSource");
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        try (PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(1, 1024)) {
+            for (int key = 0; key < 100; key++) {
+                dispatcher.dispatch(message("partitionedLoadDataSource", EventType.CREATE, key + ":0"));
+            }
+
+            Thread producer = Thread.ofVirtual().start(() -> {
+                for (int version = 1; running.get(); version++) {
+                    dispatcher.dispatch(message("partitionedLoadDataSource", EventType.UPDATE, "load:" + version));
+                }
+            });
+            try {
+                assertTrue(dispatcher.drain(10, TimeUnit.SECONDS));
+                for (int key = 0; key < 100; key++) {
+                    assertEquals(List.of(0), storage.versions.get(String.valueOf(key)));
+                }
+            } finally {
+                running.set(false);
+                producer.join();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试关闭后拒绝新的变更")
+    void testClose() {
+        new KeyedMessageStorage("partitionedClosedDataSource");
+        PartitionedMessageDispatcher dispatcher = new PartitionedMessageDispatcher(2, 2);
+        dispatcher.close();
+        dispatcher.close();
+
+        String message = message("partitionedClosedDataSource", EventType.CREATE, "1:0");
+        assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(message));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedMessageDispatcher(0, 1));
+    }
+
+    private String message(String dataSource, EventType eventType, String data) {
+        return jsonCodec.obj2str(new EventMessage<>(dataSource, eventType, "\"" + data + "\""));
+    }
+
+    /**
+     * 以“键:版本”字符串为值，记录每个键收到的版本顺序
+     */
+    static class KeyedMessageStorage extends AbstractMessageStorage<String, String, String> {
+        final Map<String, List<Integer>> versions = new ConcurrentHashMap<>();
+        final List<Integer> batchCalls = java.util.Collections.synchronizedList(new ArrayList<>());
+        private final String dataSourceName;
+        volatile String blockingKey;
+        volatile CountDownLatch release;
+
+        KeyedMessageStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<String> getValueType() {
+            return String.class;
+        }
+
+        @Override
+        protected @NonNull String getKey(@NonNull String value) {
+            return value.substring(0, value.indexOf(':'));
+        }
+
+        @Override
+        protected void create(@NonNull String key, String value) {
+            record(key, value);
+        }
+
+        @Override
+        protected void delete(@NonNull String key) {
+            versions.remove(key);
+        }
+
+        @Override
+        protected void update(@NonNull String key, String value) {
+            record(key, value);
+        }
+
+        @Override
+        protected String get(@NonNull String key) {
+            return null;
+        }
+
+        @Override
+        protected void applyBatch(@NonNull List<Change<String, String>> changes) {
+            batchCalls.add(changes.size());
+            super.applyBatch(changes);
+        }
+
+        private void record(String key, String value) {
+            if (key.equals(blockingKey)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int version = Integer.parseInt(value.substring(value.indexOf(':') + 1));
+            versions.computeIfAbsent(key, k -> java.util.Collections.synchronizedList(new ArrayList<>())).add(version);
+        }
+    }
+}
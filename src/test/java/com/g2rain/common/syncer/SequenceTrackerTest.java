@@ -0,0 +1,109 @@
+package com.g2rain.common.syncer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("事件序号跟踪器测试")
+class SequenceTrackerTest {
+
+    @Test
+    @DisplayName("测试按键丢弃过期与重复的序号")
+    void testAccept() {
+        SequenceTracker tracker = new SequenceTracker();
+
+        assertTrue(tracker.accept("user", "1", 10));
+        assertFalse(tracker.accept("user", "1", 10));
+        assertFalse(tracker.accept("user", "1", 9));
+        assertTrue(tracker.accept("user", "1", 11));
+
+        // 不同键、不同数据源的高水位互不影响
+        assertTrue(tracker.accept("user", "2", 5));
+        assertTrue(tracker.accept("order", "1", 5));
+        assertEquals(2, tracker.duplicateCount());
+
+        // 重新投递时序号等于高水位仍接受，较旧的序号丢弃
+        assertTrue(tracker.readmit("user", null, "1", 11));
+        assertFalse(tracker.readmit("user", null, "1", 10));
+        assertTrue(tracker.readmit("user", null, "3", 1));
+    }
+
+    @Test
+    @DisplayName("测试哈希值相同的键不共享高水位")
+    void testHashCollision() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(SequenceTracker.fingerprint("user", null, "Aa"), SequenceTracker.fingerprint("user", null, "BB"));
+
+        SequenceTracker tracker = new SequenceTracker();
+        assertTrue(tracker.accept("user", "Aa", 10));
+        assertTrue(tracker.accept("user", "BB", 5));
+    }
+
+    @Test
+    @DisplayName("测试容量不足时淘汰较旧的记录")
+    void testEviction() {
+        SequenceTracker tracker = new SequenceTracker(2, null);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tracker.accept("user", i, 100 + i));
+        }
+
+        assertEquals(8, tracker.evictionCount());
+        // 最新的记录仍然保留
+        assertFalse(tracker.accept("user", 9, 109));
+        // 被淘汰的键按首次出现处理
+        assertTrue(tracker.accept("user", 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SequenceTracker(0, null));
+    }
+
+    @Test
+    @DisplayName("测试报告数据源内的序号缺口")
+    void testGap() {
+        List<String> gaps = new ArrayList<>();
+        SequenceTracker tracker = new SequenceTracker(16, (dataSource, from, to) -> {
+            gaps.add(dataSource + ":" + from + "-" + to);
+            throw new IllegalStateException("listener failure");
+        });
+
+        tracker.observe("user", 1);
+        tracker.observe("user", 2);
+        tracker.observe("user", 5);
+        // 迟到的事件不会再次报告
+        tracker.observe("user", 3);
+        tracker.observe("user", 6);
+        tracker.observe("order", 100);
+
+        assertEquals(List.of("user:3-4"), gaps);
+        assertEquals(1, tracker.gapCount());
+        assertEquals(1, tracker.listenerFailureCount());
+    }
+
+    @Test
+    @DisplayName("测试按发布方分别跟踪序号")
+    void testProducers() {
+        List<String> gaps = new ArrayList<>();
+        SequenceTracker tracker = new SequenceTracker(16, (dataSource, from, to) -> gaps.add(from + "-" + to));
+
+        assertTrue(tracker.accept("user", 1L, "1", 1000));
+        // 另一个发布方的序号较小也不视为过期
+        assertTrue(tracker.accept("user", 2L, "1", 10));
+        assertTrue(tracker.accept("user", 1L, "1", 1001));
+        assertFalse(tracker.accept("user", 2L, "1", 10));
+        assertTrue(tracker.accept("user", null, "1", 1));
+
+        tracker.observe("user", 1L, 1000);
+        tracker.observe("user", 2L, 10);
+        tracker.observe("user", 1L, 1001);
+        tracker.observe("user", 2L, 11);
+        assertTrue(gaps.isEmpty());
+        tracker.observe("user", 2L, 13);
+        assertEquals(List.of("12-12"), gaps);
+    }
+}
@@ -0,0 +1,137 @@
+package com.g2rain.common.syncer;
+
+import com.g2rain.common.syncer.InMemoryMessageStorageTest.User;
+import com.g2rain.common.syncer.InMemoryMessageStorageTest.UserStorage;
+import lombok.NonNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("存储快照器测试")
+class StorageSnapshotterTest {
+
+    @Test
+    @DisplayName("测试写入全部快照并在启动时恢复，没有快照时回退到全量加载")
+    void testRestoreAll(@TempDir Path dir) {
+        UserStorage snapshotted = new UserStorage("snapshotterRestored");
+        snapshotted.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1"), 3L));
+        UserStorage loaded = new UserStorage("snapshotter/loaded");
+        loaded.loaded.add(new User("2", "t2"));
+
+        try (StorageSnapshotter snapshotter = new StorageSnapshotter(dir)) {
+            assertTrue(snapshotter.snapshotAll() >= 2);
+            assertTrue(Files.exists(snapshotter.pathOf("snapshotterRestored")));
+            assertEquals(dir.resolve("snapshotter%2Floaded.snapshot"), snapshotter.pathOf("snapshotter/loaded"));
+            // 移除一个快照，使其回退到全量加载
+            assertTrue(snapshotter.pathOf("snapshotter/loaded").toFile().delete());
+
+            snapshotted.apply(new Change<>(EventType.DELETE, "1", null, 4L));
+            List<StorageLoadResult> results = snapshotter.restoreAll(Executors.newVirtualThreadPerTaskExecutor()).join();
+            assertTrue(results.stream().allMatch(StorageLoadResult::isSuccess));
+
+            assertEquals(new User("1", "t1"), snapshotted.get("1"));
+            assertEquals(3L, snapshotted.lastSequence(null));
+            assertEquals(new User("2", "t2"), loaded.get("2"));
+            assertNull(loaded.lastSequence(null));
+        }
+    }
+
+    @Test
+    @DisplayName("测试损坏的快照回退到全量加载")
+    void testCorruptedFallback(@TempDir Path dir) throws Exception {
+        UserStorage storage = new UserStorage("snapshotterCorrupted");
+        storage.loaded.add(new User("loaded", "t1"));
+        try (StorageSnapshotter snapshotter = new StorageSnapshotter(dir)) {
+            Files.write(snapshotter.pathOf("snapshotterCorrupted"), new byte[64]);
+            snapshotter.restoreAll(Runnable::run).join();
+            assertEquals(new User("loaded", "t1"), storage.get("loaded"));
+            assertEquals(1, snapshotter.restoreFailureCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试后台定期写入快照")
+    void testStart(@TempDir Path dir) throws InterruptedException {
+        UserStorage storage = new UserStorage("snapshotterScheduled");
+        storage.apply(new Change<>(EventType.CREATE, "1", new User("1", "t1")));
+        try (StorageSnapshotter snapshotter = new StorageSnapshotter(dir)) {
+            assertThrows(IllegalArgumentException.class, () -> snapshotter.start(Duration.ZERO));
+            snapshotter.start(Duration.ofMillis(10));
+            assertThrows(IllegalStateException.class, () -> snapshotter.start(Duration.ofMillis(10)));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (snapshotter.snapshotCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(snapshotter.snapshotCount() > 0);
+        }
+        assertTrue(Files.exists(dir.resolve("snapshotterScheduled.snapshot")));
+    }
+
+    @Test
+    @DisplayName("测试字符串值的快照往返，拒绝写入 null")
+    void testStringValues(@TempDir Path dir) {
+        TextStorage storage = new TextStorage("snapshotterText");
+        for (String value : List.of("", "plain", "{\"looks\":\"like json\"}", "quote \" and 中文", "null")) {
+            storage.apply(new Change<>(EventType.CREATE, value, value, 9L));
+        }
+
+        Path file = dir.resolve("text.snapshot");
+        assertEquals(5, storage.writeSnapshot(file));
+        storage.apply(new Change<>(EventType.DELETE, "plain", null));
+        // 未设置发布方标识的序号以 null 为键往返
+        assertEquals(Collections.singletonMap(null, 9L), storage.restoreSnapshot(file));
+        assertEquals("", storage.get(""));
+        assertEquals("plain", storage.get("plain"));
+        assertEquals("{\"looks\":\"like json\"}", storage.get("{\"looks\":\"like json\"}"));
+        assertEquals("quote \" and 中文", storage.get("quote \" and 中文"));
+        assertEquals("null", storage.get("null"));
+
+        // null 值不会写成与结束标记冲突的空记录，原快照保持不变且不留下临时文件
+        assertThrows(IllegalArgumentException.class,
+            () -> StorageSnapshotter.write(file, "snapshotterText", Map.of(), Arrays.asList("a", null)));
+        assertFalse(Files.exists(dir.resolve("text.snapshot.tmp")));
+        List<String> values = new ArrayList<>();
+        assertEquals(Collections.singletonMap(null, 9L), StorageSnapshotter.read(file, "snapshotterText", String.class, values::add));
+        assertEquals(5, values.size());
+    }
+
+    static class TextStorage extends InMemoryMessageStorage<String, String> {
+        private final String dataSourceName;
+
+        TextStorage(String dataSourceName) {
+            this.dataSourceName = dataSourceName;
+        }
+
+        @Override
+        protected @NonNull String dataSource() {
+            return dataSourceName;
+        }
+
+        @Override
+        protected @NonNull Class<String> getValueType() {
+            return String.class;
+        }
+
+        @Override
+        protected @NonNull String getKey(@NonNull String value) {
+            return value;
+        }
+    }
+}